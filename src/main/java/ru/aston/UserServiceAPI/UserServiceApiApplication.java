@@ -2,14 +2,17 @@ package ru.aston.UserServiceAPI;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.r2dbc.R2dbcDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.r2dbc.R2dbcRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
 import org.springframework.hateoas.config.EnableHypermediaSupport;
-import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import ru.aston.UserServiceAPI.configs.RemoteConfigurationInitializer;
 
-@SpringBootApplication
+//R2DBC для профиля reactive настраивает ReactiveConfig
+@SpringBootApplication (exclude = {R2dbcAutoConfiguration.class, R2dbcDataAutoConfiguration.class, R2dbcRepositoriesAutoConfiguration.class, R2dbcTransactionManagerAutoConfiguration.class})
 @EnableScheduling
-@EnableAsync
 @EnableHypermediaSupport (type = EnableHypermediaSupport.HypermediaType.HAL_FORMS)
 public class UserServiceApiApplication {
     public static void main(String[] args) {
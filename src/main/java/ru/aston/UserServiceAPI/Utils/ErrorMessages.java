@@ -4,7 +4,16 @@ public enum ErrorMessages {
     BAD_REQUEST("Request should contains required parameters"),
     NOT_READABLE("Request body should not be empty, and should contains name, email, age."),
     UNKNOWN_EXCEPTION("Something went wrong"),
+    EMAIL_ALREADY_EXISTS("Email %s already exists."),
+    EMAIL_NOT_UNIQUE("User with this email already exists."),
     USER_NOT_FOUND("Sorry, but user with current parameters was not found"),
+    NOT_VALID_BATCH_SIZE("Batch should contains at least one user and should not exceed the maximum batch size."),
+    IMPORT_JOB_NOT_FOUND("Import job with current id was not found"),
+    NOT_VALID_IMPORT_FILE("Import file should not be empty."),
+    NOT_VALID_CURSOR("Cursor should be an user id or a cursor from the previous page."),
+    NOT_VALID_FIELDS("Fields should be a comma separated list of id, name, email, age."),
+    SERVICE_OVERLOADED("Too many concurrent requests, try again later."),
+    IMPORT_QUEUE_FULL("Too many imports are waiting, try again later."),
     ;
 
     private final String message;
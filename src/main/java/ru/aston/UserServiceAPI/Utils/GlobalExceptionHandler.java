@@ -1,5 +1,8 @@
 package ru.aston.UserServiceAPI.Utils;
 
+import io.r2dbc.spi.R2dbcException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -9,12 +12,16 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.Map;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    private static final String UNIQUE_VIOLATION = "23505";
+    private static final String IMPORT_RETRY_AFTER_SECONDS = "30";
+
     @ExceptionHandler (UserNotFoundException.class)
     @ResponseStatus (HttpStatus.NOT_FOUND)
     public ErrorResponse handleUserNotFoundException(UserNotFoundException ex) {
@@ -22,6 +29,21 @@ public class GlobalExceptionHandler {
         return new ErrorResponse(ex.getMessage());
     }
 
+    @ExceptionHandler (ImportJobNotFoundException.class)
+    @ResponseStatus (HttpStatus.NOT_FOUND)
+    public ErrorResponse handleImportJobNotFoundException(ImportJobNotFoundException ex) {
+        return new ErrorResponse(ex.getMessage());
+    }
+
+    //Как и ConnectionPoolLimitFilter, перегрузку отдаем 503 с Retry-After
+    @ExceptionHandler (ImportQueueFullException.class)
+    public ResponseEntity<ErrorResponse> handleImportQueueFullException(ImportQueueFullException ex) {
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER,IMPORT_RETRY_AFTER_SECONDS)
+                .body(new ErrorResponse(ex.getMessage()));
+    }
+
     @ExceptionHandler (NotValidUserException.class)
     @ResponseStatus (HttpStatus.BAD_REQUEST)
     public ErrorResponseMap handleNotValidUserException(NotValidUserException ex) {
@@ -29,6 +51,15 @@ public class GlobalExceptionHandler {
         return new ErrorResponseMap(ex.getErrorMap());
     }
 
+    @ExceptionHandler (DataIntegrityViolationException.class)
+    public ResponseEntity<Object> handleDataIntegrityViolationException(DataIntegrityViolationException ex) {
+        //23505 unique_violation, единственный уникальный ключ кроме айди это email
+        if (UNIQUE_VIOLATION.equals(sqlState(ex.getMostSpecificCause()))) {
+            return new ResponseEntity<>(new ErrorResponseMap(Map.of("email",ErrorMessages.EMAIL_NOT_UNIQUE.getMessage())),HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(new ErrorResponse(ErrorMessages.UNKNOWN_EXCEPTION.getMessage()),HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
     @ExceptionHandler (HttpMessageNotReadableException.class)
     @ResponseStatus (HttpStatus.BAD_REQUEST)
     public ErrorResponse handleHttpMessageNotReadableException(HttpMessageNotReadableException ex) {
@@ -52,6 +83,13 @@ public class GlobalExceptionHandler {
         return new ErrorResponse(ErrorMessages.UNKNOWN_EXCEPTION.getMessage());
     }
 
+    //В реактивном стеке причина - R2dbcException, а не SQLException
+    private static String sqlState(Throwable cause) {
+        if (cause instanceof SQLException sqlException) return sqlException.getSQLState();
+        if (cause instanceof R2dbcException r2dbcException) return r2dbcException.getSqlState();
+        return null;
+    }
+
     public static class ErrorResponse {
 
         private String error;
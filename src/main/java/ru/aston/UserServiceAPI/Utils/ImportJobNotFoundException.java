@@ -0,0 +1,8 @@
+package ru.aston.UserServiceAPI.Utils;
+
+public class ImportJobNotFoundException extends RuntimeException {
+
+    public ImportJobNotFoundException() {
+        super(ErrorMessages.IMPORT_JOB_NOT_FOUND.getMessage());
+    }
+}
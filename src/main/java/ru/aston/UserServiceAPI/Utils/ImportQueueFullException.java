@@ -0,0 +1,8 @@
+package ru.aston.UserServiceAPI.Utils;
+
+public class ImportQueueFullException extends RuntimeException {
+
+    public ImportQueueFullException() {
+        super(ErrorMessages.IMPORT_QUEUE_FULL.getMessage());
+    }
+}
@@ -0,0 +1,35 @@
+package ru.aston.UserServiceAPI.Utils;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.server.MethodNotAllowedException;
+import org.springframework.web.server.ServerWebInputException;
+import ru.aston.UserServiceAPI.Utils.GlobalExceptionHandler.ErrorResponse;
+
+//Исключения WebFlux, которым в GlobalExceptionHandler соответствуют исключения Spring MVC. Остальное отвечает GlobalExceptionHandler
+@RestControllerAdvice
+@Order (Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnWebApplication (type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveExceptionHandler {
+
+    //Пустое или нечитаемое тело - аналог HttpMessageNotReadableException, остальное - ServletRequestBindingException
+    @ExceptionHandler (ServerWebInputException.class)
+    public ResponseEntity<ErrorResponse> handleServerWebInputException(ServerWebInputException ex) {
+        boolean body = ex.getMethodParameter() != null && ex
+                .getMethodParameter()
+                .hasParameterAnnotation(RequestBody.class);
+        ErrorMessages message = body ? ErrorMessages.NOT_READABLE : ErrorMessages.BAD_REQUEST;
+        return new ResponseEntity<>(new ErrorResponse(message.getMessage()),HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler (MethodNotAllowedException.class)
+    public ResponseEntity<ErrorResponse> handleMethodNotAllowedException(MethodNotAllowedException ex) {
+        return new ResponseEntity<>(new ErrorResponse(ex.getMessage()),ex.getStatusCode());
+    }
+}
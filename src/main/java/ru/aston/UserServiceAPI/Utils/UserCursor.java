@@ -0,0 +1,47 @@
+package ru.aston.UserServiceAPI.Utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+
+public class UserCursor {
+
+    //Курсор это просто id последнего/первого юзера на странице, закодированный в base64,
+    //чтобы клиенты не строили на нем логику. Голый id в параметре тоже принимается.
+
+    private UserCursor() {
+    }
+
+    public static String encode(long id) {
+        return Base64
+                .getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(Long
+                        .toString(id)
+                        .getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public static long decode(String param,String cursor) {
+        try {
+            long id;
+            if (isDigits(cursor)) {
+                id = Long.parseLong(cursor);
+            } else {
+                id = Long.parseLong(new String(Base64
+                        .getUrlDecoder()
+                        .decode(cursor),StandardCharsets.US_ASCII));
+            }
+            if (id >= 0) return id;
+        } catch (IllegalArgumentException ignored) {
+        }
+        throw new NotValidUserException(Map.of(param,ErrorMessages.NOT_VALID_CURSOR.getMessage()));
+    }
+
+    private static boolean isDigits(String value) {
+        if (value.isEmpty()) return false;
+        for (int i = 0;i < value.length();i++) {
+            if (! Character.isDigit(value.charAt(i))) return false;
+        }
+        return true;
+    }
+}
@@ -4,6 +4,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.Errors;
 import org.springframework.validation.Validator;
+import ru.aston.UserServiceAPI.cache.EmailBloomFilter;
 import ru.aston.UserServiceAPI.dtos.UserDTORequest;
 import ru.aston.UserServiceAPI.entitys.User;
 import ru.aston.UserServiceAPI.services.UserServiceImpl;
@@ -14,10 +15,12 @@ import java.util.Optional;
 public class UserDTOValidator implements Validator {
 
     private final UserServiceImpl userService;
+    private final EmailBloomFilter emailFilter;
 
     @Autowired
-    public UserDTOValidator(UserServiceImpl userService) {
+    public UserDTOValidator(UserServiceImpl userService,EmailBloomFilter emailFilter) {
         this.userService = userService;
+        this.emailFilter = emailFilter;
     }
 
     @Override
@@ -27,11 +30,21 @@ public class UserDTOValidator implements Validator {
 
     @Override
     public void validate(Object target,Errors errors) {
-        UserDTORequest userDTORequest = (UserDTORequest) target;
-        if (userDTORequest.getEmail() != null) {
+        validate((UserDTORequest) target,null,errors);
+    }
+
+    //При обновлении собственный email пользователя занятым не считается
+    public void validate(UserDTORequest userDTORequest,Long ownerId,Errors errors) {
+        //Проверка только для ранней ошибки, уникальность гарантирует вставка, поэтому новые email в базу не ходят
+        if (userDTORequest.getEmail() != null && emailFilter.mightContain(userDTORequest.getEmail())) {
             Optional<User> userOptional = userService.getUserByEmail(userDTORequest.getEmail());
-            if (userOptional.isPresent()) {
-                errors.rejectValue("email",null,"Email " + userDTORequest.getEmail() + " already exists.");
+            if (userOptional.isPresent() && ! userOptional
+                    .get()
+                    .getId()
+                    .equals(ownerId)) {
+                errors.rejectValue("email",null,ErrorMessages.EMAIL_ALREADY_EXISTS
+                        .getMessage()
+                        .formatted(userDTORequest.getEmail()));
             }
         }
     }
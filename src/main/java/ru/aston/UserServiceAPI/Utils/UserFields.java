@@ -0,0 +1,48 @@
+package ru.aston.UserServiceAPI.Utils;
+
+import org.springframework.hateoas.server.core.Relation;
+import ru.aston.UserServiceAPI.dtos.UserDTOResponse;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class UserFields {
+
+    //Проекция пользователя по параметру fields (?fields=id,email). Поля всегда идут в порядке UserDTOResponse,
+    //повтор поля не ошибка, неизвестное поле - ошибка валидации.
+
+    private static final List<String> NAMES = List.of("id","name","email","age");
+
+    private final boolean[] selected;
+
+    private UserFields(boolean[] selected) {
+        this.selected = selected;
+    }
+
+    //null, если параметра нет и пользователь отдается целиком
+    public static UserFields parse(String fields) {
+        if (fields == null || fields.isBlank()) return null;
+        boolean[] selected = new boolean[NAMES.size()];
+        for (String field : fields.split(",")) {
+            int index = NAMES.indexOf(field.trim());
+            if (index < 0) throw new NotValidUserException(Map.of("fields",ErrorMessages.NOT_VALID_FIELDS.getMessage()));
+            selected[index] = true;
+        }
+        return new UserFields(selected);
+    }
+
+    public Projection project(UserDTOResponse user) {
+        Projection projection = new Projection();
+        if (selected[0]) projection.put("id",user.getId());
+        if (selected[1]) projection.put("name",user.getName());
+        if (selected[2]) projection.put("email",user.getEmail());
+        if (selected[3]) projection.put("age",user.getAge());
+        return projection;
+    }
+
+    //Связи как у UserDTOResponse, чтобы в HAL коллекция оставалась под _embedded.userDTOResponseList
+    @Relation (itemRelation = "userDTOResponse", collectionRelation = "userDTOResponseList")
+    public static class Projection extends LinkedHashMap<String, Object> {
+    }
+}
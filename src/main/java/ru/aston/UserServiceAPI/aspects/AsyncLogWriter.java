@@ -0,0 +1,216 @@
+package ru.aston.UserServiceAPI.aspects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+Ограниченный кольцевой буфер событий логирования с одним потоком-писателем.
+Аргументы и результат превращаются в строки в потоке сервиса (renderArgs/render): объект, переданный
+по ссылке, к моменту записи мог уже измениться. Поток сервиса кладет строки в заранее созданный слот,
+форматирование сообщения и запись в аппендеры выполняются в потоке-писателе. Если буфер заполнен,
+событие отбрасывается, число отброшенных событий периодически пишется в лог.
+Сам буфер - ограниченная MPSC очередь Вьюкова: у каждого слота есть номер, по которому понятно,
+свободен ли он для очередного производителя или уже заполнен для потребителя.
+Пустой буфер писатель не опрашивает: он выставляет parked, еще раз проверяет слот и засыпает до unpark.
+Производитель публикует слот volatile-записью и только после нее читает parked, а писатель пишет parked
+до повторной проверки слота, поэтому хотя бы один из них увидит запись другого и событие не зависнет.
+*/
+class AsyncLogWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncLogWriter.class);
+
+    enum Kind {
+        CALL, FAILED, THROWN, INVOKED
+    }
+
+    private static final class Slot {
+        private Kind kind;
+        private Logger logger;
+        private String method;
+        private String args;
+        private String result;
+        private Throwable error;
+        private long nanos;
+    }
+
+    private final Slot[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final int maxResultLength;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread thread;
+    private long head;
+    private volatile boolean running = true;
+    private volatile boolean parked;
+
+    AsyncLogWriter(int bufferSize,int maxResultLength) {
+        int capacity = Integer.highestOneBit(Math.max(2,bufferSize - 1)) << 1;
+        this.slots = new Slot[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0;i < capacity;i++) {
+            slots[i] = new Slot();
+            sequences.set(i,i);
+        }
+        this.mask = capacity - 1;
+        this.maxResultLength = maxResultLength;
+        this.thread = new Thread(this::run,"async-log-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    boolean publish(Kind kind,Logger logger,String method,String args,String result,Throwable error,long nanos) {
+        long sequence;
+        int index;
+        while (true) {
+            sequence = tail.get();
+            index = (int) (sequence & mask);
+            long slotSequence = sequences.get(index);
+            if (slotSequence == sequence) {
+                if (tail.compareAndSet(sequence,sequence + 1)) break;
+            } else if (slotSequence < sequence) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        }
+        Slot slot = slots[index];
+        slot.kind = kind;
+        slot.logger = logger;
+        slot.method = method;
+        slot.args = args;
+        slot.result = result;
+        slot.error = error;
+        slot.nanos = nanos;
+        sequences.set(index,sequence + 1);
+        if (parked) LockSupport.unpark(thread);
+        return true;
+    }
+
+    long getDropped() {
+        return dropped.get();
+    }
+
+    //Оставшиеся в буфере события дописываются до остановки потока
+    void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread
+                    .currentThread()
+                    .interrupt();
+        }
+    }
+
+    private void run() {
+        long reportedDrops = 0;
+        while (true) {
+            boolean drained = ! poll();
+            long drops = dropped.get();
+            if (drained && drops != reportedDrops) {
+                log.warn("Log buffer is full, {} log events dropped",drops - reportedDrops);
+                reportedDrops = drops;
+            }
+            if (drained) {
+                if (! running) return;
+                parked = true;
+                if (! ready() && running) LockSupport.park(this);
+                parked = false;
+            }
+        }
+    }
+
+    private boolean ready() {
+        return sequences.get((int) (head & mask)) == head + 1;
+    }
+
+    private boolean poll() {
+        if (! ready()) return false;
+        int index = (int) (head & mask);
+        Slot slot = slots[index];
+        try {
+            write(slot);
+        } catch (RuntimeException e) {
+            log.warn("Failed to write log event for {}(): {}",slot.method,e.toString());
+        } finally {
+            slot.logger = null;
+            slot.args = null;
+            slot.result = null;
+            slot.error = null;
+            sequences.lazySet(index,head + mask + 1);
+            head++;
+        }
+        return true;
+    }
+
+    private void write(Slot slot) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(slot.nanos);
+        switch (slot.kind) {
+            case CALL -> slot.logger.info("Transactional method {}() finished in {} ms. Method args: {}. Result: {}.",slot.method,millis,slot.args,slot.result);
+            case FAILED -> slot.logger.error("Transactional method {}() execution exception after {} ms: {}. Method args: {}.",slot.method,millis,slot.error.getMessage(),slot.args);
+            case THROWN -> slot.logger.error("Method {}() throw exception. Method args: {}",slot.method,slot.args);
+            case INVOKED -> slot.logger.info("Method {}() call. Method args: {}",slot.method,slot.args);
+        }
+    }
+
+    String renderArgs(Object[] args) {
+        if (args == null) return "";
+        StringBuilder builder = new StringBuilder();
+        for (Object arg : args) {
+            if (arg == null) {
+                builder.append("null | ");
+                continue;
+            }
+            String type = arg
+                    .getClass()
+                    .getSimpleName();
+            if (type.contains("BindingResult")) continue;
+            builder
+                    .append(type)
+                    .append(" ");
+            append(builder,arg);
+            builder.append(" | ");
+        }
+        return builder.toString();
+    }
+
+    String render(Object result) {
+        StringBuilder builder = new StringBuilder();
+        append(builder,result);
+        return builder.toString();
+    }
+
+    //Коллекции печатаются поэлементно до лимита, чтобы не строить строку из целой страницы пользователей
+    private void append(StringBuilder builder,Object value) {
+        int limit = builder.length() + maxResultLength;
+        if (value instanceof Iterable<?> iterable) {
+            builder.append("[");
+            int count = 0;
+            for (Object item : iterable) {
+                if (builder.length() >= limit) {
+                    builder.append("... ");
+                    if (iterable instanceof Collection<?> collection) builder
+                            .append(collection.size() - count)
+                            .append(" more");
+                    break;
+                }
+                if (count++ > 0) builder.append(", ");
+                builder.append(item);
+            }
+            builder.append("]");
+            return;
+        }
+        builder.append(value);
+        if (builder.length() > limit) {
+            builder.setLength(limit);
+            builder.append("...(truncated)");
+        }
+    }
+}
@@ -1,120 +1,149 @@
 package ru.aston.UserServiceAPI.aspects;
 
+import jakarta.annotation.PreDestroy;
+import org.aopalliance.intercept.MethodInvocation;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.After;
 import org.aspectj.lang.annotation.AfterThrowing;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.aop.aspectj.MethodInvocationProceedingJoinPoint;
+import org.springframework.aop.interceptor.ExposeInvocationInterceptor;
 import org.springframework.core.env.Environment;
-import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Aspect
-@Component
 public class LoggingAspect {
 
-    private final Environment env;
+    private final ConcurrentHashMap<Method, MethodLogging> methods = new ConcurrentHashMap<>();
+    private LoggingProperties properties;
+    //null, пока аспект не настроен или в тестовом профиле
+    private volatile AsyncLogWriter writer;
+
+    //Без аргументов аспект создает ajc при вплетении (профиль ctw), до configure() он ничего не логирует
+    public LoggingAspect() {
+    }
+
+    public LoggingAspect(Environment env,LoggingProperties properties) {
+        configure(env,properties);
+    }
 
-    @Autowired
-    public LoggingAspect(Environment env) {
-        this.env = env;
+    public synchronized void configure(Environment env,LoggingProperties properties) {
+        close();
+        methods.clear();
+        this.properties = properties;
+        if (isTestProfile(env)) return;
+        this.writer = new AsyncLogWriter(properties.getBufferSize(),properties.getMaxResultLength());
     }
 
-    //Логгирующий аспект, но тут смысл уже есть)))))
+    /*
+    Логгирующий аспект, но тут смысл уже есть)))))
+    Профиль проверяется один раз при настройке. Решение о сэмплировании принимается до того, как
+    аспект что-то создает: логгер и доля вызовов кэшируются по методу, так что пропущенный вызов
+    ничего не аллоцирует. Аргументы превращаются в строку до вызова метода, результат - сразу после него,
+    в потоке AsyncLogWriter только собирается сообщение и пишется в аппендеры.
+    */
 
-    @Around (value = "@annotation(org.springframework.transaction.annotation.Transactional)")
+    //execution() нужен для ajc: без него @annotation и @within совпадают еще и с местами вызова
+    @Around (value = "execution(* *(..)) && @annotation(org.springframework.transaction.annotation.Transactional)")
     public Object around(ProceedingJoinPoint joinPoint) throws Throwable {
-        for (String s : env.getActiveProfiles()) {
-            if (s.equalsIgnoreCase("test")) return joinPoint.proceed();
+        AsyncLogWriter writer = this.writer;
+        if (writer == null) return joinPoint.proceed();
+        MethodLogging logging = methodLogging(joinPoint);
+        if (logging == null || ! logging.sampled()) {
+            try {
+                return joinPoint.proceed();
+            } catch (Throwable ex) {
+                if (logging != null) writer.publish(AsyncLogWriter.Kind.FAILED,logging.logger,logging.name,writer.renderArgs(joinPoint.getArgs()),null,ex,0);
+                throw ex;
+            }
         }
-        Object[] args = joinPoint.getArgs();
-        Logger logger = LoggerFactory.getLogger(joinPoint
-                .getTarget()
-                .getClass());
-        String methodName = joinPoint
-                .getSignature()
-                .getName();
-        StringBuilder argsWithTypes = new StringBuilder();
-        for (Object arg : args) {
-            argsWithTypes
-                    .append(arg
-                            .getClass()
-                            .getSimpleName())
-                    .append(" ")
-                    .append(arg)
-                    .append(" | ")
-            ;
-        }
-        logger.info("Called transactional method: {}(). Method args: {}.",methodName,argsWithTypes);
-        logger.info("Open transaction...");
-        Object result = null;
+        String args = writer.renderArgs(joinPoint.getArgs());
+        long start = System.nanoTime();
         try {
-            result = joinPoint.proceed();
-            logger.info("Successful method call. Result: {}.",result);
+            Object result = joinPoint.proceed();
+            long nanos = System.nanoTime() - start;
+            writer.publish(AsyncLogWriter.Kind.CALL,logging.logger,logging.name,args,writer.render(result),null,nanos);
+            return result;
         } catch (Throwable ex) {
-            logger.error("Transactional method execution exception: {}",ex.getMessage());
-        } finally {
-            logger.info("Closing transaction...");
+            writer.publish(AsyncLogWriter.Kind.FAILED,logging.logger,logging.name,args,null,ex,System.nanoTime() - start);
+            throw ex;
         }
-        return result;
     }
 
-    @AfterThrowing (value = "@within(ru.aston.UserServiceAPI.Utils.Loggable)")
+    @AfterThrowing (value = "execution(public * *(..)) && @within(ru.aston.UserServiceAPI.Utils.Loggable)")
     public void afterThrowing(JoinPoint joinPoint) throws Throwable {
-        for (String s : env.getActiveProfiles()) {
-            if (s.equalsIgnoreCase("test")) return;
-        }
-        Object[] args = joinPoint.getArgs();
-        String methodName = joinPoint
-                .getSignature()
-                .getName();
-        Logger logger = LoggerFactory.getLogger(joinPoint
-                .getTarget()
-                .getClass());
-        StringBuilder argsWithTypes = new StringBuilder();
-        for (Object arg : args) {
-            if (arg == null || arg
-                    .getClass()
-                    .getSimpleName()
-                    .contains("BindingResult")) continue;
-            argsWithTypes
-                    .append(arg
-                            .getClass()
-                            .getSimpleName())
-                    .append(" ")
-                    .append(arg)
-                    .append(".")
-            ;
-        }
-        logger.error("Method {}() throw exception. Method args: {}",methodName,argsWithTypes);
+        AsyncLogWriter writer = this.writer;
+        if (writer == null) return;
+        MethodLogging logging = methodLogging(joinPoint);
+        if (logging == null || ! logging.logger.isErrorEnabled()) return;
+        writer.publish(AsyncLogWriter.Kind.THROWN,logging.logger,logging.name,writer.renderArgs(joinPoint.getArgs()),null,null,0);
     }
 
     @After (value = "execution(* ru.aston.UserServiceAPI.kafka.ProducerService.*(..))")
     public void after(JoinPoint joinPoint) throws Throwable {
+        AsyncLogWriter writer = this.writer;
+        if (writer == null) return;
+        MethodLogging logging = methodLogging(joinPoint);
+        if (logging == null || ! logging.sampled()) return;
+        writer.publish(AsyncLogWriter.Kind.INVOKED,logging.logger,logging.name,writer.renderArgs(joinPoint.getArgs()),null,null,0);
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        AsyncLogWriter writer = this.writer;
+        this.writer = null;
+        if (writer != null) writer.close();
+    }
+
+    /*
+    В режиме прокси метод берется из MethodInvocation, потому что сигнатура у MethodInvocationProceedingJoinPoint
+    создается заново на каждый вызов. При вплетении ajc StaticPart и его сигнатура - константы места вплетения.
+    */
+    private MethodLogging methodLogging(JoinPoint joinPoint) {
+        Method method;
+        if (joinPoint instanceof MethodInvocationProceedingJoinPoint) {
+            MethodInvocation invocation = ExposeInvocationInterceptor.currentInvocation();
+            method = invocation.getMethod();
+        } else {
+            method = ((MethodSignature) joinPoint
+                    .getStaticPart()
+                    .getSignature()).getMethod();
+        }
+        MethodLogging logging = methods.get(method);
+        if (logging != null) return logging;
+        return methods.computeIfAbsent(method,m -> {
+            Class<?> targetClass = joinPoint.getTarget() != null ? joinPoint
+                    .getTarget()
+                    .getClass() : m.getDeclaringClass();
+            String className = targetClass
+                    .getSimpleName()
+                    .split("\\$\\$")[0];
+            return new MethodLogging(LoggerFactory.getLogger(targetClass),m.getName(),properties.rateFor(className,m.getName()));
+        });
+    }
+
+    private static boolean isTestProfile(Environment env) {
         for (String s : env.getActiveProfiles()) {
-            if (s.equalsIgnoreCase("test")) return;
+            if (s.equalsIgnoreCase("test")) return true;
         }
-        Object[] args = joinPoint.getArgs();
-        String methodName = joinPoint
-                .getSignature()
-                .getName();
-        Logger logger = LoggerFactory.getLogger(joinPoint
-                .getTarget()
-                .getClass());
-        StringBuilder argsWithTypes = new StringBuilder();
-        for (Object arg : args) {
-            argsWithTypes
-                    .append(arg
-                            .getClass()
-                            .getSimpleName())
-                    .append(" ")
-                    .append(arg)
-                    .append(".")
-            ;
+        return false;
+    }
+
+    private record MethodLogging(Logger logger,String name,double rate) {
+
+        boolean sampled() {
+            if (rate <= 0 || ! logger.isInfoEnabled()) return false;
+            return rate >= 1 || ThreadLocalRandom
+                    .current()
+                    .nextDouble() < rate;
         }
-        logger.info("Method {}() call. Method args: {}",methodName,argsWithTypes);
     }
 }
@@ -0,0 +1,54 @@
+package ru.aston.UserServiceAPI.aspects;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@ConfigurationProperties (prefix = "user.logging")
+public class LoggingProperties {
+
+    private double sampleRate = 1.0;
+    //Ключ - "ИмяКласса.метод" или просто "метод", значение - доля логируемых вызовов от 0 до 1
+    private Map<String, Double> methods = new HashMap<>();
+    private int maxResultLength = 1000;
+    private int bufferSize = 1024;
+
+    public double rateFor(String className,String methodName) {
+        Double rate = methods.get(className + "." + methodName);
+        if (rate == null) rate = methods.get(methodName);
+        return rate != null ? rate : sampleRate;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public Map<String, Double> getMethods() {
+        return methods;
+    }
+
+    public void setMethods(Map<String, Double> methods) {
+        this.methods = methods;
+    }
+
+    public int getMaxResultLength() {
+        return maxResultLength;
+    }
+
+    public void setMaxResultLength(int maxResultLength) {
+        this.maxResultLength = maxResultLength;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+}
@@ -5,34 +5,38 @@ import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
-import org.springframework.stereotype.Component;
 import ru.aston.UserServiceAPI.dtos.UserDTOResponse;
 import ru.aston.UserServiceAPI.entitys.User;
 import ru.aston.UserServiceAPI.repos.UserRepository;
 
-@Component
 @Aspect
 public class UpdatingAspect {
 
     //Бессмысленный с точки зрения логики аспект
     //Сделан просто ради того чтобы лучше понять аспекты
 
-    private final UserRepository userRepository;
-    private final Environment env;
+    private volatile UserRepository userRepository;
+
+    //Без аргументов аспект создает ajc при вплетении (профиль ctw)
+    public UpdatingAspect() {
+    }
 
-    @Autowired
     public UpdatingAspect(UserRepository userRepository,Environment env) {
-        this.userRepository = userRepository;
-        this.env = env;
+        configure(userRepository,env);
     }
 
-    @Around (value = "@annotation(ru.aston.UserServiceAPI.Utils.Updatable)")
-    public Object around(ProceedingJoinPoint joinPoint) throws Throwable {
+    public void configure(UserRepository userRepository,Environment env) {
         for (String s : env.getActiveProfiles()) {
-            if (s.equalsIgnoreCase("test")) return joinPoint.proceed();
+            if (s.equalsIgnoreCase("test")) return;
         }
+        this.userRepository = userRepository;
+    }
+
+    @Around (value = "execution(* *(..)) && @annotation(ru.aston.UserServiceAPI.Utils.Updatable)")
+    public Object around(ProceedingJoinPoint joinPoint) throws Throwable {
+        UserRepository userRepository = this.userRepository;
+        if (userRepository == null) return joinPoint.proceed();
         Object result = joinPoint.proceed();
         Logger logger = LoggerFactory.getLogger(joinPoint
                 .getTarget()
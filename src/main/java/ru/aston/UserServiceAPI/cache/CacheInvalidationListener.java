@@ -0,0 +1,89 @@
+package ru.aston.UserServiceAPI.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@Component
+@ConditionalOnProperty (name = "spring.kafka.enabled", havingValue = "true")
+public class CacheInvalidationListener {
+
+    /*
+    Каждый узел читает топик инвалидации своей группой, поэтому сообщения получают все узлы.
+    Свои сообщения пропускаются, локально запись уже выкинута. Если сообщение пришло позже
+    user.cache.max-staleness, узел отставал и мог отдавать что угодно, поэтому кэш чистится целиком.
+    Время публикации берется по часам отправителя, поэтому задержка считается от минимальной разницы часов,
+    замеченной для этого отправителя: постоянный сдвиг часов в нее не попадает. После очистки базой
+    становится текущая разница, так что скачок часов отправителя чистит кэш не больше одного раза.
+    Битые сообщения пропускаются, иначе контейнер повторял бы их бесконечно.
+    В худшем случае, когда сообщение потеряно, устаревшая запись живет не дольше user.cache.ttl.
+    */
+
+    private static final Logger log = LoggerFactory.getLogger(CacheInvalidationListener.class);
+
+    private final UserCache userCache;
+    private final UserCacheProperties properties;
+    private final Timer lag;
+    private final Map<String, Long> clockOffsets = new ConcurrentHashMap<>();
+
+    @Autowired
+    public CacheInvalidationListener(UserCache userCache,UserCacheProperties properties,ObjectProvider<MeterRegistry> meterRegistry) {
+        this.userCache = userCache;
+        this.properties = properties;
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        this.lag = registry == null ? null : Timer
+                .builder("user.cache.invalidation.lag")
+                .description("Time between publishing an invalidation and applying it on this node")
+                .register(registry);
+    }
+
+    @KafkaListener (topics = "${user.cache.invalidation-topic:userInvalidations}",
+            containerFactory = "cacheInvalidationContainerFactory")
+    public void onInvalidation(ConsumerRecord<String, String> record) {
+        String[] parts = record
+                .value()
+                .split(":",3);
+        if (parts.length != 3) {
+            log.warn("Skipping malformed invalidation message {}",record.value());
+            return;
+        }
+        String nodeId = parts[1];
+        if (nodeId.equals(properties.getNodeId())) return;
+        long id;
+        long version;
+        long publishedAt;
+        try {
+            id = Long.parseLong(record.key());
+            version = Long.parseLong(parts[0]);
+            publishedAt = Long.parseLong(parts[2]);
+        } catch (NumberFormatException e) {
+            log.warn("Skipping malformed invalidation message {}={}",record.key(),record.value());
+            return;
+        }
+        long offset = System.currentTimeMillis() - publishedAt;
+        long baseline = clockOffsets.merge(nodeId,offset,Math::min);
+        long delay = offset - baseline;
+        if (lag != null) lag.record(delay,TimeUnit.MILLISECONDS);
+        if (Duration
+                .ofMillis(delay)
+                .compareTo(properties.getMaxStaleness()) > 0) {
+            log.warn("Invalidation for user {} from {} arrived after {} ms, clearing user cache",id,nodeId,delay);
+            clockOffsets.put(nodeId,offset);
+            userCache.clear();
+            return;
+        }
+        userCache.evictIfNotNewer(id,version);
+    }
+}
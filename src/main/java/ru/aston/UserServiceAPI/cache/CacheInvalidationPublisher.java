@@ -0,0 +1,25 @@
+package ru.aston.UserServiceAPI.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.aston.UserServiceAPI.kafka.InvalidatedKafkaMessage;
+import ru.aston.UserServiceAPI.kafka.ProducerService;
+
+@Component
+@ConditionalOnProperty (name = "spring.kafka.enabled", havingValue = "true")
+public class CacheInvalidationPublisher {
+
+    private final ProducerService producerService;
+    private final UserCacheProperties properties;
+
+    @Autowired
+    public CacheInvalidationPublisher(ProducerService producerService,UserCacheProperties properties) {
+        this.producerService = producerService;
+        this.properties = properties;
+    }
+
+    public void publish(Long id,Long version) {
+        producerService.sendTo(properties.getInvalidationTopic(),new InvalidatedKafkaMessage(id,version == null ? 0 : version,properties.getNodeId()));
+    }
+}
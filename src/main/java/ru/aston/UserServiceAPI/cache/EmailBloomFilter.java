@@ -0,0 +1,125 @@
+package ru.aston.UserServiceAPI.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.aston.UserServiceAPI.services.ReadConsistency;
+import ru.aston.UserServiceAPI.services.ReadTransactionExecutor;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+@Component
+public class EmailBloomFilter {
+
+    /*
+    Фильтр отвечает "точно нет" или "возможно есть". Для "точно нет" проверка email на уникальность
+    не ходит в базу, уникальность все равно гарантирует ON CONFLICT в insertIfAbsent. Удаления
+    не учитываются, а email, созданные на других узлах, попадают сюда только после перезапуска,
+    оба случая дают лишь лишний запрос или 400 от вставки. Пока фильтр загружается, он отвечает "возможно".
+    */
+
+    private static final Logger log = LoggerFactory.getLogger(EmailBloomFilter.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadTransactionExecutor readExecutor;
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private volatile boolean ready;
+
+    @Autowired
+    public EmailBloomFilter(JdbcTemplate jdbcTemplate,
+            ReadTransactionExecutor readExecutor,
+            @Value ("${user.email-filter.expected-insertions:1000000}") long expectedInsertions,
+            @Value ("${user.email-filter.false-positive-probability:0.01}") double falsePositiveProbability) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readExecutor = readExecutor;
+        long bits = (long) Math.ceil(- expectedInsertions * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        this.bitCount = Math.max(64,(bits + 63) / 64 * 64);
+        this.hashCount = Math.max(1,(int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+        this.bits = new AtomicLongArray((int) (bitCount / 64));
+    }
+
+    @EventListener (ApplicationReadyEvent.class)
+    public void load() {
+        Thread loader = new Thread(() -> {
+            try {
+                long[] count = new long[1];
+                //Курсорная выборка работает только внутри транзакции
+                readExecutor.execute(ReadConsistency.READ_COMMITTED,() -> {
+                    jdbcTemplate.query(connection -> {
+                        PreparedStatement statement = connection.prepareStatement("SELECT email FROM users");
+                        statement.setFetchSize(10_000);
+                        return statement;
+                    },resultSet -> {
+                        put(resultSet.getString(1));
+                        count[0]++;
+                    });
+                    return null;
+                });
+                ready = true;
+                log.info("Email filter loaded with {} emails",count[0]);
+            } catch (Exception e) {
+                log.error("Email filter loading failed, every email will be checked in database: {}",e.getMessage());
+            }
+        },"email-filter-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    public boolean mightContain(String email) {
+        if (! ready) return true;
+        long[] hashes = hashes(email);
+        for (int i = 0;i < hashCount;i++) {
+            long bit = index(hashes,i);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    public void put(String email) {
+        if (email == null) return;
+        long[] hashes = hashes(email);
+        for (int i = 0;i < hashCount;i++) {
+            long bit = index(hashes,i);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            if ((bits.get(word) & mask) == 0) bits.accumulateAndGet(word,mask,(current,added) -> current | added);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    //Двойное хеширование: i-й хеш это h1 + i * h2
+    private long index(long[] hashes,int i) {
+        return Math.floorMod(hashes[0] + i * hashes[1],bitCount);
+    }
+
+    private long[] hashes(String email) {
+        byte[] bytes = email
+                .toLowerCase()
+                .getBytes(StandardCharsets.UTF_8);
+        long h1 = 0xcbf29ce484222325L;
+        long h2 = 0x9e3779b97f4a7c15L;
+        for (byte b : bytes) {
+            h1 = (h1 ^ b) * 0x100000001b3L;
+            h2 = Long.rotateLeft(h2 ^ b,31) * 0xbf58476d1ce4e5b9L;
+        }
+        return new long[]{mix(h1), mix(h2) | 1};
+    }
+
+    private static long mix(long h) {
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+}
@@ -0,0 +1,193 @@
+package ru.aston.UserServiceAPI.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.aston.UserServiceAPI.datasource.DataSourceRoutingContext;
+import ru.aston.UserServiceAPI.entitys.User;
+import ru.aston.UserServiceAPI.mappers.UserMapper;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+@Component
+@EnableConfigurationProperties (UserCacheProperties.class)
+public class UserCache {
+
+    /*
+    Основной кэш по айди ограничен по размеру и времени жизни. Индекс по email хранит только айди
+    и чистится листенером удаления основного кэша, поэтому оба ключа указывают на одну запись.
+    Имя не уникально, поэтому поиск по имени всегда идет в базу, кэшируется только найденная запись по айди.
+    Наружу отдается копия сущности, чтобы изменения вызывающего кода не попадали в кэш.
+    Чтение из базы могло начаться до коммита изменения и закончиться после его инвалидации, поэтому
+    загруженная запись кладется, только если с начала загрузки не было ни одной инвалидации
+    (как в UserResponseCache), и никогда не заменяет запись более новой версии.
+    После коммита остальные узлы получают сообщение инвалидации через кафку
+    (CacheInvalidationPublisher/CacheInvalidationListener).
+    Готовые ответы UserResponseCache, если он включен, выкидываются вместе с записью.
+    Промах читается только из мастера: реплика в пределах max-lag может вернуть строку до коммита,
+    которая прошла бы проверку поколения и жила бы в кэше весь ttl. Чтение внутри уже открытой транзакции
+    не кэшируется, ее соединение уже выбрано и могло уйти в реплику.
+    Если ReadYourWritesFilter уже направил запрос в мастер (кука после записи), кэш не используется совсем:
+    другой узел мог еще не получить инвалидацию, а клиент должен увидеть свою запись.
+    */
+
+    private final UserMapper userMapper;
+    private final ObjectProvider<CacheInvalidationPublisher> invalidationPublisher;
+    private final ObjectProvider<UserResponseCache> responseCache;
+    private final boolean enabled;
+    private final Cache<Long, User> byId;
+    private final Map<String, Long> emailIndex = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Autowired
+    public UserCache(UserCacheProperties properties,
+            UserMapper userMapper,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            ObjectProvider<CacheInvalidationPublisher> invalidationPublisher,
+            ObjectProvider<UserResponseCache> responseCache) {
+        this.userMapper = userMapper;
+        this.invalidationPublisher = invalidationPublisher;
+        this.responseCache = responseCache;
+        this.enabled = properties.isEnabled();
+        this.byId = Caffeine
+                .newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .executor(Runnable::run)
+                .<Long, User>removalListener((id,user,cause) -> {
+                    if (user != null) unindex(id,user);
+                })
+                .build();
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry,byId,"users"));
+    }
+
+    public Optional<User> getById(Long id,Supplier<Optional<User>> loader) {
+        if (bypass()) return loader.get();
+        User cached = byId.getIfPresent(id);
+        if (cached != null) return Optional.of(userMapper.copy(cached));
+        return load(loader);
+    }
+
+    public Optional<User> getByEmail(String email,Supplier<Optional<User>> loader) {
+        if (bypass()) return loader.get();
+        Long id = emailIndex.get(email);
+        User cached = id != null ? byId.getIfPresent(id) : null;
+        //Индекс мог устареть, если запись уже заменена другой версией
+        if (cached != null && email.equals(cached.getEmail())) return Optional.of(userMapper.copy(cached));
+        return load(loader);
+    }
+
+    public Optional<User> getByName(String name,Supplier<Optional<User>> loader) {
+        if (bypass()) return loader.get();
+        return load(loader);
+    }
+
+    //Сущность уже закоммичена, поэтому поколение инвалидаций не проверяется, только версия
+    public void putAfterCommit(User user) {
+        if (! enabled) return;
+        User copy = userMapper.copy(user);
+        afterCommit(() -> put(copy,invalidations.get()));
+    }
+
+    public void evictAfterCommit(User user) {
+        Long id = user.getId();
+        evict(id);
+        //Версия читается после коммита, когда хибернейт уже ее увеличил
+        afterCommit(() -> {
+            evict(id);
+            invalidationPublisher.ifAvailable(publisher -> publisher.publish(id,user.getVersion()));
+        });
+    }
+
+    //Запись, загруженная уже более новой версии, не трогается
+    public void evictIfNotNewer(Long id,long version) {
+        invalidations.incrementAndGet();
+        byId
+                .asMap()
+                .computeIfPresent(id,(key,cached) -> cached.getVersion() == null || cached.getVersion() <= version ? null : cached);
+        //Версия готового ответа не хранится, он выкидывается всегда
+        responseCache.ifAvailable(cache -> cache.evict(id));
+    }
+
+    public void clear() {
+        invalidations.incrementAndGet();
+        byId.invalidateAll();
+        responseCache.ifAvailable(UserResponseCache::clear);
+    }
+
+    //Поколение растет раньше удаления, поэтому загрузка, начатая до инвалидации, запись уже не вернет
+    private void evict(Long id) {
+        if (enabled) {
+            invalidations.incrementAndGet();
+            byId.invalidate(id);
+        }
+        responseCache.ifAvailable(cache -> cache.evict(id));
+    }
+
+    private boolean bypass() {
+        return ! enabled || DataSourceRoutingContext.isPrimaryForced();
+    }
+
+    private Optional<User> load(Supplier<Optional<User>> loader) {
+        long generation = invalidations.get();
+        //В пишущей транзакции видны незакоммиченные изменения, в читающей соединение могло уйти в реплику
+        boolean transaction = TransactionSynchronizationManager.isActualTransactionActive();
+        Optional<User> loaded;
+        DataSourceRoutingContext.forcePrimary();
+        try {
+            loaded = loader.get();
+        } finally {
+            DataSourceRoutingContext.clear();
+        }
+        if (! transaction) loaded.ifPresent(user -> put(userMapper.copy(user),generation));
+        return loaded;
+    }
+
+    private void put(User user,long generation) {
+        if (user.getId() == null) return;
+        User stored = byId
+                .asMap()
+                .compute(user.getId(),(id,cached) -> {
+                    if (generation != invalidations.get()) return cached;
+                    return cached != null && isNewer(cached,user) ? cached : user;
+                });
+        if (stored == user) emailIndex.put(user.getEmail(),user.getId());
+    }
+
+    private static boolean isNewer(User cached,User user) {
+        return cached.getVersion() != null && (user.getVersion() == null || cached.getVersion() > user.getVersion());
+    }
+
+    private void unindex(Long id,User user) {
+        //При замене записи email новой версии мог совпасть со старым, его не трогаем
+        User current = byId.getIfPresent(id);
+        if (current == null || ! current
+                .getEmail()
+                .equals(user.getEmail())) emailIndex.remove(user.getEmail(),id);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (! TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,93 @@
+package ru.aston.UserServiceAPI.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+
+@ConfigurationProperties (prefix = "user.cache")
+public class UserCacheProperties implements EnvironmentAware {
+
+    private boolean enabled = true;
+    private long maximumSize = 10_000;
+    private Duration ttl = Duration.ofMinutes(5);
+    private String invalidationTopic = "userInvalidations";
+    private String nodeId;
+    private Duration maxStaleness = Duration.ofSeconds(10);
+    private Environment environment;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public String getInvalidationTopic() {
+        return invalidationTopic;
+    }
+
+    public void setInvalidationTopic(String invalidationTopic) {
+        this.invalidationTopic = invalidationTopic;
+    }
+
+    public String getNodeId() {
+        if (nodeId == null || nodeId.isBlank()) nodeId = defaultNodeId();
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public Duration getMaxStaleness() {
+        return maxStaleness;
+    }
+
+    public void setMaxStaleness(Duration maxStaleness) {
+        this.maxStaleness = maxStaleness;
+    }
+
+    //Хост и порт не меняются между перезапусками, поэтому группа консюмеров узла тоже остается прежней
+    private String defaultNodeId() {
+        String port = environment != null ? environment.getProperty("server.port","8080") : "8080";
+        return hostName() + "-" + port;
+    }
+
+    private static String hostName() {
+        String hostName = System.getenv("HOSTNAME");
+        if (hostName != null && ! hostName.isBlank()) return hostName;
+        try {
+            return InetAddress
+                    .getLocalHost()
+                    .getHostName();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package ru.aston.UserServiceAPI.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+public class UserResponseCache {
+
+    /*
+    Готовые тела ответов GET /user?id= по айди пользователя. У одного айди может быть несколько вариантов:
+    ссылки HATEOAS абсолютные и зависят от базового адреса запроса, а формат ответа - от Accept.
+    Каждый вариант хранится вместе со сжатой gzip копией, сжатие делается один раз при записи.
+    Ответ мог собираться из версии, прочитанной до коммита изменения, поэтому он записывается,
+    только если с начала его сборки не было ни одной инвалидации.
+    */
+
+    //Больше вариантов на пользователя не бывает без подбора заголовков Host и Accept
+    private static final int MAX_VARIANTS = 8;
+
+    private final Cache<Long, List<Rendered>> byId;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public UserResponseCache(UserResponseCacheProperties properties,ObjectProvider<MeterRegistry> meterRegistry) {
+        this.byId = Caffeine
+                .newBuilder()
+                .maximumWeight(properties
+                        .getMaxMemory()
+                        .toBytes())
+                .<Long, List<Rendered>>weigher((id,variants) -> {
+                    long weight = 0;
+                    for (Rendered rendered : variants) {
+                        weight += rendered.body().length + rendered.gzip().length;
+                    }
+                    return (int) Math.min(Integer.MAX_VALUE,weight);
+                })
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .executor(Runnable::run)
+                .build();
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry,byId,"userResponses"));
+    }
+
+    //Вариант ищется по заголовку Accept целиком: один и тот же Accept всегда дает один и тот же формат ответа
+    public Rendered get(long id,String baseUri,String accept) {
+        List<Rendered> variants = byId.getIfPresent(id);
+        if (variants == null) return null;
+        for (Rendered rendered : variants) {
+            if (rendered
+                    .accept()
+                    .equals(accept) && rendered
+                    .baseUri()
+                    .equals(baseUri)) return rendered;
+        }
+        return null;
+    }
+
+    public long generation() {
+        return invalidations.get();
+    }
+
+    public void put(long id,String baseUri,String accept,String contentType,byte[] body,long generation) {
+        Rendered rendered = new Rendered(baseUri,accept,contentType,body,gzip(body));
+        byId
+                .asMap()
+                .compute(id,(key,variants) -> {
+                    if (generation != invalidations.get()) return variants;
+                    List<Rendered> updated = new ArrayList<>(MAX_VARIANTS);
+                    updated.add(rendered);
+                    if (variants != null) {
+                        for (Rendered variant : variants) {
+                            boolean same = variant
+                                    .baseUri()
+                                    .equals(baseUri) && variant
+                                    .accept()
+                                    .equals(accept);
+                            if (! same && updated.size() < MAX_VARIANTS) updated.add(variant);
+                        }
+                    }
+                    return List.copyOf(updated);
+                });
+    }
+
+    //Счетчик увеличивается до удаления: запись, проверившая его раньше, будет удалена следом
+    public void evict(long id) {
+        invalidations.incrementAndGet();
+        byId.invalidate(id);
+    }
+
+    public void clear() {
+        invalidations.incrementAndGet();
+        byId.invalidateAll();
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 2 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    public record Rendered(String baseUri,String accept,String contentType,byte[] body,byte[] gzip) {
+    }
+}
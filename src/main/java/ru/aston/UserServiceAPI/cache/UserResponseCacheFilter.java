@@ -0,0 +1,122 @@
+package ru.aston.UserServiceAPI.cache;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import ru.aston.UserServiceAPI.datasource.DataSourceRoutingContext;
+import ru.aston.UserServiceAPI.datasource.ReadYourWritesFilter;
+
+import java.io.IOException;
+import java.util.Map;
+
+public class UserResponseCacheFilter extends OncePerRequestFilter implements Ordered {
+
+    /*
+    GET /user?id= отдается из UserResponseCache копированием готовых байт, до DispatcherServlet,
+    без EntityModel и Jackson. Фильтр стоит раньше остальных фильтров приложения: попаданию
+    не нужны ни соединение с базой, ни подсчет запросов. При промахе ответ собирается как обычно,
+    буферизуется и попадает в кэш, если это 200 без Content-Encoding и при сборке не было чтений из реплики:
+    реплика в пределах max-lag может отдать версию до коммита, инвалидация которой уже прошла.
+    Пользователь из UserCache или из мастера кэшировать можно. Запросы с кукой ReadYourWritesFilter
+    кэш не трогают совсем: клиент должен увидеть свою запись, даже если этот узел еще не получил инвалидацию.
+    */
+
+    private static final String PATH = "/user";
+    private static final String ID = "id";
+    private static final String GZIP = "gzip";
+    private static final String VARY = HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING;
+
+    private final UserResponseCache cache;
+
+    public UserResponseCacheFilter(UserResponseCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE - 10;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return ! "GET".equals(request.getMethod()) || ! PATH.equals(request
+                .getRequestURI()
+                .substring(request
+                        .getContextPath()
+                        .length())) || id(request) <= 0 || ReadYourWritesFilter.isSticky(request,System.currentTimeMillis());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,HttpServletResponse response,FilterChain filterChain) throws ServletException, IOException {
+        long id = id(request);
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null) accept = "";
+        String baseUri = ServletUriComponentsBuilder
+                .fromServletMapping(request)
+                .toUriString();
+        UserResponseCache.Rendered rendered = cache.get(id,baseUri,accept);
+        if (rendered != null) {
+            write(request,response,rendered);
+            return;
+        }
+        long generation = cache.generation();
+        ContentCachingResponseWrapper buffered = new ContentCachingResponseWrapper(response);
+        DataSourceRoutingContext.clearReplicaRead();
+        try {
+            filterChain.doFilter(request,buffered);
+            boolean replicaRead = DataSourceRoutingContext.clearReplicaRead();
+            String contentType = buffered.getContentType();
+            if (! replicaRead && buffered.getStatus() == HttpServletResponse.SC_OK && contentType != null && buffered.getHeader(HttpHeaders.CONTENT_ENCODING) == null) {
+                cache.put(id,baseUri,accept,contentType,buffered.getContentAsByteArray(),generation);
+                buffered.setHeader(HttpHeaders.VARY,VARY);
+            }
+        } finally {
+            buffered.copyBodyToResponse();
+        }
+    }
+
+    private static void write(HttpServletRequest request,HttpServletResponse response,UserResponseCache.Rendered rendered) throws IOException {
+        boolean gzip = acceptsGzip(request);
+        byte[] body = gzip ? rendered.gzip() : rendered.body();
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(rendered.contentType());
+        response.setHeader(HttpHeaders.VARY,VARY);
+        if (gzip) response.setHeader(HttpHeaders.CONTENT_ENCODING,GZIP);
+        response.setContentLength(body.length);
+        response
+                .getOutputStream()
+                .write(body);
+    }
+
+    //gzip;q=0 означает отказ от сжатия
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) return false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (! GZIP.equalsIgnoreCase(parts[0].trim())) continue;
+            return parts.length == 1 || ! parts[1]
+                    .replace(" ","")
+                    .matches("q=0(\\.0*)?");
+        }
+        return false;
+    }
+
+    //Только запрос по одному айди без других параметров, иначе -1
+    private static long id(HttpServletRequest request) {
+        Map<String, String[]> parameters = request.getParameterMap();
+        String[] values = parameters.get(ID);
+        if (parameters.size() != 1 || values == null || values.length != 1) return - 1;
+        try {
+            return Long.parseLong(values[0]);
+        } catch (NumberFormatException e) {
+            return - 1;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package ru.aston.UserServiceAPI.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@ConfigurationProperties (prefix = "user.response-cache")
+public class UserResponseCacheProperties {
+
+    private boolean enabled = false;
+    //Суммарный размер тел ответов вместе с gzip вариантами
+    private DataSize maxMemory = DataSize.ofMegabytes(64);
+    private Duration ttl = Duration.ofMinutes(5);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public DataSize getMaxMemory() {
+        return maxMemory;
+    }
+
+    public void setMaxMemory(DataSize maxMemory) {
+        this.maxMemory = maxMemory;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+}
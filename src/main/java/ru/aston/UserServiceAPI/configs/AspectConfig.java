@@ -0,0 +1,47 @@
+package ru.aston.UserServiceAPI.configs;
+
+import org.aspectj.lang.Aspects;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import ru.aston.UserServiceAPI.aspects.LoggingAspect;
+import ru.aston.UserServiceAPI.aspects.LoggingProperties;
+import ru.aston.UserServiceAPI.aspects.UpdatingAspect;
+import ru.aston.UserServiceAPI.repos.UserRepository;
+
+import java.util.function.Supplier;
+
+@Configuration
+@EnableConfigurationProperties (LoggingProperties.class)
+public class AspectConfig {
+
+    /*
+    Обычная сборка: аспекты применяет Spring AOP через прокси.
+    Сборка с профилем ctw (mvn -Pctw package): ajc вплетает аспекты в байткод после компиляции.
+    Классы, обработанные ajc, Spring AOP сам пропускает, а вплетенный код вызывает экземпляр из Aspects.aspectOf,
+    поэтому бином становится именно он и настраивается тут же.
+    */
+
+    @Bean
+    public LoggingAspect loggingAspect(Environment env,LoggingProperties properties) {
+        LoggingAspect aspect = instance(LoggingAspect.class,LoggingAspect::new);
+        aspect.configure(env,properties);
+        return aspect;
+    }
+
+    @Bean
+    public UpdatingAspect updatingAspect(UserRepository userRepository,Environment env) {
+        UpdatingAspect aspect = instance(UpdatingAspect.class,UpdatingAspect::new);
+        aspect.configure(userRepository,env);
+        return aspect;
+    }
+
+    public static boolean isWoven() {
+        return Aspects.hasAspect(LoggingAspect.class);
+    }
+
+    private static <T> T instance(Class<T> aspectClass,Supplier<T> proxyMode) {
+        return Aspects.hasAspect(aspectClass) ? Aspects.aspectOf(aspectClass) : proxyMode.get();
+    }
+}
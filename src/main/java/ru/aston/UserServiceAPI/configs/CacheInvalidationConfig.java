@@ -0,0 +1,49 @@
+package ru.aston.UserServiceAPI.configs;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import ru.aston.UserServiceAPI.cache.UserCacheProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@ConditionalOnProperty (name = "spring.kafka.enabled", havingValue = "true")
+public class CacheInvalidationConfig {
+
+    @Value ("${spring.kafka.bootstrap-servers}")
+    private String BOOTSTRAP_SERVER;
+
+    //Фабрика консюмеров не объявляется бином, чтобы не конфликтовать с автоконфигурацией спринга
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> cacheInvalidationContainerFactory(UserCacheProperties properties) {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG,BOOTSTRAP_SERVER);
+        //Своя группа на каждый узел, чтобы сообщение получили все узлы, а не один из группы.
+        //Айди узла не меняется при перезапуске, поэтому старые группы не копятся в брокере
+        config.put(ConsumerConfig.GROUP_ID_CONFIG,"user-cache-" + properties.getNodeId());
+        config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG,"latest");
+        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG,StringDeserializer.class);
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG,StringDeserializer.class);
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(config));
+        return factory;
+    }
+
+    @Bean
+    public NewTopic cacheInvalidationTopic(UserCacheProperties properties) {
+        return TopicBuilder
+                .name(properties.getInvalidationTopic())
+                .partitions(1)
+                .replicas(1)
+                .build();
+    }
+}
@@ -0,0 +1,59 @@
+package ru.aston.UserServiceAPI.configs;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.aston.UserServiceAPI.datasource.ConnectionPoolLimitFilter;
+import ru.aston.UserServiceAPI.datasource.ConnectionPoolLimitProperties;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+@Configuration
+@ConditionalOnProperty (name = "spring.threads.virtual.enabled", havingValue = "true")
+@ConditionalOnProperty (name = "user.pool-limit.enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties (ConnectionPoolLimitProperties.class)
+public class ConnectionPoolLimitConfig {
+
+    /*
+    Ограничение нужно только в режиме виртуальных потоков: на платформенных потоках число запросов
+    в обработке и так ограничено server.tomcat.threads.max. Размер пула берется у Hikari за бином dataSource.
+    При включенных репликах это пул мастера: read only запросы могут уйти на реплики,
+    но запись и чтение с прилипанием к мастеру упираются в него.
+    */
+
+    private static final Logger log = LoggerFactory.getLogger(ConnectionPoolLimitConfig.class);
+    //Размер пула Hikari по умолчанию
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    @Bean
+    public ConnectionPoolLimitFilter connectionPoolLimitFilter(ConnectionPoolLimitProperties properties,
+            DataSource dataSource,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        int maxConcurrency = properties.getMaxConcurrency();
+        if (maxConcurrency <= 0) {
+            maxConcurrency = (int) Math.ceil(poolSize(dataSource) * properties.getConcurrencyFactor());
+        }
+        log.info("Concurrent requests are limited to {}",maxConcurrency);
+        return new ConnectionPoolLimitFilter(maxConcurrency,properties.getAcquireTimeout(),meterRegistry);
+    }
+
+    private static int poolSize(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource
+                        .unwrap(HikariDataSource.class)
+                        .getMaximumPoolSize();
+            }
+        } catch (SQLException e) {
+            log.warn("Cannot unwrap connection pool: {}",e.getMessage());
+        }
+        return DEFAULT_POOL_SIZE;
+    }
+}
@@ -0,0 +1,87 @@
+package ru.aston.UserServiceAPI.configs;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.TaskScheduler;
+import ru.aston.UserServiceAPI.datasource.ReadReplicaProperties;
+import ru.aston.UserServiceAPI.datasource.ReadReplicaRoutingDataSource;
+import ru.aston.UserServiceAPI.datasource.ReadYourWritesFilter;
+import ru.aston.UserServiceAPI.datasource.ReplicaLagMonitor;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Configuration
+@ConditionalOnProperty (name = "spring.datasource.replicas.enabled", havingValue = "true")
+@EnableConfigurationProperties (ReadReplicaProperties.class)
+public class DataSourceRoutingConfig {
+
+    /*
+    Read only транзакции уходят на реплики, все остальное на мастер.
+    Роутинг решается по флагу readOnly текущей транзакции, поэтому соединение берется лениво
+    через LazyConnectionDataSourceProxy, когда транзакция уже открыта.
+    */
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(ReadReplicaProperties replicaProperties,
+            DataSourceProperties dataSourceProperties,
+            TaskScheduler taskScheduler) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0;i < replicaProperties
+                .getUrls()
+                .size();i++) {
+            HikariDataSource replica = DataSourceBuilder
+                    .create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(dataSourceProperties.determineDriverClassName())
+                    .url(replicaProperties
+                            .getUrls()
+                            .get(i))
+                    .username(replicaProperties.getUsername() != null ? replicaProperties.getUsername() : dataSourceProperties.determineUsername())
+                    .password(replicaProperties.getPassword() != null ? replicaProperties.getPassword() : dataSourceProperties.determinePassword())
+                    .build();
+            replica.setPoolName("replica-" + i);
+            replica.setReadOnly(true);
+            replica.setMaximumPoolSize(replicaProperties.getMaximumPoolSize());
+            replicas.put("replica-" + i,replica);
+        }
+        return new ReplicaLagMonitor(replicas,replicaProperties.getMaxLag(),replicaProperties.getLagCheckInterval(),taskScheduler);
+    }
+
+    //Как и в DataSourceAutoConfiguration, настройки пула spring.datasource.hikari.* биндятся на созданный HikariDataSource
+    @Bean
+    @ConfigurationProperties ("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource primary = dataSourceProperties
+                .initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        primary.setPoolName(ReadReplicaRoutingDataSource.PRIMARY);
+        return primary;
+    }
+
+    @Bean (destroyMethod = "close")
+    public ReadReplicaRoutingDataSource routingDataSource(HikariDataSource primaryDataSource,ReplicaLagMonitor replicaLagMonitor) {
+        return new ReadReplicaRoutingDataSource(primaryDataSource,replicaLagMonitor.getReplicas(),replicaLagMonitor);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadReplicaRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(ReadReplicaProperties replicaProperties) {
+        return new ReadYourWritesFilter(replicaProperties.getStickyWindow());
+    }
+}
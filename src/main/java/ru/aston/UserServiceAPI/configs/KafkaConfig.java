@@ -1,21 +1,20 @@
 package ru.aston.UserServiceAPI.configs;
 
 import org.apache.kafka.clients.admin.NewTopic;
-import org.apache.kafka.clients.producer.ProducerConfig;
-import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
+import ru.aston.UserServiceAPI.kafka.ProducerTuningProperties;
 
-import java.util.HashMap;
-import java.util.Map;
 @Configuration
 @ConditionalOnProperty(name = "spring.kafka.enabled", havingValue = "true")
+@EnableConfigurationProperties (ProducerTuningProperties.class)
 public class KafkaConfig {
 
     @Value ("${notifications.topic}")
@@ -25,18 +24,13 @@ public class KafkaConfig {
     private String BOOTSTRAP_SERVER;
 
     @Bean
-    public ProducerFactory<String, String> producerFactory() {
-        Map<String, Object> config = new HashMap<>();
-        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG,BOOTSTRAP_SERVER);
-        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
-        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
-        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, false);
-        return new DefaultKafkaProducerFactory<>(config);
+    public ProducerFactory<String, byte[]> producerFactory(ProducerTuningProperties tuning) {
+        return new DefaultKafkaProducerFactory<>(tuning.producerConfig(BOOTSTRAP_SERVER));
     }
 
     @Bean
-    public KafkaTemplate<String, String> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+    public KafkaTemplate<String, byte[]> kafkaTemplate(ProducerFactory<String, byte[]> producerFactory) {
+        return new KafkaTemplate<>(producerFactory);
     }
 
     @Bean
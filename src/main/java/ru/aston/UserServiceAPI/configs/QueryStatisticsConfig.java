@@ -0,0 +1,59 @@
+package ru.aston.UserServiceAPI.configs;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import ru.aston.UserServiceAPI.datasource.QueryStatisticsFilter;
+import ru.aston.UserServiceAPI.datasource.QueryStatisticsListener;
+import ru.aston.UserServiceAPI.datasource.QueryStatisticsProperties;
+
+import javax.sql.DataSource;
+
+@Configuration
+@ConditionalOnProperty (name = "user.query-stats.enabled", havingValue = "true")
+@EnableConfigurationProperties (QueryStatisticsProperties.class)
+public class QueryStatisticsConfig {
+
+    /*
+    Основной DataSource оборачивается в datasource-proxy, который считает запросы, строки и время JDBC
+    в области, открытой QueryStatisticsFilter на время HTTP запроса. Оборачивается только бин dataSource:
+    при включенных репликах это LazyConnectionDataSourceProxy поверх роутинга, и каждый запрос считается один раз.
+    Прокси стоит на каждом JDBC вызове, поэтому статистика включается явно (в тестах она включена всегда),
+    а обертка ResultSet для подсчета прочитанных строк - отдельно через user.query-stats.count-rows.
+    */
+
+    private static final String DATA_SOURCE_BEAN = "dataSource";
+
+    @Bean
+    public static BeanPostProcessor queryStatisticsDataSourcePostProcessor(Environment environment) {
+        QueryStatisticsListener listener = new QueryStatisticsListener();
+        //Пост процессор создается раньше бинов свойств, поэтому флаг читается из окружения
+        boolean countRows = environment.getProperty("user.query-stats.count-rows",Boolean.class,false);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean,String beanName) {
+                if (! DATA_SOURCE_BEAN.equals(beanName) || ! (bean instanceof DataSource dataSource) || bean instanceof ProxyDataSource) {
+                    return bean;
+                }
+                ProxyDataSourceBuilder builder = ProxyDataSourceBuilder
+                        .create(beanName,dataSource)
+                        .listener(listener);
+                if (countRows) builder
+                        .methodListener(listener)
+                        .proxyResultSet();
+                return builder.build();
+            }
+        };
+    }
+
+    @Bean
+    public QueryStatisticsFilter queryStatisticsFilter(QueryStatisticsProperties properties,MeterRegistry meterRegistry) {
+        return new QueryStatisticsFilter(properties,meterRegistry);
+    }
+}
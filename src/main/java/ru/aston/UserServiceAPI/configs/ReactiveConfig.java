@@ -0,0 +1,102 @@
+package ru.aston.UserServiceAPI.configs;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcConnectionDetails;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.dialect.PostgresDialect;
+import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import ru.aston.UserServiceAPI.repos.ReactiveUserRepository;
+
+import static io.r2dbc.spi.ConnectionFactoryOptions.PASSWORD;
+import static io.r2dbc.spi.ConnectionFactoryOptions.USER;
+
+@Configuration
+@ConditionalOnWebApplication (type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableConfigurationProperties (R2dbcProperties.class)
+@EnableR2dbcRepositories (basePackageClasses = ReactiveUserRepository.class, entityOperationsRef = "r2dbcEntityTemplate")
+public class ReactiveConfig {
+
+    /*
+    Профиль reactive: запросы /user обслуживает WebFlux поверх R2DBC, остальное (outbox relay, импорт, выгрузка,
+    кэш) остается на JDBC. Автоконфигурация R2DBC выключена в UserServiceApiApplication: бин ConnectionFactory
+    отключает DataSourceAutoConfiguration, поэтому пул живет внутри этой конфигурации, а бинами становятся
+    только DatabaseClient, шаблон и TransactionalOperator. Транзакционный менеджер тоже не бин, иначе
+    @Transactional на JDBC стороне не выберет между ним и JpaTransactionManager.
+    Подключение берется из service connection тестов, из spring.r2dbc.url или из JDBC url основной базы.
+    */
+
+    private ConnectionPool connectionPool;
+
+    @Bean
+    public DatabaseClient r2dbcDatabaseClient(R2dbcProperties properties,
+            ObjectProvider<R2dbcConnectionDetails> r2dbcConnectionDetails,
+            ObjectProvider<JdbcConnectionDetails> jdbcConnectionDetails,
+            DataSourceProperties dataSourceProperties) {
+        R2dbcConnectionDetails details = r2dbcConnectionDetails.getIfAvailable();
+        ConnectionFactoryOptions options = details != null ? details.getConnectionFactoryOptions() : options(properties,jdbcConnectionDetails.getIfAvailable(),dataSourceProperties);
+        R2dbcProperties.Pool pool = properties.getPool();
+        ConnectionPoolConfiguration.Builder configuration = ConnectionPoolConfiguration
+                .builder(ConnectionFactories.get(options))
+                .name("r2dbc")
+                .initialSize(pool.getInitialSize())
+                .maxSize(pool.getMaxSize())
+                .maxIdleTime(pool.getMaxIdleTime());
+        if (pool.getMaxAcquireTime() != null) configuration.maxAcquireTime(pool.getMaxAcquireTime());
+        connectionPool = new ConnectionPool(configuration.build());
+        return DatabaseClient
+                .builder()
+                .connectionFactory(connectionPool)
+                .bindMarkers(PostgresDialect.INSTANCE.getBindMarkersFactory())
+                .build();
+    }
+
+    @Bean
+    public R2dbcEntityTemplate r2dbcEntityTemplate(DatabaseClient r2dbcDatabaseClient) {
+        return new R2dbcEntityTemplate(r2dbcDatabaseClient,PostgresDialect.INSTANCE);
+    }
+
+    @Bean
+    public TransactionalOperator r2dbcTransactionalOperator(DatabaseClient r2dbcDatabaseClient) {
+        return TransactionalOperator.create(new R2dbcTransactionManager(r2dbcDatabaseClient.getConnectionFactory()));
+    }
+
+    @PreDestroy
+    public void close() {
+        if (connectionPool != null) connectionPool.dispose();
+    }
+
+    private static ConnectionFactoryOptions options(R2dbcProperties properties,JdbcConnectionDetails jdbcConnectionDetails,DataSourceProperties dataSourceProperties) {
+        String url = properties.getUrl();
+        String username = properties.getUsername();
+        String password = properties.getPassword();
+        if (url == null) {
+            String jdbcUrl = jdbcConnectionDetails != null ? jdbcConnectionDetails.getJdbcUrl() : dataSourceProperties.determineUrl();
+            //Параметры JDBC драйвера к R2DBC не относятся
+            int query = jdbcUrl.indexOf('?');
+            url = "r2dbc:" + jdbcUrl.substring("jdbc:".length(),query < 0 ? jdbcUrl.length() : query);
+            username = jdbcConnectionDetails != null ? jdbcConnectionDetails.getUsername() : dataSourceProperties.determineUsername();
+            password = jdbcConnectionDetails != null ? jdbcConnectionDetails.getPassword() : dataSourceProperties.determinePassword();
+        }
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions
+                .parse(url)
+                .mutate();
+        if (username != null) options.option(USER,username);
+        if (password != null) options.option(PASSWORD,password);
+        return options.build();
+    }
+}
@@ -1,14 +1,13 @@
 package ru.aston.UserServiceAPI.configs;
 
 import org.apache.kafka.clients.admin.NewTopic;
-import org.apache.kafka.clients.producer.ProducerConfig;
-import org.apache.kafka.common.serialization.StringSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
 import org.springframework.beans.factory.support.DefaultSingletonBeanRegistry;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.env.PropertiesPropertySource;
@@ -23,9 +22,8 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 import ru.aston.UserServiceAPI.kafka.ProducerService;
+import ru.aston.UserServiceAPI.kafka.ProducerTuningProperties;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
 
@@ -97,29 +95,38 @@ public class RemoteConfigurationRefresher {
     private void checkKafkaProps(Properties newProps) {
         if (! oldProps
                 .getProperty("spring.kafka.bootstrap-servers")
-                .equals(newProps.getProperty("spring.kafka.bootstrap-servers"))) registerKafkaBean(applicationContext);
+                .equals(newProps.getProperty("spring.kafka.bootstrap-servers")) || tuningChanged(newProps)) registerKafkaBean(applicationContext);
         if (! oldProps
                 .getProperty("notifications.topic")
                 .equals(newProps.getProperty("notifications.topic"))) registerTopicBean(applicationContext);
     }
 
     private void registerKafkaBean(ConfigurableApplicationContext applicationContext) {
-        Map<String, Object> config = new HashMap<>();
-        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG,environment.getProperty("spring.kafka.bootstrap-servers"));
-        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG,StringSerializer.class.getName());
-        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG,StringSerializer.class.getName());
-        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG,false);
-        DefaultKafkaProducerFactory<String, String> kafkaProducerFactory = new DefaultKafkaProducerFactory<>(config);
-        KafkaTemplate<String, String> kafkaTemplate = new KafkaTemplate<>(kafkaProducerFactory);
-        ConfigurableListableBeanFactory beanFactory = applicationContext.getBeanFactory();
-        ((DefaultSingletonBeanRegistry) beanFactory).destroySingleton("kafkaTemplate");
-        ((DefaultSingletonBeanRegistry) beanFactory).destroySingleton("producerFactory");
-        beanFactory.registerSingleton("producerFactory",kafkaProducerFactory);
-        beanFactory.registerSingleton("kafkaTemplate",kafkaTemplate);
+        //Профиль настроек биндится заново из окружения, так что его тоже можно поменять через удаленный конфиг
+        ProducerTuningProperties tuning = Binder
+                .get(environment)
+                .bind("user.producer.tuning",ProducerTuningProperties.class)
+                .orElseGet(ProducerTuningProperties::new);
+        DefaultKafkaProducerFactory<String, byte[]> kafkaProducerFactory = new DefaultKafkaProducerFactory<>(tuning.producerConfig(environment.getProperty("spring.kafka.bootstrap-servers")));
+        KafkaTemplate<String, byte[]> kafkaTemplate = new KafkaTemplate<>(kafkaProducerFactory);
+        //Бины из контекста не уничтожаются: их продюсер закрыл бы отправки в полете. Новый шаблон забирает
+        //ProducerService, старый он закроет сам, когда брокер ответит на все отправленное через него
         ProducerService producerService = applicationContext.getBean(ProducerService.class);
         producerService.setKafkaTemplateOrTopic(kafkaTemplate,null);
     }
 
+    private boolean tuningChanged(Properties newProps) {
+        for (String name : newProps.stringPropertyNames()) {
+            if (name.startsWith("user.producer.tuning.") && ! newProps
+                    .getProperty(name)
+                    .equals(oldProps.getProperty(name))) return true;
+        }
+        for (String name : oldProps.stringPropertyNames()) {
+            if (name.startsWith("user.producer.tuning.") && ! newProps.containsKey(name)) return true;
+        }
+        return false;
+    }
+
     private void registerTopicBean(ConfigurableApplicationContext applicationContext) {
         ConfigurableListableBeanFactory beanFactory = applicationContext.getBeanFactory();
         if (beanFactory.containsSingleton("newTopic"))
@@ -0,0 +1,30 @@
+package ru.aston.UserServiceAPI.configs;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.aston.UserServiceAPI.cache.UserResponseCache;
+import ru.aston.UserServiceAPI.cache.UserResponseCacheFilter;
+import ru.aston.UserServiceAPI.cache.UserResponseCacheProperties;
+
+@Configuration
+@ConditionalOnProperty (name = "user.response-cache.enabled", havingValue = "true")
+@ConditionalOnWebApplication (type = ConditionalOnWebApplication.Type.SERVLET)
+@EnableConfigurationProperties (UserResponseCacheProperties.class)
+public class UserResponseCacheConfig {
+
+    //Кэш выключен по умолчанию: попадание отдает ответ без X-Query-Count и метрик user.jdbc
+    @Bean
+    public UserResponseCache userResponseCache(UserResponseCacheProperties properties,ObjectProvider<MeterRegistry> meterRegistry) {
+        return new UserResponseCache(properties,meterRegistry);
+    }
+
+    @Bean
+    public UserResponseCacheFilter userResponseCacheFilter(UserResponseCache userResponseCache) {
+        return new UserResponseCacheFilter(userResponseCache);
+    }
+}
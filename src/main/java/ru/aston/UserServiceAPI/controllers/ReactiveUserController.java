@@ -0,0 +1,99 @@
+package ru.aston.UserServiceAPI.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import ru.aston.UserServiceAPI.Utils.UserCursor;
+import ru.aston.UserServiceAPI.dtos.UserDTORequest;
+import ru.aston.UserServiceAPI.dtos.UserDTOResponse;
+import ru.aston.UserServiceAPI.hateoas.ReactiveUserAssembler;
+import ru.aston.UserServiceAPI.services.ReactiveUserService;
+
+//Контракт /user из UserController на WebFlux: получение, список, создание, обновление и удаление
+@RestController
+@RequestMapping (value = "/user", produces = MediaTypes.HAL_FORMS_JSON_VALUE)
+@ConditionalOnWebApplication (type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserController {
+
+    private final ReactiveUserService userService;
+    private final ReactiveUserAssembler assembler;
+
+    @Autowired
+    public ReactiveUserController(ReactiveUserService userService,ReactiveUserAssembler assembler) {
+        this.userService = userService;
+        this.assembler = assembler;
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<EntityModel<UserDTOResponse>>> getUser(@RequestParam (required = false) Long id,
+            @RequestParam (required = false) String name,
+            @RequestParam (required = false) String email,
+            ServerWebExchange exchange) {
+        return userService
+                .getUser(id,name,email)
+                .flatMap(user -> assembler.toModel(user,exchange))
+                .map(ResponseEntity::ok);
+    }
+
+    //Как в UserControllerImpl: варианты с курсором выбираются по параметрам, after и before вместе дают 400
+    @GetMapping (value = "/all", params = {"!after", "!before"})
+    public Mono<ResponseEntity<CollectionModel<EntityModel<UserDTOResponse>>>> getAllUsers(
+            @RequestParam (required = false) Integer page,
+            @RequestParam (required = false) Integer size,
+            @RequestParam (required = false) String sort,
+            ServerWebExchange exchange) {
+        return assembler
+                .toCollectionModel(userService.getAllUsers(page,size,sort),exchange)
+                .map(ResponseEntity::ok);
+    }
+
+    @GetMapping (value = "/all", params = {"after", "!before"})
+    public Mono<ResponseEntity<CollectionModel<EntityModel<UserDTOResponse>>>> getAllUsersAfter(@RequestParam String after,
+            @RequestParam (required = false) Integer size,
+            ServerWebExchange exchange) {
+        return Mono
+                .fromSupplier(() -> UserCursor.decode("after",after))
+                .flatMap(afterId -> userService.getUsersAfterCursor(afterId,size))
+                .flatMap(page -> assembler.toCursorCollectionModel(page,exchange))
+                .map(ResponseEntity::ok);
+    }
+
+    @GetMapping (value = "/all", params = {"before", "!after"})
+    public Mono<ResponseEntity<CollectionModel<EntityModel<UserDTOResponse>>>> getAllUsersBefore(@RequestParam String before,
+            @RequestParam (required = false) Integer size,
+            ServerWebExchange exchange) {
+        return Mono
+                .fromSupplier(() -> UserCursor.decode("before",before))
+                .flatMap(beforeId -> userService.getUsersBeforeCursor(beforeId,size))
+                .flatMap(page -> assembler.toCursorCollectionModel(page,exchange))
+                .map(ResponseEntity::ok);
+    }
+
+    @PostMapping (produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<UserDTOResponse>> createUser(@RequestBody UserDTORequest userDTORequest) {
+        return userService
+                .createUser(userDTORequest)
+                .map(ResponseEntity::ok);
+    }
+
+    @DeleteMapping (produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<UserDTOResponse>> deleteUser(@RequestParam Long id) {
+        return userService
+                .deleteUser(id)
+                .map(ResponseEntity::ok);
+    }
+
+    @PutMapping (produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<UserDTOResponse>> updateUser(@RequestParam Long id,@RequestBody UserDTORequest userDTORequest) {
+        return userService
+                .updateUser(id,userDTORequest)
+                .map(ResponseEntity::ok);
+    }
+}
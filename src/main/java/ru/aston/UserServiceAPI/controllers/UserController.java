@@ -3,6 +3,7 @@ package ru.aston.UserServiceAPI.controllers;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.info.Info;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
@@ -14,10 +15,18 @@ import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.aston.UserServiceAPI.Utils.GlobalExceptionHandler;
+import ru.aston.UserServiceAPI.dtos.BatchItemResultDTO;
+import ru.aston.UserServiceAPI.dtos.ImportJobDTO;
 import ru.aston.UserServiceAPI.dtos.UserDTORequest;
 import ru.aston.UserServiceAPI.dtos.UserDTOResponse;
 
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+
 @OpenAPIDefinition (info = @Info (title = "UserServiceAPI", description = "Маленькая апишечка для большого дела)"))
 @ApiResponses ({@ApiResponse (responseCode = "500", description = "Неизвестная ошибка.",
         content = @Content (
@@ -89,8 +98,10 @@ public interface UserController {
     )
     @Operation (summary = "Поиск существующего пользователя по айди, имени или адресу электронной почты." +
             "Параметры являются опциональными, при наличии айди поиск будет осуществлен по айди.",
-            description = "Возвращает найденного пользователя и ссылки на допустимые действия.")
+            description = "Возвращает найденного пользователя и ссылки на допустимые действия. " +
+                    "С Accept application/json, application/cbor или application/x-jackson-smile возвращается только пользователь без ссылок.")
     @Tag (name = "Гет методы")
+    @Parameter (name = "fields", in = ParameterIn.QUERY, description = "Поля пользователя через запятую (id, name, email, age), остальные в ответ не попадают.")
     ResponseEntity<EntityModel<UserDTOResponse>> getUser(
             @Parameter (description = "Айди, по которому осуществляется поиск.")
             Long id,
@@ -193,8 +204,10 @@ public interface UserController {
     })
     @Operation (summary = "Получение списка существующих пользователей. Доступна пагинация и сортировка, параметры опциональны.",
             description = "Возвращает список найденных пользователей в соответствии с переданными параметрами " +
-                    "и ссылки на доступные действия.")
+                    "и ссылки на доступные действия. С Accept application/json, application/cbor или application/x-jackson-smile " +
+                    "возвращается только список пользователей без ссылок.")
     @Tag (name = "Гет методы")
+    @Parameter (name = "fields", in = ParameterIn.QUERY, description = "Поля пользователя через запятую (id, name, email, age), остальные в ответ не попадают.")
     ResponseEntity<CollectionModel<EntityModel<UserDTOResponse>>> getAllUsers(
             @Parameter (description = "Номер страницы, используется вместе с размером страницы.")
             Integer page,
@@ -203,6 +216,102 @@ public interface UserController {
             @Parameter (description = "Сортировка списка по возрастанию либо по убыванию(asc или desc).")
             String sort);
 
+    @ApiResponses (value = {
+            @ApiResponse (responseCode = "200", description = "Пользователи успешно найдены",
+                    content = @Content (schema = @Schema (implementation = CollectionModel.class))),
+            @ApiResponse (responseCode = "400", description = "Курсор не валидный.",
+                    content = @Content (
+                            mediaType = "application/json",
+                            schema = @Schema (implementation = GlobalExceptionHandler.ErrorResponseMap.class)))
+    })
+    @Operation (summary = "Получение списка пользователей после курсора (keyset пагинация).",
+            description = "Возвращает пользователей с айди больше курсора, отсортированных по возрастанию. " +
+                    "Стоимость запроса не зависит от глубины страницы. Ссылки next и prev содержат курсоры соседних страниц.")
+    @Tag (name = "Гет методы")
+    ResponseEntity<CollectionModel<EntityModel<UserDTOResponse>>> getAllUsersAfter(
+            @Parameter (required = true, description = "Айди пользователя либо курсор из ссылки next.")
+            String after,
+            @Parameter (description = "Размер страницы.")
+            Integer size);
+
+    @ApiResponses (value = {
+            @ApiResponse (responseCode = "200", description = "Пользователи успешно найдены",
+                    content = @Content (schema = @Schema (implementation = CollectionModel.class))),
+            @ApiResponse (responseCode = "400", description = "Курсор не валидный.",
+                    content = @Content (
+                            mediaType = "application/json",
+                            schema = @Schema (implementation = GlobalExceptionHandler.ErrorResponseMap.class)))
+    })
+    @Operation (summary = "Получение списка пользователей перед курсором (keyset пагинация).",
+            description = "Возвращает пользователей с айди меньше курсора, отсортированных по возрастанию.")
+    @Tag (name = "Гет методы")
+    ResponseEntity<CollectionModel<EntityModel<UserDTOResponse>>> getAllUsersBefore(
+            @Parameter (required = true, description = "Айди пользователя либо курсор из ссылки prev.")
+            String before,
+            @Parameter (description = "Размер страницы.")
+            Integer size);
+
+    @ApiResponses (value = {
+            @ApiResponse (responseCode = "200", description = "Пользователи выгружаются потоком.",
+                    content = {@Content (mediaType = "application/x-ndjson"), @Content (mediaType = "text/csv")})
+    })
+    @Operation (summary = "Потоковая выгрузка всех пользователей в NDJSON или CSV.",
+            description = "Строки пишутся в ответ напрямую из COPY TO STDOUT, память не зависит от количества пользователей. " +
+                    "В параллельном режиме порядок строк не гарантируется.")
+    @Tag (name = "Гет методы")
+    ResponseEntity<StreamingResponseBody> exportUsers(
+            @Parameter (description = "Формат выгрузки: ndjson (по умолчанию) или csv.")
+            String format,
+            @Parameter (description = "Количество параллельных соединений для выгрузки по диапазонам айди.")
+            Integer parallel);
+
+    @ApiResponses (value = {
+            @ApiResponse (responseCode = "200", description = "Состояние импорта.",
+                    content = @Content (
+                            schema = @Schema (implementation = ImportJobDTO.class),
+                            examples = {@ExampleObject (value = """
+                                    {
+                                        "id": "8d5e3c1a-2f4b-4a7e-9c61-0b7f3f2a9d10",
+                                        "format": "csv",
+                                        "state": "RUNNING",
+                                        "progress": 0.42,
+                                        "processedRows": 4200000,
+                                        "importedRows": 4199000,
+                                        "rejectedRows": 600,
+                                        "duplicateRows": 400,
+                                        "rowsPerSecond": 185000.0,
+                                        "startedAt": "2025-10-12T10:15:30Z"
+                                    }""")})),
+            @ApiResponse (responseCode = "404", description = "Импорт не найден.",
+                    content = @Content (
+                            mediaType = "application/json",
+                            schema = @Schema (implementation = GlobalExceptionHandler.ErrorResponse.class)))
+    })
+    @Operation (summary = "Получение состояния импорта.",
+            description = "Возвращает прогресс, количество загруженных, отклоненных и повторяющихся строк и скорость в строках в секунду.")
+    @Tag (name = "Гет методы")
+    ResponseEntity<ImportJobDTO> getImportJob(
+            @Parameter (required = true, description = "Айди импорта.")
+            UUID id);
+
+    @ApiResponses (value = {
+            @ApiResponse (responseCode = "202", description = "Файл принят, импорт запущен в фоне.",
+                    content = @Content (schema = @Schema (implementation = ImportJobDTO.class))),
+            @ApiResponse (responseCode = "400", description = "Файл пустой.",
+                    content = @Content (
+                            mediaType = "application/json",
+                            schema = @Schema (implementation = GlobalExceptionHandler.ErrorResponseMap.class)))
+    })
+    @Operation (summary = "Массовый импорт пользователей из CSV или NDJSON.",
+            description = "Файл режется на чанки, каждый чанк валидируется параллельно, загружается через COPY FROM STDIN " +
+                    "во временную таблицу и переносится в users одним запросом, дубли по email пропускаются. " +
+                    "CSV должен содержать заголовок с колонками name, email, age.")
+    ResponseEntity<ImportJobDTO> importUsers(
+            @Parameter (required = true, description = "Файл с пользователями.")
+            MultipartFile file,
+            @Parameter (description = "Формат файла csv или ndjson, по умолчанию определяется по расширению.")
+            String format) throws IOException;
+
     @ApiResponses (value = {
             @ApiResponse (responseCode = "200", description = "Пользователь успешно создан",
                     content = @Content (
@@ -248,6 +357,41 @@ public interface UserController {
             UserDTORequest userDTORequest,
             BindingResult bindingResult);
 
+    @ApiResponses (value = {
+            @ApiResponse (responseCode = "200", description = "Пакет обработан, для каждого пользователя возвращается результат.",
+                    content = @Content (
+                            schema = @Schema (implementation = BatchItemResultDTO.class),
+                            examples = {@ExampleObject (value = """
+                                    [
+                                        {
+                                            "index": 0,
+                                            "status": "CREATED",
+                                            "user": {
+                                                "id": 31,
+                                                "name": "Somename",
+                                                "email": "someemail@gmail.com",
+                                                "age": 30
+                                            }
+                                        },
+                                        {
+                                            "index": 1,
+                                            "status": "REJECTED",
+                                            "errors": {
+                                                "email": "Email someemail@gmail.com already exists."
+                                            }
+                                        }
+                                    ]""")})),
+            @ApiResponse (responseCode = "400", description = "Пакет пустой либо превышает максимальный размер.",
+                    content = @Content (
+                            mediaType = "application/json",
+                            schema = @Schema (implementation = GlobalExceptionHandler.ErrorResponseMap.class)))
+    })
+    @Operation (summary = "Пакетное создание пользователей",
+            description = "Создает всех валидных пользователей одной транзакцией батчами JDBC, невалидные и дубли по email отклоняются.")
+    ResponseEntity<List<BatchItemResultDTO>> createUsers(
+            @Parameter (required = true, description = "Список новых пользователей в формате JSON.")
+            List<UserDTORequest> userDTORequests);
+
     @ApiResponses (value = {
             @ApiResponse (responseCode = "200", description = "Пользователь успешно удален.",
                     content = @Content (
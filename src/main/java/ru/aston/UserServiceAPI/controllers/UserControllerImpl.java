@@ -9,51 +9,67 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.aston.UserServiceAPI.Utils.*;
+import ru.aston.UserServiceAPI.dtos.BatchItemResultDTO;
+import ru.aston.UserServiceAPI.dtos.CursorPageDTO;
+import ru.aston.UserServiceAPI.dtos.ImportJobDTO;
 import ru.aston.UserServiceAPI.dtos.UserDTORequest;
 import ru.aston.UserServiceAPI.dtos.UserDTOResponse;
 import ru.aston.UserServiceAPI.entitys.User;
 import ru.aston.UserServiceAPI.hateoas.UserAssembler;
-import ru.aston.UserServiceAPI.kafka.CreatedKafkaMessage;
-import ru.aston.UserServiceAPI.kafka.DeletedKafkaMessage;
-import ru.aston.UserServiceAPI.kafka.ProducerService;
+import ru.aston.UserServiceAPI.hateoas.UserRepresentationAdvice;
+import ru.aston.UserServiceAPI.services.ExportFormat;
+import ru.aston.UserServiceAPI.services.UserExportService;
+import ru.aston.UserServiceAPI.services.UserImportService;
 import ru.aston.UserServiceAPI.services.UserService;
 
+import java.io.IOException;
+import java.net.URI;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 
 import static ru.aston.UserServiceAPI.Utils.ErrorMessageConverter.convertToMessage;
 
 @RestController
 @RequestMapping (value = "/user", produces = MediaTypes.HAL_FORMS_JSON_VALUE)
+@ConditionalOnWebApplication (type = ConditionalOnWebApplication.Type.SERVLET)
 @Loggable
 public class UserControllerImpl implements UserController {
 
     private final UserService userService;
     private final UserDTOValidator validator;
-    private ProducerService producerService;
     private final UserAssembler assembler;
+    private final UserExportService exportService;
+    private final UserImportService importService;
 
     @Autowired
     public UserControllerImpl(UserService userService,
             UserDTOValidator validator,
-            ProducerService producerService,
-            UserAssembler assembler) {
+            UserAssembler assembler,
+            UserExportService exportService,
+            UserImportService importService) {
         this.userService = userService;
         this.validator = validator;
-        this.producerService = producerService;
         this.assembler = assembler;
+        this.exportService = exportService;
+        this.importService = importService;
     }
 
-    @GetMapping
+    @GetMapping (produces = {MediaTypes.HAL_FORMS_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, UserRepresentationAdvice.SMILE_VALUE})
     public ResponseEntity<EntityModel<UserDTOResponse>> getUser(@RequestParam (required = false) Long id,
             @RequestParam (required = false) String name,
             @RequestParam (required = false) String email) {
@@ -72,7 +88,7 @@ public class UserControllerImpl implements UserController {
         throw new UserNotFoundException();
     }
 
-    @GetMapping ("/all")
+    @GetMapping (value = "/all", params = {"!after", "!before"}, produces = {MediaTypes.HAL_FORMS_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, UserRepresentationAdvice.SMILE_VALUE})
     public ResponseEntity<CollectionModel<EntityModel<UserDTOResponse>>> getAllUsers(
             @RequestParam (required = false) Integer page,
             @RequestParam (required = false) Integer size,
@@ -95,24 +111,79 @@ public class UserControllerImpl implements UserController {
         return new ResponseEntity<>(assembler.toCollectionModel(userDTOResponseList),HttpStatus.OK);
     }
 
+    @GetMapping (value = "/all", params = {"after", "!before"}, produces = {MediaTypes.HAL_FORMS_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, UserRepresentationAdvice.SMILE_VALUE})
+    public ResponseEntity<CollectionModel<EntityModel<UserDTOResponse>>> getAllUsersAfter(
+            @RequestParam String after,
+            @RequestParam (required = false) Integer size) {
+        long afterId = UserCursor.decode("after",after);
+        CursorPageDTO cursorPage = userService.getUsersAfterCursor(afterId,size);
+        return new ResponseEntity<>(assembler.toCursorCollectionModel(cursorPage),HttpStatus.OK);
+    }
+
+    @GetMapping (value = "/all", params = {"before", "!after"}, produces = {MediaTypes.HAL_FORMS_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, UserRepresentationAdvice.SMILE_VALUE})
+    public ResponseEntity<CollectionModel<EntityModel<UserDTOResponse>>> getAllUsersBefore(
+            @RequestParam String before,
+            @RequestParam (required = false) Integer size) {
+        long beforeId = UserCursor.decode("before",before);
+        CursorPageDTO cursorPage = userService.getUsersBeforeCursor(beforeId,size);
+        return new ResponseEntity<>(assembler.toCursorCollectionModel(cursorPage),HttpStatus.OK);
+    }
+
+    @GetMapping (value = "/export", produces = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam (required = false) String format,
+            @RequestParam (required = false) Integer parallel) {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        int parallelism = parallel != null && parallel > 1 ? parallel : 1;
+        StreamingResponseBody body = out -> exportService.export(exportFormat,parallelism,out);
+        return ResponseEntity
+                .ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,"attachment; filename=users." + exportFormat.getExtension())
+                .body(body);
+    }
+
+    @GetMapping (value = "/import/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ImportJobDTO> getImportJob(@PathVariable UUID id) {
+        return importService
+                .getJob(id)
+                .map(job -> new ResponseEntity<>(new ImportJobDTO(job),HttpStatus.OK))
+                .orElseThrow(ImportJobNotFoundException::new);
+    }
+
+    @PostMapping (value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ImportJobDTO> importUsers(@RequestParam MultipartFile file,
+            @RequestParam (required = false) String format) throws IOException {
+        if (file.isEmpty()) throw new NotValidUserException(Map.of("file",ErrorMessages.NOT_VALID_IMPORT_FILE.getMessage()));
+        String fileName = file.getOriginalFilename();
+        ExportFormat importFormat = format == null && fileName != null && fileName.endsWith(".csv") ? ExportFormat.CSV : ExportFormat.of(format);
+        ImportJobDTO job = new ImportJobDTO(importService.start(file,importFormat));
+        return ResponseEntity
+                .accepted()
+                .location(URI.create("/user/import/" + job.getId()))
+                .body(job);
+    }
+
     @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<UserDTOResponse> createUser(@RequestBody @Valid UserDTORequest userDTORequest,
             BindingResult bindingResult) {
         validator.validate(userDTORequest,bindingResult);
         if (bindingResult.hasErrors()) throw new NotValidUserException(convertToMessage(bindingResult));
         UserDTOResponse userDTOResponse = userService.createUser(userDTORequest);
-        producerService.send(new CreatedKafkaMessage(userDTOResponse.getEmail()));
         return new ResponseEntity<>(userDTOResponse,HttpStatus.OK);
     }
 
+    @PostMapping (value = "/batch", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BatchItemResultDTO>> createUsers(@RequestBody List<UserDTORequest> userDTORequests) {
+        List<BatchItemResultDTO> results = userService.createUsers(userDTORequests);
+        return new ResponseEntity<>(results,HttpStatus.OK);
+    }
+
     @DeleteMapping(produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<UserDTOResponse> deleteUser(
             @RequestParam Long id) {
         if (id == null || id <= 0) throw new UserNotFoundException();
         Optional<UserDTOResponse> userDTOOutOptional = userService.deleteUserById(id);
         if (userDTOOutOptional.isEmpty()) throw new UserNotFoundException();
-        UserDTOResponse userDTOResponse = userDTOOutOptional.get();
-        producerService.send(new DeletedKafkaMessage(userDTOResponse.getEmail()));
         return new ResponseEntity<>(userDTOOutOptional.get(),HttpStatus.OK);
     }
 
@@ -121,15 +192,11 @@ public class UserControllerImpl implements UserController {
             @RequestBody @Valid UserDTORequest userDTORequest,
             BindingResult bindingResult) {
         if (id == null || id <= 0) throw new UserNotFoundException();
-        validator.validate(userDTORequest,bindingResult);
+        validator.validate(userDTORequest,id,bindingResult);
         if (bindingResult.hasErrors())
             throw new NotValidUserException(convertToMessage(bindingResult));
         Optional<UserDTOResponse> userDTOOutOptional = userService.updateUser(id,userDTORequest);
         if (userDTOOutOptional.isEmpty()) throw new UserNotFoundException();
         return new ResponseEntity<>(userDTOOutOptional.get(),HttpStatus.OK);
     }
-
-    public void setProducerService(ProducerService producerService) {
-        this.producerService = producerService;
-    }
 }
@@ -0,0 +1,100 @@
+package ru.aston.UserServiceAPI.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.aston.UserServiceAPI.Utils.ErrorMessages;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public class ConnectionPoolLimitFilter extends OncePerRequestFilter {
+
+    /*
+    С виртуальными потоками Tomcat больше не ограничивает число запросов в обработке размером своего пула,
+    и все они встают в очередь Hikari за соединением: ждут до connection-timeout и падают с 500, а пул
+    при этом занят запросами, ответ которых клиент уже не ждет. Фильтр пропускает в обработку не больше
+    max-concurrency запросов, остальные ждут разрешения в порядке прихода не дольше acquire-timeout
+    и получают 503 с Retry-After. Разрешение отпускается, когда запрос вернулся из цепочки фильтров,
+    поэтому асинхронная часть выгрузки пользователей под ограничение не попадает.
+    */
+
+    public static final String RETRY_AFTER_SECONDS = "1";
+
+    private final int maxConcurrency;
+    private final long acquireTimeoutNanos;
+    private final Semaphore permits;
+    private final Counter rejected;
+
+    public ConnectionPoolLimitFilter(int maxConcurrency,Duration acquireTimeout,ObjectProvider<MeterRegistry> meterRegistry) {
+        this.maxConcurrency = Math.max(1,maxConcurrency);
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+        this.permits = new Semaphore(this.maxConcurrency,true);
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry == null) {
+            this.rejected = null;
+            return;
+        }
+        this.rejected = Counter
+                .builder("user.http.concurrency.rejected")
+                .description("Requests rejected because the connection pool limit was reached")
+                .register(registry);
+        Gauge
+                .builder("user.http.concurrency.active",this,ConnectionPoolLimitFilter::getActive)
+                .description("Requests holding a connection pool limit permit")
+                .register(registry);
+        Gauge
+                .builder("user.http.concurrency.waiting",permits,Semaphore::getQueueLength)
+                .description("Requests waiting for a connection pool limit permit")
+                .register(registry);
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public int getActive() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        //Health и метрики должны отвечать и под перегрузкой
+        return request
+                .getRequestURI()
+                .startsWith(request.getContextPath() + "/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,HttpServletResponse response,FilterChain filterChain) throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutNanos,TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread
+                    .currentThread()
+                    .interrupt();
+            acquired = false;
+        }
+        if (! acquired) {
+            if (rejected != null) rejected.increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER,RETRY_AFTER_SECONDS);
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,ErrorMessages.SERVICE_OVERLOADED.getMessage());
+            return;
+        }
+        try {
+            filterChain.doFilter(request,response);
+        } finally {
+            permits.release();
+        }
+    }
+}
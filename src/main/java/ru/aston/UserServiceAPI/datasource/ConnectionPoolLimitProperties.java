@@ -0,0 +1,49 @@
+package ru.aston.UserServiceAPI.datasource;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties (prefix = "user.pool-limit")
+public class ConnectionPoolLimitProperties {
+
+    private boolean enabled = true;
+    //0 - размер пула основного DataSource, умноженный на concurrency-factor
+    private int maxConcurrency = 0;
+    //Запрос держит соединение не все время обработки, поэтому запросов пускается больше, чем соединений в пуле
+    private double concurrencyFactor = 2.0;
+    //Сколько запрос ждет своей очереди, потом получает 503
+    private Duration acquireTimeout = Duration.ofSeconds(1);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public double getConcurrencyFactor() {
+        return concurrencyFactor;
+    }
+
+    public void setConcurrencyFactor(double concurrencyFactor) {
+        this.concurrencyFactor = concurrencyFactor;
+    }
+
+    public Duration getAcquireTimeout() {
+        return acquireTimeout;
+    }
+
+    public void setAcquireTimeout(Duration acquireTimeout) {
+        this.acquireTimeout = acquireTimeout;
+    }
+}
@@ -0,0 +1,33 @@
+package ru.aston.UserServiceAPI.datasource;
+
+public class DataSourceRoutingContext {
+
+    private static final ThreadLocal<Boolean> PRIMARY_FORCED = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> REPLICA_READ = new ThreadLocal<>();
+
+    private DataSourceRoutingContext() {
+    }
+
+    public static void forcePrimary() {
+        PRIMARY_FORCED.set(Boolean.TRUE);
+    }
+
+    public static boolean isPrimaryForced() {
+        return PRIMARY_FORCED.get() != null;
+    }
+
+    public static void clear() {
+        PRIMARY_FORCED.remove();
+    }
+
+    public static void markReplicaRead() {
+        REPLICA_READ.set(Boolean.TRUE);
+    }
+
+    //Было ли с прошлого вызова хоть одно соединение, выданное репликой. Отметка при этом сбрасывается
+    public static boolean clearReplicaRead() {
+        boolean read = REPLICA_READ.get() != null;
+        REPLICA_READ.remove();
+        return read;
+    }
+}
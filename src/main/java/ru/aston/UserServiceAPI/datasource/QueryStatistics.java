@@ -0,0 +1,123 @@
+package ru.aston.UserServiceAPI.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+public final class QueryStatistics implements AutoCloseable {
+
+    /*
+    Счетчики SQL запросов в рамках одной области (HTTP запрос, тест). Область привязана к потоку,
+    области могут быть вложенными: при закрытии вложенная добавляет свои счетчики родителю.
+    Запросы из потоков без открытой области не считаются.
+    */
+
+    private static final Logger log = LoggerFactory.getLogger(QueryStatistics.class);
+    private static final ThreadLocal<QueryStatistics> CURRENT = new ThreadLocal<>();
+    //Ограничение на число разных запросов, которые запоминаются для поиска повторов
+    private static final int MAX_TRACKED_QUERIES = 256;
+
+    private final String name;
+    private final int repeatThreshold;
+    private final QueryStatistics parent;
+    private final Map<String, Integer> queries = new LinkedHashMap<>();
+    private final Map<String, Integer> executions = new HashMap<>();
+    private final Set<String> reported = new HashSet<>();
+    private int statements;
+    private long rows;
+    private long jdbcNanos;
+    private long queryStart;
+    private boolean closed;
+
+    private QueryStatistics(String name,int repeatThreshold,QueryStatistics parent) {
+        this.name = name;
+        this.repeatThreshold = repeatThreshold;
+        this.parent = parent;
+    }
+
+    public static QueryStatistics start(String name,int repeatThreshold) {
+        QueryStatistics statistics = new QueryStatistics(name,repeatThreshold,CURRENT.get());
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    public static QueryStatistics current() {
+        return CURRENT.get();
+    }
+
+    void queryStarted() {
+        queryStart = System.nanoTime();
+    }
+
+    void queryFinished(long affectedRows) {
+        statements++;
+        rows += affectedRows;
+        if (queryStart != 0) jdbcNanos += System.nanoTime() - queryStart;
+        queryStart = 0;
+    }
+
+    void rowRead() {
+        rows++;
+    }
+
+    /*
+    Один и тот же запрос с одинаковыми параметрами дважды - дубликат,
+    один и тот же запрос с разными параметрами repeatThreshold раз - похоже на N+1.
+    В обоих случаях в лог пишется стек, чтобы было видно откуда пришел запрос.
+    */
+    void track(String sql,String parameters) {
+        if (queries.size() >= MAX_TRACKED_QUERIES && ! queries.containsKey(sql)) return;
+        int count = queries.merge(sql,1,Integer::sum);
+        if (count == repeatThreshold && reported.add(sql)) {
+            log.warn("Query executed {} times during {}, possible N+1: {}",count,name,sql,new Throwable("Query stack trace"));
+        }
+        if (parameters == null || executions.size() >= MAX_TRACKED_QUERIES) return;
+        String key = sql + parameters;
+        if (executions.merge(key,1,Integer::sum) == 2 && reported.add(key)) {
+            log.warn("Duplicate query during {}: {} {}",name,sql,parameters,new Throwable("Query stack trace"));
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        if (CURRENT.get() == this) {
+            if (parent == null) CURRENT.remove();
+            else CURRENT.set(parent);
+        }
+        if (parent != null) {
+            parent.statements += statements;
+            parent.rows += rows;
+            parent.jdbcNanos += jdbcNanos;
+            queries.forEach((sql,count) -> parent.queries.merge(sql,count,Integer::sum));
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public Duration getJdbcTime() {
+        return Duration.ofNanos(jdbcNanos);
+    }
+
+    public Map<String, Integer> getQueries() {
+        return Collections.unmodifiableMap(queries);
+    }
+}
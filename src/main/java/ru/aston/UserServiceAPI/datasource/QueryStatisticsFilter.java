@@ -0,0 +1,103 @@
+package ru.aston.UserServiceAPI.datasource;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+public class QueryStatisticsFilter extends OncePerRequestFilter {
+
+    public static final String HEADER_NAME = "X-Query-Count";
+
+    private final QueryStatisticsProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public QueryStatisticsFilter(QueryStatisticsProperties properties,MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,HttpServletResponse response,FilterChain filterChain) throws ServletException, IOException {
+        QueryStatistics statistics = QueryStatistics.start(request.getMethod() + " " + request.getRequestURI(),properties.getRepeatThreshold());
+        try {
+            filterChain.doFilter(request,properties.isHeaderEnabled() ? new QueryCountResponse(response,statistics) : response);
+        } finally {
+            statistics.close();
+            if (properties.isHeaderEnabled() && ! response.isCommitted()) {
+                response.setHeader(HEADER_NAME,String.valueOf(statistics.getStatements()));
+            }
+            record(request,response,statistics);
+        }
+    }
+
+    private void record(HttpServletRequest request,HttpServletResponse response,QueryStatistics statistics) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        String status = String.valueOf(response.getStatus());
+        DistributionSummary
+                .builder("user.jdbc.statements")
+                .description("SQL statements per HTTP request")
+                .tags("method",request.getMethod(),"uri",uri,"status",status)
+                .register(meterRegistry)
+                .record(statistics.getStatements());
+        DistributionSummary
+                .builder("user.jdbc.rows")
+                .description("Rows read or changed per HTTP request")
+                .tags("method",request.getMethod(),"uri",uri,"status",status)
+                .register(meterRegistry)
+                .record(statistics.getRows());
+        Timer
+                .builder("user.jdbc.time")
+                .description("Time spent in JDBC statements per HTTP request")
+                .tags("method",request.getMethod(),"uri",uri,"status",status)
+                .register(meterRegistry)
+                .record(statistics.getJdbcTime());
+    }
+
+    //Тело ответа пишется конвертером до выхода из фильтра и коммитит ответ, поэтому заголовок ставится перед первой записью
+    private static class QueryCountResponse extends HttpServletResponseWrapper {
+
+        private final QueryStatistics statistics;
+        private boolean headerWritten;
+
+        QueryCountResponse(HttpServletResponse response,QueryStatistics statistics) {
+            super(response);
+            this.statistics = statistics;
+        }
+
+        private void writeHeader() {
+            if (headerWritten || isCommitted()) return;
+            headerWritten = true;
+            setHeader(HEADER_NAME,String.valueOf(statistics.getStatements()));
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeader();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeader();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeader();
+            super.flushBuffer();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package ru.aston.UserServiceAPI.datasource;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.sql.ResultSet;
+import java.util.List;
+
+public class QueryStatisticsListener implements QueryExecutionListener, MethodExecutionListener {
+
+    //Вызывается из datasource-proxy на каждый JDBC вызов, поэтому без открытой области сразу выходим
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo,List<QueryInfo> queryInfoList) {
+        QueryStatistics statistics = QueryStatistics.current();
+        if (statistics != null) statistics.queryStarted();
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo,List<QueryInfo> queryInfoList) {
+        QueryStatistics statistics = QueryStatistics.current();
+        if (statistics == null) return;
+        statistics.queryFinished(affectedRows(execInfo.getResult()));
+        for (QueryInfo queryInfo : queryInfoList) {
+            //У батча параметры разные по определению, дубликаты в нем не ищем
+            statistics.track(queryInfo.getQuery(),execInfo.isBatch() ? null : queryInfo
+                    .getQueryArgsList()
+                    .toString());
+        }
+    }
+
+    @Override
+    public void beforeMethod(MethodExecutionContext executionContext) {
+    }
+
+    //Строки выборки считаются по успешным ResultSet.next(), строки изменений по результату executeUpdate/executeBatch
+    @Override
+    public void afterMethod(MethodExecutionContext executionContext) {
+        if (! (executionContext.getTarget() instanceof ResultSet)) return;
+        QueryStatistics statistics = QueryStatistics.current();
+        if (statistics != null && Boolean.TRUE.equals(executionContext.getResult()) && "next".equals(executionContext
+                .getMethod()
+                .getName())) {
+            statistics.rowRead();
+        }
+    }
+
+    private long affectedRows(Object result) {
+        if (result instanceof Integer count) return Math.max(count,0);
+        if (result instanceof Long count) return Math.max(count,0);
+        long rows = 0;
+        if (result instanceof int[] counts) {
+            for (int count : counts) rows += Math.max(count,0);
+        } else if (result instanceof long[] counts) {
+            for (long count : counts) rows += Math.max(count,0);
+        }
+        return rows;
+    }
+}
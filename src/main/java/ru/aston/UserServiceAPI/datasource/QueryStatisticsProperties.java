@@ -0,0 +1,44 @@
+package ru.aston.UserServiceAPI.datasource;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties (prefix = "user.query-stats")
+public class QueryStatisticsProperties {
+
+    private boolean enabled = false;
+    private boolean countRows = false;
+    private boolean headerEnabled = false;
+    private int repeatThreshold = 5;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isCountRows() {
+        return countRows;
+    }
+
+    public void setCountRows(boolean countRows) {
+        this.countRows = countRows;
+    }
+
+    public boolean isHeaderEnabled() {
+        return headerEnabled;
+    }
+
+    public void setHeaderEnabled(boolean headerEnabled) {
+        this.headerEnabled = headerEnabled;
+    }
+
+    public int getRepeatThreshold() {
+        return repeatThreshold;
+    }
+
+    public void setRepeatThreshold(int repeatThreshold) {
+        this.repeatThreshold = repeatThreshold;
+    }
+}
@@ -0,0 +1,62 @@
+package ru.aston.UserServiceAPI.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    public static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+    private final Map<String, DataSource> replicas;
+    private final ReplicaLagMonitor lagMonitor;
+
+    public ReadReplicaRoutingDataSource(DataSource primary,Map<String, DataSource> replicas,ReplicaLagMonitor lagMonitor) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.lagMonitor = lagMonitor;
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY,primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (! TransactionSynchronizationManager.isCurrentTransactionReadOnly() || DataSourceRoutingContext.isPrimaryForced()) {
+            return PRIMARY;
+        }
+        //Реплики в hot standby не умеют SERIALIZABLE, такие транзакции всегда идут в мастер
+        Integer isolation = TransactionSynchronizationManager.getCurrentTransactionIsolationLevel();
+        if (isolation != null && isolation == Connection.TRANSACTION_SERIALIZABLE) return PRIMARY;
+        String replica = lagMonitor.nextHealthyReplica();
+        if (replica == null) return PRIMARY;
+        //Кэш ответов по этой отметке не сохраняет то, что могло быть прочитано до коммита
+        DataSourceRoutingContext.markReplicaRead();
+        return replica;
+    }
+
+    public List<String> getReplicaNames() {
+        return List.copyOf(replicas.keySet());
+    }
+
+    @Override
+    public void close() {
+        replicas
+                .values()
+                .forEach(ReadReplicaRoutingDataSource::closeQuietly);
+        closeQuietly(primary);
+    }
+
+    private static void closeQuietly(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource hikariDataSource) hikariDataSource.close();
+    }
+}
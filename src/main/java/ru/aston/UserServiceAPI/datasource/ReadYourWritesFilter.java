@@ -0,0 +1,68 @@
+package ru.aston.UserServiceAPI.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String COOKIE_NAME = "USER-SERVICE-PRIMARY-UNTIL";
+
+    private final Duration stickyWindow;
+
+    public ReadYourWritesFilter(Duration stickyWindow) {
+        this.stickyWindow = stickyWindow;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,HttpServletResponse response,FilterChain filterChain) throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        if (isWrite(request)) {
+            //Куку ставим до обработки, после нее ответ может быть уже закоммичен
+            Cookie cookie = new Cookie(COOKIE_NAME,String.valueOf(now + stickyWindow.toMillis()));
+            cookie.setMaxAge((int) Math.max(1,stickyWindow.toSeconds()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            response.addCookie(cookie);
+            DataSourceRoutingContext.forcePrimary();
+        } else if (isSticky(request,now)) {
+            DataSourceRoutingContext.forcePrimary();
+        }
+        try {
+            filterChain.doFilter(request,response);
+        } finally {
+            DataSourceRoutingContext.clear();
+        }
+    }
+
+    private boolean isWrite(HttpServletRequest request) {
+        String method = request.getMethod();
+        return "POST".equals(method) || "PUT".equals(method) || "DELETE".equals(method) || "PATCH".equals(method);
+    }
+
+    //Клиент недавно писал: его чтения идут в мастер, пока не истечет кука
+    public static boolean isSticky(HttpServletRequest request,long now) {
+        return stickyUntil(request) > now;
+    }
+
+    private static long stickyUntil(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) return 0;
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,87 @@
+package ru.aston.UserServiceAPI.datasource;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.TaskScheduler;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ReplicaLagMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+    //Если реплика проиграла весь полученный WAL, то она догнала мастер, даже если на мастере давно не было записей
+    private static final String LAG_QUERY = """
+            SELECT CASE
+                       WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                       ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0)
+                   END""";
+
+    private final Map<String, DataSource> replicas;
+    private final Duration maxLag;
+    private final Duration checkInterval;
+    private final TaskScheduler taskScheduler;
+    private final AtomicInteger counter = new AtomicInteger();
+    private volatile List<String> healthyReplicas = List.of();
+
+    public ReplicaLagMonitor(Map<String, DataSource> replicas,Duration maxLag,Duration checkInterval,TaskScheduler taskScheduler) {
+        this.replicas = replicas;
+        this.maxLag = maxLag;
+        this.checkInterval = checkInterval;
+        this.taskScheduler = taskScheduler;
+    }
+
+    @PostConstruct
+    public void init() {
+        taskScheduler.scheduleWithFixedDelay(this::checkLag,checkInterval);
+    }
+
+    public String nextHealthyReplica() {
+        List<String> healthy = healthyReplicas;
+        if (healthy.isEmpty()) return null;
+        return healthy.get(Math.floorMod(counter.getAndIncrement(),healthy.size()));
+    }
+
+    public Map<String, DataSource> getReplicas() {
+        return replicas;
+    }
+
+    public List<String> getHealthyReplicas() {
+        return healthyReplicas;
+    }
+
+    void checkLag() {
+        List<String> healthy = new ArrayList<>(replicas.size());
+        for (Map.Entry<String, DataSource> replica : replicas.entrySet()) {
+            double lagSeconds = measureLag(replica.getKey(),replica.getValue());
+            if (lagSeconds >= 0 && lagSeconds * 1000 <= maxLag.toMillis()) {
+                healthy.add(replica.getKey());
+            } else if (lagSeconds >= 0) {
+                log.warn("Replica {} lags behind primary for {} s, reads go to other nodes",replica.getKey(),lagSeconds);
+            }
+        }
+        if (healthy.isEmpty() && ! replicas.isEmpty() && ! healthyReplicas.isEmpty()) {
+            log.warn("No healthy replicas left, read only transactions fall back to primary");
+        }
+        healthyReplicas = List.copyOf(healthy);
+    }
+
+    private double measureLag(String name,DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+            return resultSet.next() ? resultSet.getDouble(1) : - 1;
+        } catch (Exception e) {
+            log.error("Replica {} is unavailable: {}",name,e.getMessage());
+            return - 1;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package ru.aston.UserServiceAPI.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Map;
+
+@JsonInclude (JsonInclude.Include.NON_NULL)
+public class BatchItemResultDTO {
+
+    public enum Status {
+        CREATED,
+        REJECTED
+    }
+
+    private final int index;
+    private final Status status;
+    private final UserDTOResponse user;
+    private final Map<String, String> errors;
+
+    private BatchItemResultDTO(int index,Status status,UserDTOResponse user,Map<String, String> errors) {
+        this.index = index;
+        this.status = status;
+        this.user = user;
+        this.errors = errors;
+    }
+
+    public static BatchItemResultDTO created(int index,UserDTOResponse user) {
+        return new BatchItemResultDTO(index,Status.CREATED,user,null);
+    }
+
+    public static BatchItemResultDTO rejected(int index,Map<String, String> errors) {
+        return new BatchItemResultDTO(index,Status.REJECTED,null,errors);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public UserDTOResponse getUser() {
+        return user;
+    }
+
+    public Map<String, String> getErrors() {
+        return errors;
+    }
+}
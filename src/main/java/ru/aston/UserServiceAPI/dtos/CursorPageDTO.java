@@ -0,0 +1,43 @@
+package ru.aston.UserServiceAPI.dtos;
+
+import java.util.List;
+
+public class CursorPageDTO {
+
+    private final List<UserDTOResponse> users;
+    //Размер страницы после ограничения user.pagination.max-size, его повторяют ссылки next и prev
+    private final int size;
+    private final String nextCursor;
+    private final String prevCursor;
+
+    public CursorPageDTO(List<UserDTOResponse> users,int size,String nextCursor,String prevCursor) {
+        this.users = users;
+        this.size = size;
+        this.nextCursor = nextCursor;
+        this.prevCursor = prevCursor;
+    }
+
+    public List<UserDTOResponse> getUsers() {
+        return users;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public String getPrevCursor() {
+        return prevCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public boolean hasPrev() {
+        return prevCursor != null;
+    }
+}
@@ -0,0 +1,96 @@
+package ru.aston.UserServiceAPI.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import ru.aston.UserServiceAPI.services.ImportJob;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+@JsonInclude (JsonInclude.Include.NON_NULL)
+public class ImportJobDTO {
+
+    private final UUID id;
+    private final String format;
+    private final ImportJob.State state;
+    private final double progress;
+    private final long processedRows;
+    private final long importedRows;
+    private final long rejectedRows;
+    private final long duplicateRows;
+    private final double rowsPerSecond;
+    private final Instant startedAt;
+    private final Instant finishedAt;
+    private final String error;
+    private final Map<Long, Map<String, String>> rejectedSamples;
+
+    public ImportJobDTO(ImportJob job) {
+        this.id = job.getId();
+        this.format = job
+                .getFormat()
+                .getExtension();
+        this.state = job.getState();
+        this.progress = job.getProgress();
+        this.processedRows = job.getProcessedRows();
+        this.importedRows = job.getImportedRows();
+        this.rejectedRows = job.getRejectedRows();
+        this.duplicateRows = job.getDuplicateRows();
+        this.rowsPerSecond = job.getRowsPerSecond();
+        this.startedAt = job.getStartedAt();
+        this.finishedAt = job.getFinishedAt();
+        this.error = job.getError();
+        this.rejectedSamples = job.getRejectedSamples();
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public ImportJob.State getState() {
+        return state;
+    }
+
+    public double getProgress() {
+        return progress;
+    }
+
+    public long getProcessedRows() {
+        return processedRows;
+    }
+
+    public long getImportedRows() {
+        return importedRows;
+    }
+
+    public long getRejectedRows() {
+        return rejectedRows;
+    }
+
+    public long getDuplicateRows() {
+        return duplicateRows;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public Map<Long, Map<String, String>> getRejectedSamples() {
+        return rejectedSamples;
+    }
+}
@@ -0,0 +1,97 @@
+package ru.aston.UserServiceAPI.entitys;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+@Entity
+@Table (name = "user_outbox")
+public class OutboxEvent {
+
+    //Строки вставляются нативными запросами пачкой, поэтому IDENTITY батчингу не мешает. Порядок id - порядок публикации
+    @Id
+    @GeneratedValue (strategy = GenerationType.IDENTITY)
+    @Column (name = "id", nullable = false)
+    private Long id;
+
+    //null - топик уведомлений, иначе сообщение вытеснено в outbox из очереди ProducerExecutor
+    @Column (name = "topic")
+    private String topic;
+
+    @Column (name = "event_key", nullable = false)
+    private String eventKey;
+
+    //Для топика уведомлений - UserEvent в формате UserEventSerializer
+    @Column (nullable = false)
+    private byte[] payload;
+
+    @Column (name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    //Пока срок не вышел, пачку публикует захвативший ее релей, null - строка свободна
+    @Column (name = "claimed_until")
+    private Instant claimedUntil;
+
+    public OutboxEvent() {
+        this.createdAt = Instant.now();
+    }
+
+    public OutboxEvent(String eventKey,byte[] payload) {
+        this();
+        this.eventKey = eventKey;
+        this.payload = payload;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+
+    public String getEventKey() {
+        return eventKey;
+    }
+
+    public void setEventKey(String eventKey) {
+        this.eventKey = eventKey;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public void setPayload(byte[] payload) {
+        this.payload = payload;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getClaimedUntil() {
+        return claimedUntil;
+    }
+
+    public void setClaimedUntil(Instant claimedUntil) {
+        this.claimedUntil = claimedUntil;
+    }
+
+    @Override
+    public String toString() {
+        return "OutboxEvent{" + "id=" + id + ", eventKey='" + eventKey + '\'' + ", payload=" + (payload == null ? 0 : payload.length) + " bytes" + '}';
+    }
+}
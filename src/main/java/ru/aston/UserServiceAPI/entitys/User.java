@@ -14,8 +14,12 @@ import java.util.Objects;
 @Table (name = "users")
 public class User {
 
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    //Пул айди из sequence, с IDENTITY хибернейт не может батчить инсерты
     @Id
-    @GeneratedValue (strategy = GenerationType.IDENTITY)
+    @GeneratedValue (strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator (name = "users_seq", sequenceName = "users_seq", allocationSize = ID_ALLOCATION_SIZE)
     @Column (name = "id", nullable = false)
     private Long id;
 
@@ -36,6 +40,11 @@ public class User {
     @DateTimeFormat (pattern = "dd.MM.yyyy HH:mm:ss:SS")
     private LocalDateTime updated_at;
 
+    //Версия уходит в сообщениях инвалидации кэша, по ней узлы отбрасывают устаревшие сообщения
+    @Version
+    @Column (nullable = false)
+    private Long version;
+
     public User() {
         this.created_at = LocalDateTime.now();
     }
@@ -87,6 +96,14 @@ public class User {
         this.created_at = created_at;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public LocalDateTime getUpdated_at() {
         return updated_at;
     }
@@ -0,0 +1,64 @@
+package ru.aston.UserServiceAPI.hateoas;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.server.reactive.ReactiveRepresentationModelAssembler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.aston.UserServiceAPI.controllers.ReactiveUserController;
+import ru.aston.UserServiceAPI.dtos.CursorPageDTO;
+import ru.aston.UserServiceAPI.dtos.UserDTOResponse;
+
+import static org.springframework.hateoas.server.reactive.WebFluxLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.reactive.WebFluxLinkBuilder.methodOn;
+
+//Те же ссылки и шаблоны HAL-FORMS, что у UserAssembler
+@Component
+@ConditionalOnWebApplication (type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserAssembler implements ReactiveRepresentationModelAssembler<UserDTOResponse, EntityModel<UserDTOResponse>> {
+
+    @Override
+    public Mono<EntityModel<UserDTOResponse>> toModel(UserDTOResponse dto,ServerWebExchange exchange) {
+        return Flux
+                .concat(linkTo(methodOn(ReactiveUserController.class).getUser(dto.getId(),null,null,null),exchange)
+                                .withSelfRel()
+                                .toMono(Link::expand),
+                        linkTo(methodOn(ReactiveUserController.class).deleteUser(dto.getId()),exchange)
+                                .withRel("Delete this user")
+                                .toMono(link -> link.withType("DELETE")),
+                        linkTo(methodOn(ReactiveUserController.class).updateUser(dto.getId(),null),exchange)
+                                .withRel("Update this user")
+                                .toMono(link -> link.withType("PUT")))
+                .collectList()
+                .map(links -> EntityModel.of(dto,links));
+    }
+
+    @Override
+    public Mono<CollectionModel<EntityModel<UserDTOResponse>>> toCollectionModel(Flux<? extends UserDTOResponse> entities,ServerWebExchange exchange) {
+        return ReactiveRepresentationModelAssembler.super
+                .toCollectionModel(entities,exchange)
+                .zipWith(linkTo(methodOn(ReactiveUserController.class).getAllUsers(null,null,null,null),exchange)
+                        .withSelfRel()
+                        .andAffordance(methodOn(ReactiveUserController.class).createUser(null))
+                        .toMono(link -> link.withType("GET")))
+                .map(tuple -> tuple
+                        .getT1()
+                        .add(tuple.getT2()));
+    }
+
+    public Mono<CollectionModel<EntityModel<UserDTOResponse>>> toCursorCollectionModel(CursorPageDTO page,ServerWebExchange exchange) {
+        Mono<CollectionModel<EntityModel<UserDTOResponse>>> model = toCollectionModel(Flux.fromIterable(page.getUsers()),exchange);
+        Flux<Link> links = Flux.concat(page.hasNext() ? linkTo(methodOn(ReactiveUserController.class).getAllUsersAfter(page.getNextCursor(),page.getSize(),null),exchange)
+                        .withRel(IanaLinkRelations.NEXT)
+                        .toMono(link -> link.withType("GET")) : Mono.empty(),
+                page.hasPrev() ? linkTo(methodOn(ReactiveUserController.class).getAllUsersBefore(page.getPrevCursor(),page.getSize(),null),exchange)
+                        .withRel(IanaLinkRelations.PREV)
+                        .toMono(link -> link.withType("GET")) : Mono.empty());
+        return model.zipWith(links.collectList(),CollectionModel::add);
+    }
+}
@@ -2,44 +2,145 @@ package ru.aston.UserServiceAPI.hateoas;
 
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
 import org.springframework.hateoas.server.RepresentationModelAssembler;
+import org.springframework.hateoas.server.core.DummyInvocationUtils;
+import org.springframework.hateoas.server.core.SpringAffordanceBuilder;
+import org.springframework.hateoas.server.mvc.WebMvcLinkBuilder;
 import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import ru.aston.UserServiceAPI.controllers.UserControllerImpl;
+import ru.aston.UserServiceAPI.dtos.CursorPageDTO;
 import ru.aston.UserServiceAPI.dtos.UserDTOResponse;
 
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.*;
 
 @Component
 public class UserAssembler implements RepresentationModelAssembler<UserDTOResponse, EntityModel<UserDTOResponse>> {
 
+    /*
+    linkTo(methodOn(...)) на каждую ссылку создает прокси, записывающий вызов, и разбирает маппинги контроллера.
+    Ссылки пользователя отличаются только айди, поэтому они строятся через linkTo один раз на базовый адрес
+    (схема, хост, порт и контекст запроса) с айди-меткой и дальше получаются подстановкой айди в строку.
+    Ссылка коллекции с шаблоном создания пользователя от айди не зависит и переиспользуется целиком.
+    Базовых адресов немного, но их задает заголовок Host, поэтому кэш ограничен и при переполнении очищается.
+    */
+
+    private static final long ID_PLACEHOLDER = Long.MIN_VALUE;
+    private static final int MAX_BASE_URIS = 32;
+
+    private final Map<String, Templates> templates = new ConcurrentHashMap<>();
 
     @Override
     public EntityModel<UserDTOResponse> toModel(UserDTOResponse dto) {
-        EntityModel<UserDTOResponse> entityModel = EntityModel.of(dto);
-        entityModel.add(linkTo(methodOn(UserControllerImpl.class)
-                .getUser(dto.getId(),null,null))
-                .withSelfRel()
-                .expand());
-        entityModel.add(linkTo(methodOn(UserControllerImpl.class)
-                .deleteUser(dto.getId()))
-                .withRel("Delete this user")
-                .withType("DELETE"));
-        entityModel.add(linkTo(methodOn(UserControllerImpl.class)
-                .updateUser(dto.getId(),null,null))
-                .withRel("Update this user")
-                .withType("PUT"));
-        return entityModel;
+        return toModel(dto,templates());
     }
 
     @Override
     public CollectionModel<EntityModel<UserDTOResponse>> toCollectionModel(Iterable<? extends UserDTOResponse> entities) {
-        return RepresentationModelAssembler.super
-                .toCollectionModel(entities)
-                .add(linkTo(methodOn(UserControllerImpl.class)
-                        .getAllUsers(null,null,null))
-                        .withSelfRel()
-                        .withType("GET")
-                        .andAffordance(afford(methodOn(UserControllerImpl.class)
-                                .createUser(null,null))));
+        Templates templates = templates();
+        List<EntityModel<UserDTOResponse>> models = new ArrayList<>();
+        for (UserDTOResponse dto : entities) {
+            models.add(toModel(dto,templates));
+        }
+        return CollectionModel.of(models,templates.collection());
+    }
+
+    public CollectionModel<EntityModel<UserDTOResponse>> toCursorCollectionModel(CursorPageDTO page) {
+        CollectionModel<EntityModel<UserDTOResponse>> collectionModel = toCollectionModel(page.getUsers());
+        if (page.hasNext()) {
+            collectionModel.add(linkTo(methodOn(UserControllerImpl.class)
+                    .getAllUsersAfter(page.getNextCursor(),page.getSize()))
+                    .withRel(IanaLinkRelations.NEXT)
+                    .withType("GET"));
+        }
+        if (page.hasPrev()) {
+            collectionModel.add(linkTo(methodOn(UserControllerImpl.class)
+                    .getAllUsersBefore(page.getPrevCursor(),page.getSize()))
+                    .withRel(IanaLinkRelations.PREV)
+                    .withType("GET"));
+        }
+        return collectionModel;
+    }
+
+    private EntityModel<UserDTOResponse> toModel(UserDTOResponse dto,Templates templates) {
+        String id = String.valueOf(dto.getId());
+        return EntityModel.of(dto,List.of(templates
+                .self()
+                .expand(id),templates
+                .delete()
+                .expand(id),templates
+                .update()
+                .expand(id)));
+    }
+
+    private Templates templates() {
+        String baseUri = ServletUriComponentsBuilder
+                .fromCurrentServletMapping()
+                .toUriString();
+        Templates cached = templates.get(baseUri);
+        if (cached != null) return cached;
+        if (templates.size() >= MAX_BASE_URIS) templates.clear();
+        return templates.computeIfAbsent(baseUri,key -> Templates.build());
+    }
+
+    /*
+    Ссылка с айди-меткой в href, копия с айди получается через withHref без разбора шаблона.
+    Шаблоны HAL-FORMS ссылки указывают на ее адрес, поэтому они собираются заново для каждого айди
+    тем же SpringAffordanceBuilder, что и в linkTo, он кэширует разбор метода контроллера
+    */
+    private record LinkTemplate(Link link,Method method,String prefix,String suffix) {
+
+        private static LinkTemplate of(Object invocation,Function<WebMvcLinkBuilder, Link> builder) {
+            Link link = builder.apply(linkTo(invocation));
+            String href = link.getHref();
+            String placeholder = String.valueOf(ID_PLACEHOLDER);
+            int index = href.indexOf(placeholder);
+            if (index < 0 || href.indexOf(placeholder,index + 1) >= 0)
+                throw new IllegalStateException("Link " + href + " should contain user id exactly once");
+            Method method = link
+                    .getAffordances()
+                    .isEmpty() ? null : DummyInvocationUtils
+                    .getLastInvocationAware(invocation)
+                    .getLastInvocation()
+                    .getMethod();
+            return new LinkTemplate(link,method,href.substring(0,index),href.substring(index + placeholder.length()));
+        }
+
+        private Link expand(String id) {
+            String href = prefix + id + suffix;
+            Link expanded = link.withHref(href);
+            if (method == null) return expanded;
+            return expanded.withAffordances(SpringAffordanceBuilder.getAffordances(UserControllerImpl.class,method,href));
+        }
+    }
+
+    private record Templates(LinkTemplate self,LinkTemplate delete,LinkTemplate update,Link collection) {
+
+        private static Templates build() {
+            return new Templates(LinkTemplate.of(methodOn(UserControllerImpl.class).getUser(ID_PLACEHOLDER,null,null),builder -> builder
+                            .withSelfRel()
+                            .expand()),
+                    LinkTemplate.of(methodOn(UserControllerImpl.class).deleteUser(ID_PLACEHOLDER),builder -> builder
+                            .withRel("Delete this user")
+                            .withType("DELETE")),
+                    LinkTemplate.of(methodOn(UserControllerImpl.class).updateUser(ID_PLACEHOLDER,null,null),builder -> builder
+                            .withRel("Update this user")
+                            .withType("PUT")),
+                    linkTo(methodOn(UserControllerImpl.class)
+                            .getAllUsers(null,null,null))
+                            .withSelfRel()
+                            .withType("GET")
+                            .andAffordance(afford(methodOn(UserControllerImpl.class)
+                                    .createUser(null,null))));
+        }
     }
 }
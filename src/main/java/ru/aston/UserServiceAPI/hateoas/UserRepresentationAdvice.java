@@ -0,0 +1,81 @@
+package ru.aston.UserServiceAPI.hateoas;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import ru.aston.UserServiceAPI.Utils.UserFields;
+import ru.aston.UserServiceAPI.controllers.UserControllerImpl;
+import ru.aston.UserServiceAPI.dtos.UserDTOResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@ControllerAdvice (assignableTypes = UserControllerImpl.class)
+public class UserRepresentationAdvice implements ResponseBodyAdvice<Object> {
+
+    /*
+    HAL-FORMS с _links и _templates нужен клиентам, которые ходят по ссылкам. Остальным сервисам
+    отдается голый пользователь или список пользователей в application/json, CBOR или Smile:
+    тип выбирает content negotiation спринга по Accept и produces метода, а модель разворачивается здесь,
+    перед записью, поэтому контроллер и его сигнатуры не зависят от формата.
+    Параметр fields оставляет в пользователе только перечисленные поля в любом из форматов,
+    у HAL-FORMS ссылки и шаблоны при этом сохраняются.
+    */
+
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+    public static final String FIELDS = "fields";
+
+    private static final List<MediaType> LEAN = List.of(MediaType.APPLICATION_JSON,MediaType.APPLICATION_CBOR,MediaType.parseMediaType(SMILE_VALUE));
+
+    @Override
+    public boolean supports(MethodParameter returnType,Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body,MethodParameter returnType,MediaType selectedContentType,
+            Class<? extends HttpMessageConverter<?>> selectedConverterType,ServerHttpRequest request,ServerHttpResponse response) {
+        if (! (body instanceof EntityModel<?>) && ! (body instanceof CollectionModel<?>)) return body;
+        UserFields fields = UserFields.parse(fields(request));
+        boolean lean = isLean(selectedContentType);
+        if (! lean && fields == null) return body;
+        if (body instanceof EntityModel<?> model && model.getContent() instanceof UserDTOResponse user) {
+            if (lean) return fields == null ? user : fields.project(user);
+            return EntityModel.of(fields.project(user),model.getLinks());
+        }
+        if (body instanceof CollectionModel<?> collection) {
+            List<Object> users = new ArrayList<>();
+            List<EntityModel<Object>> models = new ArrayList<>();
+            for (Object element : collection.getContent()) {
+                if (! (element instanceof EntityModel<?> model) || ! (model.getContent() instanceof UserDTOResponse user)) return body;
+                Object content = fields == null ? user : fields.project(user);
+                if (lean) users.add(content);
+                else models.add(EntityModel.of(content,model.getLinks()));
+            }
+            if (lean) return users;
+            return CollectionModel.of(models,collection.getLinks());
+        }
+        return body;
+    }
+
+    private static boolean isLean(MediaType selectedContentType) {
+        for (MediaType mediaType : LEAN) {
+            if (mediaType.isCompatibleWith(selectedContentType)) return true;
+        }
+        return false;
+    }
+
+    private static String fields(ServerHttpRequest request) {
+        if (! (request instanceof ServletServerHttpRequest servletRequest)) return null;
+        return servletRequest
+                .getServletRequest()
+                .getParameter(FIELDS);
+    }
+}
@@ -1,20 +1,34 @@
 package ru.aston.UserServiceAPI.kafka;
 
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
 public abstract class AbstractKafkaMessage implements Sendable {
 
     private final String key;
-    private final String message;
+    private final byte[] value;
 
-    public AbstractKafkaMessage(String key,String message) {
+    public AbstractKafkaMessage(String key,byte[] value) {
         this.key = key;
-        this.message = message;
+        this.value = value;
+    }
+
+    public AbstractKafkaMessage(String key,String message) {
+        this(key,message.getBytes(StandardCharsets.UTF_8));
     }
 
     public String getKey() {
         return key;
     }
 
-    public String getMessage() {
-        return message;
+    public byte[] getValue() {
+        return value;
+    }
+
+    @Override
+    public CompletableFuture<?> send(KafkaTemplate<String, byte[]> kafkaTemplate,String topic) {
+        return kafkaTemplate.send(topic,this.getKey(),this.getValue());
     }
 }
@@ -0,0 +1,40 @@
+package ru.aston.UserServiceAPI.kafka;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@ConfigurationProperties (prefix = "user.producer.envelope")
+public class EnvelopeProperties {
+
+    //Выключено по умолчанию: потребители топика уведомлений должны уметь читать конверты
+    private boolean enabled = false;
+    //Должно быть меньше user.producer.tuning.max-request-size
+    private DataSize maxBytes = DataSize.ofKilobytes(256);
+    private Duration linger = Duration.ofMillis(20);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public DataSize getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(DataSize maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public Duration getLinger() {
+        return linger;
+    }
+
+    public void setLinger(Duration linger) {
+        this.linger = linger;
+    }
+}
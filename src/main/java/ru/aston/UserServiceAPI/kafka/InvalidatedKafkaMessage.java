@@ -0,0 +1,9 @@
+package ru.aston.UserServiceAPI.kafka;
+
+public class InvalidatedKafkaMessage extends AbstractKafkaMessage {
+
+    //Ключ айди пользователя, значение строкой "версия:узел:время публикации в мс"
+    public InvalidatedKafkaMessage(long id,long version,String nodeId) {
+        super(String.valueOf(id),version + ":" + nodeId + ":" + System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,364 @@
+package ru.aston.UserServiceAPI.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+@Component
+@ConditionalOnProperty (name = "user.spool.enabled", havingValue = "true")
+@EnableConfigurationProperties (SpoolProperties.class)
+public class KafkaSpool {
+
+    /*
+    Локальная очередь сообщений на время недоступности брокера: набор сегментов фиксированного размера,
+    отображенных в память. Запись только дописывает в конец активного сегмента, поэтому идет со скоростью
+    page cache, а после падения процесса данные остаются в файлах. Заголовок сегмента хранит позицию чтения,
+    конец записанного находится при открытии по первой нулевой длине или неверной контрольной сумме.
+    Сегмент: [int позиция чтения][int резерв] и записи [int длина тела][int crc32 тела][тело],
+    тело: [short длина топика][топик][int длина ключа или -1][ключ][int длина значения][значение].
+    Прочитанный сегмент удаляется, при переполнении max-segments выкидывается самый старый.
+    Каталог принадлежит одному экземпляру: на время работы берется блокировка файла .lock, и второй процесс
+    с тем же каталогом не стартует. Отображение удаленного сегмента освобождается сразу, а не сборщиком
+    мусора, иначе место на диске держится, пока жив буфер.
+    */
+
+    private static final Logger log = LoggerFactory.getLogger(KafkaSpool.class);
+    private static final int HEADER = 8;
+    private static final int RECORD_HEADER = 8;
+    private static final String SUFFIX = ".seg";
+    private static final String LOCK_FILE = ".lock";
+    private static final Method INVOKE_CLEANER;
+    private static final Object UNSAFE;
+
+    //Публичного способа освободить отображение в 21 нет, поэтому как в Netty и Lucene берется Unsafe.invokeCleaner
+    static {
+        Method invokeCleaner = null;
+        Object unsafe = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner",ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("Cant unmap spool segments explicitly, they are released by GC: {}",e.toString());
+        }
+        INVOKE_CLEANER = invokeCleaner;
+        UNSAFE = unsafe;
+    }
+
+    public record Record(String topic,String key,byte[] value) {
+    }
+
+    //Пачка из головного сегмента, commit сдвигает позицию чтения только если сегмент еще тот же
+    public record Batch(long segment,int end,List<Record> records) {
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final AtomicLong depth = new AtomicLong();
+    private final Counter dropped;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private boolean closed;
+
+    @Autowired
+    public KafkaSpool(SpoolProperties properties,ObjectProvider<MeterRegistry> meterRegistry) throws IOException {
+        if (properties.getDirectory() == null) throw new IllegalStateException("user.spool.directory is required when the spool is enabled, each instance needs its own directory");
+        this.directory = properties.getDirectory();
+        this.segmentSize = (int) Math.min(Integer.MAX_VALUE,properties
+                .getSegmentSize()
+                .toBytes());
+        this.maxSegments = Math.max(2,properties.getMaxSegments());
+        Files.createDirectories(directory);
+        this.lockChannel = FileChannel.open(directory.resolve(LOCK_FILE),StandardOpenOption.CREATE,StandardOpenOption.WRITE);
+        this.lock = tryLock(lockChannel);
+        if (lock == null) {
+            lockChannel.close();
+            throw new IllegalStateException("Spool directory " + directory + " is used by another instance");
+        }
+        recover();
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        this.dropped = registry == null ? null : Counter
+                .builder("user.kafka.spool.dropped")
+                .description("Spooled messages dropped when the oldest segment was rotated out")
+                .register(registry);
+        if (registry != null) Gauge
+                .builder("user.kafka.spool.depth",depth,AtomicLong::get)
+                .description("Messages waiting in the local spool for the broker")
+                .register(registry);
+        if (depth.get() > 0) log.info("Kafka spool recovered {} messages from {}",depth.get(),directory);
+    }
+
+    public boolean isEmpty() {
+        return depth.get() == 0;
+    }
+
+    public long getDepth() {
+        return depth.get();
+    }
+
+    public synchronized boolean append(String topic,String key,byte[] value) {
+        if (closed) {
+            log.warn("Kafka spool is closed, message for {} dropped",topic);
+            return false;
+        }
+        byte[] body = encode(topic,key,value);
+        int size = RECORD_HEADER + body.length;
+        if (size > segmentSize - HEADER) {
+            log.warn("Message for {} is larger than spool segment, dropped",topic);
+            return false;
+        }
+        Segment active = segments.peekLast();
+        if (active == null || active.writePosition + size > segmentSize) active = rotate();
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        MappedByteBuffer buffer = active.buffer;
+        int position = active.writePosition;
+        buffer.putInt(position + 4,(int) crc.getValue());
+        buffer.put(position + RECORD_HEADER,body);
+        //Длина пишется последней: недописанная запись при восстановлении выглядит как конец сегмента
+        buffer.putInt(position,body.length);
+        active.writePosition += size;
+        depth.incrementAndGet();
+        return true;
+    }
+
+    public synchronized Batch peek(int maxRecords) {
+        Segment head = closed ? null : headWithData();
+        if (head == null) return new Batch(- 1,0,List.of());
+        List<Record> records = new ArrayList<>(Math.min(maxRecords,1024));
+        int position = head.readPosition;
+        while (records.size() < maxRecords && position < head.writePosition) {
+            int length = head.buffer.getInt(position);
+            byte[] body = new byte[length];
+            head.buffer.get(position + RECORD_HEADER,body);
+            records.add(decode(body));
+            position += RECORD_HEADER + length;
+        }
+        return new Batch(head.id,position,records);
+    }
+
+    public synchronized void commit(Batch batch) {
+        Segment head = segments.peekFirst();
+        if (head == null || head.id != batch.segment() || batch.end() <= head.readPosition) return;
+        head.readPosition = batch.end();
+        head.buffer.putInt(0,batch.end());
+        depth.addAndGet(- batch
+                .records()
+                .size());
+        if (head.readPosition == head.writePosition && segments.size() > 1) delete(segments.pollFirst());
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        for (Segment segment : segments) {
+            segment.buffer.force();
+            unmap(segment.buffer);
+        }
+        segments.clear();
+        try {
+            lock.release();
+            lockChannel.close();
+        } catch (IOException e) {
+            log.warn("Cant release spool lock {}: {}",directory,e.getMessage());
+        }
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            //Каталог уже заблокирован в этой же JVM
+            return null;
+        }
+    }
+
+    private Segment headWithData() {
+        while (true) {
+            Segment head = segments.peekFirst();
+            if (head == null) return null;
+            if (head.readPosition < head.writePosition) return head;
+            if (segments.size() == 1) return null;
+            delete(segments.pollFirst());
+        }
+    }
+
+    private Segment rotate() {
+        if (segments.size() >= maxSegments) {
+            Segment oldest = segments.pollFirst();
+            long lost = oldest.pending();
+            depth.addAndGet(- lost);
+            if (dropped != null) dropped.increment(lost);
+            log.warn("Kafka spool is full, {} oldest messages dropped",lost);
+            delete(oldest);
+        }
+        Segment last = segments.peekLast();
+        Segment segment = open(last == null ? 0 : last.id + 1,true);
+        segments.addLast(segment);
+        return segment;
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list
+                    .filter(path -> path
+                            .getFileName()
+                            .toString()
+                            .endsWith(SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+        for (Path file : files) {
+            String name = file
+                    .getFileName()
+                    .toString();
+            Segment segment = open(Long.parseLong(name.substring(0,name.length() - SUFFIX.length())),false);
+            segments.addLast(segment);
+            depth.addAndGet(segment.pending());
+        }
+    }
+
+    private Segment open(long id,boolean create) {
+        Path path = directory.resolve(String.format("%020d",id) + SUFFIX);
+        try (FileChannel channel = FileChannel.open(path,StandardOpenOption.CREATE,StandardOpenOption.READ,StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE,0,segmentSize);
+            Segment segment = new Segment(id,path,buffer);
+            if (create) {
+                buffer.putInt(0,HEADER);
+                segment.readPosition = HEADER;
+                segment.writePosition = HEADER;
+                return segment;
+            }
+            segment.writePosition = scan(buffer);
+            segment.readPosition = Math.min(Math.max(HEADER,buffer.getInt(0)),segment.writePosition);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cant open spool segment " + path,e);
+        }
+    }
+
+    //Конец записанного - первая запись с нулевой длиной или неверной контрольной суммой
+    private int scan(MappedByteBuffer buffer) {
+        int position = HEADER;
+        CRC32 crc = new CRC32();
+        while (position + RECORD_HEADER <= segmentSize) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + RECORD_HEADER + length > segmentSize) break;
+            byte[] body = new byte[length];
+            buffer.get(position + RECORD_HEADER,body);
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) break;
+            position += RECORD_HEADER + length;
+        }
+        return position;
+    }
+
+    //Сегмент к этому моменту уже убран из очереди, и к его буферу больше никто не обращается
+    private void delete(Segment segment) {
+        unmap(segment.buffer);
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            log.warn("Cant delete spool segment {}: {}",segment.path,e.getMessage());
+        }
+    }
+
+    private static void unmap(MappedByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) return;
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE,buffer);
+        } catch (ReflectiveOperationException e) {
+            log.warn("Cant unmap spool segment: {}",e.toString());
+        }
+    }
+
+    private static byte[] encode(String topic,String key,byte[] value) {
+        byte[] topicBytes = topic.getBytes(StandardCharsets.UTF_8);
+        byte[] keyBytes = key == null ? null : key.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer body = ByteBuffer.allocate(2 + topicBytes.length + 4 + (keyBytes == null ? 0 : keyBytes.length) + 4 + value.length);
+        body.putShort((short) topicBytes.length);
+        body.put(topicBytes);
+        body.putInt(keyBytes == null ? - 1 : keyBytes.length);
+        if (keyBytes != null) body.put(keyBytes);
+        body.putInt(value.length);
+        body.put(value);
+        return body.array();
+    }
+
+    private static Record decode(byte[] bytes) {
+        ByteBuffer body = ByteBuffer.wrap(bytes);
+        String topic = string(body,body.getShort());
+        int keyLength = body.getInt();
+        String key = keyLength < 0 ? null : string(body,keyLength);
+        byte[] value = new byte[body.getInt()];
+        body.get(value);
+        return new Record(topic,key,value);
+    }
+
+    private static String string(ByteBuffer body,int length) {
+        String value = new String(body.array(),body.position(),length,StandardCharsets.UTF_8);
+        body.position(body.position() + length);
+        return value;
+    }
+
+    private static final class Segment {
+
+        private final long id;
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private int readPosition;
+        private int writePosition;
+
+        private Segment(long id,Path path,MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.buffer = buffer;
+        }
+
+        private long pending() {
+            long count = 0;
+            int position = readPosition;
+            while (position < writePosition) {
+                position += RECORD_HEADER + buffer.getInt(position);
+                count++;
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package ru.aston.UserServiceAPI.kafka;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties (prefix = "user.outbox")
+public class OutboxProperties {
+
+    private boolean relayEnabled = true;
+    private int batchSize = 500;
+    private Duration pollInterval = Duration.ofMillis(500);
+    private Duration sendTimeout = Duration.ofSeconds(30);
+    //Должен быть больше sendTimeout: после него пачку, не удаленную релеем (например, узел упал), заберет другой релей
+    private Duration claimTimeout = Duration.ofSeconds(60);
+
+    public boolean isRelayEnabled() {
+        return relayEnabled;
+    }
+
+    public void setRelayEnabled(boolean relayEnabled) {
+        this.relayEnabled = relayEnabled;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Duration getPollInterval() {
+        return pollInterval;
+    }
+
+    public void setPollInterval(Duration pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+
+    public Duration getSendTimeout() {
+        return sendTimeout;
+    }
+
+    public void setSendTimeout(Duration sendTimeout) {
+        this.sendTimeout = sendTimeout;
+    }
+
+    public Duration getClaimTimeout() {
+        return claimTimeout;
+    }
+
+    public void setClaimTimeout(Duration claimTimeout) {
+        this.claimTimeout = claimTimeout;
+    }
+}
@@ -0,0 +1,171 @@
+package ru.aston.UserServiceAPI.kafka;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.aston.UserServiceAPI.entitys.OutboxEvent;
+import ru.aston.UserServiceAPI.repos.OutboxRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Component
+@ConditionalOnProperty (name = "spring.kafka.enabled", havingValue = "true")
+@EnableConfigurationProperties (OutboxProperties.class)
+public class OutboxRelay {
+
+    /*
+    Релей забирает из user_outbox пачку строк под FOR UPDATE SKIP LOCKED и в той же короткой транзакции
+    помечает ее захваченной до now() + claimTimeout. Публикация и ожидание подтверждения идут уже без транзакции,
+    так что соединение пула и блокировки строк не держатся, пока кафка отвечает. Подтвержденная пачка удаляется
+    одним запросом. Если кафка не подтвердила пачку, захват снимается и строки уйдут повторно, а если узел упал,
+    их заберет другой релей после истечения захвата, то есть доставка как минимум один раз.
+    Пока пачки приходят полными, релей выбирает следующую без ожидания.
+    У релея свой поток: при недоступной кафке пачка ждет до sendTimeout, и общий TaskScheduler с одним потоком
+    на это время остановил бы ReplicaLagMonitor, SpoolReplayer, сброс конвертов и обновление конфигурации.
+    */
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxRepository outboxRepository;
+    private final ProducerService producerService;
+    private final UserEventAggregator aggregator;
+    private final OutboxProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final Timer lag;
+    private final DistributionSummary batchSize;
+
+    @Autowired
+    public OutboxRelay(OutboxRepository outboxRepository,
+            ProducerService producerService,
+            ObjectProvider<UserEventAggregator> aggregator,
+            OutboxProperties properties,
+            PlatformTransactionManager transactionManager,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.producerService = producerService;
+        this.aggregator = aggregator.getIfAvailable();
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.scheduler = new ScheduledThreadPoolExecutor(1,runnable -> {
+            Thread thread = new Thread(runnable,"outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        this.lag = registry == null ? null : Timer
+                .builder("user.outbox.relay.lag")
+                .description("Age of the oldest outbox event in a published batch")
+                .register(registry);
+        this.batchSize = registry == null ? null : DistributionSummary
+                .builder("user.outbox.batch.size")
+                .description("Number of outbox events published in one batch")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (! properties.isRelayEnabled()) return;
+        long pollInterval = properties
+                .getPollInterval()
+                .toMillis();
+        scheduler.scheduleWithFixedDelay(this::relay,pollInterval,pollInterval,TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    public void relay() {
+        try {
+            int relayed;
+            do {
+                relayed = relayBatch();
+            } while (relayed >= properties.getBatchSize());
+        } catch (RuntimeException e) {
+            log.warn("Outbox relay failed, events will be published on next poll: {}",e.getMessage());
+        }
+    }
+
+    int relayBatch() {
+        List<OutboxEvent> events = transactionTemplate.execute(status -> {
+            List<OutboxEvent> batch = outboxRepository.lockBatch(properties.getBatchSize());
+            if (! batch.isEmpty()) outboxRepository.claim(ids(batch),properties
+                    .getClaimTimeout()
+                    .toMillis() / 1000.0);
+            return batch;
+        });
+        if (events == null || events.isEmpty()) return 0;
+        List<Long> ids = ids(events);
+        try {
+            publish(events).get(properties
+                    .getSendTimeout()
+                    .toMillis(),TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread
+                    .currentThread()
+                    .interrupt();
+            release(ids);
+            throw new IllegalStateException("Interrupted while publishing outbox batch",e);
+        } catch (ExecutionException | TimeoutException e) {
+            release(ids);
+            throw new IllegalStateException("Outbox batch of " + events.size() + " events was not published",e);
+        }
+        transactionTemplate.executeWithoutResult(status -> outboxRepository.deleteAllByIdInBatch(ids));
+        if (lag != null) lag.record(Duration.between(events
+                .get(0)
+                .getCreatedAt(),Instant.now()));
+        if (batchSize != null) batchSize.record(events.size());
+        return events.size();
+    }
+
+    //Если снять захват не удалось, пачку заберут после истечения claimTimeout
+    private void release(List<Long> ids) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> outboxRepository.release(ids));
+        } catch (RuntimeException e) {
+            log.warn("Failed to release outbox batch claim: {}",e.getMessage());
+        }
+    }
+
+    private static List<Long> ids(List<OutboxEvent> events) {
+        return events
+                .stream()
+                .map(OutboxEvent::getId)
+                .toList();
+    }
+
+    //С включенными конвертами события топика уведомлений пакуются агрегатором, вытесненные сообщения идут как есть
+    private CompletableFuture<Void> publish(List<OutboxEvent> events) {
+        if (aggregator == null) return producerService.sendAll(events);
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        List<OutboxEvent> spilled = new ArrayList<>();
+        for (OutboxEvent event : events) {
+            if (event.getTopic() == null) futures.add(aggregator.add(event.getEventKey(),event.getPayload()));
+            else spilled.add(event);
+        }
+        aggregator.flush();
+        if (! spilled.isEmpty()) futures.add(producerService.sendAll(spilled));
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+}
@@ -0,0 +1,72 @@
+package ru.aston.UserServiceAPI.kafka;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+
+@Service
+public class OutboxService {
+
+    /*
+    События пишутся в user_outbox в той же транзакции, что и изменение пользователя, и уходят в кафку
+    только после коммита через OutboxRelay. Без открытой транзакции запись в outbox теряет смысл,
+    поэтому append требует ее наличия. Любое число событий вставляется одним запросом.
+    */
+
+    private static final String APPEND = """
+            INSERT INTO user_outbox (topic, event_key, payload, created_at)
+            SELECT ?, e.k, e.p, now() FROM unnest(?::text[], ?::bytea[]) WITH ORDINALITY AS e(k, p, n)
+            ORDER BY e.n""";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Transactional (propagation = Propagation.MANDATORY)
+    public void append(AbstractKafkaMessage message) {
+        appendAll(List.of(message));
+    }
+
+    @Transactional (propagation = Propagation.MANDATORY)
+    public void appendAll(Collection<? extends AbstractKafkaMessage> messages) {
+        insert(null,messages);
+    }
+
+    //Сообщение, которому не хватило места в очереди ProducerExecutor, сохраняется отдельной транзакцией
+    @Transactional (propagation = Propagation.REQUIRES_NEW)
+    public void spill(String topic,AbstractKafkaMessage message) {
+        insert(topic,List.of(message));
+    }
+
+    private void insert(String topic,Collection<? extends AbstractKafkaMessage> messages) {
+        if (messages.isEmpty()) return;
+        String[] keys = new String[messages.size()];
+        byte[][] values = new byte[messages.size()][];
+        int i = 0;
+        for (AbstractKafkaMessage message : messages) {
+            keys[i] = message.getKey();
+            values[i++] = message.getValue();
+        }
+        entityManager
+                .unwrap(Session.class)
+                .doWork(connection -> insert(connection,topic,keys,values));
+    }
+
+    //Для UserImportService, который пишет через собственное соединение в своей транзакции
+    public static void insert(Connection connection,String topic,String[] keys,byte[][] values) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(APPEND)) {
+            statement.setString(1,topic);
+            statement.setArray(2,connection.createArrayOf("text",keys));
+            statement.setArray(3,connection.createArrayOf("bytea",values));
+            statement.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package ru.aston.UserServiceAPI.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.*;
+
+@Component
+@EnableConfigurationProperties (ProducerExecutorProperties.class)
+public class ProducerExecutor {
+
+    /*
+    Свой пул для асинхронных отправок ProducerService вместо общего @Async исполнителя.
+    Очередь ограничена, а поток пула перед отправкой берет разрешение на неподтвержденную отправку
+    и возвращает его, когда брокер ответил. Если брокер тормозит, потоки пула ждут разрешений,
+    очередь заполняется и срабатывает политика переполнения:
+    BLOCK - вызывающий поток ждет места в очереди не дольше block-timeout, потом сообщение отбрасывается;
+    DROP_OLDEST - из очереди выкидывается самое старое сообщение;
+    SPILL - сообщение сразу пишется в outbox, и его отправит OutboxRelay.
+    Отправка, которую ProducerService записал в KafkaSpool вместо брокера, считается отдельно от успешных.
+    */
+
+    private static final Logger log = LoggerFactory.getLogger(ProducerExecutor.class);
+
+    public enum OverflowPolicy {
+        BLOCK, DROP_OLDEST, SPILL
+    }
+
+    //Результат отправки, сохраненной в KafkaSpool: брокер ее еще не подтвердил
+    static final Object SPOOLED = new Object();
+
+    public interface Task {
+
+        CompletableFuture<?> send();
+
+        //false, если сообщение некуда сохранить
+        boolean spill();
+    }
+
+    private final OverflowPolicy policy;
+    private final long blockTimeoutNanos;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final BlockingQueue<Runnable> queue;
+    private final ThreadPoolExecutor executor;
+    private final Timer sent;
+    private final Timer failed;
+    private final Timer spooled;
+    private final Counter dropped;
+    private final Counter spilled;
+
+    public ProducerExecutor(ProducerExecutorProperties properties,ObjectProvider<MeterRegistry> meterRegistry) {
+        this(properties,meterRegistry,false);
+    }
+
+    /*
+    С виртуальными потоками число потоков пула по-прежнему задает threads: поток ждет разрешения
+    на отправку и места в буфере продюсера, и ограничение нужно ради порядка и обратного давления, а не ради памяти.
+    */
+    @Autowired
+    public ProducerExecutor(ProducerExecutorProperties properties,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value ("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.policy = properties.getOverflowPolicy();
+        this.blockTimeoutNanos = properties
+                .getBlockTimeout()
+                .toNanos();
+        this.maxInFlight = Math.max(1,properties.getMaxInFlight());
+        this.inFlight = new Semaphore(maxInFlight);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1,properties.getQueueCapacity()));
+        int threads = Math.max(1,properties.getThreads());
+        ThreadFactory threadFactory = virtualThreads ? Thread
+                .ofVirtual()
+                .name("kafka-producer-",0)
+                .factory() : runnable -> {
+            Thread thread = new Thread(runnable,"kafka-producer");
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = new ThreadPoolExecutor(threads,threads,0,TimeUnit.MILLISECONDS,queue,threadFactory,(runnable,pool) -> overflow((Job) runnable));
+        executor.prestartAllCoreThreads();
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry == null) {
+            this.sent = null;
+            this.failed = null;
+            this.spooled = null;
+            this.dropped = null;
+            this.spilled = null;
+            return;
+        }
+        this.sent = sendTimer(registry,"success");
+        this.failed = sendTimer(registry,"failure");
+        this.spooled = sendTimer(registry,"spooled");
+        this.dropped = Counter
+                .builder("user.kafka.send.overflow")
+                .description("Messages dropped or spilled to the outbox because the send queue was full")
+                .tag("action","dropped")
+                .register(registry);
+        this.spilled = Counter
+                .builder("user.kafka.send.overflow")
+                .description("Messages dropped or spilled to the outbox because the send queue was full")
+                .tag("action","spilled")
+                .register(registry);
+        Gauge
+                .builder("user.kafka.send.in-flight",this,ProducerExecutor::getInFlight)
+                .description("Sends waiting for broker acknowledgement")
+                .register(registry);
+        Gauge
+                .builder("user.kafka.send.queued",queue,BlockingQueue::size)
+                .description("Sends waiting for a producer thread")
+                .register(registry);
+    }
+
+    public void execute(Task task) {
+        executor.execute(new Job(task));
+    }
+
+    public int getInFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    public int getQueued() {
+        return queue.size();
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdown();
+        try {
+            if (! executor.awaitTermination(10,TimeUnit.SECONDS)) {
+                log.warn("Producer executor stopped with {} queued messages",queue.size());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread
+                    .currentThread()
+                    .interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    private void send(Task task) {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread
+                    .currentThread()
+                    .interrupt();
+            return;
+        }
+        long start = System.nanoTime();
+        CompletableFuture<?> future;
+        try {
+            future = task.send();
+        } catch (RuntimeException e) {
+            completed(start,null,e);
+            return;
+        }
+        future.whenComplete((result,error) -> completed(start,result,error));
+    }
+
+    private void completed(long start,Object result,Throwable error) {
+        inFlight.release();
+        long nanos = System.nanoTime() - start;
+        if (error == null) {
+            Timer timer = result == SPOOLED ? spooled : sent;
+            if (timer != null) timer.record(nanos,TimeUnit.NANOSECONDS);
+            return;
+        }
+        if (failed != null) failed.record(nanos,TimeUnit.NANOSECONDS);
+        log.error("Kafka send failed: {}",error.getMessage());
+    }
+
+    private void overflow(Job job) {
+        if (executor.isShutdown()) {
+            drop(job);
+            return;
+        }
+        switch (policy) {
+            case BLOCK -> {
+                try {
+                    if (! queue.offer(job,blockTimeoutNanos,TimeUnit.NANOSECONDS)) drop(job);
+                } catch (InterruptedException e) {
+                    Thread
+                            .currentThread()
+                            .interrupt();
+                    drop(job);
+                }
+            }
+            case DROP_OLDEST -> {
+                while (! queue.offer(job)) {
+                    Runnable oldest = queue.poll();
+                    if (oldest != null) drop((Job) oldest);
+                }
+            }
+            case SPILL -> {
+                if (job.task.spill()) {
+                    if (spilled != null) spilled.increment();
+                } else {
+                    drop(job);
+                }
+            }
+        }
+    }
+
+    private void drop(Job job) {
+        if (dropped != null) dropped.increment();
+        log.warn("Send queue is full, message dropped");
+    }
+
+    private static Timer sendTimer(MeterRegistry registry,String result) {
+        return Timer
+                .builder("user.kafka.send")
+                .description("Time from handing a message to the producer until broker acknowledgement")
+                .tag("result",result)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private final class Job implements Runnable {
+
+        private final Task task;
+
+        private Job(Task task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            send(task);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package ru.aston.UserServiceAPI.kafka;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties (prefix = "user.producer")
+public class ProducerExecutorProperties {
+
+    private int threads = 2;
+    private int queueCapacity = 10_000;
+    //Сколько отправок может ждать подтверждения брокера одновременно
+    private int maxInFlight = 1_000;
+    private ProducerExecutor.OverflowPolicy overflowPolicy = ProducerExecutor.OverflowPolicy.BLOCK;
+    //Для BLOCK: сколько вызывающий поток ждет места в очереди, потом сообщение отбрасывается
+    private Duration blockTimeout = Duration.ofSeconds(5);
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public ProducerExecutor.OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(ProducerExecutor.OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public Duration getBlockTimeout() {
+        return blockTimeout;
+    }
+
+    public void setBlockTimeout(Duration blockTimeout) {
+        this.blockTimeout = blockTimeout;
+    }
+}
@@ -1,56 +1,248 @@
 package ru.aston.UserServiceAPI.kafka;
 
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import ru.aston.UserServiceAPI.entitys.OutboxEvent;
 
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 @Service
 public class ProducerService {
 
+    /*
+    Шаблон и топик лежат в одном неизменяемом ProducerTarget за AtomicReference, так что отправка
+    не берет блокировок, а обновление конфигурации не ждет читателей. Отправка отмечается в текущем
+    ProducerTarget и перепроверяет ссылку: если его успели подменить, отметка снимается и берется новый.
+    Подмененный шаблон закрывает продюсер, когда подтверждена его последняя отправка. Закрытие уходит
+    в отдельный поток, а не выполняется в колбэке продюсера, там же по таймауту закрываются зависшие шаблоны.
+    Сообщение, которое брокер не принял, уходит в KafkaSpool. Пока спул не пуст, новые сообщения тоже
+    пишутся в него, чтобы SpoolReplayer отправил все по порядку.
+    */
+
     private static final Logger log = LoggerFactory.getLogger(ProducerService.class);
-    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
-    private KafkaTemplate<String, String> kafkaTemplate;
-    private String topicName;
-    private AtomicBoolean isUpdated = new AtomicBoolean(false);
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+    private final AtomicReference<ProducerTarget> target;
+    private final ProducerExecutor executor;
+    private final ObjectProvider<OutboxService> outboxService;
+    private final KafkaSpool spool;
+    private final ScheduledThreadPoolExecutor retirer;
 
     @Autowired
-    public ProducerService(KafkaTemplate<String, String> kafkaTemplate,@Value ("${notifications.topic}") String topicName) {
-        this.kafkaTemplate = kafkaTemplate;
-        this.topicName = topicName;
+    public ProducerService(KafkaTemplate<String, byte[]> kafkaTemplate,
+            @Value ("${notifications.topic}") String topicName,
+            ProducerExecutor executor,
+            ObjectProvider<OutboxService> outboxService,
+            ObjectProvider<KafkaSpool> spool) {
+        this.target = new AtomicReference<>(new ProducerTarget(kafkaTemplate,topicName,false));
+        this.executor = executor;
+        this.outboxService = outboxService;
+        this.spool = spool.getIfAvailable();
+        this.retirer = new ScheduledThreadPoolExecutor(1,runnable -> {
+            Thread thread = new Thread(runnable,"kafka-template-retirer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        retirer.setRemoveOnCancelPolicy(true);
     }
 
-    @Async
+    //Отправка уходит в ограниченную очередь ProducerExecutor, что делать при ее переполнении - решает его политика
     public void send(Sendable sendable) {
+        executor.execute(new SendTask(null,sendable));
+    }
+
+    public void sendTo(String topicName,Sendable sendable) {
+        executor.execute(new SendTask(topicName,sendable));
+    }
+
+    //Синхронный вариант для OutboxRelay: вся пачка отдается продюсеру сразу, подтверждения ждет вызывающий
+    public CompletableFuture<Void> sendAll(List<OutboxEvent> events) {
+        return sendBatch(events,OutboxEvent::getTopic,OutboxEvent::getEventKey,OutboxEvent::getPayload);
+    }
+
+    public CompletableFuture<Void> replay(List<KafkaSpool.Record> records) {
+        return sendBatch(records,KafkaSpool.Record::topic,KafkaSpool.Record::key,KafkaSpool.Record::value);
+    }
+
+    //Отправка, упавшая сразу, обычно значит, что продюсер отстоял max.block.ms без метаданных брокера.
+    //Остальные записи пачки ждали бы столько же каждая, поэтому пачка обрывается и падает целиком
+    private <T> CompletableFuture<Void> sendBatch(List<T> items,Function<T, String> topic,Function<T, String> key,Function<T, byte[]> value) {
+        ProducerTarget target = acquire();
         try {
-            lock.readLock().lock();
-            sendable.send(kafkaTemplate, topicName);
-        }
-        finally {
-            lock.readLock().unlock();
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[items.size()];
+            int sent = 0;
+            while (sent < futures.length) {
+                T item = items.get(sent);
+                CompletableFuture<?> future = target.template.send(target.topicOr(topic.apply(item)),key.apply(item),value.apply(item));
+                futures[sent++] = future;
+                if (future.isCompletedExceptionally()) break;
+            }
+            return CompletableFuture
+                    .allOf(Arrays.copyOf(futures,sent))
+                    .whenComplete((result,error) -> target.release());
+        } catch (RuntimeException e) {
+            target.release();
+            throw e;
         }
     }
 
-    public void setKafkaTemplateOrTopic(KafkaTemplate<String, String> kafkaTemplate, String topicName) {
-        this.isUpdated.set(true);
-        Boolean locked = false;
+    //Для UserEventAggregator: конверты раскладываются по партициям текущего топика уведомлений
+    int notificationPartitions() {
+        ProducerTarget target = acquire();
         try {
-            lock.writeLock().lockInterruptibly();
-            locked = true;
-            if (kafkaTemplate != null) this.kafkaTemplate = kafkaTemplate;
-            if (topicName != null) this.topicName = topicName;
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.error("Interrupted while waiting for lock");
+            return target.template
+                    .partitionsFor(target.topic)
+                    .size();
         } finally {
-            this.isUpdated.set(false);
-            if (locked) lock.writeLock().unlock();
+            target.release();
+        }
+    }
+
+    CompletableFuture<?> sendEnvelope(int partition,byte[] envelope) {
+        ProducerTarget target = acquire();
+        try {
+            ProducerRecord<String, byte[]> record = new ProducerRecord<>(target.topic,partition,(String) null,envelope,List.of(UserEventEnvelope.header()));
+            return target.template
+                    .send(record)
+                    .whenComplete((result,error) -> target.release());
+        } catch (RuntimeException e) {
+            target.release();
+            throw e;
+        }
+    }
+
+    public void setKafkaTemplateOrTopic(KafkaTemplate<String, byte[]> kafkaTemplate,String topicName) {
+        ProducerTarget previous;
+        ProducerTarget next;
+        do {
+            previous = target.get();
+            next = new ProducerTarget(kafkaTemplate != null ? kafkaTemplate : previous.template,
+                    topicName != null ? topicName : previous.topic,
+                    kafkaTemplate != null || previous.owned);
+        } while (! target.compareAndSet(previous,next));
+        if (previous.template != next.template) retire(previous);
+    }
+
+    @PreDestroy
+    public void close() {
+        retirer.shutdownNow();
+        ProducerTarget current = target.get();
+        if (current.owned) destroy(current);
+    }
+
+    private ProducerTarget acquire() {
+        while (true) {
+            ProducerTarget current = target.get();
+            current.acquire();
+            if (target.get() == current) return current;
+            current.release();
+        }
+    }
+
+    private void retire(ProducerTarget retired) {
+        ScheduledFuture<?> timeout = retirer.schedule(() -> {
+            if (! retired.markClosed()) return;
+            log.warn("Retired Kafka template still has unacknowledged sends after {}, closing it anyway",DRAIN_TIMEOUT);
+            closeRetired(retired);
+        },DRAIN_TIMEOUT.toMillis(),TimeUnit.MILLISECONDS);
+        retired.retire(() -> {
+            timeout.cancel(false);
+            try {
+                retirer.execute(() -> closeRetired(retired));
+            } catch (RejectedExecutionException e) {
+                //Сервис уже остановлен
+                closeRetired(retired);
+            }
+        });
+    }
+
+    private void closeRetired(ProducerTarget retired) {
+        if (retired.owned) {
+            destroy(retired);
+        } else {
+            //Шаблон из контекста спринга: продюсер закрывается, сам бин уничтожит контекст
+            retired.template
+                    .getProducerFactory()
+                    .reset();
+        }
+    }
+
+    private void destroy(ProducerTarget retired) {
+        try {
+            if (retired.template.getProducerFactory() instanceof DisposableBean factory) factory.destroy();
+        } catch (Exception e) {
+            log.warn("Cant close Kafka producer: {}",e.getMessage());
+        }
+    }
+
+    private final class SendTask implements ProducerExecutor.Task {
+
+        private final String topic;
+        private final Sendable sendable;
+
+        private SendTask(String topic,Sendable sendable) {
+            this.topic = topic;
+            this.sendable = sendable;
+        }
+
+        @Override
+        public CompletableFuture<?> send() {
+            AbstractKafkaMessage message = spool != null && sendable instanceof AbstractKafkaMessage kafkaMessage ? kafkaMessage : null;
+            ProducerTarget target = acquire();
+            String topicName = target.topicOr(topic);
+            if (message != null && ! spool.isEmpty()) {
+                target.release();
+                return spool(topicName,message,null);
+            }
+            try {
+                return sendable
+                        .send(target.template,topicName)
+                        .<CompletableFuture<Object>>handle((result,error) -> {
+                            target.release();
+                            if (error == null) return CompletableFuture.completedFuture(result);
+                            return message != null ? spool(topicName,message,error) : CompletableFuture.failedFuture(error);
+                        })
+                        .thenCompose(Function.identity());
+            } catch (RuntimeException e) {
+                target.release();
+                if (message == null) throw e;
+                return spool(topicName,message,e);
+            }
+        }
+
+        //Сообщение, сохраненное в спул, брокер еще не принял, поэтому успешной отправкой оно не считается
+        private CompletableFuture<Object> spool(String topicName,AbstractKafkaMessage message,Throwable error) {
+            if (spool.append(topicName,message.getKey(),message.getValue())) return CompletableFuture.completedFuture(ProducerExecutor.SPOOLED);
+            return CompletableFuture.failedFuture(error != null ? error : new IllegalStateException("Message for " + topicName + " was not spooled"));
+        }
+
+        @Override
+        public boolean spill() {
+            OutboxService outbox = outboxService.getIfAvailable();
+            if (outbox == null || ! (sendable instanceof AbstractKafkaMessage message)) return false;
+            try {
+                outbox.spill(topic,message);
+                return true;
+            } catch (RuntimeException e) {
+                log.error("Cant spill message to outbox: {}",e.getMessage());
+                return false;
+            }
         }
     }
 }
@@ -0,0 +1,66 @@
+package ru.aston.UserServiceAPI.kafka;
+
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Неизменяемая пара шаблон + топик, которую ProducerService подменяет целиком через AtomicReference.
+Отправки считаются двумя монотонными счетчиками: acquired при входе, released при ответе брокера.
+Счетчики распределенные (LongAdder), поэтому горячий путь не упирается в общую ячейку.
+Если сначала прочитать released, а потом acquired, то равенство значит, что в момент чтения
+released неподтвержденных отправок не было: acquired не меньше released в любой момент.
+Подмененному шаблону передается действие закрытия: его запускает тот, кто первым увидит ноль отправок,
+сам retire или последний release, так что ожидание подтверждений ничего не опрашивает.
+*/
+final class ProducerTarget {
+
+    final KafkaTemplate<String, byte[]> template;
+    final String topic;
+    //Шаблон создан не спрингом, его фабрику закрывает ProducerService
+    final boolean owned;
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder released = new LongAdder();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile Runnable onDrained;
+
+    ProducerTarget(KafkaTemplate<String, byte[]> template,String topic,boolean owned) {
+        this.template = template;
+        this.topic = topic;
+        this.owned = owned;
+    }
+
+    void acquire() {
+        acquired.increment();
+    }
+
+    void release() {
+        released.increment();
+        if (onDrained != null) closeIfDrained();
+    }
+
+    //Вызывается, когда шаблон уже подменен: новые отправки его не возьмут
+    void retire(Runnable onDrained) {
+        this.onDrained = onDrained;
+        closeIfDrained();
+    }
+
+    //Закрыть шаблон можно только один раз: при подтверждении последней отправки или по таймауту
+    boolean markClosed() {
+        return closed.compareAndSet(false,true);
+    }
+
+    boolean isDrained() {
+        long releasedCount = released.sum();
+        return acquired.sum() == releasedCount;
+    }
+
+    private void closeIfDrained() {
+        if (isDrained() && markClosed()) onDrained.run();
+    }
+
+    String topicOr(String topic) {
+        return topic != null ? topic : this.topic;
+    }
+}
@@ -0,0 +1,120 @@
+package ru.aston.UserServiceAPI.kafka;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@ConfigurationProperties (prefix = "user.producer.tuning")
+public class ProducerTuningProperties {
+
+    private String acks = "all";
+    private DataSize batchSize = DataSize.ofKilobytes(64);
+    private Duration linger = Duration.ofMillis(10);
+    //none, gzip, snappy, lz4 или zstd
+    private String compressionType = "lz4";
+    private DataSize bufferMemory = DataSize.ofMegabytes(32);
+    private DataSize maxRequestSize = DataSize.ofMegabytes(1);
+    //Вместе должны укладываться в user.outbox.send-timeout, а тот - в claim-timeout, иначе пачку, которую релей
+    //еще ждет, заберет и отправит повторно другой узел. delivery-timeout не меньше linger + request-timeout
+    private Duration maxBlock = Duration.ofSeconds(5);
+    private Duration requestTimeout = Duration.ofSeconds(10);
+    private Duration deliveryTimeout = Duration.ofSeconds(20);
+
+    //Один и тот же конфиг для продюсера из KafkaConfig и для продюсера, который пересоздает RemoteConfigurationRefresher
+    public Map<String, Object> producerConfig(String bootstrapServers) {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG,bootstrapServers);
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG,StringSerializer.class.getName());
+        //Значения кодируются до отправки: события в формате UserEventSerializer, инвалидации строкой utf-8
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG,ByteArraySerializer.class.getName());
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG,false);
+        config.put(ProducerConfig.ACKS_CONFIG,acks);
+        config.put(ProducerConfig.BATCH_SIZE_CONFIG,(int) batchSize.toBytes());
+        config.put(ProducerConfig.LINGER_MS_CONFIG,(int) linger.toMillis());
+        config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG,compressionType);
+        config.put(ProducerConfig.BUFFER_MEMORY_CONFIG,bufferMemory.toBytes());
+        config.put(ProducerConfig.MAX_REQUEST_SIZE_CONFIG,(int) maxRequestSize.toBytes());
+        config.put(ProducerConfig.MAX_BLOCK_MS_CONFIG,maxBlock.toMillis());
+        config.put(ProducerConfig.REQUEST_TIMEOUT_MS_CONFIG,(int) requestTimeout.toMillis());
+        config.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG,(int) deliveryTimeout.toMillis());
+        return config;
+    }
+
+    public String getAcks() {
+        return acks;
+    }
+
+    public void setAcks(String acks) {
+        this.acks = acks;
+    }
+
+    public DataSize getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(DataSize batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Duration getLinger() {
+        return linger;
+    }
+
+    public void setLinger(Duration linger) {
+        this.linger = linger;
+    }
+
+    public String getCompressionType() {
+        return compressionType;
+    }
+
+    public void setCompressionType(String compressionType) {
+        this.compressionType = compressionType;
+    }
+
+    public DataSize getBufferMemory() {
+        return bufferMemory;
+    }
+
+    public void setBufferMemory(DataSize bufferMemory) {
+        this.bufferMemory = bufferMemory;
+    }
+
+    public DataSize getMaxRequestSize() {
+        return maxRequestSize;
+    }
+
+    public void setMaxRequestSize(DataSize maxRequestSize) {
+        this.maxRequestSize = maxRequestSize;
+    }
+
+    public Duration getMaxBlock() {
+        return maxBlock;
+    }
+
+    public void setMaxBlock(Duration maxBlock) {
+        this.maxBlock = maxBlock;
+    }
+
+    public Duration getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    public void setRequestTimeout(Duration requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+
+    public Duration getDeliveryTimeout() {
+        return deliveryTimeout;
+    }
+
+    public void setDeliveryTimeout(Duration deliveryTimeout) {
+        this.deliveryTimeout = deliveryTimeout;
+    }
+}
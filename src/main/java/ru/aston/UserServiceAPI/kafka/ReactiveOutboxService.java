@@ -0,0 +1,30 @@
+package ru.aston.UserServiceAPI.kafka;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+//Запись в user_outbox для реактивного стека, вызывается внутри транзакции TransactionalOperator, как OutboxService.append
+@Service
+@ConditionalOnWebApplication (type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveOutboxService {
+
+    private static final String APPEND = "INSERT INTO user_outbox (event_key, payload, created_at) VALUES (:key, :payload, now())";
+
+    private final DatabaseClient databaseClient;
+
+    @Autowired
+    public ReactiveOutboxService(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Void> append(AbstractKafkaMessage message) {
+        return databaseClient
+                .sql(APPEND)
+                .bind("key",message.getKey())
+                .bind("payload",message.getValue())
+                .then();
+    }
+}
@@ -2,7 +2,9 @@ package ru.aston.UserServiceAPI.kafka;
 
 import org.springframework.kafka.core.KafkaTemplate;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface Sendable {
 
-    void send(KafkaTemplate<String, String> kafkaTemplate,String topic);
+    CompletableFuture<?> send(KafkaTemplate<String, byte[]> kafkaTemplate,String topic);
 }
@@ -0,0 +1,77 @@
+package ru.aston.UserServiceAPI.kafka;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@ConfigurationProperties (prefix = "user.spool")
+public class SpoolProperties {
+
+    private boolean enabled = false;
+    //Обязателен, если спул включен, и у каждого экземпляра свой: каталог блокируется файлом .lock
+    private Path directory;
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+    //Больше сегментов на диске не бывает, при ротации сверх лимита выкидывается самый старый
+    private int maxSegments = 16;
+    private int replayBatchSize = 500;
+    private Duration replayInterval = Duration.ofSeconds(1);
+    private Duration sendTimeout = Duration.ofSeconds(30);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(Path directory) {
+        this.directory = directory;
+    }
+
+    public DataSize getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(DataSize segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public int getMaxSegments() {
+        return maxSegments;
+    }
+
+    public void setMaxSegments(int maxSegments) {
+        this.maxSegments = maxSegments;
+    }
+
+    public int getReplayBatchSize() {
+        return replayBatchSize;
+    }
+
+    public void setReplayBatchSize(int replayBatchSize) {
+        this.replayBatchSize = replayBatchSize;
+    }
+
+    public Duration getReplayInterval() {
+        return replayInterval;
+    }
+
+    public void setReplayInterval(Duration replayInterval) {
+        this.replayInterval = replayInterval;
+    }
+
+    public Duration getSendTimeout() {
+        return sendTimeout;
+    }
+
+    public void setSendTimeout(Duration sendTimeout) {
+        this.sendTimeout = sendTimeout;
+    }
+}
@@ -0,0 +1,89 @@
+package ru.aston.UserServiceAPI.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Component
+@ConditionalOnProperty (name = "user.spool.enabled", havingValue = "true")
+public class SpoolReplayer {
+
+    /*
+    Пока в KafkaSpool что-то лежит, новые сообщения ProducerService тоже пишет туда, так что порядок
+    сохраняется. Реплеер отправляет спул пачками по порядку и сдвигает позицию чтения только после
+    подтверждения всей пачки. Если брокер все еще недоступен, пачка повторится на следующем запуске.
+    */
+
+    private static final Logger log = LoggerFactory.getLogger(SpoolReplayer.class);
+
+    private final KafkaSpool spool;
+    private final ProducerService producerService;
+    private final SpoolProperties properties;
+    private final TaskScheduler taskScheduler;
+    private final Counter replayed;
+    private volatile boolean failing;
+
+    @Autowired
+    public SpoolReplayer(KafkaSpool spool,
+            ProducerService producerService,
+            SpoolProperties properties,
+            TaskScheduler taskScheduler,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        this.spool = spool;
+        this.producerService = producerService;
+        this.properties = properties;
+        this.taskScheduler = taskScheduler;
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        this.replayed = registry == null ? null : Counter
+                .builder("user.kafka.spool.replayed")
+                .description("Messages replayed from the local spool to the broker")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void init() {
+        taskScheduler.scheduleWithFixedDelay(this::replay,properties.getReplayInterval());
+    }
+
+    public void replay() {
+        while (! spool.isEmpty()) {
+            KafkaSpool.Batch batch = spool.peek(properties.getReplayBatchSize());
+            if (batch
+                    .records()
+                    .isEmpty()) return;
+            try {
+                producerService
+                        .replay(batch.records())
+                        .get(properties
+                                .getSendTimeout()
+                                .toMillis(),TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread
+                        .currentThread()
+                        .interrupt();
+                return;
+            } catch (ExecutionException | TimeoutException | RuntimeException e) {
+                if (! failing) log.warn("Broker is still unavailable, {} messages wait in spool: {}",spool.getDepth(),e.getMessage());
+                failing = true;
+                return;
+            }
+            spool.commit(batch);
+            if (replayed != null) replayed.increment(batch
+                    .records()
+                    .size());
+            if (failing) log.info("Broker is available again, replaying spool");
+            failing = false;
+        }
+    }
+}
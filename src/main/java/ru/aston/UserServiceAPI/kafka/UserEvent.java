@@ -0,0 +1,64 @@
+package ru.aston.UserServiceAPI.kafka;
+
+import ru.aston.UserServiceAPI.entitys.User;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/*
+Событие об изменении пользователя для топика уведомлений. Поле равно null, если оно не менялось:
+создание и удаление несут полный снимок, обновление - только измененные поля.
+*/
+public record UserEvent(Type type,long userId,long version,String name,String email,Integer age,Instant timestamp) {
+
+    //Код типа пишется в сообщение, менять существующие коды нельзя
+    public enum Type {
+        CREATED(1), UPDATED(2), DELETED(3);
+
+        private final byte code;
+
+        Type(int code) {
+            this.code = (byte) code;
+        }
+
+        public byte getCode() {
+            return code;
+        }
+
+        public static Type of(byte code) {
+            for (Type type : values()) {
+                if (type.code == code) return type;
+            }
+            throw new IllegalArgumentException("Unknown user event type " + code);
+        }
+    }
+
+    public static UserEvent created(User user) {
+        return snapshot(Type.CREATED,user);
+    }
+
+    public static UserEvent deleted(User user) {
+        return snapshot(Type.DELETED,user);
+    }
+
+    //Версия еще не увеличена: хибернейт поднимет ее при флаше, updated_at меняется при каждом обновлении
+    public static UserEvent updated(User user,String previousName,String previousEmail,int previousAge) {
+        return new UserEvent(Type.UPDATED,user.getId(),version(user) + 1,
+                Objects.equals(previousName,user.getName()) ? null : user.getName(),
+                Objects.equals(previousEmail,user.getEmail()) ? null : user.getEmail(),
+                previousAge == user.getAge() ? null : user.getAge(),
+                Instant.now());
+    }
+
+    public boolean hasChanges() {
+        return name != null || email != null || age != null;
+    }
+
+    private static UserEvent snapshot(Type type,User user) {
+        return new UserEvent(type,user.getId(),version(user),user.getName(),user.getEmail(),user.getAge(),Instant.now());
+    }
+
+    private static long version(User user) {
+        return user.getVersion() == null ? 0 : user.getVersion();
+    }
+}
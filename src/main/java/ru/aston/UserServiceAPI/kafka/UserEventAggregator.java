@@ -0,0 +1,122 @@
+package ru.aston.UserServiceAPI.kafka;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+@Component
+@ConditionalOnProperty (name = "user.producer.envelope.enabled", havingValue = "true")
+@EnableConfigurationProperties (EnvelopeProperties.class)
+public class UserEventAggregator {
+
+    /*
+    Собирает события топика уведомлений в конверты UserEventEnvelope, по одному открытому конверту на партицию.
+    Партиция считается по ключу так же, как у продюсера кафки (murmur2), поэтому события одного пользователя
+    остаются в своей партиции и в своем порядке. Конверт уходит, когда следующее событие в него не влезает
+    по max-bytes, по таймеру linger или по flush(), которым OutboxRelay закрывает свою пачку.
+    Future события завершается ответом брокера на весь конверт.
+    */
+
+    private final ProducerService producerService;
+    private final EnvelopeProperties properties;
+    private final TaskScheduler taskScheduler;
+    private final DistributionSummary envelopeSize;
+    private final Map<Integer, Envelope> open = new HashMap<>();
+    private final int maxBytes;
+    //Число партиций запрашивается заново после каждого flush: шаблон и топик могли подменить
+    private int partitions;
+
+    @Autowired
+    public UserEventAggregator(ProducerService producerService,
+            EnvelopeProperties properties,
+            TaskScheduler taskScheduler,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        this.producerService = producerService;
+        this.properties = properties;
+        this.taskScheduler = taskScheduler;
+        this.maxBytes = (int) Math.min(Integer.MAX_VALUE,properties
+                .getMaxBytes()
+                .toBytes());
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        this.envelopeSize = registry == null ? null : DistributionSummary
+                .builder("user.kafka.envelope.size")
+                .description("Number of user events packed into one Kafka record")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void init() {
+        taskScheduler.scheduleWithFixedDelay(this::flush,properties.getLinger());
+    }
+
+    public synchronized CompletableFuture<Void> add(String key,byte[] event) {
+        if (partitions <= 0) partitions = producerService.notificationPartitions();
+        int partition = Utils.toPositive(Utils.murmur2(key.getBytes(StandardCharsets.UTF_8))) % partitions;
+        Envelope envelope = open.get(partition);
+        if (envelope != null && envelope.bytes + Integer.BYTES + event.length > maxBytes) {
+            send(open.remove(partition));
+            envelope = null;
+        }
+        if (envelope == null) {
+            envelope = new Envelope(partition);
+            open.put(partition,envelope);
+        }
+        envelope.add(event);
+        return envelope.future;
+    }
+
+    @PreDestroy
+    public synchronized void flush() {
+        for (Envelope envelope : open.values()) {
+            send(envelope);
+        }
+        open.clear();
+        partitions = 0;
+    }
+
+    private void send(Envelope envelope) {
+        if (envelopeSize != null) envelopeSize.record(envelope.events.size());
+        try {
+            producerService
+                    .sendEnvelope(envelope.partition,UserEventEnvelope.encode(envelope.events))
+                    .whenComplete((result,error) -> {
+                        if (error != null) envelope.future.completeExceptionally(error);
+                        else envelope.future.complete(null);
+                    });
+        } catch (RuntimeException e) {
+            envelope.future.completeExceptionally(e);
+        }
+    }
+
+    private static final class Envelope {
+
+        private final int partition;
+        private final List<byte[]> events = new ArrayList<>();
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private int bytes = Integer.BYTES;
+
+        private Envelope(int partition) {
+            this.partition = partition;
+        }
+
+        private void add(byte[] event) {
+            events.add(event);
+            bytes += Integer.BYTES + event.length;
+        }
+    }
+}
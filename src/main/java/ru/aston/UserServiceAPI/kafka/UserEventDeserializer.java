@@ -0,0 +1,47 @@
+package ru.aston.UserServiceAPI.kafka;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static ru.aston.UserServiceAPI.kafka.UserEventSerializer.*;
+
+//Формат описан в UserEventSerializer
+public class UserEventDeserializer implements Deserializer<UserEvent> {
+
+    @Override
+    public UserEvent deserialize(String topic,byte[] data) {
+        return data == null ? null : decode(data);
+    }
+
+    public static UserEvent decode(byte[] data) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            byte schema = buffer.get();
+            if (schema != SCHEMA_VERSION) throw new SerializationException("Unsupported user event schema version " + schema);
+            UserEvent.Type type = UserEvent.Type.of(buffer.get());
+            int fields = buffer.get();
+            if ((fields & ~ ALL_FIELDS) != 0) throw new SerializationException("Unknown user event fields " + fields);
+            long userId = buffer.getLong();
+            long version = buffer.getLong();
+            Instant timestamp = Instant.ofEpochMilli(buffer.getLong());
+            String name = (fields & NAME) != 0 ? getString(buffer) : null;
+            String email = (fields & EMAIL) != 0 ? getString(buffer) : null;
+            Integer age = (fields & AGE) != 0 ? buffer.getInt() : null;
+            return new UserEvent(type,userId,version,name,email,age,timestamp);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new SerializationException("Malformed user event",e);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        String value = new String(buffer.array(),buffer.position(),length,StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
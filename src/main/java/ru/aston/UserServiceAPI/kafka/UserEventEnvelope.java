@@ -0,0 +1,68 @@
+package ru.aston.UserServiceAPI.kafka;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeader;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+Конверт с несколькими событиями UserEventSerializer в одной записи кафки: [int число событий]
+и дальше события как [int длина][событие]. Запись с конвертом помечается заголовком user-event-envelope,
+значение заголовка - версия формата конверта. Запись без заголовка - одиночное событие.
+*/
+public final class UserEventEnvelope {
+
+    public static final String HEADER = "user-event-envelope";
+    public static final byte VERSION = 1;
+
+    private UserEventEnvelope() {
+    }
+
+    public static Header header() {
+        return new RecordHeader(HEADER,new byte[]{VERSION});
+    }
+
+    public static boolean isEnvelope(Headers headers) {
+        return headers.lastHeader(HEADER) != null;
+    }
+
+    public static int size(List<byte[]> events) {
+        int size = Integer.BYTES;
+        for (byte[] event : events) {
+            size += Integer.BYTES + event.length;
+        }
+        return size;
+    }
+
+    public static byte[] encode(List<byte[]> events) {
+        ByteBuffer buffer = ByteBuffer.allocate(size(events));
+        buffer.putInt(events.size());
+        for (byte[] event : events) {
+            buffer.putInt(event.length);
+            buffer.put(event);
+        }
+        return buffer.array();
+    }
+
+    public static List<UserEvent> decode(byte[] data) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            int count = buffer.getInt();
+            if (count < 0 || count > buffer.remaining() / Integer.BYTES) throw new SerializationException("Malformed user event envelope");
+            List<UserEvent> events = new ArrayList<>(count);
+            for (int i = 0;i < count;i++) {
+                byte[] event = new byte[buffer.getInt()];
+                buffer.get(event);
+                events.add(UserEventDeserializer.decode(event));
+            }
+            return events;
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            throw new SerializationException("Malformed user event envelope",e);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package ru.aston.UserServiceAPI.kafka;
+
+//Ключ айди пользователя, чтобы все события одного пользователя шли в одну партицию и по порядку
+public class UserEventKafkaMessage extends AbstractKafkaMessage {
+
+    private final UserEvent event;
+
+    public UserEventKafkaMessage(UserEvent event) {
+        super(String.valueOf(event.userId()),UserEventSerializer.encode(event));
+        this.event = event;
+    }
+
+    public UserEvent getEvent() {
+        return event;
+    }
+
+    @Override
+    public String toString() {
+        return event.toString();
+    }
+}
@@ -0,0 +1,64 @@
+package ru.aston.UserServiceAPI.kafka;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class UserEventSerializer implements Serializer<UserEvent> {
+
+    /*
+    Бинарный формат события, все числа big-endian:
+    [byte версия схемы][byte тип][byte маска полей][long id][long версия][long время в мс]
+    и дальше поля из маски по порядку: имя и email как [unsigned short длина][utf-8], возраст как [int].
+    Новое поле - новая версия схемы, читатель отклоняет незнакомые версии.
+    */
+
+    public static final byte SCHEMA_VERSION = 1;
+    public static final int NAME = 1;
+    public static final int EMAIL = 1 << 1;
+    public static final int AGE = 1 << 2;
+    public static final int ALL_FIELDS = NAME | EMAIL | AGE;
+    static final int HEADER = 3 + 3 * Long.BYTES;
+
+    @Override
+    public byte[] serialize(String topic,UserEvent event) {
+        return event == null ? null : encode(event);
+    }
+
+    public static byte[] encode(UserEvent event) {
+        byte[] name = utf8(event.name());
+        byte[] email = utf8(event.email());
+        int size = HEADER + (name == null ? 0 : 2 + name.length) + (email == null ? 0 : 2 + email.length) + (event.age() == null ? 0 : Integer.BYTES);
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(header(event.type(),fields(event)));
+        buffer.putLong(event.userId());
+        buffer.putLong(event.version());
+        buffer.putLong(event
+                .timestamp()
+                .toEpochMilli());
+        if (name != null) putString(buffer,name);
+        if (email != null) putString(buffer,email);
+        if (event.age() != null) buffer.putInt(event.age());
+        return buffer.array();
+    }
+
+    private static byte[] header(UserEvent.Type type,int fields) {
+        return new byte[]{SCHEMA_VERSION,type.getCode(),(byte) fields};
+    }
+
+    private static int fields(UserEvent event) {
+        return (event.name() != null ? NAME : 0) | (event.email() != null ? EMAIL : 0) | (event.age() != null ? AGE : 0);
+    }
+
+    private static void putString(ByteBuffer buffer,byte[] value) {
+        if (value.length > 0xFFFF) throw new SerializationException("User event field is longer than 65535 bytes");
+        buffer.putShort((short) value.length);
+        buffer.put(value);
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,46 @@
+package ru.aston.UserServiceAPI.mappers;
+
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingConstants;
+import ru.aston.UserServiceAPI.dtos.UserDTORequest;
+import ru.aston.UserServiceAPI.dtos.UserDTOResponse;
+import ru.aston.UserServiceAPI.entitys.User;
+import ru.aston.UserServiceAPI.entitys.UserRow;
+
+import java.util.List;
+
+/*
+Реализация генерируется MapStruct при компиляции и копирует поля через геттеры и сеттеры напрямую,
+без промежуточного TokenBuffer и рефлексии, как было с ObjectMapper.convertValue.
+*/
+@Mapper (componentModel = MappingConstants.ComponentModel.SPRING)
+public interface UserMapper {
+
+    @Mapping (target = "id", ignore = true)
+    @Mapping (target = "created_at", ignore = true)
+    @Mapping (target = "updated_at", ignore = true)
+    @Mapping (target = "version", ignore = true)
+    //MapStruct считает User.updateUser(UserDTORequest) сеттером
+    @Mapping (target = "updateUser", ignore = true)
+    User toUser(UserDTORequest userDTORequest);
+
+    UserDTOResponse toDTO(User user);
+
+    List<UserDTOResponse> toDTOList(List<User> users);
+
+    @Mapping (target = "updateUser", ignore = true)
+    User copy(User user);
+
+    @Mapping (target = "id", ignore = true)
+    @Mapping (target = "created_at", ignore = true)
+    @Mapping (target = "updated_at", ignore = true)
+    @Mapping (target = "version", ignore = true)
+    UserRow toRow(UserDTORequest userDTORequest);
+
+    UserDTOResponse toDTO(UserRow row);
+
+    //События UserEvent собираются из сущности User
+    @Mapping (target = "updateUser", ignore = true)
+    User toUser(UserRow row);
+}
@@ -0,0 +1,27 @@
+package ru.aston.UserServiceAPI.repos;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.aston.UserServiceAPI.entitys.OutboxEvent;
+
+import java.util.List;
+
+@Repository
+public interface OutboxRepository extends JpaRepository<OutboxEvent, Long> {
+
+    //Строки, заблокированные или захваченные релеем другого узла, пропускаются, так что узлы разбирают outbox параллельно
+    @Query (value = "SELECT * FROM user_outbox WHERE claimed_until IS NULL OR claimed_until < now() ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxEvent> lockBatch(@Param ("limit") int limit);
+
+    //Срок считается по часам базы, расхождение часов узлов на него не влияет
+    @Modifying
+    @Query (value = "UPDATE user_outbox SET claimed_until = now() + make_interval(secs => :seconds) WHERE id IN (:ids)", nativeQuery = true)
+    int claim(@Param ("ids") List<Long> ids,@Param ("seconds") double seconds);
+
+    @Modifying
+    @Query (value = "UPDATE user_outbox SET claimed_until = NULL WHERE id IN (:ids)", nativeQuery = true)
+    int release(@Param ("ids") List<Long> ids);
+}
@@ -0,0 +1,22 @@
+package ru.aston.UserServiceAPI.repos;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.aston.UserServiceAPI.entitys.UserRow;
+
+@Repository
+public interface ReactiveUserRepository extends R2dbcRepository<UserRow, Long>, ReactiveUserRepositoryCustom {
+
+    Mono<UserRow> findByName(String name);
+
+    Mono<UserRow> findByEmail(String email);
+
+    Flux<UserRow> findAllBy(Pageable pageable);
+
+    Flux<UserRow> findByIdGreaterThan(Long id,Pageable pageable);
+
+    Flux<UserRow> findByIdLessThan(Long id,Pageable pageable);
+}
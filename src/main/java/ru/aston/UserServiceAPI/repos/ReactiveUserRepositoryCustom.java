@@ -0,0 +1,9 @@
+package ru.aston.UserServiceAPI.repos;
+
+import reactor.core.publisher.Mono;
+import ru.aston.UserServiceAPI.entitys.UserRow;
+
+public interface ReactiveUserRepositoryCustom {
+
+    Mono<UserRow> insertIfAbsent(UserRow user);
+}
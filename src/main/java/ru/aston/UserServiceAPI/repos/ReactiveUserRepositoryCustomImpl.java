@@ -0,0 +1,89 @@
+package ru.aston.UserServiceAPI.repos;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+import ru.aston.UserServiceAPI.entitys.User;
+import ru.aston.UserServiceAPI.entitys.UserRow;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ReactiveUserRepositoryCustomImpl implements ReactiveUserRepositoryCustom {
+
+    /*
+    Та же вставка, что в UserRepositoryCustomImpl. Генератора хибернейта здесь нет, поэтому айди выделяются
+    блоками из users_seq по правилам pooled, как в импорте: значение sequence - верхняя граница блока
+    из User.ID_ALLOCATION_SIZE айди. Если блок кончился у нескольких запросов сразу, каждый возьмет свой,
+    остаток проигравшего блока просто теряется.
+    */
+
+    private static final String NEXT_BLOCK = "SELECT nextval('users_seq')";
+    private static final String INSERT = """
+            INSERT INTO users (id, name, email, age, created_at, updated_at, version)
+            VALUES (:id, :name, :email, :age, :createdAt, :createdAt, 0)
+            ON CONFLICT (email) DO NOTHING
+            RETURNING id""";
+
+    private final DatabaseClient databaseClient;
+    private final AtomicReference<Block> block = new AtomicReference<>(new Block(0,0));
+
+    public ReactiveUserRepositoryCustomImpl(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Mono<UserRow> insertIfAbsent(UserRow user) {
+        return nextId().flatMap(id -> databaseClient
+                .sql(INSERT)
+                .bind("id",id)
+                .bind("name",user.getName())
+                .bind("email",user.getEmail())
+                .bind("age",user.getAge())
+                .bind("createdAt",user.getCreated_at())
+                .map(row -> row.get(0,Long.class))
+                .one()
+                .map(inserted -> {
+                    user.setId(inserted);
+                    user.setUpdated_at(user.getCreated_at());
+                    user.setVersion(0L);
+                    return user;
+                }));
+    }
+
+    private Mono<Long> nextId() {
+        long id = block
+                .get()
+                .next();
+        if (id > 0) return Mono.just(id);
+        return databaseClient
+                .sql(NEXT_BLOCK)
+                .map(row -> row.get(0,Long.class))
+                .one()
+                .flatMap(value -> {
+                    //Первое значение sequence блоком не является
+                    long start = value - User.ID_ALLOCATION_SIZE + 1;
+                    if (start <= 0) return nextId();
+                    Block fresh = new Block(start,start + User.ID_ALLOCATION_SIZE);
+                    long first = fresh.next();
+                    block.set(fresh);
+                    return Mono.just(first);
+                });
+    }
+
+    private static final class Block {
+
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(long start,long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+
+        //0, если блок кончился
+        private long next() {
+            long id = next.getAndIncrement();
+            return id < end ? id : 0;
+        }
+    }
+}
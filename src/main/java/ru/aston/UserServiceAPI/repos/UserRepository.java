@@ -1,15 +1,27 @@
 package ru.aston.UserServiceAPI.repos;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.aston.UserServiceAPI.entitys.User;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
 
     Optional<User> findByName(String name);
 
     Optional<User> findByEmail(String email);
-}
\ No newline at end of file
+
+    List<User> findByIdGreaterThanOrderByIdAsc(Long id,Limit limit);
+
+    List<User> findByIdLessThanOrderByIdDesc(Long id,Limit limit);
+
+    @Query ("select u.email from User u where u.email in :emails")
+    List<String> findExistingEmails(@Param ("emails") Collection<String> emails);
+}
@@ -0,0 +1,13 @@
+package ru.aston.UserServiceAPI.repos;
+
+import ru.aston.UserServiceAPI.entitys.User;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface UserRepositoryCustom {
+
+    Optional<User> insertIfAbsent(User user);
+
+    List<User> insertAllIfAbsent(List<User> users);
+}
@@ -0,0 +1,114 @@
+package ru.aston.UserServiceAPI.repos;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.springframework.transaction.annotation.Transactional;
+import ru.aston.UserServiceAPI.entitys.User;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.*;
+
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    /*
+    Создание одним запросом: уникальность email проверяет сама вставка, updated_at пишется сразу.
+    Айди берется из генератора хибернейта, чтобы не тратить на каждую строку целый блок users_seq.
+    Пустой результат значит, что пользователь с таким email уже есть.
+    Пачка вставляется так же одним запросом: строки приходят массивами через unnest, а RETURNING
+    возвращает email вставленных, поэтому строка, проигравшая гонку с параллельной вставкой,
+    отбрасывается одна и не роняет остальные.
+    */
+
+    private static final String INSERT = """
+            INSERT INTO users (id, name, email, age, created_at, updated_at, version)
+            VALUES (?1, ?2, ?3, ?4, ?5, ?5, 0)
+            ON CONFLICT (email) DO NOTHING
+            RETURNING id""";
+    private static final String INSERT_ALL = """
+            INSERT INTO users (id, name, email, age, created_at, updated_at, version)
+            SELECT u.id, u.name, u.email, u.age, u.created_at, u.created_at, 0
+            FROM unnest(?::bigint[], ?::text[], ?::text[], ?::int[], ?::timestamp[]) AS u(id, name, email, age, created_at)
+            ON CONFLICT (email) DO NOTHING
+            RETURNING email""";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public Optional<User> insertIfAbsent(User user) {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        Long id = nextId(session,user);
+        boolean inserted = ! entityManager
+                .createNativeQuery(INSERT)
+                .setParameter(1,id)
+                .setParameter(2,user.getName())
+                .setParameter(3,user.getEmail())
+                .setParameter(4,user.getAge())
+                .setParameter(5,user.getCreated_at())
+                .getResultList()
+                .isEmpty();
+        if (! inserted) return Optional.empty();
+        user.setId(id);
+        user.setUpdated_at(user.getCreated_at());
+        user.setVersion(0L);
+        return Optional.of(user);
+    }
+
+    @Override
+    @Transactional
+    public List<User> insertAllIfAbsent(List<User> users) {
+        if (users.isEmpty()) return List.of();
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        int size = users.size();
+        Long[] ids = new Long[size];
+        String[] names = new String[size];
+        String[] emails = new String[size];
+        Integer[] ages = new Integer[size];
+        Timestamp[] created = new Timestamp[size];
+        for (int i = 0;i < size;i++) {
+            User user = users.get(i);
+            ids[i] = nextId(session,user);
+            names[i] = user.getName();
+            emails[i] = user.getEmail();
+            ages[i] = user.getAge();
+            created[i] = Timestamp.valueOf(user.getCreated_at());
+        }
+        Set<String> inserted = session.doReturningWork(connection -> {
+            Set<String> result = new HashSet<>();
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_ALL)) {
+                statement.setArray(1,connection.createArrayOf("bigint",ids));
+                statement.setArray(2,connection.createArrayOf("text",names));
+                statement.setArray(3,connection.createArrayOf("text",emails));
+                statement.setArray(4,connection.createArrayOf("int4",ages));
+                statement.setArray(5,connection.createArrayOf("timestamp",created));
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) result.add(resultSet.getString(1));
+                }
+            }
+            return result;
+        });
+        List<User> result = new ArrayList<>(inserted.size());
+        for (int i = 0;i < size;i++) {
+            User user = users.get(i);
+            if (! inserted.contains(user.getEmail())) continue;
+            user.setId(ids[i]);
+            user.setUpdated_at(user.getCreated_at());
+            user.setVersion(0L);
+            result.add(user);
+        }
+        return result;
+    }
+
+    private Long nextId(SharedSessionContractImplementor session,User user) {
+        BeforeExecutionGenerator generator = (BeforeExecutionGenerator) session
+                .getEntityPersister(User.class.getName(),user)
+                .getGenerator();
+        return ((Number) generator.generate(session,user,null,EventType.INSERT)).longValue();
+    }
+}
@@ -0,0 +1,27 @@
+package ru.aston.UserServiceAPI.services;
+
+public enum ExportFormat {
+    NDJSON("application/x-ndjson","ndjson"),
+    CSV("text/csv","csv"),
+    ;
+
+    private final String mediaType;
+    private final String extension;
+
+    ExportFormat(String mediaType,String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static ExportFormat of(String format) {
+        return "csv".equalsIgnoreCase(format) ? CSV : NDJSON;
+    }
+}
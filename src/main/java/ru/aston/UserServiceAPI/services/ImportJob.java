@@ -0,0 +1,131 @@
+package ru.aston.UserServiceAPI.services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ImportJob {
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private static final int MAX_REJECTED_SAMPLES = 100;
+
+    private final UUID id = UUID.randomUUID();
+    private final ExportFormat format;
+    private final long totalBytes;
+    private final AtomicLong processedBytes = new AtomicLong();
+    private final AtomicLong processedRows = new AtomicLong();
+    private final AtomicLong importedRows = new AtomicLong();
+    private final AtomicLong rejectedRows = new AtomicLong();
+    private final AtomicLong duplicateRows = new AtomicLong();
+    private final Map<Long, Map<String, String>> rejectedSamples = Collections.synchronizedMap(new LinkedHashMap<>());
+    private volatile State state = State.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    public ImportJob(ExportFormat format,long totalBytes) {
+        this.format = format;
+        this.totalBytes = totalBytes;
+    }
+
+    void start() {
+        startedAt = Instant.now();
+        state = State.RUNNING;
+    }
+
+    void complete() {
+        finishedAt = Instant.now();
+        state = State.COMPLETED;
+    }
+
+    void fail(String error) {
+        this.error = error;
+        finishedAt = Instant.now();
+        state = State.FAILED;
+    }
+
+    void chunkProcessed(long bytes,int rows,int imported,int rejected) {
+        processedBytes.set(bytes);
+        processedRows.addAndGet(rows);
+        importedRows.addAndGet(imported);
+        rejectedRows.addAndGet(rejected);
+        //Валидные строки, которые не попали в таблицу, это дубли по email
+        duplicateRows.addAndGet(rows - imported - rejected);
+    }
+
+    void reject(long line,Map<String, String> errors) {
+        if (rejectedSamples.size() < MAX_REJECTED_SAMPLES) rejectedSamples.put(line,errors);
+    }
+
+    public boolean isFinished() {
+        return state == State.COMPLETED || state == State.FAILED;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public ExportFormat getFormat() {
+        return format;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public long getProcessedRows() {
+        return processedRows.get();
+    }
+
+    public long getImportedRows() {
+        return importedRows.get();
+    }
+
+    public long getRejectedRows() {
+        return rejectedRows.get();
+    }
+
+    public long getDuplicateRows() {
+        return duplicateRows.get();
+    }
+
+    public Map<Long, Map<String, String>> getRejectedSamples() {
+        synchronized (rejectedSamples) {
+            return new LinkedHashMap<>(rejectedSamples);
+        }
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public double getProgress() {
+        if (state == State.COMPLETED) return 1.0;
+        return totalBytes == 0 ? 0.0 : Math.min(1.0,(double) processedBytes.get() / totalBytes);
+    }
+
+    public double getRowsPerSecond() {
+        Instant from = startedAt;
+        if (from == null) return 0.0;
+        Instant to = finishedAt != null ? finishedAt : Instant.now();
+        long millis = Math.max(1,Duration
+                .between(from,to)
+                .toMillis());
+        return processedRows.get() * 1000.0 / millis;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+}
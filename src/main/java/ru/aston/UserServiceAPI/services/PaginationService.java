@@ -1,33 +1,66 @@
 package ru.aston.UserServiceAPI.services;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
-import org.springframework.transaction.annotation.Transactional;
+import ru.aston.UserServiceAPI.Utils.UserCursor;
+import ru.aston.UserServiceAPI.dtos.CursorPageDTO;
 import ru.aston.UserServiceAPI.dtos.UserDTOResponse;
 import ru.aston.UserServiceAPI.entitys.User;
+import ru.aston.UserServiceAPI.mappers.UserMapper;
 import ru.aston.UserServiceAPI.repos.UserRepository;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 @Service
 public class PaginationService {
 
+    public static final String ALL_USERS_ENDPOINT = "all-users";
+    public static final String CURSOR_ENDPOINT = "cursor";
+
     private final UserRepository userRepository;
-    private final ObjectMapper objectMapper;
+    private final UserMapper userMapper;
+    private final ReadTransactionExecutor readExecutor;
+    private final int maxPageSize;
 
     @Autowired
-    public PaginationService(UserRepository userRepository,ObjectMapper objectMapper) {
+    public PaginationService(UserRepository userRepository,
+            UserMapper userMapper,
+            ReadTransactionExecutor readExecutor,
+            @Value ("${user.pagination.max-size:1000}") int maxPageSize) {
         this.userRepository = userRepository;
-        this.objectMapper = objectMapper;
+        this.userMapper = userMapper;
+        this.readExecutor = readExecutor;
+        this.maxPageSize = Math.max(1,maxPageSize);
     }
 
-    @Transactional (isolation = Isolation.SERIALIZABLE)
     public List<UserDTOResponse> getAllUsersWithPaginationAndSort(int page,int count,String sort) {
+        int size = clamp(count);
+        return readExecutor.execute(ALL_USERS_ENDPOINT,() -> findPage(page,size,sort));
+    }
+
+    public CursorPageDTO getUsersAfter(long afterId,int count) {
+        int size = clamp(count);
+        return readExecutor.execute(CURSOR_ENDPOINT,() -> findAfter(afterId,size));
+    }
+
+    public CursorPageDTO getUsersBefore(long beforeId,int count) {
+        int size = clamp(count);
+        return readExecutor.execute(CURSOR_ENDPOINT,() -> findBefore(beforeId,size));
+    }
+
+    //Размер страницы ограничен сверху, иначе один запрос вытащит всю таблицу, а Limit.of(count + 1) переполнится
+    public int clamp(int count) {
+        return Math.min(count,maxPageSize);
+    }
+
+    private List<UserDTOResponse> findPage(int page,int count,String sort) {
         Page<User> userList;
         if (sort.equals("asc")) {
             userList = userRepository.findAll(PageRequest.of(page,count,Sort
@@ -36,9 +69,43 @@ public class PaginationService {
         } else userList = userRepository.findAll(PageRequest.of(page,count,Sort
                 .by("id")
                 .descending()));
-        return userList
-                .stream()
-                .map(user -> objectMapper.convertValue(user,UserDTOResponse.class))
-                .toList();
+        return userMapper.toDTOList(userList.getContent());
+    }
+
+    private CursorPageDTO findAfter(long afterId,int count) {
+        return afterPage(afterId,userMapper.toDTOList(userRepository.findByIdGreaterThanOrderByIdAsc(afterId,Limit.of(count + 1))),count);
+    }
+
+    private CursorPageDTO findBefore(long beforeId,int count) {
+        return beforePage(userMapper.toDTOList(userRepository.findByIdLessThanOrderByIdDesc(beforeId,Limit.of(count + 1))),count);
+    }
+
+    //Страница курсора общая с ReactiveUserService: читается на одну запись больше, лишняя означает, что есть следующая
+    static CursorPageDTO afterPage(long afterId,List<UserDTOResponse> users,int count) {
+        boolean hasNext = users.size() > count;
+        if (hasNext) users = users.subList(0,count);
+        String next = hasNext ? UserCursor.encode(users
+                .get(users.size() - 1)
+                .getId()) : null;
+        String prev = afterId > 0 && ! users.isEmpty() ? UserCursor.encode(users
+                .get(0)
+                .getId()) : null;
+        return new CursorPageDTO(users,count,next,prev);
+    }
+
+    //Записи приходят по убыванию айди, на странице они идут по возрастанию
+    static CursorPageDTO beforePage(List<UserDTOResponse> users,int count) {
+        boolean hasPrev = users.size() > count;
+        if (hasPrev) users = users.subList(0,count);
+        users = new ArrayList<>(users);
+        Collections.reverse(users);
+        if (users.isEmpty()) return new CursorPageDTO(List.of(),count,null,null);
+        String next = UserCursor.encode(users
+                .get(users.size() - 1)
+                .getId());
+        String prev = hasPrev ? UserCursor.encode(users
+                .get(0)
+                .getId()) : null;
+        return new CursorPageDTO(users,count,next,prev);
     }
 }
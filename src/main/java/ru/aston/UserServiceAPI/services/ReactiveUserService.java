@@ -0,0 +1,214 @@
+package ru.aston.UserServiceAPI.services;
+
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.aston.UserServiceAPI.Utils.ErrorMessages;
+import ru.aston.UserServiceAPI.Utils.NotValidUserException;
+import ru.aston.UserServiceAPI.Utils.UserNotFoundException;
+import ru.aston.UserServiceAPI.cache.CacheInvalidationPublisher;
+import ru.aston.UserServiceAPI.dtos.CursorPageDTO;
+import ru.aston.UserServiceAPI.dtos.UserDTORequest;
+import ru.aston.UserServiceAPI.dtos.UserDTOResponse;
+import ru.aston.UserServiceAPI.entitys.UserRow;
+import ru.aston.UserServiceAPI.kafka.ReactiveOutboxService;
+import ru.aston.UserServiceAPI.kafka.UserEvent;
+import ru.aston.UserServiceAPI.kafka.UserEventKafkaMessage;
+import ru.aston.UserServiceAPI.mappers.UserMapper;
+import ru.aston.UserServiceAPI.repos.ReactiveUserRepository;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static ru.aston.UserServiceAPI.Utils.ErrorMessageConverter.convertToMessage;
+
+@Service
+@ConditionalOnWebApplication (type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserService {
+
+    /*
+    Тот же контракт, что у UserServiceImpl, на R2DBC. Изменение пользователя и событие в outbox пишутся
+    в одной транзакции, в кафку событие уходит через OutboxRelay, поэтому запрос брокера не ждет.
+    Локального кэша и bloom фильтра email здесь нет: чтение идет в базу, а другим узлам
+    после коммита рассылается инвалидация, как в UserCache.evictAfterCommit.
+    */
+
+    private static final String DEFAULT_SORT = "asc";
+    private static final int DEFAULT_PAGE = 0;
+    private static final int DEFAULT_SIZE = 10;
+
+    private final ReactiveUserRepository userRepository;
+    private final ReactiveOutboxService outboxService;
+    private final TransactionalOperator transactionalOperator;
+    private final UserMapper userMapper;
+    private final SpringValidatorAdapter validator;
+    private final ObjectProvider<CacheInvalidationPublisher> invalidationPublisher;
+    private final int maxPageSize;
+
+    @Autowired
+    public ReactiveUserService(ReactiveUserRepository userRepository,
+            ReactiveOutboxService outboxService,
+            TransactionalOperator transactionalOperator,
+            UserMapper userMapper,
+            Validator validator,
+            ObjectProvider<CacheInvalidationPublisher> invalidationPublisher,
+            @Value ("${user.pagination.max-size:1000}") int maxPageSize) {
+        this.userRepository = userRepository;
+        this.outboxService = outboxService;
+        this.transactionalOperator = transactionalOperator;
+        this.userMapper = userMapper;
+        this.validator = new SpringValidatorAdapter(validator);
+        this.invalidationPublisher = invalidationPublisher;
+        this.maxPageSize = maxPageSize;
+    }
+
+    public Mono<UserDTOResponse> getUser(Long id,String name,String email) {
+        Mono<UserRow> found = Mono.empty();
+        if (id != null && id > 0) {
+            found = userRepository.findById(id);
+        } else if (name != null && ! name.isBlank()) {
+            found = userRepository.findByName(name);
+        } else if (email != null && ! email.isBlank()) {
+            found = userRepository.findByEmail(email);
+        }
+        return found
+                .map(userMapper::toDTO)
+                .switchIfEmpty(Mono.error(UserNotFoundException::new));
+    }
+
+    public Flux<UserDTOResponse> getAllUsers(Integer page,Integer size,String sort) {
+        boolean paged = page != null && page >= 0 && size != null && size > 0;
+        String direction = "desc".equals(sort) ? sort : DEFAULT_SORT;
+        PageRequest pageRequest = PageRequest.of(paged ? page : DEFAULT_PAGE,paged ? Math.min(size,maxPageSize) : DEFAULT_SIZE,"asc".equals(direction) ? Sort
+                .by("id")
+                .ascending() : Sort
+                .by("id")
+                .descending());
+        return userRepository
+                .findAllBy(pageRequest)
+                .map(userMapper::toDTO);
+    }
+
+    //Страницы курсора собираются так же, как в PaginationService, и размер ограничен тем же user.pagination.max-size
+    public Mono<CursorPageDTO> getUsersAfterCursor(long afterId,Integer size) {
+        int count = resolveSize(size);
+        return userRepository
+                .findByIdGreaterThan(afterId,PageRequest.of(0,count + 1,Sort
+                        .by("id")
+                        .ascending()))
+                .map(userMapper::toDTO)
+                .collectList()
+                .map(users -> PaginationService.afterPage(afterId,users,count));
+    }
+
+    public Mono<CursorPageDTO> getUsersBeforeCursor(long beforeId,Integer size) {
+        int count = resolveSize(size);
+        return userRepository
+                .findByIdLessThan(beforeId,PageRequest.of(0,count + 1,Sort
+                        .by("id")
+                        .descending()))
+                .map(userMapper::toDTO)
+                .collectList()
+                .map(users -> PaginationService.beforePage(users,count));
+    }
+
+    public Mono<UserDTOResponse> createUser(UserDTORequest userDTORequest) {
+        return validate(userDTORequest,null)
+                .flatMap(request -> {
+                    UserRow row = userMapper.toRow(request);
+                    row.setCreated_at(LocalDateTime.now());
+                    return userRepository.insertIfAbsent(row);
+                })
+                .switchIfEmpty(Mono.error(() -> new NotValidUserException(Map.of("email",emailExists(userDTORequest)))))
+                .flatMap(row -> outboxService
+                        .append(new UserEventKafkaMessage(UserEvent.created(userMapper.toUser(row))))
+                        .thenReturn(row))
+                .as(transactionalOperator::transactional)
+                .map(userMapper::toDTO);
+    }
+
+    public Mono<UserDTOResponse> updateUser(Long id,UserDTORequest userDTORequest) {
+        if (id == null || id <= 0) return Mono.error(new UserNotFoundException());
+        return validate(userDTORequest,id)
+                .flatMap(request -> userRepository.findById(id))
+                .switchIfEmpty(Mono.error(UserNotFoundException::new))
+                .flatMap(row -> {
+                    String previousName = row.getName();
+                    String previousEmail = row.getEmail();
+                    int previousAge = row.getAge();
+                    row.setName(userDTORequest.getName());
+                    row.setEmail(userDTORequest.getEmail());
+                    row.setAge(userDTORequest.getAge());
+                    row.setUpdated_at(LocalDateTime.now());
+                    //Событие собирается до save: UserEvent.updated сам прибавляет единицу к версии
+                    UserEvent event = UserEvent.updated(userMapper.toUser(row),previousName,previousEmail,previousAge);
+                    Mono<UserRow> saved = userRepository.save(row);
+                    return event.hasChanges() ? saved.flatMap(updated -> outboxService
+                            .append(new UserEventKafkaMessage(event))
+                            .thenReturn(updated)) : saved;
+                })
+                .as(transactionalOperator::transactional)
+                .doOnNext(this::invalidate)
+                .map(userMapper::toDTO);
+    }
+
+    public Mono<UserDTOResponse> deleteUser(Long id) {
+        if (id == null || id <= 0) return Mono.error(new UserNotFoundException());
+        return userRepository
+                .findById(id)
+                .switchIfEmpty(Mono.error(UserNotFoundException::new))
+                .flatMap(row -> userRepository
+                        .delete(row)
+                        .then(outboxService.append(new UserEventKafkaMessage(UserEvent.deleted(userMapper.toUser(row)))))
+                        .thenReturn(row))
+                .as(transactionalOperator::transactional)
+                .doOnNext(this::invalidate)
+                .map(userMapper::toDTO);
+    }
+
+    private int resolveSize(Integer size) {
+        return Math.min(size != null && size > 0 ? size : DEFAULT_SIZE,maxPageSize);
+    }
+
+    //Те же проверки, что у @Valid и UserDTOValidator в UserControllerImpl, ошибки собираются вместе.
+    //При обновлении email самого пользователя занятым не считается
+    private Mono<UserDTORequest> validate(UserDTORequest userDTORequest,Long ownerId) {
+        BeanPropertyBindingResult errors = new BeanPropertyBindingResult(userDTORequest,"userDTORequest");
+        validator.validate(userDTORequest,errors);
+        Mono<Boolean> emailTaken = userDTORequest.getEmail() == null ? Mono.just(false) : userRepository
+                .findByEmail(userDTORequest.getEmail())
+                .filter(row -> ! row
+                        .getId()
+                        .equals(ownerId))
+                .hasElement();
+        return emailTaken.flatMap(taken -> {
+            if (taken) errors.rejectValue("email",null,emailExists(userDTORequest));
+            if (errors.hasErrors()) return Mono.error(new NotValidUserException(convertToMessage(errors)));
+            return Mono.just(userDTORequest);
+        });
+    }
+
+    //ProducerService может ждать места в очереди отправки, поэтому публикация уходит с event loop
+    private void invalidate(UserRow row) {
+        invalidationPublisher.ifAvailable(publisher -> Schedulers
+                .boundedElastic()
+                .schedule(() -> publisher.publish(row.getId(),row.getVersion())));
+    }
+
+    private static String emailExists(UserDTORequest userDTORequest) {
+        return ErrorMessages.EMAIL_ALREADY_EXISTS
+                .getMessage()
+                .formatted(userDTORequest.getEmail());
+    }
+}
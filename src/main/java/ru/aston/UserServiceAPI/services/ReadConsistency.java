@@ -0,0 +1,26 @@
+package ru.aston.UserServiceAPI.services;
+
+import org.springframework.transaction.annotation.Isolation;
+
+public enum ReadConsistency {
+    READ_COMMITTED(Isolation.READ_COMMITTED,false),
+    REPEATABLE_READ(Isolation.REPEATABLE_READ,true),
+    SERIALIZABLE(Isolation.SERIALIZABLE,true),
+    ;
+
+    private final Isolation isolation;
+    private final boolean retryable;
+
+    ReadConsistency(Isolation isolation,boolean retryable) {
+        this.isolation = isolation;
+        this.retryable = retryable;
+    }
+
+    public Isolation getIsolation() {
+        return isolation;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+}
@@ -0,0 +1,61 @@
+package ru.aston.UserServiceAPI.services;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@ConfigurationProperties (prefix = "user.read-consistency")
+public class ReadConsistencyProperties {
+
+    private ReadConsistency defaultMode = ReadConsistency.READ_COMMITTED;
+    private Map<String, ReadConsistency> endpoints = new HashMap<>();
+    private int maxAttempts = 5;
+    private Duration initialBackoff = Duration.ofMillis(10);
+    private Duration maxBackoff = Duration.ofMillis(500);
+
+    public ReadConsistency modeFor(String endpoint) {
+        return endpoints.getOrDefault(endpoint,defaultMode);
+    }
+
+    public ReadConsistency getDefaultMode() {
+        return defaultMode;
+    }
+
+    public void setDefaultMode(ReadConsistency defaultMode) {
+        this.defaultMode = defaultMode;
+    }
+
+    public Map<String, ReadConsistency> getEndpoints() {
+        return endpoints;
+    }
+
+    public void setEndpoints(Map<String, ReadConsistency> endpoints) {
+        this.endpoints = endpoints;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public Duration getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    public void setInitialBackoff(Duration initialBackoff) {
+        this.initialBackoff = initialBackoff;
+    }
+
+    public Duration getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    public void setMaxBackoff(Duration maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+}
@@ -0,0 +1,100 @@
+package ru.aston.UserServiceAPI.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+@Component
+@EnableConfigurationProperties (ReadConsistencyProperties.class)
+public class ReadTransactionExecutor {
+
+    /*
+    Чтения списков выполняются в read only транзакции с уровнем изоляции, заданным для эндпоинта
+    (user.read-consistency.endpoints.<name>). Для REPEATABLE_READ и SERIALIZABLE постгрес может
+    откатить транзакцию с serialization failure, такие чтения повторяются с экспоненциальной задержкой.
+    Повтор возможен только в собственной транзакции: если чтение вызвано внутри уже открытой транзакции,
+    оно к ней присоединяется, и повтор попал бы в ту же откаченную транзакцию, поэтому ошибка уходит наверх.
+    */
+
+    private static final Logger log = LoggerFactory.getLogger(ReadTransactionExecutor.class);
+    private static final String SERIALIZATION_FAILURE = "40001";
+    private static final String DEADLOCK_DETECTED = "40P01";
+
+    private final ReadConsistencyProperties properties;
+    private final Map<ReadConsistency, TransactionTemplate> templates = new EnumMap<>(ReadConsistency.class);
+
+    @Autowired
+    public ReadTransactionExecutor(PlatformTransactionManager transactionManager,ReadConsistencyProperties properties) {
+        this.properties = properties;
+        for (ReadConsistency mode : ReadConsistency.values()) {
+            TransactionTemplate template = new TransactionTemplate(transactionManager);
+            template.setReadOnly(true);
+            template.setIsolationLevel(mode
+                    .getIsolation()
+                    .value());
+            template.setName("read-" + mode.name());
+            templates.put(mode,template);
+        }
+    }
+
+    public <T> T execute(String endpoint,Supplier<T> query) {
+        return execute(properties.modeFor(endpoint),query);
+    }
+
+    public <T> T execute(ReadConsistency mode,Supplier<T> query) {
+        TransactionTemplate template = templates.get(mode);
+        boolean retryable = mode.isRetryable() && ! TransactionSynchronizationManager.isActualTransactionActive();
+        long backoff = properties
+                .getInitialBackoff()
+                .toMillis();
+        for (int attempt = 1;;attempt++) {
+            try {
+                return template.execute(status -> query.get());
+            } catch (RuntimeException ex) {
+                if (! retryable || attempt >= properties.getMaxAttempts() || ! isSerializationFailure(ex)) throw ex;
+                log.debug("Serialization failure in {} read, attempt {}",mode,attempt);
+                sleep(ThreadLocalRandom
+                        .current()
+                        .nextLong(backoff / 2,backoff + 1));
+                backoff = Math.min(backoff * 2,properties
+                        .getMaxBackoff()
+                        .toMillis());
+            }
+        }
+    }
+
+    static boolean isSerializationFailure(Throwable ex) {
+        for (Throwable cause = ex;cause != null;cause = cause.getCause()) {
+            if (cause instanceof ConcurrencyFailureException) return true;
+            if (cause instanceof SQLException sqlException) {
+                String state = sqlException.getSQLState();
+                if (SERIALIZATION_FAILURE.equals(state) || DEADLOCK_DETECTED.equals(state)) return true;
+            }
+            if (cause.getCause() == cause) break;
+        }
+        return false;
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread
+                    .currentThread()
+                    .interrupt();
+            throw new IllegalStateException("Interrupted while waiting for retry",e);
+        }
+    }
+}
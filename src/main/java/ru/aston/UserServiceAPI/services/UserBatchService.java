@@ -0,0 +1,111 @@
+package ru.aston.UserServiceAPI.services;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.aston.UserServiceAPI.Utils.ErrorMessages;
+import ru.aston.UserServiceAPI.Utils.NotValidUserException;
+import ru.aston.UserServiceAPI.cache.EmailBloomFilter;
+import ru.aston.UserServiceAPI.dtos.BatchItemResultDTO;
+import ru.aston.UserServiceAPI.dtos.UserDTORequest;
+import ru.aston.UserServiceAPI.entitys.User;
+import ru.aston.UserServiceAPI.kafka.OutboxService;
+import ru.aston.UserServiceAPI.kafka.UserEvent;
+import ru.aston.UserServiceAPI.kafka.UserEventKafkaMessage;
+import ru.aston.UserServiceAPI.mappers.UserMapper;
+import ru.aston.UserServiceAPI.repos.UserRepository;
+
+import java.util.*;
+
+@Service
+public class UserBatchService {
+
+    private final UserRepository userRepository;
+    private final UserMapper userMapper;
+    private final Validator validator;
+    private final EmailBloomFilter emailFilter;
+    private final OutboxService outboxService;
+    private final int maxBatchSize;
+
+    @Autowired
+    public UserBatchService(UserRepository userRepository,
+            UserMapper userMapper,
+            Validator validator,
+            EmailBloomFilter emailFilter,
+            OutboxService outboxService,
+            @Value ("${user.batch.max-size:5000}") int maxBatchSize) {
+        this.userRepository = userRepository;
+        this.userMapper = userMapper;
+        this.validator = validator;
+        this.emailFilter = emailFilter;
+        this.outboxService = outboxService;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Transactional
+    public List<BatchItemResultDTO> createUsers(List<UserDTORequest> userDTORequests) {
+        if (userDTORequests == null || userDTORequests.isEmpty() || userDTORequests.size() > maxBatchSize) {
+            throw new NotValidUserException(Map.of("users",ErrorMessages.NOT_VALID_BATCH_SIZE.getMessage()));
+        }
+        BatchItemResultDTO[] results = new BatchItemResultDTO[userDTORequests.size()];
+        Map<String, Integer> validByEmail = new LinkedHashMap<>();
+        for (int i = 0;i < userDTORequests.size();i++) {
+            UserDTORequest userDTORequest = userDTORequests.get(i);
+            if (userDTORequest == null) {
+                results[i] = BatchItemResultDTO.rejected(i,Map.of("user",ErrorMessages.NOT_READABLE.getMessage()));
+                continue;
+            }
+            Map<String, String> errors = validate(userDTORequest);
+            if (errors.isEmpty() && validByEmail.containsKey(userDTORequest.getEmail())) {
+                errors.put("email",emailExistsMessage(userDTORequest.getEmail()));
+            }
+            if (errors.isEmpty()) {
+                validByEmail.put(userDTORequest.getEmail(),i);
+            } else {
+                results[i] = BatchItemResultDTO.rejected(i,errors);
+            }
+        }
+        //Одним запросом вместо проверки валидатором каждого email по отдельности. Фильтр здесь не используется:
+        //его ложное "точно нет" пропустило бы дубликат до вставки и уронило бы всю пачку
+        if (! validByEmail.isEmpty()) {
+            for (String existingEmail : userRepository.findExistingEmails(validByEmail.keySet())) {
+                int index = validByEmail.remove(existingEmail);
+                results[index] = BatchItemResultDTO.rejected(index,Map.of("email",emailExistsMessage(existingEmail)));
+            }
+        }
+        List<User> users = new ArrayList<>(validByEmail.size());
+        for (int index : validByEmail.values()) {
+            users.add(userMapper.toUser(userDTORequests.get(index)));
+        }
+        //Проверка выше не атомарна со вставкой: email, занятые параллельным запросом между ними, отсекает ON CONFLICT
+        List<UserEventKafkaMessage> events = new ArrayList<>(users.size());
+        for (User savedUser : userRepository.insertAllIfAbsent(users)) {
+            int index = validByEmail.remove(savedUser.getEmail());
+            emailFilter.put(savedUser.getEmail());
+            results[index] = BatchItemResultDTO.created(index,userMapper.toDTO(savedUser));
+            events.add(new UserEventKafkaMessage(UserEvent.created(savedUser)));
+        }
+        validByEmail.forEach((email,index) -> results[index] = BatchItemResultDTO.rejected(index,Map.of("email",emailExistsMessage(email))));
+        outboxService.appendAll(events);
+        return Arrays.asList(results);
+    }
+
+    private Map<String, String> validate(UserDTORequest userDTORequest) {
+        Map<String, String> errors = new HashMap<>();
+        for (ConstraintViolation<UserDTORequest> violation : validator.validate(userDTORequest)) {
+            errors.put(violation
+                    .getPropertyPath()
+                    .toString(),violation.getMessage());
+        }
+        return errors;
+    }
+
+    private String emailExistsMessage(String email) {
+        return ErrorMessages.EMAIL_ALREADY_EXISTS
+                .getMessage()
+                .formatted(email);
+    }
+}
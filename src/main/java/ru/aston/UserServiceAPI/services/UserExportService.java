@@ -0,0 +1,185 @@
+package ru.aston.UserServiceAPI.services;
+
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.copy.CopyOut;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Service
+public class UserExportService {
+
+    /*
+    Выгрузка идет напрямую из COPY ... TO STDOUT в выходной поток ответа, строки не материализуются
+    в сущности и не держатся в памяти. В параллельном режиме диапазон айди делится на части,
+    каждая часть копируется через свое соединение, строки сливаются через ограниченную очередь,
+    поэтому порядок строк в параллельном режиме не гарантируется.
+    */
+
+    private static final Logger log = LoggerFactory.getLogger(UserExportService.class);
+    private static final String CSV_HEADER = "id,name,email,age\n";
+    private static final String CSV_SELECT = "SELECT id, name, email, age FROM users";
+    private static final String JSON_SELECT = "SELECT json_build_object('id', id, 'name', name, 'email', email, 'age', age) FROM users";
+    private static final String CSV_OPTIONS = "WITH (FORMAT csv)";
+    //json уже экранирован, поэтому в csv режиме с кавычкой и разделителем, которых не бывает в json, строка выводится как есть
+    private static final String JSON_OPTIONS = "WITH (FORMAT csv, QUOTE E'\\x01', DELIMITER E'\\x02')";
+    private static final byte[] END_OF_RANGE = new byte[0];
+    private static final int QUEUE_CAPACITY = 4096;
+
+    private final DataSource dataSource;
+    private final int maxParallelism;
+    private final ExecutorService executor;
+
+    @Autowired
+    public UserExportService(DataSource dataSource,
+            @Value ("${user.export.max-parallelism:4}") int maxParallelism,
+            @Value ("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.dataSource = dataSource;
+        this.maxParallelism = Math.max(1,maxParallelism);
+        //Воркеры почти все время ждут COPY, виртуальный поток на диапазон дешевле кэшированного пула
+        this.executor = virtualThreads ? Executors.newThreadPerTaskExecutor(Thread
+                .ofVirtual()
+                .name("user-export-",0)
+                .factory()) : Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable,"user-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void export(ExportFormat format,int parallelism,OutputStream out) throws IOException {
+        if (format == ExportFormat.CSV) out.write(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+        int workers = Math.min(Math.max(1,parallelism),maxParallelism);
+        try {
+            if (workers == 1) {
+                exportSequential(format,out);
+            } else {
+                exportParallel(format,workers,out);
+            }
+        } catch (SQLException e) {
+            throw new IOException("Export failed",e);
+        }
+        out.flush();
+    }
+
+    private void exportSequential(ExportFormat format,OutputStream out) throws SQLException, IOException {
+        try (Connection connection = dataSource.getConnection()) {
+            copyManager(connection).copyOut(copySql(format," ORDER BY id"),out);
+        }
+    }
+
+    private void exportParallel(ExportFormat format,int workers,OutputStream out) throws SQLException, IOException {
+        long[] bounds = idBounds();
+        if (bounds == null) return;
+        long step = Math.max(1,(bounds[1] - bounds[0]) / workers + 1);
+        BlockingQueue<byte[]> rows = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        int ranges = 0;
+        for (long from = bounds[0];from <= bounds[1];from += step) {
+            String sql = copySql(format," WHERE id BETWEEN " + from + " AND " + Math.min(bounds[1],from + step - 1));
+            executor.execute(() -> copyRange(sql,rows,failure));
+            ranges++;
+        }
+        //Очередь вычитывается до конца даже после ошибки, чтобы воркеры не зависли на полной очереди
+        try {
+            while (ranges > 0) {
+                byte[] row = rows.take();
+                if (row == END_OF_RANGE) {
+                    ranges--;
+                } else if (failure.get() == null) {
+                    try {
+                        out.write(row);
+                    } catch (IOException e) {
+                        failure.compareAndSet(null,e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            failure.compareAndSet(null,e);
+            Thread
+                    .currentThread()
+                    .interrupt();
+        }
+        if (failure.get() != null) throw new IOException("Export failed",failure.get());
+    }
+
+    private void copyRange(String sql,BlockingQueue<byte[]> rows,AtomicReference<Exception> failure) {
+        try (Connection connection = dataSource.getConnection()) {
+            CopyOut copyOut = copyManager(connection).copyOut(sql);
+            try {
+                byte[] row;
+                while (failure.get() == null && (row = copyOut.readFromCopy()) != null) {
+                    enqueue(rows,row,failure);
+                }
+            } finally {
+                if (copyOut.isActive()) copyOut.cancelCopy();
+            }
+        } catch (Exception e) {
+            log.error("Export of range failed: {}",e.getMessage());
+            failure.compareAndSet(null,e);
+        } finally {
+            enqueue(rows,END_OF_RANGE,failure);
+        }
+    }
+
+    private void enqueue(BlockingQueue<byte[]> rows,byte[] row,AtomicReference<Exception> failure) {
+        try {
+            while (! rows.offer(row,100,TimeUnit.MILLISECONDS)) {
+                //Писатель прерван и больше не читает очередь
+                if (failure.get() instanceof InterruptedException) return;
+            }
+        } catch (InterruptedException e) {
+            failure.compareAndSet(null,e);
+            Thread
+                    .currentThread()
+                    .interrupt();
+        }
+    }
+
+    private long[] idBounds() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT min(id), max(id) FROM users")) {
+            resultSet.next();
+            long min = resultSet.getLong(1);
+            if (resultSet.wasNull()) return null;
+            return new long[]{min, resultSet.getLong(2)};
+        }
+    }
+
+    private String copySql(ExportFormat format,String clause) {
+        return format == ExportFormat.CSV ?
+                "COPY (" + CSV_SELECT + clause + ") TO STDOUT " + CSV_OPTIONS :
+                "COPY (" + JSON_SELECT + clause + ") TO STDOUT " + JSON_OPTIONS;
+    }
+
+    private CopyManager copyManager(Connection connection) throws SQLException {
+        return connection
+                .unwrap(PGConnection.class)
+                .getCopyAPI();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,399 @@
+package ru.aston.UserServiceAPI.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import ru.aston.UserServiceAPI.Utils.ErrorMessages;
+import ru.aston.UserServiceAPI.Utils.ImportQueueFullException;
+import ru.aston.UserServiceAPI.cache.EmailBloomFilter;
+import ru.aston.UserServiceAPI.dtos.UserDTORequest;
+import ru.aston.UserServiceAPI.entitys.User;
+import ru.aston.UserServiceAPI.kafka.OutboxService;
+import ru.aston.UserServiceAPI.kafka.UserEvent;
+import ru.aston.UserServiceAPI.kafka.UserEventSerializer;
+
+import javax.sql.DataSource;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+@Service
+public class UserImportService {
+
+    /*
+    Файл режется на чанки по chunkSize строк. Чанк валидируется параллельно в отдельном ForkJoinPool,
+    валидные строки заливаются через COPY FROM STDIN во временную таблицу и одним запросом
+    переносятся в users: дубли по email внутри чанка схлопываются DISTINCT ON, дубли с уже
+    существующими пользователями отсекает ON CONFLICT. Айди выделяются блоками из users_seq
+    по тем же правилам, что и у хибернейта (pooled), поэтому импорт можно запускать на живой базе.
+    Запрос возвращает вставленные строки, события о них кодируются UserEventSerializer и пишутся
+    в user_outbox тем же запросом, что и у OutboxService, в той же транзакции чанка.
+    Очередь импортов ограничена max-queued-jobs, лишние получают 503 еще до загрузки файла во временный,
+    завершенные задачи хранятся job-ttl и потом вычищаются.
+    */
+
+    private static final Logger log = LoggerFactory.getLogger(UserImportService.class);
+    private static final String CREATE_STAGING = """
+            CREATE TEMP TABLE IF NOT EXISTS users_import (line bigint, name text, email text, age int)
+            ON COMMIT DELETE ROWS""";
+    private static final String COPY_STAGING = "COPY users_import (line, name, email, age) FROM STDIN WITH (FORMAT csv)";
+    private static final String COUNT_FRESH = """
+            SELECT count(DISTINCT s.email) FROM users_import s
+            WHERE NOT EXISTS (SELECT 1 FROM users u WHERE u.email = s.email)""";
+    private static final String ALLOCATE_BLOCKS = "SELECT nextval('users_seq') FROM generate_series(1, ?)";
+    private static final String MERGE = """
+            WITH fresh AS (
+                SELECT DISTINCT ON (s.email) s.line, s.name, s.email, s.age FROM users_import s
+                WHERE NOT EXISTS (SELECT 1 FROM users u WHERE u.email = s.email)
+                ORDER BY s.email, s.line
+            ), numbered AS (
+                SELECT f.*, row_number() OVER (ORDER BY f.line) - 1 AS rn FROM fresh f
+            ), inserted AS (
+                INSERT INTO users (id, name, email, age, created_at, updated_at, version)
+                SELECT b.block_start + n.rn % ?, n.name, n.email, n.age, localtimestamp, localtimestamp, 0
+                FROM numbered n
+                JOIN unnest(?::bigint[]) WITH ORDINALITY AS b(block_start, ord) ON b.ord = n.rn / ? + 1
+                ON CONFLICT (email) DO NOTHING
+                RETURNING id, name, email, age
+            )
+            SELECT id, name, email, age FROM inserted ORDER BY id""";
+    private static final List<String> CSV_COLUMNS = List.of("name","email","age");
+
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final EmailBloomFilter emailFilter;
+    private final int chunkSize;
+    private final ForkJoinPool validationPool;
+    private final ThreadPoolExecutor executor;
+    private final Cache<UUID, ImportJob> jobs;
+
+    @Autowired
+    public UserImportService(DataSource dataSource,
+            ObjectMapper objectMapper,
+            Validator validator,
+            EmailBloomFilter emailFilter,
+            @Value ("${user.import.chunk-size:10000}") int chunkSize,
+            @Value ("${user.import.validation-parallelism:0}") int validationParallelism,
+            @Value ("${user.import.max-concurrent-jobs:1}") int maxConcurrentJobs,
+            @Value ("${user.import.max-queued-jobs:4}") int maxQueuedJobs,
+            @Value ("${user.import.job-ttl:1h}") Duration jobTtl) {
+        this.dataSource = dataSource;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.emailFilter = emailFilter;
+        this.chunkSize = Math.max(1,chunkSize);
+        this.validationPool = new ForkJoinPool(validationParallelism > 0 ? validationParallelism : Runtime
+                .getRuntime()
+                .availableProcessors());
+        int threads = Math.max(1,maxConcurrentJobs);
+        this.executor = new ThreadPoolExecutor(threads,threads,0,TimeUnit.MILLISECONDS,new ArrayBlockingQueue<>(Math.max(1,maxQueuedJobs)),runnable -> {
+            Thread thread = new Thread(runnable,"user-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.jobs = Caffeine
+                .newBuilder()
+                .expireAfter(new FinishedJobExpiry(jobTtl))
+                .build();
+    }
+
+    public ImportJob start(MultipartFile file,ExportFormat format) throws IOException {
+        if (executor
+                .getQueue()
+                .remainingCapacity() == 0) throw new ImportQueueFullException();
+        //Запрос закончится раньше импорта, поэтому загруженный файл сразу переносится во временный
+        Path path = Files.createTempFile("user-import","." + format.getExtension());
+        try {
+            file.transferTo(path);
+            ImportJob job = new ImportJob(format,Files.size(path));
+            jobs.put(job.getId(),job);
+            try {
+                executor.execute(() -> run(job,path));
+            } catch (RejectedExecutionException e) {
+                jobs.invalidate(job.getId());
+                throw new ImportQueueFullException();
+            }
+            return job;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+    }
+
+    public Optional<ImportJob> getJob(UUID id) {
+        return Optional.ofNullable(jobs.getIfPresent(id));
+    }
+
+    private void run(ImportJob job,Path path) {
+        job.start();
+        try (FileInputStream in = new FileInputStream(path.toFile());
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in,StandardCharsets.UTF_8),1 << 16);
+             Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_STAGING);
+            }
+            connection.commit();
+            int[] columns = job.getFormat() == ExportFormat.CSV ? csvColumns(reader.readLine()) : null;
+            long lineNumber = columns == null ? 0 : 1;
+            List<String> lines = new ArrayList<>(chunkSize);
+            List<Long> lineNumbers = new ArrayList<>(chunkSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) continue;
+                lines.add(line);
+                lineNumbers.add(lineNumber);
+                if (lines.size() == chunkSize) {
+                    importChunk(job,connection,lines,lineNumbers,columns,in
+                            .getChannel()
+                            .position());
+                    lines.clear();
+                    lineNumbers.clear();
+                }
+            }
+            if (! lines.isEmpty()) importChunk(job,connection,lines,lineNumbers,columns,in
+                    .getChannel()
+                    .position());
+            job.complete();
+            log.info("Import {} completed: {} imported, {} rejected, {} duplicates, {} rows/sec",job.getId(),job.getImportedRows(),job.getRejectedRows(),job.getDuplicateRows(),(long) job.getRowsPerSecond());
+        } catch (Exception e) {
+            log.error("Import {} failed: {}",job.getId(),e.getMessage());
+            job.fail(e.getMessage());
+        } finally {
+            //Повторный put пересчитывает срок жизни уже завершенной задачи
+            jobs.put(job.getId(),job);
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Cant delete import file {}",path);
+            }
+        }
+    }
+
+    private void importChunk(ImportJob job,Connection connection,List<String> lines,List<Long> lineNumbers,int[] columns,long bytesRead) throws SQLException, IOException {
+        List<ParsedRow> rows = validationPool
+                .submit(() -> IntStream
+                        .range(0,lines.size())
+                        .parallel()
+                        .mapToObj(i -> parseAndValidate(lines.get(i),columns))
+                        .toList())
+                .join();
+        StringBuilder csv = new StringBuilder(lines.size() * 48);
+        int rejected = 0;
+        for (int i = 0;i < rows.size();i++) {
+            ParsedRow row = rows.get(i);
+            if (row.errors() != null) {
+                rejected++;
+                job.reject(lineNumbers.get(i),row.errors());
+                continue;
+            }
+            csv
+                    .append(lineNumbers.get(i))
+                    .append(',')
+                    .append(quote(row
+                            .user()
+                            .getName()))
+                    .append(',')
+                    .append(quote(row
+                            .user()
+                            .getEmail()))
+                    .append(',')
+                    .append(row
+                            .user()
+                            .getAge())
+                    .append('\n');
+        }
+        List<String> created = csv.isEmpty() ? List.of() : merge(connection,csv);
+        job.chunkProcessed(bytesRead,lines.size(),created.size(),rejected);
+        created.forEach(emailFilter::put);
+    }
+
+    private List<String> merge(Connection connection,CharSequence csv) throws SQLException, IOException {
+        try {
+            connection
+                    .unwrap(PGConnection.class)
+                    .getCopyAPI()
+                    .copyIn(COPY_STAGING,new StringReader(csv.toString()));
+            Long[] blocks = allocateBlocks(connection,countFresh(connection));
+            List<String> created = new ArrayList<>();
+            List<String> keys = new ArrayList<>();
+            List<byte[]> payloads = new ArrayList<>();
+            Instant now = Instant.now();
+            try (PreparedStatement statement = connection.prepareStatement(MERGE)) {
+                statement.setInt(1,User.ID_ALLOCATION_SIZE);
+                statement.setArray(2,connection.createArrayOf("bigint",blocks));
+                statement.setInt(3,User.ID_ALLOCATION_SIZE);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        long id = resultSet.getLong(1);
+                        String email = resultSet.getString(3);
+                        created.add(email);
+                        keys.add(String.valueOf(id));
+                        payloads.add(UserEventSerializer.encode(new UserEvent(UserEvent.Type.CREATED,id,0,resultSet.getString(2),email,resultSet.getInt(4),now)));
+                    }
+                }
+            }
+            if (! keys.isEmpty()) OutboxService.insert(connection,null,keys.toArray(new String[0]),payloads.toArray(new byte[0][]));
+            connection.commit();
+            return created;
+        } catch (SQLException | IOException e) {
+            connection.rollback();
+            throw e;
+        }
+    }
+
+    private long countFresh(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(COUNT_FRESH)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private Long[] allocateBlocks(Connection connection,long rows) throws SQLException {
+        List<Long> blocks = new ArrayList<>();
+        long needed = (rows + User.ID_ALLOCATION_SIZE - 1) / User.ID_ALLOCATION_SIZE;
+        while (blocks.size() < needed) {
+            try (PreparedStatement statement = connection.prepareStatement(ALLOCATE_BLOCKS)) {
+                statement.setLong(1,needed - blocks.size());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        //Значение sequence это верхняя граница блока, первое значение 1 блоком не является
+                        long start = resultSet.getLong(1) - User.ID_ALLOCATION_SIZE + 1;
+                        if (start > 0) blocks.add(start);
+                    }
+                }
+            }
+        }
+        return blocks.toArray(new Long[0]);
+    }
+
+    private ParsedRow parseAndValidate(String line,int[] columns) {
+        UserDTORequest user;
+        try {
+            user = parse(line,columns);
+        } catch (Exception e) {
+            return new ParsedRow(null,Map.of("user",ErrorMessages.NOT_READABLE.getMessage()));
+        }
+        Set<ConstraintViolation<UserDTORequest>> violations = validator.validate(user);
+        if (violations.isEmpty()) return new ParsedRow(user,null);
+        Map<String, String> errors = new HashMap<>();
+        for (ConstraintViolation<UserDTORequest> violation : violations) {
+            errors.put(violation
+                    .getPropertyPath()
+                    .toString(),violation.getMessage());
+        }
+        return new ParsedRow(null,errors);
+    }
+
+    private UserDTORequest parse(String line,int[] columns) throws IOException {
+        if (columns == null) return objectMapper.readValue(line,UserDTORequest.class);
+        List<String> values = splitCsv(line);
+        UserDTORequest user = new UserDTORequest();
+        user.setName(values.get(columns[0]));
+        user.setEmail(values.get(columns[1]));
+        user.setAge(Integer.parseInt(values
+                .get(columns[2])
+                .trim()));
+        return user;
+    }
+
+    private int[] csvColumns(String header) throws IOException {
+        if (header == null) throw new IOException(ErrorMessages.NOT_VALID_IMPORT_FILE.getMessage());
+        List<String> names = splitCsv(header.replace("\uFEFF",""));
+        int[] columns = new int[CSV_COLUMNS.size()];
+        for (int i = 0;i < columns.length;i++) {
+            columns[i] = names.indexOf(CSV_COLUMNS.get(i));
+            if (columns[i] < 0) throw new IOException("CSV header should contains columns " + CSV_COLUMNS);
+        }
+        return columns;
+    }
+
+    private List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>(4);
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0;i < line.length();i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private String quote(String value) {
+        return '"' + value.replace("\"","\"\"") + '"';
+    }
+
+    private record ParsedRow(UserDTORequest user,Map<String, String> errors) {
+    }
+
+    //Задача в очереди или в работе не истекает, пока клиент может спросить ее статус
+    private record FinishedJobExpiry(Duration ttl) implements Expiry<UUID, ImportJob> {
+
+        @Override
+        public long expireAfterCreate(UUID id,ImportJob job,long currentTime) {
+            return expireAfter(job);
+        }
+
+        @Override
+        public long expireAfterUpdate(UUID id,ImportJob job,long currentTime,long currentDuration) {
+            return expireAfter(job);
+        }
+
+        @Override
+        public long expireAfterRead(UUID id,ImportJob job,long currentTime,long currentDuration) {
+            return currentDuration;
+        }
+
+        private long expireAfter(ImportJob job) {
+            return job.isFinished() ? ttl.toNanos() : Long.MAX_VALUE;
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+        validationPool.shutdownNow();
+    }
+}
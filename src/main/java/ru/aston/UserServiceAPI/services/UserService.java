@@ -1,5 +1,7 @@
 package ru.aston.UserServiceAPI.services;
 
+import ru.aston.UserServiceAPI.dtos.BatchItemResultDTO;
+import ru.aston.UserServiceAPI.dtos.CursorPageDTO;
 import ru.aston.UserServiceAPI.dtos.UserDTORequest;
 import ru.aston.UserServiceAPI.dtos.UserDTOResponse;
 import ru.aston.UserServiceAPI.entitys.User;
@@ -19,6 +21,10 @@ public interface UserService {
 
     List<UserDTOResponse> getAllUsersDefault();
 
+    CursorPageDTO getUsersAfterCursor(long afterId,Integer size);
+
+    CursorPageDTO getUsersBeforeCursor(long beforeId,Integer size);
+
     Optional<User> getUserByName(String name);
 
     Optional<User> getUserByEmail(String email);
@@ -29,6 +35,8 @@ public interface UserService {
 
     UserDTOResponse createUser(UserDTORequest userDTORequest);
 
+    List<BatchItemResultDTO> createUsers(List<UserDTORequest> userDTORequests);
+
     Optional<UserDTOResponse> deleteUserById(Long id);
 
     Optional<UserDTOResponse> updateUser(Long id,UserDTORequest userDTORequest);
@@ -1,24 +1,37 @@
 package ru.aston.UserServiceAPI.services;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import ru.aston.UserServiceAPI.Utils.Updatable;
+import ru.aston.UserServiceAPI.Utils.ErrorMessages;
+import ru.aston.UserServiceAPI.Utils.NotValidUserException;
+import ru.aston.UserServiceAPI.cache.EmailBloomFilter;
+import ru.aston.UserServiceAPI.cache.UserCache;
+import ru.aston.UserServiceAPI.dtos.BatchItemResultDTO;
+import ru.aston.UserServiceAPI.dtos.CursorPageDTO;
 import ru.aston.UserServiceAPI.dtos.UserDTORequest;
 import ru.aston.UserServiceAPI.dtos.UserDTOResponse;
 import ru.aston.UserServiceAPI.entitys.User;
+import ru.aston.UserServiceAPI.kafka.OutboxService;
+import ru.aston.UserServiceAPI.kafka.UserEvent;
+import ru.aston.UserServiceAPI.kafka.UserEventKafkaMessage;
+import ru.aston.UserServiceAPI.mappers.UserMapper;
 import ru.aston.UserServiceAPI.repos.UserRepository;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
-    private final ObjectMapper objectMapper;
+    private final UserMapper userMapper;
     private final PaginationService paginationService;
+    private final UserBatchService batchService;
+    private final UserCache userCache;
+    private final EmailBloomFilter emailFilter;
+    private final OutboxService outboxService;
 
     private String defaultSort = "asc";
     private int defaultPage = 0;
@@ -26,15 +39,25 @@ public class UserServiceImpl implements UserService {
 
 
     @Autowired
-    public UserServiceImpl(UserRepository userRepository,ObjectMapper objectMapper,PaginationService paginationService) {
+    public UserServiceImpl(UserRepository userRepository,
+            UserMapper userMapper,
+            PaginationService paginationService,
+            UserBatchService batchService,
+            UserCache userCache,
+            EmailBloomFilter emailFilter,
+            OutboxService outboxService) {
         this.userRepository = userRepository;
-        this.objectMapper = objectMapper;
+        this.userMapper = userMapper;
         this.paginationService = paginationService;
+        this.batchService = batchService;
+        this.userCache = userCache;
+        this.emailFilter = emailFilter;
+        this.outboxService = outboxService;
     }
 
-    @Transactional (readOnly = true)
+    //Без @Transactional, чтобы попадание в кэш не открывало транзакцию, при промахе транзакцию откроет репозиторий
     public Optional<User> getUserById(Long id) {
-        return userRepository.findById(id);
+        return userCache.getById(id,() -> userRepository.findById(id));
     }
 
     public List<UserDTOResponse> getAllUsersWithPaginationAndSort(int page,int count,String sort) {
@@ -53,36 +76,59 @@ public class UserServiceImpl implements UserService {
         return getAllUsersWithPaginationAndSort(defaultPage,defaultSize,defaultSort);
     }
 
-    @Transactional (readOnly = true)
+    public CursorPageDTO getUsersAfterCursor(long afterId,Integer size) {
+        return paginationService.getUsersAfter(afterId,resolveSize(size));
+    }
+
+    public CursorPageDTO getUsersBeforeCursor(long beforeId,Integer size) {
+        return paginationService.getUsersBefore(beforeId,resolveSize(size));
+    }
+
+    private int resolveSize(Integer size) {
+        return size != null && size > 0 ? size : defaultSize;
+    }
+
     public Optional<User> getUserByName(String name) {
-        return userRepository.findByName(name);
+        return userCache.getByName(name,() -> userRepository.findByName(name));
     }
 
-    @Transactional (readOnly = true)
     public Optional<User> getUserByEmail(String email) {
-        return userRepository.findByEmail(email);
+        return userCache.getByEmail(email,() -> userRepository.findByEmail(email));
     }
 
     public User getUserFromDTO(UserDTORequest userDTORequest) {
-        return objectMapper.convertValue(userDTORequest,User.class);
+        return userMapper.toUser(userDTORequest);
     }
 
     public UserDTOResponse getDTOFromUser(User user) {
-        return objectMapper.convertValue(user,UserDTOResponse.class);
+        return userMapper.toDTO(user);
     }
 
     @Transactional
-    @Updatable
     public UserDTOResponse createUser(UserDTORequest userDTORequest) {
-        User user = userRepository.save(getUserFromDTO(userDTORequest));
-        return objectMapper.convertValue(user,UserDTOResponse.class);
+        User user = userRepository
+                .insertIfAbsent(getUserFromDTO(userDTORequest))
+                .orElseThrow(() -> new NotValidUserException(Map.of("email",ErrorMessages.EMAIL_ALREADY_EXISTS
+                        .getMessage()
+                        .formatted(userDTORequest.getEmail()))));
+        emailFilter.put(user.getEmail());
+        outboxService.append(new UserEventKafkaMessage(UserEvent.created(user)));
+        userCache.putAfterCommit(user);
+        return userMapper.toDTO(user);
+    }
+
+    public List<BatchItemResultDTO> createUsers(List<UserDTORequest> userDTORequests) {
+        return batchService.createUsers(userDTORequests);
     }
 
     @Transactional
     public Optional<UserDTOResponse> deleteUserById(Long id) {
         Optional<User> userOptional = userRepository.findById(id);
         if (userOptional.isPresent()) {
-            userRepository.deleteById(id);
+            //deleteById заново ищет сущность по id, удаляем уже загруженную
+            userRepository.delete(userOptional.get());
+            outboxService.append(new UserEventKafkaMessage(UserEvent.deleted(userOptional.get())));
+            userCache.evictAfterCommit(userOptional.get());
             return Optional.of(getDTOFromUser(userOptional.get()));
         }
         return Optional.empty();
@@ -93,8 +139,15 @@ public class UserServiceImpl implements UserService {
         Optional<User> userOptional = userRepository.findById(id);
         if (userOptional.isPresent()) {
             User user = userOptional.get();
+            String previousName = user.getName();
+            String previousEmail = user.getEmail();
+            int previousAge = user.getAge();
             User updatedUser = user.updateUser(userDTORequest);
             userRepository.save(updatedUser);
+            UserEvent event = UserEvent.updated(updatedUser,previousName,previousEmail,previousAge);
+            if (event.hasChanges()) outboxService.append(new UserEventKafkaMessage(event));
+            emailFilter.put(updatedUser.getEmail());
+            userCache.evictAfterCommit(updatedUser);
             return Optional.of(getDTOFromUser(updatedUser));
         }
         return Optional.empty();
@@ -0,0 +1,14 @@
+package ru.aston.UserServiceAPI.Utils;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+//Максимальное число SQL запросов за тест, проверяется QueryBudgetExtension
+@Target (ElementType.METHOD)
+@Retention (RetentionPolicy.RUNTIME)
+public @interface QueryBudget {
+
+    int value();
+}
@@ -0,0 +1,52 @@
+package ru.aston.UserServiceAPI.Utils;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.opentest4j.AssertionFailedError;
+import ru.aston.UserServiceAPI.datasource.QueryStatistics;
+
+import java.util.stream.Collectors;
+
+/*
+Открывает область подсчета запросов на время каждого теста с @QueryBudget.
+MockMvc выполняет запрос в потоке теста, поэтому область фильтра вкладывается в область теста
+и после теста в ней лежат все запросы, сделанные контроллером.
+*/
+public class QueryBudgetExtension implements BeforeEachCallback, AfterEachCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(QueryBudgetExtension.class);
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        if (budget(context) == null) return;
+        context
+                .getStore(NAMESPACE)
+                .put(context.getUniqueId(),QueryStatistics.start(context.getDisplayName(),Integer.MAX_VALUE));
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        QueryBudget budget = budget(context);
+        QueryStatistics statistics = context
+                .getStore(NAMESPACE)
+                .remove(context.getUniqueId(),QueryStatistics.class);
+        if (budget == null || statistics == null) return;
+        statistics.close();
+        if (statistics.getStatements() > budget.value()) {
+            throw new AssertionFailedError("Expected at most " + budget.value() + " SQL statements, but " + statistics.getStatements() + " were executed:\n" + statistics
+                    .getQueries()
+                    .entrySet()
+                    .stream()
+                    .map(entry -> "  " + entry.getValue() + " x " + entry.getKey())
+                    .collect(Collectors.joining("\n")));
+        }
+    }
+
+    private QueryBudget budget(ExtensionContext context) {
+        return context
+                .getTestMethod()
+                .map(method -> method.getAnnotation(QueryBudget.class))
+                .orElse(null);
+    }
+}
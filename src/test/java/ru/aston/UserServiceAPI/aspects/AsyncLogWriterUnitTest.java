@@ -0,0 +1,216 @@
+package ru.aston.UserServiceAPI.aspects;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncLogWriterUnitTest {
+
+    Logger logger;
+    RecordingAppender appender;
+    AsyncLogWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        logger = (Logger) LoggerFactory.getLogger("async-log-writer-test");
+        logger.setLevel(Level.INFO);
+        logger.setAdditive(false);
+        appender = new RecordingAppender();
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        appender.release.countDown();
+        if (writer != null) writer.close();
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    void eventsShouldBeDroppedAndCountedWhenBufferIsFull() throws Exception {
+        writer = new AsyncLogWriter(4,100);
+        appender.block();
+        assertTrue(writer.publish(AsyncLogWriter.Kind.INVOKED,logger,"first","",null,null,0));
+        assertTrue(appender.entered.await(5,TimeUnit.SECONDS));
+
+        int published = 0;
+        for (int i = 0;i < 10;i++) {
+            if (writer.publish(AsyncLogWriter.Kind.INVOKED,logger,"m" + i,"",null,null,0)) published++;
+        }
+
+        //Слот события, которое сейчас пишется, освобождается только после записи
+        assertEquals(3,published);
+        assertEquals(7,writer.getDropped());
+        appender.release.countDown();
+        writer.close();
+        assertEquals(4,appender
+                .messages()
+                .size());
+    }
+
+    @Test
+    void longValuesShouldBeTruncated() {
+        writer = new AsyncLogWriter(4,10);
+
+        String rendered = writer.render("x".repeat(100));
+        String collection = writer.render(Collections.nCopies(100,"item"));
+        String args = writer.renderArgs(new Object[]{"y".repeat(100),null});
+
+        assertEquals("x".repeat(10) + "...(truncated)",rendered);
+        assertTrue(collection.startsWith("[item, item"));
+        assertTrue(collection.endsWith("more]"));
+        assertTrue(collection.length() < 40);
+        assertEquals("String " + "y".repeat(10) + "...(truncated) | null | ",args);
+    }
+
+    @Test
+    void eventsOfOneProducerShouldKeepOrder() throws Exception {
+        writer = new AsyncLogWriter(1024,100);
+        int producers = 4;
+        int events = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        for (int p = 0;p < producers;p++) {
+            String producer = "p" + p;
+            executor.execute(() -> {
+                for (int i = 0;i < events;i++) {
+                    //Буфер может заполниться, отброшенное событие повторяем, чтобы проверить именно порядок
+                    while (! writer.publish(AsyncLogWriter.Kind.INVOKED,logger,producer,String.valueOf(i),null,null,0)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30,TimeUnit.SECONDS));
+        writer.close();
+
+        Map<String, Integer> last = new HashMap<>();
+        for (ILoggingEvent event : appender.events()) {
+            String producer = (String) event.getArgumentArray()[0];
+            int value = Integer.parseInt((String) event.getArgumentArray()[1]);
+            assertEquals(last.getOrDefault(producer,- 1) + 1,value,"Events of " + producer + " are out of order");
+            last.put(producer,value);
+        }
+        assertEquals(producers,last.size());
+        last.values()
+                .forEach(value -> assertEquals(events - 1,value));
+    }
+
+    @Test
+    void closeShouldDrainBufferedEvents() throws Exception {
+        writer = new AsyncLogWriter(64,100);
+        appender.block();
+        writer.publish(AsyncLogWriter.Kind.CALL,logger,"first","args","result",null,0);
+        assertTrue(appender.entered.await(5,TimeUnit.SECONDS));
+        for (int i = 0;i < 20;i++) {
+            assertTrue(writer.publish(AsyncLogWriter.Kind.CALL,logger,"m" + i,"args","result",null,0));
+        }
+
+        appender.release.countDown();
+        writer.close();
+
+        assertEquals(21,appender
+                .messages()
+                .size());
+        assertEquals("Transactional method m19() finished in 0 ms. Method args: args. Result: result.",appender
+                .messages()
+                .get(20));
+    }
+
+    @Test
+    void idleWriterShouldParkUntilNextEvent() throws Exception {
+        writer = new AsyncLogWriter(64,100);
+        Thread thread = writerThread();
+        for (int round = 0;round < 3;round++) {
+            awaitState(thread,Thread.State.WAITING);
+            assertTrue(writer.publish(AsyncLogWriter.Kind.INVOKED,logger,"m" + round,"",null,null,0));
+            awaitMessages(round + 1);
+        }
+        writer.close();
+        assertFalse(thread.isAlive());
+    }
+
+    private Thread writerThread() {
+        return Thread
+                .getAllStackTraces()
+                .keySet()
+                .stream()
+                .filter(thread -> thread.getName().equals("async-log-writer") && thread.isAlive())
+                .findFirst()
+                .orElseThrow();
+    }
+
+    //Без событий писатель спит без таймаута, а не просыпается по расписанию
+    private static void awaitState(Thread thread,Thread.State state) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != state) {
+            assertTrue(System.nanoTime() < deadline,"Writer thread is " + thread.getState());
+            Thread.sleep(1);
+        }
+    }
+
+    private void awaitMessages(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (appender.messages().size() < count) {
+            assertTrue(System.nanoTime() < deadline,"Event was not written");
+            Thread.sleep(1);
+        }
+    }
+
+    static class RecordingAppender extends AppenderBase<ILoggingEvent> {
+
+        private final List<ILoggingEvent> events = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile boolean blocking;
+
+        void block() {
+            blocking = true;
+        }
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            events.add(event);
+            entered.countDown();
+            if (! blocking) return;
+            try {
+                release.await(10,TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread
+                        .currentThread()
+                        .interrupt();
+            }
+        }
+
+        List<ILoggingEvent> events() {
+            synchronized (events) {
+                return new ArrayList<>(events);
+            }
+        }
+
+        List<String> messages() {
+            return events()
+                    .stream()
+                    .map(ILoggingEvent::getFormattedMessage)
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package ru.aston.UserServiceAPI.benchmarks;
+
+import ch.qos.logback.classic.Level;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.MapPropertySource;
+import ru.aston.UserServiceAPI.configs.AspectConfig;
+import ru.aston.UserServiceAPI.dtos.UserDTOResponse;
+import ru.aston.UserServiceAPI.repos.UserRepository;
+import ru.aston.UserServiceAPI.services.UserServiceImpl;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/*
+Накладной расход аспектов на вызов @Transactional метода сервиса и время поднятия контекста с аспектами.
+Один и тот же бенчмарк запускается в обычной сборке (Spring AOP прокси) и в сборке с профилем ctw
+(аспекты вплетены ajc), команды для сравнения - в pom.xml у профиля ctw.
+Репозиторий заглушен, транзакций в контексте нет, так что мерится только путь через аспект.
+*/
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.NANOSECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+@State (Scope.Benchmark)
+public class AspectWeavingBenchmark {
+
+    @Param ({"1.0", "0.0"})
+    public String sampleRate;
+
+    private AnnotationConfigApplicationContext context;
+    private UserServiceImpl userService;
+
+    @Setup
+    public void setUp() {
+        ch.qos.logback.classic.Logger logger = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(UserServiceImpl.class);
+        logger.setLevel(Level.INFO);
+        logger.setAdditive(false);
+        System.out.println("Aspects: " + (AspectConfig.isWoven() ? "compile-time woven" : "Spring AOP proxies"));
+        context = startContext();
+        userService = context.getBean(UserServiceImpl.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<UserDTOResponse> call() {
+        return userService.deleteUserById(1L);
+    }
+
+    @Benchmark
+    @BenchmarkMode (Mode.SingleShotTime)
+    @OutputTimeUnit (TimeUnit.MILLISECONDS)
+    @Warmup (iterations = 10)
+    @Measurement (iterations = 30)
+    public void startup() {
+        startContext().close();
+    }
+
+    private AnnotationConfigApplicationContext startContext() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context
+                .getEnvironment()
+                .getPropertySources()
+                .addFirst(new MapPropertySource("benchmark",Map.of("user.logging.sample-rate",sampleRate)));
+        context.register(BenchmarkContext.class);
+        context.refresh();
+        return context;
+    }
+
+    //Без @Configuration: класс лежит в пакете приложения и иначе попадает в сканирование @SpringBootTest контекстов
+    @EnableAspectJAutoProxy (proxyTargetClass = true)
+    @Import (AspectConfig.class)
+    static class BenchmarkContext {
+
+        @Bean
+        public UserRepository userRepository() {
+            return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),new Class<?>[]{UserRepository.class},(proxy,method,args) -> switch (method.getName()) {
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "toString" -> "UserRepositoryStub";
+                default -> method.getReturnType() == Optional.class ? Optional.empty() : null;
+            });
+        }
+
+        @Bean
+        public UserServiceImpl userService(UserRepository userRepository) {
+            return new UserServiceImpl(userRepository,null,null,null,null,null,null);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package ru.aston.UserServiceAPI.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/*
+Запускает все бенчмарки пакета, пишет результат в JSON и сравнивает его с сохраненным базовым.
+Если базового файла нет или передан benchmark.update-baseline=true, результат становится новым базовым:
+записи запущенных бенчмарков заменяются, остальные остаются, поэтому базовый можно обновлять частями.
+Процесс завершается с кодом 1, если хоть один бенчмарк стал хуже базового больше чем на benchmark.threshold.
+*/
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        Path result = Path.of(System.getProperty("benchmark.result","target/jmh-result.json"));
+        Path baseline = Path.of(System.getProperty("benchmark.baseline","benchmarks/baseline.json"));
+        double threshold = Double.parseDouble(System.getProperty("benchmark.threshold","0.10"));
+        String include = System.getProperty("benchmark.include","");
+        boolean updateBaseline = Boolean.parseBoolean(System.getProperty("benchmark.update-baseline","false"));
+
+        Files.createDirectories(result.toAbsolutePath().getParent());
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(BenchmarkRunner.class.getPackageName() + "." + (include.isBlank() ? ".*" : include))
+                .addProfiler("gc")
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.toString());
+        new Runner(options.build()).run();
+
+        if (updateBaseline || ! Files.exists(baseline)) {
+            Files.createDirectories(baseline.toAbsolutePath().getParent());
+            Map<String, JsonNode> merged = Files.exists(baseline) ? read(baseline) : new TreeMap<>();
+            merged.putAll(read(result));
+            new ObjectMapper()
+                    .writerWithDefaultPrettyPrinter()
+                    .writeValue(baseline.toFile(),merged.values());
+            System.out.println("Baseline written to " + baseline);
+            return;
+        }
+        Map<String, JsonNode> before = read(baseline);
+        Map<String, JsonNode> after = read(result);
+        System.out.println("Changes against " + baseline + ":");
+        compare(before,after,Double.NEGATIVE_INFINITY).forEach(System.out::println);
+        List<String> regressions = compare(before,after,threshold);
+        if (! regressions.isEmpty()) {
+            System.err.println("Benchmarks regressed more than " + Math.round(threshold * 100) + "%:");
+            regressions.forEach(System.err::println);
+            System.exit(1);
+        }
+        System.out.println("No regressions against " + baseline);
+    }
+
+    static List<String> compare(Map<String, JsonNode> baseline,Map<String, JsonNode> current,double threshold) {
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) continue;
+            double was = before
+                    .path("primaryMetric")
+                    .path("score")
+                    .asDouble();
+            double now = entry
+                    .getValue()
+                    .path("primaryMetric")
+                    .path("score")
+                    .asDouble();
+            if (was == 0) continue;
+            //Для throughput больше значит лучше, для остальных режимов наоборот
+            boolean higherIsBetter = "thrpt".equals(entry
+                    .getValue()
+                    .path("mode")
+                    .asText());
+            double change = higherIsBetter ? (was - now) / was : (now - was) / was;
+            if (change > threshold) {
+                regressions.add(String.format(Locale.ROOT,"  %s: %.3f -> %.3f %s (%+.1f%%)",entry.getKey(),was,now,entry
+                        .getValue()
+                        .path("primaryMetric")
+                        .path("scoreUnit")
+                        .asText(),change * 100));
+            }
+        }
+        return regressions;
+    }
+
+    static Map<String, JsonNode> read(Path path) throws IOException {
+        Map<String, JsonNode> results = new TreeMap<>();
+        for (JsonNode node : new ObjectMapper().readTree(path.toFile())) {
+            String key = node
+                    .path("benchmark")
+                    .asText();
+            if (node.has("params")) key += node
+                    .path("params")
+                    .toString();
+            results.put(key,node);
+        }
+        return results;
+    }
+}
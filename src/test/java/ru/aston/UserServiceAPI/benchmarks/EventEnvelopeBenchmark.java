@@ -0,0 +1,111 @@
+package ru.aston.UserServiceAPI.benchmarks;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.SimpleAsyncTaskScheduler;
+import ru.aston.UserServiceAPI.entitys.OutboxEvent;
+import ru.aston.UserServiceAPI.kafka.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/*
+Публикация пачки outbox из 500 событий, как ее делает OutboxRelay: по записи на событие через sendAll
+или конвертами через UserEventAggregator. Брокер заменен MockProducer с кластером из 6 партиций:
+он сериализует записи, выбирает партицию и сразу подтверждает отправку, так что мерится расход продюсера
+на запись. Число записей на пачку печатается при старте.
+*/
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (TimeUnit.SECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+@State (Scope.Benchmark)
+public class EventEnvelopeBenchmark {
+
+    private static final int BATCH = 500;
+    private static final int PARTITIONS = 6;
+
+    @Param ({"false", "true"})
+    public boolean envelopes;
+
+    private MockProducer<String, byte[]> producer;
+    private ProducerExecutor executor;
+    private ProducerService producerService;
+    private UserEventAggregator aggregator;
+    private List<OutboxEvent> events;
+
+    @Setup
+    public void setUp() {
+        Node node = new Node(0,"localhost",9092);
+        List<PartitionInfo> partitions = IntStream
+                .range(0,PARTITIONS)
+                .mapToObj(i -> new PartitionInfo("notifications",i,node,new Node[]{node},new Node[]{node}))
+                .toList();
+        producer = new MockProducer<>(new Cluster("benchmark",List.of(node),partitions,Set.of(),Set.of()),true,new StringSerializer(),new ByteArraySerializer()) {
+            @Override
+            public void close(Duration timeout) {
+            }
+        };
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        executor = new ProducerExecutor(new ProducerExecutorProperties(),beanFactory.getBeanProvider(MeterRegistry.class));
+        producerService = new ProducerService(new KafkaTemplate<>(() -> producer),"notifications",executor,beanFactory.getBeanProvider(OutboxService.class),beanFactory.getBeanProvider(KafkaSpool.class));
+        TaskScheduler scheduler = new SimpleAsyncTaskScheduler();
+        aggregator = new UserEventAggregator(producerService,new EnvelopeProperties(),scheduler,beanFactory.getBeanProvider(MeterRegistry.class));
+        events = new ArrayList<>(BATCH);
+        for (long id = 0;id < BATCH;id++) {
+            UserEvent event = new UserEvent(UserEvent.Type.CREATED,id,0,"Somename","someemail" + id + "@gmail.com",30,Instant.now());
+            events.add(new OutboxEvent(String.valueOf(id),UserEventSerializer.encode(event)));
+        }
+        send();
+        System.out.println("Kafka records per " + BATCH + " events: " + producer
+                .history()
+                .size());
+        producer.clear();
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.close();
+    }
+
+    //MockProducer хранит историю отправок, она чистится на каждой пачке, чтобы не расти в памяти
+    @Benchmark
+    @OperationsPerInvocation (BATCH)
+    public void publish() {
+        send();
+        producer.clear();
+    }
+
+    private void send() {
+        if (! envelopes) {
+            producerService
+                    .sendAll(events)
+                    .join();
+            return;
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>(BATCH);
+        for (OutboxEvent event : events) {
+            futures.add(aggregator.add(event.getEventKey(),event.getPayload()));
+        }
+        aggregator.flush();
+        CompletableFuture
+                .allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .join();
+    }
+}
@@ -0,0 +1,52 @@
+package ru.aston.UserServiceAPI.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindingResult;
+import ru.aston.UserServiceAPI.Utils.ErrorMessageConverter;
+import ru.aston.UserServiceAPI.Utils.GlobalExceptionHandler;
+import ru.aston.UserServiceAPI.Utils.NotValidUserException;
+import ru.aston.UserServiceAPI.Utils.UserNotFoundException;
+import ru.aston.UserServiceAPI.dtos.UserDTORequest;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+Мерится путь ошибки целиком: создание исключения вместе со стектрейсом и ответ обработчика.
+*/
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.NANOSECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+@State (Scope.Benchmark)
+public class ExceptionHandlerBenchmark {
+
+    private GlobalExceptionHandler handler;
+    private BindingResult bindingResult;
+
+    @Setup
+    public void setUp() {
+        handler = new GlobalExceptionHandler();
+        UserDTORequest request = new UserDTORequest("s","someemail",10);
+        bindingResult = new BeanPropertyBindingResult(request,"userDTORequest");
+        bindingResult.rejectValue("name",null,"Name should start with upper case letter and should be between 3 and 15 letters.");
+        bindingResult.rejectValue("email",null,"Email should be a valid email.");
+        bindingResult.rejectValue("age",null,"Age should be equals or greater 18 years old.");
+    }
+
+    @Benchmark
+    public GlobalExceptionHandler.ErrorResponse userNotFound() {
+        return handler.handleUserNotFoundException(new UserNotFoundException());
+    }
+
+    @Benchmark
+    public GlobalExceptionHandler.ErrorResponseMap notValidUser() {
+        return handler.handleNotValidUserException(new NotValidUserException(ErrorMessageConverter.convertToMessage(bindingResult)));
+    }
+
+    @Benchmark
+    public GlobalExceptionHandler.ErrorResponse unknownException() {
+        return handler.handleUnknownException(new IllegalStateException("Something went wrong"));
+    }
+}
@@ -0,0 +1,75 @@
+package ru.aston.UserServiceAPI.benchmarks;
+
+import ch.qos.logback.classic.Level;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.transaction.annotation.Transactional;
+import ru.aston.UserServiceAPI.aspects.LoggingAspect;
+import ru.aston.UserServiceAPI.aspects.LoggingProperties;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+Накладной расход around-совета LoggingAspect на @Transactional методах. У логгера цели нет аппендеров,
+чтобы в замер не попадал вывод в консоль: при sampleRate=1 остается публикация события в буфер,
+при sampleRate=0 только решение о пропуске и вызов через прокси.
+*/
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.NANOSECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+@State (Scope.Benchmark)
+public class LoggingAspectBenchmark {
+
+    @Param ({"test", "default"})
+    public String profile;
+    @Param ({"1.0", "0.0"})
+    public double sampleRate;
+
+    private TransactionalTarget target;
+    private TransactionalTarget advised;
+    private LoggingAspect aspect;
+
+    @Setup
+    public void setUp() {
+        ch.qos.logback.classic.Logger logger = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(TransactionalTarget.class);
+        logger.setLevel(Level.INFO);
+        logger.setAdditive(false);
+        LoggingProperties properties = new LoggingProperties();
+        properties.setSampleRate(sampleRate);
+        MockEnvironment environment = new MockEnvironment();
+        environment.setActiveProfiles(profile);
+        aspect = new LoggingAspect(environment,properties);
+        target = new TransactionalTarget();
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        advised = factory.getProxy();
+    }
+
+    @TearDown
+    public void tearDown() {
+        aspect.close();
+    }
+
+    @Benchmark
+    public Long direct() {
+        return target.find(1L);
+    }
+
+    @Benchmark
+    public Long advised() {
+        return advised.find(1L);
+    }
+
+    public static class TransactionalTarget {
+
+        @Transactional (readOnly = true)
+        public Long find(Long id) {
+            return id;
+        }
+    }
+}
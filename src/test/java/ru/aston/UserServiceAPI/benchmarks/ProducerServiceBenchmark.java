@@ -0,0 +1,109 @@
+package ru.aston.UserServiceAPI.benchmarks;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import ru.aston.UserServiceAPI.kafka.KafkaSpool;
+import ru.aston.UserServiceAPI.kafka.OutboxService;
+import ru.aston.UserServiceAPI.kafka.ProducerExecutor;
+import ru.aston.UserServiceAPI.kafka.ProducerExecutorProperties;
+import ru.aston.UserServiceAPI.kafka.ProducerService;
+import ru.aston.UserServiceAPI.kafka.UserEvent;
+import ru.aston.UserServiceAPI.kafka.UserEventKafkaMessage;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+KafkaTemplate заглушен, поэтому мерится только накладной расход сервиса: сообщение, передача в очередь
+ProducerExecutor, блокировка и вызов шаблона в потоке пула. Очередь маленькая, чтобы при сравнении
+политик переполнения она действительно переполнялась. С swapping=true отдельный поток каждую
+миллисекунду подменяет шаблон и топик, пропускная способность должна совпадать с вариантом без подмен.
+Шаблоны для подмен создаются заранее: KafkaTemplate со своей фабрикой, собранный в потоке подмен
+каждую миллисекунду, сам по себе отнимал у отправки около 20% времени, и замер показывал стоимость
+конструктора, а не подмены. Заглушка не держит продюсера, поэтому закрытый при подмене шаблон
+можно вернуть следующей подменой.
+*/
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.NANOSECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+@State (Scope.Benchmark)
+public class ProducerServiceBenchmark {
+
+    private static final UserEvent EVENT = new UserEvent(UserEvent.Type.CREATED,1L,0L,"Somename","someemail@gmail.com",30,Instant.now());
+
+    @Param ({"BLOCK", "DROP_OLDEST"})
+    public ProducerExecutor.OverflowPolicy overflowPolicy;
+
+    @Param ({"false", "true"})
+    public boolean swapping;
+
+    private ProducerExecutor executor;
+    private ProducerService producerService;
+    private volatile boolean running;
+    private Thread swapper;
+
+    @Setup
+    public void setUp() {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        ProducerExecutorProperties properties = new ProducerExecutorProperties();
+        properties.setQueueCapacity(1024);
+        properties.setOverflowPolicy(overflowPolicy);
+        executor = new ProducerExecutor(properties,beanFactory.getBeanProvider(MeterRegistry.class));
+        producerService = new ProducerService(new StubKafkaTemplate(),"notifications",executor,beanFactory.getBeanProvider(OutboxService.class),beanFactory.getBeanProvider(KafkaSpool.class));
+        if (! swapping) return;
+        running = true;
+        StubKafkaTemplate[] templates = {new StubKafkaTemplate(),new StubKafkaTemplate()};
+        swapper = new Thread(() -> {
+            int generation = 0;
+            while (running) {
+                int next = generation++ % 2;
+                producerService.setKafkaTemplateOrTopic(templates[next],"notifications" + next);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        });
+        swapper.setDaemon(true);
+        swapper.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        running = false;
+        if (swapper != null) swapper.join();
+        executor.close();
+    }
+
+    @Benchmark
+    @Threads (1)
+    public void sendSingleThread() {
+        producerService.send(new UserEventKafkaMessage(EVENT));
+    }
+
+    @Benchmark
+    @Threads (4)
+    public void sendContended() {
+        producerService.send(new UserEventKafkaMessage(EVENT));
+    }
+
+    static class StubKafkaTemplate extends KafkaTemplate<String, byte[]> {
+
+        private static final CompletableFuture<SendResult<String, byte[]>> SENT = CompletableFuture.completedFuture(null);
+
+        StubKafkaTemplate() {
+            super(new DefaultKafkaProducerFactory<>(Map.of()));
+        }
+
+        @Override
+        public CompletableFuture<SendResult<String, byte[]>> send(String topic,String key,byte[] data) {
+            return SENT;
+        }
+    }
+}
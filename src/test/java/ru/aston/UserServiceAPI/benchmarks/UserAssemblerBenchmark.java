@@ -0,0 +1,104 @@
+package ru.aston.UserServiceAPI.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import ru.aston.UserServiceAPI.controllers.UserControllerImpl;
+import ru.aston.UserServiceAPI.dtos.UserDTOResponse;
+import ru.aston.UserServiceAPI.hateoas.UserAssembler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.*;
+
+/*
+Сборка HAL-FORMS модели страницы пользователей: UserAssembler с предвычисленными шаблонами ссылок
+и linkToPerUser, прежний вариант с linkTo(methodOn(...)) на каждую ссылку каждого пользователя.
+Аллокации на вызов показывает gc.alloc.rate.norm профайлера gc, BenchmarkRunner включает его сам:
+mvn -Pbenchmark verify -Dbenchmark.include=UserAssemblerBenchmark
+*/
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.NANOSECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+@State (Scope.Thread)
+public class UserAssemblerBenchmark {
+
+    @Param ({"10", "100"})
+    public int rows;
+
+    private UserAssembler assembler;
+    private UserDTOResponse user;
+    private List<UserDTOResponse> page;
+
+    @Setup
+    public void setUp() {
+        //Ссылки строятся от текущего запроса, как в контроллере
+        MockHttpServletRequest request = new MockHttpServletRequest("GET","/user/all");
+        request.setServerName("localhost");
+        request.setServerPort(8080);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        assembler = new UserAssembler();
+        user = dto(1);
+        page = new ArrayList<>();
+        for (int i = 0;i < rows;i++) {
+            page.add(dto(i));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public EntityModel<UserDTOResponse> toModel() {
+        return assembler.toModel(user);
+    }
+
+    @Benchmark
+    public CollectionModel<EntityModel<UserDTOResponse>> toCollectionModel() {
+        return assembler.toCollectionModel(page);
+    }
+
+    @Benchmark
+    public CollectionModel<EntityModel<UserDTOResponse>> linkToPerUser() {
+        List<EntityModel<UserDTOResponse>> models = new ArrayList<>(page.size());
+        for (UserDTOResponse dto : page) {
+            models.add(EntityModel
+                    .of(dto)
+                    .add(linkTo(methodOn(UserControllerImpl.class)
+                            .getUser(dto.getId(),null,null))
+                            .withSelfRel()
+                            .expand())
+                    .add(linkTo(methodOn(UserControllerImpl.class)
+                            .deleteUser(dto.getId()))
+                            .withRel("Delete this user")
+                            .withType("DELETE"))
+                    .add(linkTo(methodOn(UserControllerImpl.class)
+                            .updateUser(dto.getId(),null,null))
+                            .withRel("Update this user")
+                            .withType("PUT")));
+        }
+        return CollectionModel
+                .of(models)
+                .add(linkTo(methodOn(UserControllerImpl.class)
+                        .getAllUsers(null,null,null))
+                        .withSelfRel()
+                        .withType("GET")
+                        .andAffordance(afford(methodOn(UserControllerImpl.class)
+                                .createUser(null,null))));
+    }
+
+    private static UserDTOResponse dto(long id) {
+        UserDTOResponse dto = new UserDTOResponse("Somename","someemail" + id + "@gmail.com",30);
+        dto.setId(id);
+        return dto;
+    }
+}
@@ -0,0 +1,79 @@
+package ru.aston.UserServiceAPI.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.aston.UserServiceAPI.kafka.UserEvent;
+import ru.aston.UserServiceAPI.kafka.UserEventDeserializer;
+import ru.aston.UserServiceAPI.kafka.UserEventSerializer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/*
+Кодирование и разбор события о создании пользователя в бинарном формате UserEventSerializer, в JSON
+и в старом строковом формате (ключ email, значение "created"). Строковый формат не несет снимка пользователя,
+он здесь как нижняя граница. Размеры сообщений печатаются при старте.
+*/
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.NANOSECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+@State (Scope.Benchmark)
+public class UserEventFormatBenchmark {
+
+    private ObjectMapper objectMapper;
+    private UserEventSerializer serializer;
+    private UserEventDeserializer deserializer;
+    private UserEvent event;
+    private byte[] binary;
+    private byte[] json;
+    private byte[] string;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder
+                .json()
+                .build();
+        serializer = new UserEventSerializer();
+        deserializer = new UserEventDeserializer();
+        event = new UserEvent(UserEvent.Type.CREATED,123456L,0L,"Somename","someemail@gmail.com",30,Instant.now());
+        binary = encodeBinary();
+        json = encodeJson();
+        string = encodeString();
+        System.out.println("Message size, bytes: binary " + binary.length + ", json " + json.length + ", string " + string.length);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return serializer.serialize("notifications",event);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws IOException {
+        return objectMapper.writeValueAsBytes(event);
+    }
+
+    @Benchmark
+    public byte[] encodeString() {
+        return "created".getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public UserEvent decodeBinary() {
+        return deserializer.deserialize("notifications",binary);
+    }
+
+    @Benchmark
+    public UserEvent decodeJson() throws IOException {
+        return objectMapper.readValue(json,UserEvent.class);
+    }
+
+    @Benchmark
+    public String decodeString() {
+        return new String(string,StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,91 @@
+package ru.aston.UserServiceAPI.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.aston.UserServiceAPI.dtos.UserDTORequest;
+import ru.aston.UserServiceAPI.dtos.UserDTOResponse;
+import ru.aston.UserServiceAPI.entitys.User;
+import ru.aston.UserServiceAPI.mappers.UserMapper;
+import ru.aston.UserServiceAPI.mappers.UserMapperImpl;
+import ru.aston.UserServiceAPI.services.UserServiceImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+Сравнение ObjectMapper.convertValue, которым маппинг делался раньше, со сгенерированным UserMapper.
+Размер списка совпадает с размером страницы по умолчанию.
+*/
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.NANOSECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+@State (Scope.Benchmark)
+public class UserMappingBenchmark {
+
+    private ObjectMapper objectMapper;
+    private UserMapper userMapper;
+    private UserServiceImpl userService;
+    private UserDTORequest request;
+    private User user;
+    private List<User> page;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder
+                .json()
+                .build();
+        userMapper = new UserMapperImpl();
+        userService = new UserServiceImpl(null,userMapper,null,null,null,null,null);
+        request = new UserDTORequest("Somename","someemail@gmail.com",30);
+        user = new User("Somename","someemail@gmail.com",30);
+        user.setId(1L);
+        page = new ArrayList<>();
+        for (int i = 0;i < 10;i++) {
+            User pageUser = new User("Somename","someemail" + i + "@gmail.com",30);
+            pageUser.setId((long) i);
+            page.add(pageUser);
+        }
+    }
+
+    @Benchmark
+    public UserDTOResponse toDTOConvertValue() {
+        return objectMapper.convertValue(user,UserDTOResponse.class);
+    }
+
+    @Benchmark
+    public UserDTOResponse toDTOMapper() {
+        return userMapper.toDTO(user);
+    }
+
+    @Benchmark
+    public UserDTOResponse toDTOService() {
+        return userService.getDTOFromUser(user);
+    }
+
+    @Benchmark
+    public User toUserConvertValue() {
+        return objectMapper.convertValue(request,User.class);
+    }
+
+    @Benchmark
+    public User toUserMapper() {
+        return userMapper.toUser(request);
+    }
+
+    @Benchmark
+    public List<UserDTOResponse> pageConvertValue() {
+        return page
+                .stream()
+                .map(pageUser -> objectMapper.convertValue(pageUser,UserDTOResponse.class))
+                .toList();
+    }
+
+    @Benchmark
+    public List<UserDTOResponse> pageMapper() {
+        return userMapper.toDTOList(page);
+    }
+}
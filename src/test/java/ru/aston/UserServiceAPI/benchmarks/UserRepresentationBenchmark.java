@@ -0,0 +1,135 @@
+package ru.aston.UserServiceAPI.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.config.EnableHypermediaSupport;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import ru.aston.UserServiceAPI.dtos.UserDTOResponse;
+import ru.aston.UserServiceAPI.hateoas.UserAssembler;
+import ru.aston.UserServiceAPI.hateoas.UserRepresentationAdvice;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+Ответ getUser и страницы getAllUsers из 100 пользователей в каждом формате: сборка модели UserAssembler,
+UserRepresentationAdvice и запись тем конвертером, который выбрал бы Spring MVC с поддержкой HAL-FORMS.
+Размер ответа в байтах печатается при старте:
+mvn -Pbenchmark verify -Dbenchmark.include=UserRepresentationBenchmark
+*/
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.NANOSECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+@State (Scope.Thread)
+public class UserRepresentationBenchmark {
+
+    private static final int ROWS = 100;
+
+    @Param ({MediaTypes.HAL_FORMS_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, UserRepresentationAdvice.SMILE_VALUE})
+    public String format;
+
+    @Param ({"", "id,email"})
+    public String fields;
+
+    private AnnotationConfigWebApplicationContext context;
+    private MediaType mediaType;
+    private ServletServerHttpRequest request;
+    private UserAssembler assembler;
+    private UserRepresentationAdvice advice;
+    private List<HttpMessageConverter<?>> converters;
+    private UserDTOResponse user;
+    private List<UserDTOResponse> page;
+
+    @Setup
+    public void setUp() throws IOException {
+        context = new AnnotationConfigWebApplicationContext();
+        context.setServletContext(new MockServletContext());
+        context.register(MvcContext.class);
+        context.refresh();
+        converters = context
+                .getBean(RequestMappingHandlerAdapter.class)
+                .getMessageConverters();
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("GET","/user");
+        servletRequest.setServerName("localhost");
+        servletRequest.setServerPort(8080);
+        if (! fields.isEmpty()) servletRequest.addParameter(UserRepresentationAdvice.FIELDS,fields);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(servletRequest));
+        request = new ServletServerHttpRequest(servletRequest);
+        mediaType = MediaType.parseMediaType(format);
+        assembler = new UserAssembler();
+        advice = new UserRepresentationAdvice();
+        user = dto(1);
+        page = new ArrayList<>(ROWS);
+        for (int i = 0;i < ROWS;i++) {
+            page.add(dto(i));
+        }
+        System.out.println(format + " fields=" + fields + ": user " + user().getBodyAsBytes().length + " bytes, page of " + ROWS + " " + page().getBodyAsBytes().length + " bytes");
+    }
+
+    @TearDown
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        context.close();
+    }
+
+    @Benchmark
+    public MockHttpOutputMessage user() throws IOException {
+        return write(assembler.toModel(user));
+    }
+
+    @Benchmark
+    public MockHttpOutputMessage page() throws IOException {
+        return write(assembler.toCollectionModel(page));
+    }
+
+    /*
+    Конвертер выбирается по исходному типу модели, как в AbstractMessageConverterMethodProcessor.
+    application/json для моделей в приложении пишет HAL конвертер (spring.hateoas.use-hal-as-default-json-media-type),
+    здесь его нет, и голое тело пишет обычный Jackson конвертер
+    */
+    @SuppressWarnings ("unchecked")
+    private MockHttpOutputMessage write(Object model) throws IOException {
+        Object body = advice.beforeBodyWrite(model,null,mediaType,null,request,null);
+        HttpMessageConverter<Object> converter = converter(model.getClass());
+        if (converter == null) converter = converter(body.getClass());
+        if (converter == null) throw new IllegalStateException("No converter for " + mediaType);
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(body,mediaType,message);
+        return message;
+    }
+
+    @SuppressWarnings ("unchecked")
+    private HttpMessageConverter<Object> converter(Class<?> type) {
+        for (HttpMessageConverter<?> converter : converters) {
+            if (converter.canWrite(type,mediaType)) return (HttpMessageConverter<Object>) converter;
+        }
+        return null;
+    }
+
+    private static UserDTOResponse dto(long id) {
+        UserDTOResponse dto = new UserDTOResponse("Somename","someemail" + id + "@gmail.com",30);
+        dto.setId(id);
+        return dto;
+    }
+
+    @Configuration
+    @EnableWebMvc
+    @EnableHypermediaSupport (type = EnableHypermediaSupport.HypermediaType.HAL_FORMS)
+    static class MvcContext {
+    }
+}
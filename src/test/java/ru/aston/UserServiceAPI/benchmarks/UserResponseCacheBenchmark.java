@@ -0,0 +1,87 @@
+package ru.aston.UserServiceAPI.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.core.EvoInflectorLinkRelationProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import ru.aston.UserServiceAPI.cache.UserResponseCache;
+import ru.aston.UserServiceAPI.cache.UserResponseCacheFilter;
+import ru.aston.UserServiceAPI.cache.UserResponseCacheProperties;
+import ru.aston.UserServiceAPI.dtos.UserDTOResponse;
+import ru.aston.UserServiceAPI.hateoas.UserAssembler;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+GET /user?id= после чтения пользователя: render собирает модель UserAssembler и пишет HAL JSON
+через Jackson, как DispatcherServlet, hit отдает те же байты из UserResponseCache через фильтр.
+Чтение из базы и кэш сущностей в обоих случаях не участвуют:
+mvn -Pbenchmark verify -Dbenchmark.include=UserResponseCacheBenchmark
+*/
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.NANOSECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+@State (Scope.Thread)
+public class UserResponseCacheBenchmark {
+
+    @Param ({"identity", "gzip"})
+    public String encoding;
+
+    private MockHttpServletRequest request;
+    private UserResponseCacheFilter filter;
+    private FilterChain render;
+
+    @Setup
+    public void setUp() throws Exception {
+        request = new MockHttpServletRequest("GET","/user");
+        request.setServerName("localhost");
+        request.setServerPort(8080);
+        request.addParameter("id","1");
+        request.addHeader(HttpHeaders.ACCEPT,MediaTypes.HAL_JSON_VALUE);
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING,encoding);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new Jackson2HalModule());
+        objectMapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(new EvoInflectorLinkRelationProvider(),CurieProvider.NONE,MessageResolver.DEFAULTS_ONLY));
+        UserAssembler assembler = new UserAssembler();
+        UserDTOResponse user = new UserDTOResponse("Somename","someemail@gmail.com",30);
+        user.setId(1L);
+        render = (servletRequest,servletResponse) -> {
+            servletResponse.setContentType(MediaTypes.HAL_JSON_VALUE);
+            objectMapper.writeValue(servletResponse.getOutputStream(),assembler.toModel(user));
+        };
+        filter = new UserResponseCacheFilter(new UserResponseCache(new UserResponseCacheProperties(),new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class)));
+        filter.doFilter(request,new MockHttpServletResponse(),render);
+    }
+
+    @TearDown
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse render() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        render.doFilter(request,response);
+        return response;
+    }
+
+    @Benchmark
+    public MockHttpServletResponse hit() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request,response,render);
+        return response;
+    }
+}
@@ -0,0 +1,79 @@
+package ru.aston.UserServiceAPI.benchmarks;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindingResult;
+import ru.aston.UserServiceAPI.Utils.UserDTOValidator;
+import ru.aston.UserServiceAPI.cache.EmailBloomFilter;
+import ru.aston.UserServiceAPI.dtos.UserDTORequest;
+import ru.aston.UserServiceAPI.entitys.User;
+import ru.aston.UserServiceAPI.services.UserServiceImpl;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.NANOSECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+@State (Scope.Benchmark)
+public class ValidationBenchmark {
+
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private UserDTOValidator userDTOValidator;
+    private UserDTORequest validRequest;
+    private UserDTORequest invalidRequest;
+    private UserDTORequest existingRequest;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        //Поиск по email без базы, чтобы мерить только сам валидатор, фильтр не загружен и пропускает все email в поиск
+        userDTOValidator = new UserDTOValidator(new UserServiceImpl(null,null,null,null,null,null,null) {
+            @Override
+            public Optional<User> getUserByEmail(String email) {
+                return email.startsWith("existing") ? Optional.of(new User("Somename",email,30)) : Optional.empty();
+            }
+        },new EmailBloomFilter(null,null,1000,0.01));
+        validRequest = new UserDTORequest("Somename","someemail@gmail.com",30);
+        invalidRequest = new UserDTORequest("s","someemail",10);
+        existingRequest = new UserDTORequest("Somename","existing@gmail.com",30);
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<UserDTORequest>> beanValidationValid() {
+        return validator.validate(validRequest);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<UserDTORequest>> beanValidationInvalid() {
+        return validator.validate(invalidRequest);
+    }
+
+    @Benchmark
+    public BindingResult userDTOValidatorValid() {
+        BindingResult bindingResult = new BeanPropertyBindingResult(validRequest,"userDTORequest");
+        userDTOValidator.validate(validRequest,bindingResult);
+        return bindingResult;
+    }
+
+    @Benchmark
+    public BindingResult userDTOValidatorExistingEmail() {
+        BindingResult bindingResult = new BeanPropertyBindingResult(existingRequest,"userDTORequest");
+        userDTOValidator.validate(existingRequest,bindingResult);
+        return bindingResult;
+    }
+}
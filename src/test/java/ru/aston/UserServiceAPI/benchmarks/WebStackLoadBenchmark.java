@@ -0,0 +1,354 @@
+package ru.aston.UserServiceAPI.benchmarks;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.coyote.AbstractProtocol;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.HttpHandler;
+import reactor.core.publisher.Mono;
+import reactor.pool.InstrumentedPool;
+import reactor.pool.PoolBuilder;
+import ru.aston.UserServiceAPI.datasource.ConnectionPoolLimitFilter;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLClassLoader;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/*
+Нагрузочное сравнение стеков обработки запросов: Tomcat на платформенных потоках (200, как по умолчанию),
+на виртуальных потоках, на виртуальных потоках с ConnectionPoolLimitFilter и WebFlux на Netty (профиль reactive).
+Это не JMH бенчмарк, JMH не умеет
+держать тысячи соединений и считать перцентили по запросам, поэтому он не входит в прогон BenchmarkRunner.
+Запрос имитирует обработку в сервисе: ожидание внешней системы без соединения (remote-wait)
+и запрос к базе через пул из pool-size соединений, который ждет соединение до 30 секунд, как Hikari.
+В реактивном режиме то же самое без блокировок: Mono.delay и reactor-pool, на котором построен r2dbc-pool.
+Клиент запускается отдельным процессом: 10000 соединений с обеих сторон в одном процессе
+не влезают в обычный лимит открытых файлов. Каждое из 1000 и 10000 соединений шлет запросы подряд,
+пока не кончится время замера; печатаются успешные запросы в секунду, p50 и p99 успешных запросов
+и доли 503 и прочих ошибок. В середине замера сервер снимает память после полной сборки и RSS процесса
+за вычетом простоя, в пересчете на соединение, и число платформенных потоков. Стеки платформенных потоков
+лежат вне кучи, а стеки ждущих виртуальных потоков в куче, поэтому сравнивать стоит обе колонки. Клиент и сервер делят одну машину, поэтому цифры сравнимы между собой, а не с боевыми.
+mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=ru.aston.UserServiceAPI.benchmarks.WebStackLoadBenchmark
+*/
+public class WebStackLoadBenchmark {
+
+    private static final int POOL_SIZE = Integer.getInteger("load.pool-size",10);
+    private static final Duration QUERY_TIME = Duration.ofMillis(Long.getLong("load.query-ms",1));
+    private static final Duration REMOTE_WAIT = Duration.ofMillis(Long.getLong("load.remote-wait-ms",50));
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("load.warmup-seconds",3));
+    private static final Duration MEASUREMENT = Duration.ofSeconds(Long.getLong("load.measurement-seconds",10));
+    private static final int CONCURRENCY_FACTOR = Integer.getInteger("load.concurrency-factor",20);
+    private static final int[] CONNECTIONS = {1_000, 10_000};
+
+    enum Mode {
+        PLATFORM, VIRTUAL, VIRTUAL_LIMITED, REACTIVE
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && "client".equals(args[0])) {
+            Result result = load(URI.create(args[1]),Integer.parseInt(args[2]));
+            System.out.println(result.throughput() + " " + result.p50Millis() + " " + result.p99Millis() + " " + result.rejectedPercent() + " " + result.failedPercent());
+            return;
+        }
+        List<String> rows = new ArrayList<>();
+        for (int connections : CONNECTIONS) {
+            for (Mode mode : Mode.values()) {
+                Result result = run(mode,connections);
+                String row = String.format(Locale.ROOT,"%-16s %6d %10.0f %9.1f %9.1f %7.1f%% %7.1f%% %9.1f %9.1f %7d",mode,connections,result.throughput(),result.p50Millis(),result.p99Millis(),result.rejectedPercent(),result.failedPercent(),result.heapKbPerConnection(),result.rssKbPerConnection(),result.threads());
+                System.out.println(row);
+                rows.add(row);
+            }
+        }
+        System.out.println();
+        System.out.println("mode             conns    req/s    p50, ms   p99, ms     503   errors  heap, KB   rss, KB threads");
+        System.out.println("                                                                    per conn  per conn");
+        rows.forEach(System.out::println);
+    }
+
+    private static Result run(Mode mode,int connections) throws Exception {
+        WebServer server = mode == Mode.REACTIVE ? reactiveServer() : server(mode);
+        server.start();
+        try {
+            Footprint idle = Footprint.measure();
+            Process client = new ProcessBuilder(javaCommand(),"-Dload.warmup-seconds=" + WARMUP.toSeconds(),"-Dload.measurement-seconds=" + MEASUREMENT.toSeconds(),"-cp",classPath(),WebStackLoadBenchmark.class.getName(),"client","http://localhost:" + server.getPort() + "/api/users/1",String.valueOf(connections))
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            Thread.sleep(WARMUP.plus(MEASUREMENT.dividedBy(2)));
+            Footprint loaded = Footprint.measure();
+            String output = new String(client
+                    .getInputStream()
+                    .readAllBytes(),StandardCharsets.UTF_8).trim();
+            if (client.waitFor() != 0) throw new IllegalStateException("Load client failed with exit code " + client.exitValue());
+            String[] lines = output.split("\\R");
+            double[] values = Arrays
+                    .stream(lines[lines.length - 1].split(" "))
+                    .mapToDouble(Double::parseDouble)
+                    .toArray();
+            return new Result(values[0],values[1],values[2],values[3],values[4],(loaded.heapBytes() - idle.heapBytes()) / 1024.0 / connections,(loaded.rssBytes() - idle.rssBytes()) / 1024.0 / connections,loaded.threads());
+        } finally {
+            server.stop();
+            server.destroy();
+        }
+    }
+
+    private static Result load(URI uri,int connections) throws Exception {
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient
+                    .newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(30))
+                    .executor(clients)
+                    .build();
+            long start = System.nanoTime();
+            long measureFrom = start + WARMUP.toNanos();
+            long deadline = measureFrom + MEASUREMENT.toNanos();
+            List<Future<Connection>> futures = new ArrayList<>(connections);
+            for (int i = 0;i < connections;i++) {
+                futures.add(clients.submit(() -> new Connection().load(client,uri,measureFrom,deadline)));
+            }
+            Connection total = new Connection();
+            for (Future<Connection> future : futures) {
+                total.merge(future.get());
+            }
+            return total.result(MEASUREMENT);
+        }
+    }
+
+    private static String javaCommand() {
+        return Path
+                .of(System.getProperty("java.home"),"bin","java")
+                .toString();
+    }
+
+    //exec:java запускает main в загрузчике классов с тестовым classpath, java.class.path там от самого maven
+    private static String classPath() {
+        if (WebStackLoadBenchmark.class.getClassLoader() instanceof URLClassLoader loader) {
+            return Arrays
+                    .stream(loader.getURLs())
+                    .map(url -> {
+                        try {
+                            return Path
+                                    .of(url.toURI())
+                                    .toString();
+                        } catch (URISyntaxException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    })
+                    .collect(Collectors.joining(File.pathSeparator));
+        }
+        return System.getProperty("java.class.path");
+    }
+
+    private static WebServer server(Mode mode) {
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory(0);
+        factory.addProtocolHandlerCustomizers(handler -> {
+            if (handler instanceof AbstractProtocol<?> protocol) {
+                protocol.setMaxConnections(CONNECTIONS[CONNECTIONS.length - 1] * 2);
+                protocol.setAcceptCount(CONNECTIONS[CONNECTIONS.length - 1]);
+            }
+            //То же, что делает Spring Boot при spring.threads.virtual.enabled=true
+            if (mode != Mode.PLATFORM) handler.setExecutor(new VirtualThreadExecutor("tomcat-handler-"));
+        });
+        return factory.getWebServer(servletContext -> {
+            servletContext
+                    .addServlet("users",new UserServlet())
+                    .addMapping("/api/users/*");
+            if (mode == Mode.VIRTUAL_LIMITED) {
+                ConnectionPoolLimitFilter filter = new ConnectionPoolLimitFilter(POOL_SIZE * CONCURRENCY_FACTOR,Duration.ofSeconds(1),new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+                servletContext
+                        .addFilter("connectionPoolLimit",filter)
+                        .addMappingForUrlPatterns(null,false,"/*");
+            }
+        });
+    }
+
+    private static WebServer reactiveServer() {
+        NettyReactiveWebServerFactory factory = new NettyReactiveWebServerFactory(0);
+        InstrumentedPool<Object> pool = PoolBuilder
+                .from(Mono.just(new Object()))
+                .sizeBetween(POOL_SIZE,POOL_SIZE)
+                .maxPendingAcquireUnbounded()
+                .buildPool();
+        byte[] body = UserServlet.BODY;
+        HttpHandler handler = (request,response) -> Mono
+                .delay(REMOTE_WAIT)
+                .then(pool
+                        .withPoolable(connection -> Mono.delay(QUERY_TIME))
+                        .timeout(Duration.ofSeconds(30))
+                        .then())
+                .then(Mono.defer(() -> {
+                    response
+                            .getHeaders()
+                            .setContentType(MediaType.APPLICATION_JSON);
+                    response
+                            .getHeaders()
+                            .setContentLength(body.length);
+                    return response.writeWith(Mono.just(response
+                            .bufferFactory()
+                            .wrap(body)));
+                }))
+                .onErrorResume(TimeoutException.class,e -> {
+                    response.setStatusCode(HttpStatus.INTERNAL_SERVER_ERROR);
+                    return response.setComplete();
+                });
+        return factory.getWebServer(handler);
+    }
+
+    private static final class UserServlet extends HttpServlet {
+
+        static final byte[] BODY = "{\"id\":1,\"name\":\"Somename\",\"email\":\"someemail@gmail.com\",\"age\":30}".getBytes(StandardCharsets.UTF_8);
+
+        private final Semaphore pool = new Semaphore(POOL_SIZE,true);
+
+        @Override
+        protected void doGet(HttpServletRequest request,HttpServletResponse response) throws IOException {
+            try {
+                Thread.sleep(REMOTE_WAIT);
+                if (! pool.tryAcquire(30,TimeUnit.SECONDS)) {
+                    response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,"Connection is not available");
+                    return;
+                }
+                try {
+                    Thread.sleep(QUERY_TIME);
+                } finally {
+                    pool.release();
+                }
+            } catch (InterruptedException e) {
+                Thread
+                        .currentThread()
+                        .interrupt();
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                return;
+            }
+            response.setContentType("application/json");
+            response.setContentLength(BODY.length);
+            response
+                    .getOutputStream()
+                    .write(BODY);
+        }
+    }
+
+    private record Result(double throughput,double p50Millis,double p99Millis,double rejectedPercent,double failedPercent,
+            double heapKbPerConnection,double rssKbPerConnection,int threads) {
+    }
+
+    private record Footprint(long heapBytes,long rssBytes,int threads) {
+
+        private static Footprint measure() throws IOException {
+            System.gc();
+            long heap = ManagementFactory
+                    .getMemoryMXBean()
+                    .getHeapMemoryUsage()
+                    .getUsed();
+            return new Footprint(heap,rss(),ManagementFactory
+                    .getThreadMXBean()
+                    .getThreadCount());
+        }
+
+        //Только для Linux, на других системах колонка rss будет нулевой
+        private static long rss() throws IOException {
+            Path status = Path.of("/proc/self/status");
+            if (! Files.exists(status)) return 0;
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line
+                            .replaceAll("\\D","")) * 1024;
+                }
+            }
+            return 0;
+        }
+    }
+
+    private static final class Connection {
+
+        private long[] latencies = new long[64];
+        private int succeeded;
+        private int rejected;
+        private int failed;
+
+        private Connection load(HttpClient client,URI uri,long measureFrom,long deadline) {
+            HttpRequest request = HttpRequest
+                    .newBuilder(uri)
+                    .timeout(Duration.ofSeconds(60))
+                    .GET()
+                    .build();
+            long now;
+            while ((now = System.nanoTime()) < deadline) {
+                int status;
+                try {
+                    status = client
+                            .send(request,HttpResponse.BodyHandlers.discarding())
+                            .statusCode();
+                } catch (IOException e) {
+                    status = - 1;
+                } catch (InterruptedException e) {
+                    Thread
+                            .currentThread()
+                            .interrupt();
+                    break;
+                }
+                long end = System.nanoTime();
+                //Считаются запросы, завершенные во время замера
+                if (end < measureFrom || end > deadline) continue;
+                if (status == 200) {
+                    if (succeeded == latencies.length) latencies = Arrays.copyOf(latencies,succeeded * 2);
+                    latencies[succeeded++] = end - now;
+                } else if (status == HttpServletResponse.SC_SERVICE_UNAVAILABLE) {
+                    rejected++;
+                } else {
+                    failed++;
+                }
+            }
+            return this;
+        }
+
+        private void merge(Connection other) {
+            if (succeeded + other.succeeded > latencies.length) latencies = Arrays.copyOf(latencies,succeeded + other.succeeded);
+            System.arraycopy(other.latencies,0,latencies,succeeded,other.succeeded);
+            succeeded += other.succeeded;
+            rejected += other.rejected;
+            failed += other.failed;
+        }
+
+        private Result result(Duration measurement) {
+            long[] sorted = Arrays.copyOf(latencies,succeeded);
+            Arrays.sort(sorted);
+            double total = Math.max(1,succeeded + rejected + failed);
+            return new Result(succeeded / (measurement.toNanos() / 1e9),percentile(sorted,0.50),percentile(sorted,0.99),rejected * 100 / total,failed * 100 / total,0,0,0);
+        }
+
+        private static double percentile(long[] sorted,double percentile) {
+            if (sorted.length == 0) return 0;
+            return sorted[(int) Math.min(sorted.length - 1,Math.ceil(percentile * sorted.length) - 1)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package ru.aston.UserServiceAPI.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class CacheInvalidationListenerUnitTest {
+
+    UserCache userCache;
+    UserCacheProperties properties;
+    CacheInvalidationListener listener;
+
+    @BeforeEach
+    void setUp() {
+        userCache = mock(UserCache.class);
+        properties = new UserCacheProperties();
+        properties.setNodeId("node-a");
+        listener = new CacheInvalidationListener(userCache,properties,new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+    }
+
+    @Test
+    void invalidationFromOtherNodeShouldEvictIfNotNewer() {
+        listener.onInvalidation(record("1","3:node-b:" + System.currentTimeMillis()));
+
+        verify(userCache).evictIfNotNewer(1L,3L);
+        verify(userCache,never()).clear();
+    }
+
+    @Test
+    void ownInvalidationShouldBeSkipped() {
+        listener.onInvalidation(record("1","3:node-a:" + System.currentTimeMillis()));
+
+        verifyNoInteractions(userCache);
+    }
+
+    @Test
+    void malformedMessagesShouldBeSkipped() {
+        listener.onInvalidation(record("1","3:node-b"));
+        listener.onInvalidation(record("not-an-id","3:node-b:" + System.currentTimeMillis()));
+        listener.onInvalidation(record("1","x:node-b:" + System.currentTimeMillis()));
+        listener.onInvalidation(record("1","3:node-b:yesterday"));
+
+        verifyNoInteractions(userCache);
+    }
+
+    @Test
+    void constantClockSkewShouldNotClearCache() {
+        //Часы отправителя отстают на минуту
+        long skew = 60_000;
+        listener.onInvalidation(record("1","3:node-b:" + (System.currentTimeMillis() - skew)));
+        listener.onInvalidation(record("2","4:node-b:" + (System.currentTimeMillis() - skew)));
+
+        verify(userCache).evictIfNotNewer(1L,3L);
+        verify(userCache).evictIfNotNewer(2L,4L);
+        verify(userCache,never()).clear();
+    }
+
+    @Test
+    void lateInvalidationShouldClearCacheOnce() {
+        long now = System.currentTimeMillis();
+        listener.onInvalidation(record("1","3:node-b:" + now));
+        listener.onInvalidation(record("2","4:node-b:" + (now - 60_000)));
+        listener.onInvalidation(record("3","5:node-b:" + (System.currentTimeMillis() - 60_000)));
+
+        verify(userCache,times(1)).clear();
+        verify(userCache).evictIfNotNewer(3L,5L);
+        verify(userCache,never()).evictIfNotNewer(eq(2L),anyLong());
+    }
+
+    private static ConsumerRecord<String, String> record(String key,String value) {
+        return new ConsumerRecord<>("userInvalidations",0,0,key,value);
+    }
+}
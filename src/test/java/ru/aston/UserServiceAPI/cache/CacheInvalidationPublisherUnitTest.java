@@ -0,0 +1,45 @@
+package ru.aston.UserServiceAPI.cache;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import ru.aston.UserServiceAPI.kafka.AbstractKafkaMessage;
+import ru.aston.UserServiceAPI.kafka.ProducerService;
+import ru.aston.UserServiceAPI.kafka.Sendable;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class CacheInvalidationPublisherUnitTest {
+
+    @Test
+    void invalidationShouldCarryIdVersionAndNode() {
+        ProducerService producerService = mock(ProducerService.class);
+        UserCacheProperties properties = new UserCacheProperties();
+        properties.setNodeId("node-a");
+        CacheInvalidationPublisher publisher = new CacheInvalidationPublisher(producerService,properties);
+
+        publisher.publish(7L,null);
+
+        ArgumentCaptor<Sendable> captor = ArgumentCaptor.forClass(Sendable.class);
+        verify(producerService).sendTo(eq("userInvalidations"),captor.capture());
+        AbstractKafkaMessage message = (AbstractKafkaMessage) captor.getValue();
+        String[] parts = new String(message.getValue(),StandardCharsets.UTF_8).split(":",3);
+        assertEquals("7",message.getKey());
+        assertEquals("0",parts[0]);
+        assertEquals("node-a",parts[1]);
+        assertTrue(Long.parseLong(parts[2]) <= System.currentTimeMillis());
+    }
+
+    @Test
+    void defaultNodeIdShouldBeStable() {
+        String nodeId = new UserCacheProperties().getNodeId();
+
+        assertFalse(nodeId.isBlank());
+        assertFalse(nodeId.contains(":"));
+        assertEquals(nodeId,new UserCacheProperties().getNodeId());
+    }
+}
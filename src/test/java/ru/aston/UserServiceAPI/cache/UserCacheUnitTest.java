@@ -0,0 +1,229 @@
+package ru.aston.UserServiceAPI.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.aston.UserServiceAPI.datasource.DataSourceRoutingContext;
+import ru.aston.UserServiceAPI.entitys.User;
+import ru.aston.UserServiceAPI.mappers.UserMapperImpl;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserCacheUnitTest {
+
+    UserCache userCache;
+    User user;
+    AtomicInteger loads;
+    Supplier<Optional<User>> loader;
+
+    @BeforeEach
+    void setUp() {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        userCache = new UserCache(new UserCacheProperties(),
+                new UserMapperImpl(),
+                beanFactory.getBeanProvider(MeterRegistry.class),
+                beanFactory.getBeanProvider(CacheInvalidationPublisher.class),
+                beanFactory.getBeanProvider(UserResponseCache.class));
+        user = new User("Somename","someemail@gmail.com",30);
+        user.setId(1L);
+        user.setVersion(2L);
+        loads = new AtomicInteger();
+        loader = () -> {
+            loads.incrementAndGet();
+            return Optional.of(user);
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        DataSourceRoutingContext.clear();
+    }
+
+    @Test
+    void emailShouldHitEntryLoadedById() {
+        userCache.getById(1L,loader);
+
+        assertEquals(user.getEmail(),userCache
+                .getByEmail("someemail@gmail.com",Optional::empty)
+                .orElseThrow()
+                .getEmail());
+        assertEquals(1,loads.get());
+    }
+
+    @Test
+    void nameShouldAlwaysBeLoadedBecauseItIsNotUnique() {
+        userCache.getById(1L,loader);
+
+        assertTrue(userCache
+                .getByName("Somename",Optional::empty)
+                .isEmpty());
+        userCache.getByName("Somename",loader);
+        assertEquals(2,loads.get());
+    }
+
+    @Test
+    void cachedUserShouldBeCopied() {
+        userCache.getById(1L,loader);
+        userCache
+                .getById(1L,loader)
+                .orElseThrow()
+                .setName("Othername");
+
+        assertEquals("Somename",userCache
+                .getById(1L,loader)
+                .orElseThrow()
+                .getName());
+        assertEquals(1,loads.get());
+    }
+
+    @Test
+    void evictShouldDropSecondaryKeys() {
+        userCache.getById(1L,loader);
+        userCache.evictAfterCommit(user);
+
+        assertTrue(userCache
+                .getByEmail("someemail@gmail.com",Optional::empty)
+                .isEmpty());
+    }
+
+    @Test
+    void evictShouldRepeatAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        userCache.evictAfterCommit(user);
+        userCache.getById(1L,loader);
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        userCache.getById(1L,loader);
+
+        assertEquals(2,loads.get());
+    }
+
+    @ParameterizedTest
+    @CsvSource (value = {"1,false","2,true","3,true"})
+    void remoteInvalidationShouldKeepNewerEntry(long version,boolean evicted) {
+        userCache.getById(1L,loader);
+        userCache.evictIfNotNewer(1L,version);
+        userCache.getById(1L,loader);
+
+        assertEquals(evicted ? 2 : 1,loads.get());
+    }
+
+    @Test
+    void readInsideWriteTransactionShouldNotBeCached() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        userCache.getById(1L,loader);
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        userCache.getById(1L,loader);
+
+        assertEquals(2,loads.get());
+    }
+
+    @Test
+    void readInsideReadOnlyTransactionShouldNotBeCached() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        userCache.getById(1L,loader);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        userCache.getById(1L,loader);
+
+        assertEquals(2,loads.get());
+    }
+
+    @Test
+    void missShouldBeLoadedFromPrimaryAfterInvalidation() {
+        User stale = new User("Somename","someemail@gmail.com",30);
+        stale.setId(1L);
+        stale.setVersion(1L);
+        //Отстающая реплика еще отдает версию 1, в мастере уже закоммичена версия 2
+        Supplier<Optional<User>> lagging = () -> {
+            loads.incrementAndGet();
+            return Optional.of(DataSourceRoutingContext.isPrimaryForced() ? user : stale);
+        };
+
+        userCache.evictAfterCommit(user);
+
+        assertEquals(2L,userCache
+                .getById(1L,lagging)
+                .orElseThrow()
+                .getVersion());
+        assertEquals(2L,userCache
+                .getById(1L,lagging)
+                .orElseThrow()
+                .getVersion());
+        assertEquals(1,loads.get());
+        assertFalse(DataSourceRoutingContext.isPrimaryForced());
+    }
+
+    @Test
+    void readYourWritesRequestShouldBypassCache() {
+        userCache.getById(1L,loader);
+        User written = new User("Othername","someemail@gmail.com",30);
+        written.setId(1L);
+        written.setVersion(3L);
+
+        //Кука ReadYourWritesFilter: этот узел мог еще не получить инвалидацию после записи клиента
+        DataSourceRoutingContext.forcePrimary();
+        assertEquals("Othername",userCache
+                .getById(1L,() -> Optional.of(written))
+                .orElseThrow()
+                .getName());
+        assertTrue(DataSourceRoutingContext.isPrimaryForced());
+        DataSourceRoutingContext.clear();
+
+        assertEquals("Somename",userCache
+                .getById(1L,loader)
+                .orElseThrow()
+                .getName());
+        assertEquals(1,loads.get());
+    }
+
+    @Test
+    void loadFinishedAfterInvalidationShouldNotBeCached() {
+        User stale = new User("Somename","someemail@gmail.com",30);
+        stale.setId(1L);
+        stale.setVersion(1L);
+
+        //Читатель загрузил версию 1, писатель закоммитил версию 2 и выкинул запись до того, как читатель ее положил
+        userCache.getById(1L,() -> {
+            userCache.evictAfterCommit(user);
+            return Optional.of(stale);
+        });
+        userCache.getById(1L,loader);
+
+        assertEquals(1,loads.get());
+        assertEquals(2L,userCache
+                .getById(1L,loader)
+                .orElseThrow()
+                .getVersion());
+    }
+
+    @Test
+    void olderVersionShouldNotReplaceCachedEntry() {
+        userCache.getById(1L,loader);
+        User older = new User("Somename","someemail@gmail.com",30);
+        older.setId(1L);
+        older.setVersion(1L);
+
+        userCache.putAfterCommit(older);
+
+        assertEquals(2L,userCache
+                .getById(1L,loader)
+                .orElseThrow()
+                .getVersion());
+        assertEquals(1,loads.get());
+    }
+}
@@ -0,0 +1,179 @@
+package ru.aston.UserServiceAPI.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.aston.UserServiceAPI.datasource.DataSourceRoutingContext;
+import ru.aston.UserServiceAPI.datasource.ReadYourWritesFilter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserResponseCacheUnitTest {
+
+    static final String BODY = "{\"id\":1,\"name\":\"Somename\",\"_links\":{\"self\":{\"href\":\"http://localhost/user?id=1\"}}}";
+
+    UserResponseCache cache;
+    UserResponseCacheFilter filter;
+    AtomicInteger renders;
+
+    @BeforeEach
+    void setUp() {
+        cache = new UserResponseCache(new UserResponseCacheProperties(),new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        filter = new UserResponseCacheFilter(cache);
+        renders = new AtomicInteger();
+    }
+
+    @Test
+    void secondRequestShouldBeServedFromCache() throws Exception {
+        MockHttpServletResponse first = get("1",null);
+        MockHttpServletResponse second = get("1",null);
+
+        assertEquals(1,renders.get());
+        assertEquals(BODY,second.getContentAsString());
+        assertEquals(first.getContentType(),second.getContentType());
+        assertEquals(BODY.getBytes(StandardCharsets.UTF_8).length,second.getContentLength());
+        assertNull(second.getHeader(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void gzipShouldBeServedWhenClientAcceptsIt() throws Exception {
+        get("1",null);
+        MockHttpServletResponse response = get("1","gzip, deflate");
+
+        assertEquals(1,renders.get());
+        assertEquals("gzip",response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertEquals(BODY,new String(gzip.readAllBytes(),StandardCharsets.UTF_8));
+        }
+        assertNull(get("1","gzip;q=0").getHeader(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void variantsShouldBeKeptPerAcceptHeader() throws Exception {
+        MockHttpServletRequest json = request("1",null);
+        json.removeHeader(HttpHeaders.ACCEPT);
+        json.addHeader(HttpHeaders.ACCEPT,"application/json");
+        filter.doFilter(json,new MockHttpServletResponse(),chain());
+        get("1",null);
+        filter.doFilter(json,new MockHttpServletResponse(),chain());
+        get("1",null);
+
+        assertEquals(2,renders.get());
+    }
+
+    @Test
+    void evictionShouldForceRender() throws Exception {
+        get("1",null);
+        cache.evict(1L);
+        get("1",null);
+
+        assertEquals(2,renders.get());
+    }
+
+    @Test
+    void responseRenderedBeforeEvictionShouldNotBeCached() {
+        long generation = cache.generation();
+        cache.evict(1L);
+        cache.put(1L,"http://localhost",MediaTypes.HAL_JSON_VALUE,MediaTypes.HAL_JSON_VALUE,new byte[]{1},generation);
+
+        assertNull(cache.get(1L,"http://localhost",MediaTypes.HAL_JSON_VALUE));
+    }
+
+    @Test
+    void otherRequestsShouldPassThrough() throws Exception {
+        get("abc",null);
+        get("abc",null);
+        MockHttpServletRequest request = request("1",null);
+        request.addParameter("fields","name");
+        filter.doFilter(request,new MockHttpServletResponse(),chain());
+        filter.doFilter(request,new MockHttpServletResponse(),chain());
+
+        assertEquals(4,renders.get());
+    }
+
+    @Test
+    void errorResponsesShouldNotBeCached() throws Exception {
+        FilterChain notFound = (request,response) -> {
+            renders.incrementAndGet();
+            ((HttpServletResponse) response).sendError(HttpServletResponse.SC_NOT_FOUND);
+        };
+        filter.doFilter(request("1",null),new MockHttpServletResponse(),notFound);
+        filter.doFilter(request("1",null),new MockHttpServletResponse(),notFound);
+
+        assertEquals(2,renders.get());
+    }
+
+    @Test
+    void responseReadFromReplicaShouldNotBeCached() throws Exception {
+        FilterChain replica = (request,response) -> {
+            DataSourceRoutingContext.markReplicaRead();
+            chain().doFilter(request,response);
+        };
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        filter.doFilter(request("1",null),first,replica);
+        get("1",null);
+        get("1",null);
+
+        assertEquals(BODY,first.getContentAsString());
+        assertEquals(2,renders.get());
+        assertFalse(DataSourceRoutingContext.clearReplicaRead());
+    }
+
+    @Test
+    void readYourWritesRequestShouldBypassCache() throws Exception {
+        get("1",null);
+        MockHttpServletRequest sticky = request("1",null);
+        sticky.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME,String.valueOf(System.currentTimeMillis() + 60_000)));
+        filter.doFilter(sticky,new MockHttpServletResponse(),chain());
+        cache.evict(1L);
+        filter.doFilter(sticky,new MockHttpServletResponse(),chain());
+        get("1",null);
+
+        //Кука не дает ни попадания, ни записи: после инвалидации обычный запрос снова собирает ответ
+        assertEquals(4,renders.get());
+    }
+
+    private MockHttpServletResponse get(String id,String acceptEncoding) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(id,acceptEncoding),response,chain());
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String id,String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET","/user");
+        request.addParameter("id",id);
+        request.addHeader(HttpHeaders.ACCEPT,MediaTypes.HAL_JSON_VALUE);
+        if (acceptEncoding != null) request.addHeader(HttpHeaders.ACCEPT_ENCODING,acceptEncoding);
+        return request;
+    }
+
+    private FilterChain chain() {
+        return new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest request,ServletResponse response) throws IOException {
+                renders.incrementAndGet();
+                response.setContentType(MediaTypes.HAL_JSON_VALUE);
+                response
+                        .getOutputStream()
+                        .write(BODY.getBytes(StandardCharsets.UTF_8));
+            }
+        };
+    }
+}
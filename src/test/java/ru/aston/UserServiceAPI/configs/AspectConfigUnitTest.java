@@ -0,0 +1,51 @@
+package ru.aston.UserServiceAPI.configs;
+
+import org.aspectj.lang.Aspects;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.aston.UserServiceAPI.aspects.LoggingAspect;
+import ru.aston.UserServiceAPI.aspects.UpdatingAspect;
+import ru.aston.UserServiceAPI.repos.UserRepository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+
+class AspectConfigUnitTest {
+
+    /*
+    Профиль ctw передает в surefire user.aspects.expect-woven=true (mvn -Pctw verify),
+    обычная сборка проверяет, что аспекты работают через прокси.
+    */
+    static final boolean EXPECT_WOVEN = Boolean.getBoolean("user.aspects.expect-woven");
+
+    ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(AspectConfig.class,TestConfig.class)
+            .withPropertyValues("spring.profiles.active=test");
+
+    @Test
+    void weavingShouldMatchBuildProfile() {
+        assertEquals(EXPECT_WOVEN,AspectConfig.isWoven());
+    }
+
+    @Test
+    void wovenAspectInstancesShouldBecomeBeans() {
+        contextRunner.run(context -> {
+            assertEquals(EXPECT_WOVEN,Aspects.hasAspect(UpdatingAspect.class));
+            if (! EXPECT_WOVEN) return;
+            assertSame(Aspects.aspectOf(LoggingAspect.class),context.getBean(LoggingAspect.class));
+            assertSame(Aspects.aspectOf(UpdatingAspect.class),context.getBean(UpdatingAspect.class));
+        });
+    }
+
+    @Configuration
+    static class TestConfig {
+
+        @Bean
+        UserRepository userRepository() {
+            return mock(UserRepository.class);
+        }
+    }
+}
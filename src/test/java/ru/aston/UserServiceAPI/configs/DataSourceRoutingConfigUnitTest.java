@@ -0,0 +1,44 @@
+package ru.aston.UserServiceAPI.configs;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.TaskScheduler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+class DataSourceRoutingConfigUnitTest {
+
+    ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(DataSourceRoutingConfig.class,TestConfig.class)
+            .withPropertyValues("spring.datasource.url=jdbc:postgresql://localhost:5432/UserServiceAPI",
+                    "spring.datasource.replicas.enabled=true",
+                    "spring.datasource.replicas.urls[0]=jdbc:postgresql://localhost:5433/UserServiceAPI");
+
+    @Test
+    void hikariPropertiesShouldBeBoundToPrimaryPool() {
+        contextRunner
+                .withPropertyValues("spring.datasource.hikari.maximum-pool-size=7","spring.datasource.hikari.connection-timeout=1234")
+                .run(context -> {
+                    HikariDataSource primary = context.getBean("primaryDataSource",HikariDataSource.class);
+                    assertEquals(7,primary.getMaximumPoolSize());
+                    assertEquals(1234,primary.getConnectionTimeout());
+                    assertEquals("primary",primary.getPoolName());
+                });
+    }
+
+    @Configuration
+    @EnableConfigurationProperties (DataSourceProperties.class)
+    static class TestConfig {
+
+        @Bean
+        TaskScheduler taskScheduler() {
+            return mock(TaskScheduler.class);
+        }
+    }
+}
@@ -8,6 +8,8 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import ru.aston.UserServiceAPI.kafka.UserEvent;
+import ru.aston.UserServiceAPI.kafka.UserEventDeserializer;
 
 import java.util.HashMap;
 import java.util.List;
@@ -22,19 +24,19 @@ public class KafkaTestConfig {
     String topic;
 
     @Bean
-    public ConsumerFactory<String, String> consumerFactory() {
+    public ConsumerFactory<String, UserEvent> consumerFactory() {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG,kafkaContainer.getBootstrapServers());
         props.put(ConsumerConfig.GROUP_ID_CONFIG,"test");
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG,StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG,StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG,UserEventDeserializer.class);
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG,"earliest");
         return new DefaultKafkaConsumerFactory<>(props);
     }
 
     @Bean
-    public Consumer<String, String> consumer() {
-        Consumer<String, String> consumer = consumerFactory().createConsumer();
+    public Consumer<String, UserEvent> consumer() {
+        Consumer<String, UserEvent> consumer = consumerFactory().createConsumer();
         consumer.subscribe(List.of(topic));
         return consumer;
     }
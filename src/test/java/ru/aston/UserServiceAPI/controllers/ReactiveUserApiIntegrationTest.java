@@ -0,0 +1,12 @@
+package ru.aston.UserServiceAPI.controllers;
+
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+//Контракт /user на WebFlux и R2DBC. Тип приложения задан явно: при SpringBootTest он выбирается до чтения профилей
+@SpringBootTest (properties = "spring.main.web-application-type=reactive")
+@AutoConfigureWebTestClient
+@ActiveProfiles ({"test", "reactive"})
+class ReactiveUserApiIntegrationTest extends UserApiContractIntegrationTest {
+}
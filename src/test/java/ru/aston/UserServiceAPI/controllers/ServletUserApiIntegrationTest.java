@@ -0,0 +1,12 @@
+package ru.aston.UserServiceAPI.controllers;
+
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+//Контракт /user на Spring MVC, WebTestClient работает поверх MockMvc
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles ("test")
+class ServletUserApiIntegrationTest extends UserApiContractIntegrationTest {
+}
@@ -0,0 +1,387 @@
+package ru.aston.UserServiceAPI.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.aston.UserServiceAPI.Utils.ErrorMessages;
+import ru.aston.UserServiceAPI.Utils.UserCursor;
+import ru.aston.UserServiceAPI.dtos.UserDTORequest;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.aston.UserServiceAPI.controllers.UserControllerIntegrationTest.kafkaContainer;
+
+/*
+Общий контракт /user для Spring MVC и WebFlux: наследники поднимают свой стек, тесты ходят через WebTestClient.
+Пользователи создаются самими тестами с email от имени класса, чтобы прогоны стеков не пересекались.
+*/
+@Testcontainers
+@DisplayNameGeneration (DisplayNameGenerator.Simple.class)
+@TestInstance (TestInstance.Lifecycle.PER_CLASS)
+@DirtiesContext (classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+abstract class UserApiContractIntegrationTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer postgreSQLContainer = new PostgreSQLContainer("postgres:18")
+            .withDatabaseName("UserServiceAPI")
+            .withUsername("postgres")
+            .withPassword("postgres")
+            ;
+
+    @Autowired
+    private WebTestClient webTestClient;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final String prefix = getClass()
+            .getSimpleName()
+            .toLowerCase(Locale.ROOT);
+    private int emails;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.kafka.bootstrap-servers",kafkaContainer::getBootstrapServers);
+    }
+
+    @BeforeAll
+    void beforeAll() {
+        for (int i = 0;i < 12;i++) {
+            create(new UserDTORequest("Contractname",email(),30));
+        }
+    }
+
+    @Test
+    void createdUserShouldBeReturnedByIdWithLinks() {
+        String email = email();
+        long id = create(new UserDTORequest("Somename",email,30))
+                .path("id")
+                .asLong();
+
+        JsonNode user = get("/user?id=" + id,200);
+
+        assertEquals(email,user
+                .path("email")
+                .asText());
+        assertTrue(user
+                .path("_links")
+                .path("self")
+                .path("href")
+                .asText()
+                .endsWith("/user?id=" + id));
+        assertFalse(user
+                .path("_templates")
+                .isMissingNode());
+        assertEquals(1,jdbcTemplate.queryForObject("SELECT count(*) FROM user_outbox WHERE event_key = ?",Integer.class,String.valueOf(id)));
+    }
+
+    @Test
+    void userShouldBeFoundByEmailAndName() {
+        String email = email();
+        //Имя тоже уникально для стека, поиск по имени возвращает одного пользователя
+        String name = "Find" + prefix.substring(0,8);
+        long id = create(new UserDTORequest(name,email,30))
+                .path("id")
+                .asLong();
+
+        assertEquals(id,get("/user?email=" + email,200)
+                .path("id")
+                .asLong());
+        assertEquals(id,get("/user?name=" + name,200)
+                .path("id")
+                .asLong());
+    }
+
+    @ParameterizedTest
+    @ValueSource (longs = {0,- 1,Long.MAX_VALUE})
+    void getUserShouldReturnNotFound(long id) {
+        assertEquals(ErrorMessages.USER_NOT_FOUND.getMessage(),get("/user?id=" + id,404)
+                .path("error")
+                .asText());
+    }
+
+    @Test
+    void getAllUsersShouldReturnRequestedPage() {
+        JsonNode root = get("/user/all?page=1&size=5&sort=desc",200);
+        JsonNode embedded = root
+                .path("_embedded")
+                .path("userDTOResponseList");
+
+        assertEquals(5,embedded.size());
+        assertTrue(embedded
+                .get(0)
+                .path("id")
+                .asLong() > embedded
+                .get(4)
+                .path("id")
+                .asLong());
+        assertFalse(root
+                .path("_links")
+                .path("self")
+                .isMissingNode());
+    }
+
+    @Test
+    void cursorAfterShouldReturnNextUsers() {
+        long first = create(new UserDTORequest("Somename",email(),30))
+                .path("id")
+                .asLong();
+        long second = create(new UserDTORequest("Somename",email(),30))
+                .path("id")
+                .asLong();
+        create(new UserDTORequest("Somename",email(),30));
+
+        JsonNode root = get("/user/all?size=1&after=" + UserCursor.encode(first),200);
+
+        assertEquals(second,root
+                .path("_embedded")
+                .path("userDTOResponseList")
+                .get(0)
+                .path("id")
+                .asLong());
+        assertFalse(root
+                .path("_links")
+                .path("next")
+                .path("href")
+                .isMissingNode());
+        assertFalse(root
+                .path("_links")
+                .path("prev")
+                .path("href")
+                .isMissingNode());
+    }
+
+    @Test
+    void cursorBeforeShouldReturnPreviousUsers() {
+        long first = create(new UserDTORequest("Somename",email(),30))
+                .path("id")
+                .asLong();
+        long second = create(new UserDTORequest("Somename",email(),30))
+                .path("id")
+                .asLong();
+        long third = create(new UserDTORequest("Somename",email(),30))
+                .path("id")
+                .asLong();
+
+        JsonNode embedded = get("/user/all?size=2&before=" + UserCursor.encode(third),200)
+                .path("_embedded")
+                .path("userDTOResponseList");
+
+        assertEquals(2,embedded.size());
+        assertEquals(first,embedded
+                .get(0)
+                .path("id")
+                .asLong());
+        assertEquals(second,embedded
+                .get(1)
+                .path("id")
+                .asLong());
+    }
+
+    @ParameterizedTest
+    @ValueSource (strings = {"bla","-1",""})
+    void invalidCursorShouldBeRejected(String cursor) {
+        assertEquals(ErrorMessages.NOT_VALID_CURSOR.getMessage(),get("/user/all?after=" + cursor,400)
+                .path("errors")
+                .path("after")
+                .asText());
+    }
+
+    @Test
+    void afterAndBeforeTogetherShouldBeRejected() {
+        get("/user/all?after=1&before=5",400);
+    }
+
+    @Test
+    void invalidUserShouldBeRejectedWithAllErrors() {
+        JsonNode errors = exchange(webTestClient
+                .post()
+                .uri("/user")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserDTORequest("b","notemail",10)),400).path("errors");
+
+        assertTrue(errors.has("name"));
+        assertTrue(errors.has("email"));
+        assertTrue(errors.has("age"));
+    }
+
+    @Test
+    void userWithExistingEmailShouldBeRejected() {
+        String email = email();
+        create(new UserDTORequest("Somename",email,30));
+
+        JsonNode errors = exchange(webTestClient
+                .post()
+                .uri("/user")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserDTORequest("Somename",email,31)),400).path("errors");
+
+        assertEquals(ErrorMessages.EMAIL_ALREADY_EXISTS
+                .getMessage()
+                .formatted(email),errors
+                .path("email")
+                .asText());
+    }
+
+    @Test
+    void malformedBodyShouldBeRejected() {
+        JsonNode error = exchange(webTestClient
+                .post()
+                .uri("/user")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"name\":"),400);
+
+        assertEquals(ErrorMessages.NOT_READABLE.getMessage(),error
+                .path("error")
+                .asText());
+    }
+
+    @Test
+    void updateUserShouldChangeFields() {
+        long id = create(new UserDTORequest("Somename",email(),30))
+                .path("id")
+                .asLong();
+        String email = email();
+
+        JsonNode updated = exchange(webTestClient
+                .put()
+                .uri("/user?id=" + id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserDTORequest("Updatedname",email,40)),200);
+
+        assertEquals("Updatedname",updated
+                .path("name")
+                .asText());
+        assertEquals(40,get("/user?id=" + id,200)
+                .path("age")
+                .asInt());
+        assertEquals(email,get("/user?id=" + id,200)
+                .path("email")
+                .asText());
+    }
+
+    @Test
+    void updateKeepingOwnEmailShouldSucceed() {
+        String email = email();
+        long id = create(new UserDTORequest("Somename",email,30))
+                .path("id")
+                .asLong();
+
+        JsonNode updated = exchange(webTestClient
+                .put()
+                .uri("/user?id=" + id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserDTORequest("Updatedname",email,40)),200);
+
+        assertEquals(email,updated
+                .path("email")
+                .asText());
+        assertEquals(40,updated
+                .path("age")
+                .asInt());
+    }
+
+    @Test
+    void updateToAnotherUsersEmailShouldBeRejected() {
+        String taken = email();
+        create(new UserDTORequest("Somename",taken,30));
+        long id = create(new UserDTORequest("Somename",email(),30))
+                .path("id")
+                .asLong();
+
+        JsonNode errors = exchange(webTestClient
+                .put()
+                .uri("/user?id=" + id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserDTORequest("Updatedname",taken,40)),400).path("errors");
+
+        assertEquals(ErrorMessages.EMAIL_ALREADY_EXISTS
+                .getMessage()
+                .formatted(taken),errors
+                .path("email")
+                .asText());
+    }
+
+    @Test
+    void updateMissingUserShouldReturnNotFound() {
+        exchange(webTestClient
+                .put()
+                .uri("/user?id=" + Long.MAX_VALUE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserDTORequest("Updatedname",email(),40)),404);
+    }
+
+    @Test
+    void deletedUserShouldNotBeFound() {
+        long id = create(new UserDTORequest("Somename",email(),30))
+                .path("id")
+                .asLong();
+
+        assertEquals(id,exchange(webTestClient
+                .delete()
+                .uri("/user?id=" + id),200)
+                .path("id")
+                .asLong());
+        get("/user?id=" + id,404);
+        assertEquals(2,jdbcTemplate.queryForObject("SELECT count(*) FROM user_outbox WHERE event_key = ?",Integer.class,String.valueOf(id)));
+    }
+
+    @Test
+    void deleteWithoutIdShouldReturnBadRequest() {
+        assertEquals(ErrorMessages.BAD_REQUEST.getMessage(),exchange(webTestClient
+                .delete()
+                .uri("/user"),400)
+                .path("error")
+                .asText());
+    }
+
+    @Test
+    void unsupportedMethodShouldReturnMethodNotAllowed() {
+        exchange(webTestClient
+                .patch()
+                .uri("/user"),405);
+    }
+
+    private JsonNode create(UserDTORequest request) {
+        return exchange(webTestClient
+                .post()
+                .uri("/user")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(request),200);
+    }
+
+    private JsonNode get(String uri,int status) {
+        return exchange(webTestClient
+                .get()
+                .uri(uri)
+                .accept(MediaTypes.HAL_FORMS_JSON),status);
+    }
+
+    private JsonNode exchange(WebTestClient.RequestHeadersSpec<?> request,int status) {
+        return request
+                .exchange()
+                .expectStatus()
+                .isEqualTo(status)
+                .expectBody(JsonNode.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private String email() {
+        return prefix + emails++ + "@gmail.com";
+    }
+}
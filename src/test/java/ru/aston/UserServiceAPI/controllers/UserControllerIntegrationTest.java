@@ -6,6 +6,7 @@ import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.*;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,6 +16,7 @@ import org.springframework.boot.testcontainers.service.connection.ServiceConnect
 import org.springframework.hateoas.MediaTypes;
 import org.springframework.http.MediaType;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.annotation.Commit;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
@@ -22,27 +24,38 @@ import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.kafka.KafkaContainer;
 import ru.aston.UserServiceAPI.Utils.ErrorMessages;
+import ru.aston.UserServiceAPI.Utils.NotValidUserException;
+import ru.aston.UserServiceAPI.Utils.QueryBudget;
+import ru.aston.UserServiceAPI.Utils.QueryBudgetExtension;
 import ru.aston.UserServiceAPI.dtos.UserDTORequest;
 import ru.aston.UserServiceAPI.dtos.UserDTOResponse;
-import ru.aston.UserServiceAPI.kafka.ProducerService;
-import ru.aston.UserServiceAPI.kafka.Sendable;
+import ru.aston.UserServiceAPI.entitys.OutboxEvent;
+import ru.aston.UserServiceAPI.kafka.AbstractKafkaMessage;
+import ru.aston.UserServiceAPI.kafka.OutboxRelay;
+import ru.aston.UserServiceAPI.kafka.OutboxService;
+import ru.aston.UserServiceAPI.kafka.UserEvent;
+import ru.aston.UserServiceAPI.kafka.UserEventDeserializer;
+import ru.aston.UserServiceAPI.kafka.UserEventKafkaMessage;
+import ru.aston.UserServiceAPI.repos.OutboxRepository;
 import ru.aston.UserServiceAPI.services.UserService;
 
 import java.time.Duration;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.times;
-import static org.mockito.Mockito.verify;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 
 @SpringBootTest
@@ -53,6 +66,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 @TestInstance (TestInstance.Lifecycle.PER_CLASS)
 @DirtiesContext (classMode = DirtiesContext.ClassMode.AFTER_CLASS)
 @ActiveProfiles ("test")
+@ExtendWith (QueryBudgetExtension.class)
 public class UserControllerIntegrationTest {
 
     @Container
@@ -77,11 +91,15 @@ public class UserControllerIntegrationTest {
     @Autowired
     private ObjectMapper objectMapper;
     @MockitoSpyBean
-    private ProducerService producerService;
+    private OutboxService outboxService;
     @Autowired
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
     @Autowired
-    private Consumer<String, String> consumer;
+    private Consumer<String, UserEvent> consumer;
+    @Autowired
+    private OutboxRelay outboxRelay;
+    @Autowired
+    private OutboxRepository outboxRepository;
 
     @DynamicPropertySource
     static void properties(DynamicPropertyRegistry registry) {
@@ -95,11 +113,13 @@ public class UserControllerIntegrationTest {
         for (int i = 0;i < 30;i++) {
             userService.createUser(new UserDTORequest("testname" + i,"testemail" + i + "@gmail.com",30));
         }
+        clearInvocations(outboxService);
     }
 
     @ParameterizedTest
     @MethodSource ("getExistingIds")
     @DisplayName ("getUserByIdShouldReturnValidUser")
+    @QueryBudget (1)
     void getUserByIdShouldReturnValidUser(long existingId) throws Exception {
         var response = mockMvc
                 .perform(get("/user")
@@ -114,6 +134,9 @@ public class UserControllerIntegrationTest {
                 .getResponse()
                 .getStatus());
         assertEquals(actualUser.getId(),existingId);
+        assertNotNull(response
+                .getResponse()
+                .getHeader("X-Query-Count"));
     }
 
     @ParameterizedTest
@@ -136,6 +159,7 @@ public class UserControllerIntegrationTest {
 
     @ParameterizedTest
     @CsvSource (value = {"0,12","1,9","2,8","3,5","4,1"})
+    @QueryBudget (2)
     void getAllUsersWithPageAndSizeShouldReturnListOfUsers(String page,String size) throws Exception {
         var response = mockMvc
                 .perform(get("/user/all")
@@ -200,8 +224,220 @@ public class UserControllerIntegrationTest {
         verify(userService,times(1)).getAllUsersDefault();
     }
 
+    @ParameterizedTest
+    @CsvSource (value = {"0,12","5,9","12,8","20,5","29,1"})
+    void getAllUsersAfterCursorShouldReturnNextUsers(long after,int size) throws Exception {
+        var response = mockMvc
+                .perform(get("/user/all")
+                        .param("after",String.valueOf(after))
+                        .param("size",String.valueOf(size))
+                        .accept(MediaTypes.HAL_FORMS_JSON_VALUE))
+                .andReturn();
+
+        JsonNode root = objectMapper.readTree(response
+                .getResponse()
+                .getContentAsString());
+        JsonNode embedded = root
+                .path("_embedded")
+                .path("userDTOResponseList");
+
+        assertEquals(200,response
+                .getResponse()
+                .getStatus());
+        assertEquals(size,embedded.size());
+        assertEquals(after + 1,embedded
+                .get(0)
+                .path("id")
+                .asLong());
+        assertFalse(root
+                .path("_links")
+                .path("next")
+                .path("href")
+                .isMissingNode());
+        verify(userService,never()).getAllUsersWithPaginationAndSort(anyInt(),anyInt(),anyString());
+    }
+
+    @ParameterizedTest
+    @ValueSource (strings = {"after","before"})
+    void getAllUsersByCursorShouldReturnLeanPageForJson(String direction) throws Exception {
+        var response = mockMvc
+                .perform(get("/user/all")
+                        .param(direction,"15")
+                        .param("size","5")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andReturn();
+
+        JsonNode root = objectMapper.readTree(response
+                .getResponse()
+                .getContentAsString());
+
+        assertEquals(200,response
+                .getResponse()
+                .getStatus());
+        assertTrue(MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(response
+                .getResponse()
+                .getContentType())));
+        assertTrue(root.isArray());
+        assertEquals(5,root.size());
+        assertTrue(root
+                .get(0)
+                .path("_links")
+                .isMissingNode());
+    }
+
+    @ParameterizedTest
+    @ValueSource (strings = {"bla","-1",""})
+    void getAllUsersWithInvalidCursorShouldReturnErrorMessage(String after) throws Exception {
+        var response = mockMvc
+                .perform(get("/user/all")
+                        .param("after",after)
+                        .accept(MediaTypes.HAL_FORMS_JSON_VALUE))
+                .andReturn();
+
+        assertEquals(400,response
+                .getResponse()
+                .getStatus());
+        assertTrue(response
+                .getResponse()
+                .getContentAsString()
+                .contains(ErrorMessages.NOT_VALID_CURSOR.getMessage()));
+    }
+
+    @ParameterizedTest
+    @CsvSource (value = {"csv,1","csv,3","ndjson,1","ndjson,4"})
+    void exportUsersShouldStreamAllUsers(String format,int parallel) throws Exception {
+        var asyncResult = mockMvc
+                .perform(get("/user/export")
+                        .param("format",format)
+                        .param("parallel",String.valueOf(parallel)))
+                .andReturn();
+        var response = mockMvc
+                .perform(asyncDispatch(asyncResult))
+                .andReturn();
+        String[] lines = response
+                .getResponse()
+                .getContentAsString()
+                .split("\n");
+
+        assertEquals(200,response
+                .getResponse()
+                .getStatus());
+        if (format.equals("csv")) {
+            assertEquals("id,name,email,age",lines[0]);
+            assertTrue(lines.length > 30);
+        } else {
+            assertTrue(lines.length >= 30);
+            for (String line : lines) {
+                assertTrue(objectMapper
+                        .readTree(line)
+                        .has("email"));
+            }
+        }
+    }
+
+    @Test
+    void importUsersShouldImportValidUsersAndSkipDuplicates() throws Exception {
+        StringBuilder csv = new StringBuilder("name,email,age\n");
+        for (int i = 0;i < 100;i++) {
+            csv.append("Importname,importemail" + i + "@gmail.com,30\n");
+        }
+        csv
+                .append("Importname,importemail0@gmail.com,31\n")
+                .append("Importname,testemail2@gmail.com,32\n")
+                .append("Importname,importemail100@gmail.com,10\n");
+        var startResponse = mockMvc
+                .perform(multipart("/user/import")
+                        .file(new MockMultipartFile("file","users.csv","text/csv",csv
+                                .toString()
+                                .getBytes()))
+                        .accept(MediaType.APPLICATION_JSON))
+                .andReturn();
+        String location = startResponse
+                .getResponse()
+                .getHeader("Location");
+
+        assertEquals(202,startResponse
+                .getResponse()
+                .getStatus());
+        JsonNode job = null;
+        for (int attempt = 0;attempt < 100;attempt++) {
+            job = objectMapper.readTree(mockMvc
+                    .perform(get(location).accept(MediaType.APPLICATION_JSON))
+                    .andReturn()
+                    .getResponse()
+                    .getContentAsString());
+            if (! job
+                    .path("state")
+                    .asText()
+                    .equals("RUNNING") && ! job
+                    .path("state")
+                    .asText()
+                    .equals("QUEUED")) break;
+            Thread.sleep(100);
+        }
+        assertEquals("COMPLETED",job
+                .path("state")
+                .asText());
+        assertEquals(103,job
+                .path("processedRows")
+                .asLong());
+        assertEquals(100,job
+                .path("importedRows")
+                .asLong());
+        assertEquals(1,job
+                .path("rejectedRows")
+                .asLong());
+        assertEquals(2,job
+                .path("duplicateRows")
+                .asLong());
+        assertTrue(job
+                .path("rejectedSamples")
+                .has("104"));
+        var userResponse = mockMvc
+                .perform(get("/user")
+                        .param("email","importemail99@gmail.com")
+                        .accept(MediaTypes.HAL_FORMS_JSON_VALUE))
+                .andReturn()
+                .getResponse();
+        assertEquals(200,userResponse.getStatus());
+        long importedId = objectMapper
+                .readTree(userResponse.getContentAsString())
+                .path("id")
+                .asLong();
+
+        //События импорта должен читать тот же UserEventDeserializer, что и консьюмеры
+        List<OutboxEvent> imported = outboxRepository
+                .findAll()
+                .stream()
+                .filter(event -> {
+                    String email = UserEventDeserializer
+                            .decode(event.getPayload())
+                            .email();
+                    return email != null && email.startsWith("importemail");
+                })
+                .toList();
+        assertEquals(100,imported.size());
+        OutboxEvent event = imported
+                .stream()
+                .filter(outboxEvent -> outboxEvent
+                        .getEventKey()
+                        .equals(String.valueOf(importedId)))
+                .findFirst()
+                .orElseThrow();
+        UserEvent decoded = UserEventDeserializer.decode(event.getPayload());
+        assertEquals(UserEvent.Type.CREATED,decoded.type());
+        assertEquals(importedId,decoded.userId());
+        assertEquals(0,decoded.version());
+        assertEquals("Importname",decoded.name());
+        assertEquals("importemail99@gmail.com",decoded.email());
+        assertEquals(30,decoded.age());
+    }
+
+    //Без транзакции теста: событие попадает в outbox только после коммита, иначе релей его не увидит
     @ParameterizedTest
     @MethodSource ("getValidUsers")
+    @QueryBudget (4)
+    @Transactional (propagation = Propagation.NOT_SUPPORTED)
     void createUserShouldReturnCreatedUser(UserDTORequest validUserDTORequest) throws Exception {
         var response = mockMvc
                 .perform(post("/user")
@@ -212,7 +448,7 @@ public class UserControllerIntegrationTest {
         UserDTOResponse actualUser = objectMapper.readValue(response
                 .getResponse()
                 .getContentAsString(),UserDTOResponse.class);
-        ConsumerRecords<String, String> records = consumer.poll(Duration.of(1,ChronoUnit.SECONDS));
+        List<ConsumerRecord<String, UserEvent>> records = relayedRecords(actualUser.getId());
 
         assertEquals(200,response
                 .getResponse()
@@ -220,16 +456,62 @@ public class UserControllerIntegrationTest {
         assertEquals(validUserDTORequest.getName(),actualUser.getName());
         assertEquals(validUserDTORequest.getEmail(),actualUser.getEmail());
         assertEquals(validUserDTORequest.getAge(),actualUser.getAge());
-        assertNotNull(records);
-        verify(producerService,times(1)).send(any(Sendable.class));
-        for (ConsumerRecord<String, String> record : records) {
-            assertEquals(validUserDTORequest.getEmail(),record.key());
-            assertEquals("created",record.value());
+        verify(outboxService,times(1)).append(any(AbstractKafkaMessage.class));
+        assertEquals(1,records.size());
+        for (ConsumerRecord<String, UserEvent> record : records) {
+            assertEquals(String.valueOf(actualUser.getId()),record.key());
+            assertEquals(UserEvent.Type.CREATED,record
+                    .value()
+                    .type());
+            assertEquals(validUserDTORequest.getEmail(),record
+                    .value()
+                    .email());
+        }
+    }
+
+    @Test
+    void createUsersShouldCreateValidAndRejectInvalidUsers() throws Exception {
+        List<UserDTORequest> batch = List.of(new UserDTORequest("Batchname","batchemail@gmail.com",30),
+                new UserDTORequest("Batchname","batchemail@gmail.com",31),
+                new UserDTORequest("Batchname","testemail1@gmail.com",32),
+                new UserDTORequest("b","batchemail2@gmail.com",33));
+        var response = mockMvc
+                .perform(post("/user/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batch))
+                        .accept(MediaType.APPLICATION_JSON))
+                .andReturn();
+        JsonNode root = objectMapper.readTree(response
+                .getResponse()
+                .getContentAsString());
+
+        assertEquals(200,response
+                .getResponse()
+                .getStatus());
+        assertEquals(batch.size(),root.size());
+        assertEquals("CREATED",root
+                .get(0)
+                .path("status")
+                .asText());
+        for (int i = 1;i < batch.size();i++) {
+            assertEquals("REJECTED",root
+                    .get(i)
+                    .path("status")
+                    .asText());
         }
+        assertTrue(root
+                .get(3)
+                .path("errors")
+                .has("name"));
+        verify(outboxService,times(1)).appendAll(argThat(messages -> messages.size() == 1 && "batchemail@gmail.com".equals(((UserEventKafkaMessage) messages
+                .iterator()
+                .next()).getEvent()
+                .email())));
     }
 
     @ParameterizedTest
     @ValueSource (longs = {1,2,3,4,5,6,7,8,9,10})
+    @QueryBudget (3)
     void deleteUserShouldReturnDeletedUser(Long existingId) throws Exception {
         var response = mockMvc
                 .perform(delete("/user")
@@ -239,18 +521,40 @@ public class UserControllerIntegrationTest {
         UserDTOResponse deletedUser = objectMapper.readValue(response
                 .getResponse()
                 .getContentAsString(),UserDTOResponse.class);
-        ConsumerRecords<String, String> records = consumer.poll(Duration.of(1,ChronoUnit.SECONDS));
 
         assertEquals(200,response
                 .getResponse()
                 .getStatus());
         assertEquals(deletedUser.getId(),existingId);
         verify(userService,times(1)).deleteUserById(existingId);
-        verify(producerService,times(1)).send(any(Sendable.class));
-        for (ConsumerRecord<String, String> record : records) {
-            assertEquals(deletedUser.getEmail(),record.key());
-            assertEquals("deleted",record.value());
-        }
+        verify(outboxService,times(1)).append(any(AbstractKafkaMessage.class));
+    }
+
+    //Удаление коммитится, поэтому удаляется собственный пользователь теста, а не общие из beforeAll
+    @Test
+    @Transactional (propagation = Propagation.NOT_SUPPORTED)
+    void deleteUserShouldPublishDeletedEvent() throws Exception {
+        UserDTOResponse createdUser = userService.createUser(new UserDTORequest("Deleteduser","deleteduser@gmail.com",30));
+        var response = mockMvc
+                .perform(delete("/user")
+                        .param("id",String.valueOf(createdUser.getId()))
+                        .accept(MediaType.APPLICATION_JSON))
+                .andReturn();
+        List<ConsumerRecord<String, UserEvent>> records = relayedRecords(createdUser.getId());
+
+        assertEquals(200,response
+                .getResponse()
+                .getStatus());
+        assertEquals(List.of(UserEvent.Type.CREATED,UserEvent.Type.DELETED),records
+                .stream()
+                .map(record -> record
+                        .value()
+                        .type())
+                .toList());
+        assertEquals(createdUser.getEmail(),records
+                .get(1)
+                .value()
+                .email());
     }
 
     @ParameterizedTest
@@ -291,6 +595,7 @@ public class UserControllerIntegrationTest {
 
     @ParameterizedTest
     @MethodSource ("getUpdatedUsers")
+    @QueryBudget (4)
     void updateUser(String id,UserDTORequest userDTORequest) throws Exception {
         var response = mockMvc
                 .perform(put("/user")
@@ -309,6 +614,9 @@ public class UserControllerIntegrationTest {
         assertEquals(userDTORequest.getName(),updatedUser.getName());
         assertEquals(userDTORequest.getEmail(),updatedUser.getEmail());
         assertEquals(userDTORequest.getAge(),updatedUser.getAge());
+        verify(outboxService,times(1)).append(argThat(message -> ((UserEventKafkaMessage) message)
+                .getEvent()
+                .type() == UserEvent.Type.UPDATED));
     }
 
     @ParameterizedTest
@@ -394,6 +702,63 @@ public class UserControllerIntegrationTest {
         assertFalse(error.contains("Age"));
     }
 
+    @ParameterizedTest
+    @ValueSource (strings = {"testemail3@gmail.com","testemail4@gmail.com"})
+    void createUserWithExistingEmailShouldReturnErrorMessage(String email) throws Exception {
+        var response = mockMvc
+                .perform(post("/user")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UserDTORequest("Somename",email,30))))
+                .andReturn();
+        JsonNode errors = objectMapper
+                .readTree(response
+                        .getResponse()
+                        .getContentAsString())
+                .path("errors");
+
+        assertEquals(400,response
+                .getResponse()
+                .getStatus());
+        assertTrue(errors.has("email"));
+        verify(outboxService,never()).append(any(AbstractKafkaMessage.class));
+    }
+
+    @Test
+    void createUserWithExistingEmailShouldBeRejectedByInsert() {
+        NotValidUserException exception = assertThrows(NotValidUserException.class,() -> userService.createUser(new UserDTORequest("Somename","testemail5@gmail.com",30)));
+
+        assertTrue(exception
+                .getErrorMap()
+                .containsKey("email"));
+    }
+
+    /*
+    Релей в тестах выключен (user.outbox.relay-enabled), чтобы события не уходили в кафку между тестами,
+    поэтому он вызывается явно. Вызов идет в отдельном потоке, как из планировщика, и его запросы
+    не попадают в @QueryBudget теста. Консьюмер читает топик с начала, поэтому берутся только записи
+    с ключом пользователя теста.
+    */
+    private List<ConsumerRecord<String, UserEvent>> relayedRecords(Long userId) {
+        CompletableFuture
+                .runAsync(outboxRelay::relay)
+                .join();
+        List<ConsumerRecord<String, UserEvent>> found = new ArrayList<>();
+        long deadline = System.nanoTime() + Duration
+                .ofSeconds(10)
+                .toNanos();
+        while (System.nanoTime() < deadline) {
+            ConsumerRecords<String, UserEvent> records = consumer.poll(Duration.ofMillis(500));
+            for (ConsumerRecord<String, UserEvent> record : records) {
+                if (String
+                        .valueOf(userId)
+                        .equals(record.key())) found.add(record);
+            }
+            if (! found.isEmpty() && records.isEmpty()) break;
+        }
+        return found;
+    }
+
     private static Stream<Arguments> getExistingIds() {
         return IntStream
                 .rangeClosed(1,30)
@@ -16,23 +16,36 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.validation.BindingResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.aston.UserServiceAPI.Utils.ImportJobNotFoundException;
 import ru.aston.UserServiceAPI.Utils.NotValidUserException;
+import ru.aston.UserServiceAPI.Utils.UserCursor;
 import ru.aston.UserServiceAPI.Utils.UserDTOValidator;
 import ru.aston.UserServiceAPI.Utils.UserNotFoundException;
+import ru.aston.UserServiceAPI.dtos.BatchItemResultDTO;
+import ru.aston.UserServiceAPI.dtos.CursorPageDTO;
+import ru.aston.UserServiceAPI.dtos.ImportJobDTO;
 import ru.aston.UserServiceAPI.dtos.UserDTORequest;
 import ru.aston.UserServiceAPI.dtos.UserDTOResponse;
 import ru.aston.UserServiceAPI.entitys.User;
 import ru.aston.UserServiceAPI.hateoas.UserAssembler;
-import ru.aston.UserServiceAPI.kafka.ProducerService;
-import ru.aston.UserServiceAPI.kafka.Sendable;
+import ru.aston.UserServiceAPI.services.ExportFormat;
+import ru.aston.UserServiceAPI.services.ImportJob;
+import ru.aston.UserServiceAPI.services.UserExportService;
+import ru.aston.UserServiceAPI.services.UserImportService;
 import ru.aston.UserServiceAPI.services.UserService;
 
+import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -53,12 +66,14 @@ class UserControllerUnitTest {
     private UserService userService;
     @Mock
     private UserDTOValidator userDTOValidator;
-    @Mock
-    private ProducerService producerService;
     @InjectMocks
     private UserControllerImpl userControllerImpl;
     @Mock
     private UserAssembler userAssembler;
+    @Mock
+    private UserExportService userExportService;
+    @Mock
+    private UserImportService userImportService;
 
     @BeforeAll
     static void beforeAll() {
@@ -201,15 +216,100 @@ class UserControllerUnitTest {
         verify(userService,times(1)).getAllUsersDefault();
     }
 
+    @ParameterizedTest
+    @CsvSource (value = {"0,10","15,5","1000,1"})
+    void getAllUsersAfterWithRawIdShouldUseKeysetPagination(long after,int size) {
+        CursorPageDTO cursorPage = new CursorPageDTO(userDTOResponseList,size,null,null);
+        when(userService.getUsersAfterCursor(after,size)).thenReturn(cursorPage);
+        when(userAssembler.toCursorCollectionModel(cursorPage)).thenReturn(CollectionModel.of(entityModels));
+
+        ResponseEntity<CollectionModel<EntityModel<UserDTOResponse>>> response = userControllerImpl.getAllUsersAfter(String.valueOf(after),size);
+
+        assertEquals(HttpStatus.OK,response.getStatusCode());
+        Assertions.assertNotNull(response.getBody());
+        assertEquals(entityModels.size(),response
+                .getBody()
+                .getContent()
+                .size());
+        verify(userService,never()).getAllUsersWithPaginationAndSort(anyInt(),anyInt(),anyString());
+    }
+
+    @ParameterizedTest
+    @ValueSource (longs = {1,20,Long.MAX_VALUE})
+    void getAllUsersWithEncodedCursorShouldDecodeId(long id) {
+        when(userService.getUsersAfterCursor(id,null)).thenReturn(new CursorPageDTO(List.of(),10,null,null));
+        when(userService.getUsersBeforeCursor(id,null)).thenReturn(new CursorPageDTO(List.of(),10,null,null));
+
+        userControllerImpl.getAllUsersAfter(UserCursor.encode(id),null);
+        userControllerImpl.getAllUsersBefore(UserCursor.encode(id),null);
+
+        verify(userService,times(1)).getUsersAfterCursor(id,null);
+        verify(userService,times(1)).getUsersBeforeCursor(id,null);
+    }
+
+    @ParameterizedTest
+    @ValueSource (strings = {"","-5","notACursor","99999999999999999999"})
+    void getAllUsersWithInvalidCursorShouldThrowNotValidUserException(String cursor) {
+        assertThrows(NotValidUserException.class,() -> userControllerImpl.getAllUsersAfter(cursor,10));
+        assertThrows(NotValidUserException.class,() -> userControllerImpl.getAllUsersBefore(cursor,10));
+    }
+
+    @ParameterizedTest
+    @CsvSource (value = {"csv,,CSV,1","ndjson,4,NDJSON,4","blabla,0,NDJSON,1",",-3,NDJSON,1"})
+    void exportUsersShouldStreamWithRequestedFormat(String format,Integer parallel,ExportFormat expectedFormat,int expectedParallelism) throws Exception {
+        ResponseEntity<StreamingResponseBody> response = userControllerImpl.exportUsers(format,parallel);
+        Assertions.assertNotNull(response.getBody());
+        response
+                .getBody()
+                .writeTo(new ByteArrayOutputStream());
+
+        assertEquals(HttpStatus.OK,response.getStatusCode());
+        assertEquals(MediaType.parseMediaType(expectedFormat.getMediaType()),response
+                .getHeaders()
+                .getContentType());
+        verify(userExportService,times(1)).export(eq(expectedFormat),eq(expectedParallelism),any());
+    }
+
+    @ParameterizedTest
+    @CsvSource (value = {"users.csv,,CSV","users.ndjson,,NDJSON","users.txt,csv,CSV","users.csv,ndjson,NDJSON"})
+    void importUsersShouldStartJobWithExpectedFormat(String fileName,String format,ExportFormat expectedFormat) throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file",fileName,"text/plain","name,email,age\n".getBytes());
+        ImportJob job = new ImportJob(expectedFormat,file.getSize());
+        when(userImportService.start(file,expectedFormat)).thenReturn(job);
+
+        ResponseEntity<ImportJobDTO> response = userControllerImpl.importUsers(file,format);
+
+        assertEquals(HttpStatus.ACCEPTED,response.getStatusCode());
+        assertEquals(job.getId(),response
+                .getBody()
+                .getId());
+        assertEquals("/user/import/" + job.getId(),response
+                .getHeaders()
+                .getLocation()
+                .toString());
+    }
+
+    @Test
+    void importUsersWithEmptyFileShouldThrowNotValidUserException() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file","users.csv","text/csv",new byte[0]);
+
+        assertThrows(NotValidUserException.class,() -> userControllerImpl.importUsers(file,null));
+        verifyNoInteractions(userImportService);
+    }
+
+    @Test
+    void getImportJobShouldThrowImportJobNotFoundException() throws Exception {
+        UUID id = UUID.randomUUID();
+        when(userImportService.getJob(id)).thenReturn(Optional.empty());
+
+        assertThrows(ImportJobNotFoundException.class,() -> userControllerImpl.getImportJob(id));
+    }
+
     @Test
     void createUserShouldReturnCreatedUser() throws Exception {
         BindingResult bindingResult = mock(BindingResult.class);
         when(bindingResult.hasErrors()).thenReturn(false);
         when(userService.createUser(validUserDTORequest)).thenReturn(validUserDTOResponse);
-        doNothing()
-                .when(producerService)
-                .send(any(Sendable.class))
-        ;
 
         ResponseEntity<UserDTOResponse> response = userControllerImpl.createUser(validUserDTORequest,bindingResult);
 
@@ -225,6 +325,19 @@ class UserControllerUnitTest {
         assertThrows(NotValidUserException.class,() -> userControllerImpl.createUser(validUserDTORequest,bindingResult));
     }
 
+    @Test
+    void createUsersShouldReturnResultForEveryUser() throws Exception {
+        List<UserDTORequest> requests = List.of(validUserDTORequest,invalidUserDTORequest);
+        List<BatchItemResultDTO> results = List.of(BatchItemResultDTO.created(0,validUserDTOResponse),
+                BatchItemResultDTO.rejected(1,Map.of("name","Name should be between 2 and 50 characters.")));
+        when(userService.createUsers(requests)).thenReturn(results);
+
+        ResponseEntity<List<BatchItemResultDTO>> response = userControllerImpl.createUsers(requests);
+
+        assertEquals(HttpStatus.OK,response.getStatusCode());
+        assertEquals(results,response.getBody());
+    }
+
     @ParameterizedTest
     @CsvSource (value = {"-1","-2","-3",","})
     void deleteUserShouldThrowUserNotFoundException(Long id) throws Exception {
@@ -245,10 +358,6 @@ class UserControllerUnitTest {
     @CsvSource (value = {"1","2","3","4"})
     void deleteUserShouldReturnEntityWithDeletedUser(Long id) throws Exception {
         when(userService.deleteUserById(id)).thenReturn(Optional.of(validUserDTOResponse));
-        doNothing()
-                .when(producerService)
-                .send(any(Sendable.class))
-        ;
 
         ResponseEntity<UserDTOResponse> response = userControllerImpl.deleteUser(id);
 
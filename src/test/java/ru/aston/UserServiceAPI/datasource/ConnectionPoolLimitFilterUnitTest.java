@@ -0,0 +1,105 @@
+package ru.aston.UserServiceAPI.datasource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolLimitFilterUnitTest {
+
+    ConnectionPoolLimitFilter filter = new ConnectionPoolLimitFilter(1,Duration.ofMillis(50),new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+
+    @Test
+    void requestOverLimitShouldBeRejectedAfterTimeout() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> running = CompletableFuture.runAsync(() -> {
+            try {
+                filter.doFilter(new MockHttpServletRequest("GET","/api/users/1"),new MockHttpServletResponse(),(request,response) -> {
+                    entered.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread
+                                .currentThread()
+                                .interrupt();
+                    }
+                });
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(entered.await(5,TimeUnit.SECONDS));
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(new MockHttpServletRequest("GET","/api/users/2"),rejected,chain);
+
+        assertEquals(503,rejected.getStatus());
+        assertEquals(ConnectionPoolLimitFilter.RETRY_AFTER_SECONDS,rejected.getHeader(HttpHeaders.RETRY_AFTER));
+        assertNull(chain.getRequest());
+        assertEquals(1,filter.getActive());
+
+        release.countDown();
+        running.get(5,TimeUnit.SECONDS);
+        assertEquals(0,filter.getActive());
+    }
+
+    @Test
+    void permitShouldBeReleasedWhenChainFails() throws Exception {
+        FilterChain failing = (request,response) -> {
+            throw new ServletException("Handler failed");
+        };
+
+        assertThrows(ServletException.class,() -> filter.doFilter(new MockHttpServletRequest("POST","/api/users"),new MockHttpServletResponse(),failing));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET","/api/users/1"),response,new MockFilterChain());
+        assertEquals(200,response.getStatus());
+        assertEquals(0,filter.getActive());
+    }
+
+    @Test
+    void actuatorShouldNotBeLimited() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> running = CompletableFuture.runAsync(() -> {
+            try {
+                filter.doFilter(new MockHttpServletRequest("GET","/api/users"),new MockHttpServletResponse(),(request,response) -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread
+                                .currentThread()
+                                .interrupt();
+                    }
+                });
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        while (filter.getActive() == 0) {
+            Thread.onSpinWait();
+        }
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(new MockHttpServletRequest("GET","/actuator/health"),response,chain);
+
+        assertEquals(200,response.getStatus());
+        assertNotNull(chain.getRequest());
+        release.countDown();
+        running.get(5,TimeUnit.SECONDS);
+    }
+}
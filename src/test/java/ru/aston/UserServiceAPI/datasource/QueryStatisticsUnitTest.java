@@ -0,0 +1,116 @@
+package ru.aston.UserServiceAPI.datasource;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryStatisticsUnitTest {
+
+    static final String SELECT = "select * from users where id=?";
+
+    Logger logger;
+    ListAppender<ILoggingEvent> appender;
+
+    @BeforeEach
+    void setUp() {
+        logger = (Logger) LoggerFactory.getLogger(QueryStatistics.class);
+        appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+        while (QueryStatistics.current() != null) QueryStatistics
+                .current()
+                .close();
+    }
+
+    @Test
+    void nestedScopeShouldAddCountersToParent() {
+        try (QueryStatistics outer = QueryStatistics.start("outer",Integer.MAX_VALUE)) {
+            execute(outer,SELECT,"[1]",1);
+            try (QueryStatistics inner = QueryStatistics.start("inner",Integer.MAX_VALUE)) {
+                assertSame(inner,QueryStatistics.current());
+                execute(inner,SELECT,"[2]",1);
+                execute(inner,"update users set age=? where id=?","[30, 2]",1);
+                inner.rowRead();
+
+                assertEquals(2,inner.getStatements());
+                assertEquals(1,outer.getStatements());
+            }
+            assertSame(outer,QueryStatistics.current());
+            assertEquals(3,outer.getStatements());
+            assertEquals(4,outer.getRows());
+            assertEquals(2,outer
+                    .getQueries()
+                    .get(SELECT));
+        }
+        assertNull(QueryStatistics.current());
+    }
+
+    @Test
+    void sameQueryWithSameParametersShouldBeReportedOnceAsDuplicate() {
+        try (QueryStatistics statistics = QueryStatistics.start("duplicates",Integer.MAX_VALUE)) {
+            execute(statistics,SELECT,"[1]",1);
+            execute(statistics,SELECT,"[1]",1);
+            execute(statistics,SELECT,"[1]",1);
+            execute(statistics,SELECT,"[2]",1);
+        }
+
+        assertEquals(1,warnings("Duplicate query"));
+        assertEquals(0,warnings("possible N+1"));
+    }
+
+    @Test
+    void repeatedQueryShouldBeReportedOnceAtThreshold() {
+        try (QueryStatistics statistics = QueryStatistics.start("n+1",3)) {
+            execute(statistics,SELECT,"[1]",1);
+            execute(statistics,SELECT,"[2]",1);
+            assertEquals(0,warnings("possible N+1"));
+            execute(statistics,SELECT,"[3]",1);
+            execute(statistics,SELECT,"[4]",1);
+            execute(statistics,SELECT,"[5]",1);
+        }
+
+        assertEquals(1,warnings("possible N+1"));
+        assertEquals(0,warnings("Duplicate query"));
+    }
+
+    @Test
+    void batchShouldNotBeReportedAsDuplicate() {
+        try (QueryStatistics statistics = QueryStatistics.start("batch",Integer.MAX_VALUE)) {
+            execute(statistics,"insert into users values (?)",null,50);
+            execute(statistics,"insert into users values (?)",null,50);
+
+            assertEquals(100,statistics.getRows());
+        }
+
+        assertEquals(0,warnings("Duplicate query"));
+    }
+
+    private static void execute(QueryStatistics statistics,String sql,String parameters,long rows) {
+        statistics.queryStarted();
+        statistics.queryFinished(rows);
+        statistics.track(sql,parameters);
+    }
+
+    private long warnings(String prefix) {
+        List<ILoggingEvent> events = appender.list;
+        return events
+                .stream()
+                .filter(event -> event
+                        .getMessage()
+                        .contains(prefix))
+                .count();
+    }
+}
@@ -0,0 +1,77 @@
+package ru.aston.UserServiceAPI.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ReadReplicaRoutingDataSourceUnitTest {
+
+    ReplicaLagMonitor monitor;
+    ReadReplicaRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        monitor = new ReplicaLagMonitor(Map.of("replica-0",ReplicaLagMonitorUnitTest.replica(0)),Duration.ofSeconds(5),Duration.ofSeconds(2),mock(TaskScheduler.class));
+        monitor.checkLag();
+        routingDataSource = new ReadReplicaRoutingDataSource(mock(DataSource.class),monitor.getReplicas(),monitor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        TransactionSynchronizationManager.setCurrentTransactionIsolationLevel(null);
+        DataSourceRoutingContext.clear();
+        DataSourceRoutingContext.clearReplicaRead();
+    }
+
+    @Test
+    void writeTransactionShouldGoToPrimary() {
+        assertEquals(ReadReplicaRoutingDataSource.PRIMARY,routingDataSource.determineCurrentLookupKey());
+        assertFalse(DataSourceRoutingContext.clearReplicaRead());
+    }
+
+    @Test
+    void readOnlyTransactionShouldGoToReplica() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertEquals("replica-0",routingDataSource.determineCurrentLookupKey());
+        assertTrue(DataSourceRoutingContext.clearReplicaRead());
+        assertFalse(DataSourceRoutingContext.clearReplicaRead());
+    }
+
+    @Test
+    void serializableReadShouldGoToPrimary() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        TransactionSynchronizationManager.setCurrentTransactionIsolationLevel(Connection.TRANSACTION_SERIALIZABLE);
+
+        assertEquals(ReadReplicaRoutingDataSource.PRIMARY,routingDataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void forcedPrimaryShouldOverrideReadOnly() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        DataSourceRoutingContext.forcePrimary();
+
+        assertEquals(ReadReplicaRoutingDataSource.PRIMARY,routingDataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void readOnlyTransactionShouldFallBackToPrimaryWhenReplicasLag() throws Exception {
+        ReplicaLagMonitor lagging = new ReplicaLagMonitor(Map.of("replica-0",ReplicaLagMonitorUnitTest.replica(60)),Duration.ofSeconds(5),Duration.ofSeconds(2),mock(TaskScheduler.class));
+        lagging.checkLag();
+        ReadReplicaRoutingDataSource routing = new ReadReplicaRoutingDataSource(mock(DataSource.class),lagging.getReplicas(),lagging);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertEquals(ReadReplicaRoutingDataSource.PRIMARY,routing.determineCurrentLookupKey());
+    }
+}
@@ -0,0 +1,65 @@
+package ru.aston.UserServiceAPI.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadYourWritesFilterUnitTest {
+
+    ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofSeconds(5));
+    AtomicBoolean primaryForced = new AtomicBoolean();
+    FilterChain chain = (request,response) -> primaryForced.set(DataSourceRoutingContext.isPrimaryForced());
+
+    @Test
+    void writeShouldForcePrimaryAndSetStickyCookie() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        long before = System.currentTimeMillis();
+
+        filter.doFilter(new MockHttpServletRequest("POST","/user"),response,chain);
+
+        assertTrue(primaryForced.get());
+        Cookie cookie = response.getCookie(ReadYourWritesFilter.COOKIE_NAME);
+        assertNotNull(cookie);
+        assertTrue(Long.parseLong(cookie.getValue()) >= before + 5000);
+        assertFalse(DataSourceRoutingContext.isPrimaryForced());
+    }
+
+    @Test
+    void readInsideStickyWindowShouldForcePrimary() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET","/user");
+        request.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME,String.valueOf(System.currentTimeMillis() + 5000)));
+
+        filter.doFilter(request,new MockHttpServletResponse(),chain);
+
+        assertTrue(primaryForced.get());
+        assertFalse(DataSourceRoutingContext.isPrimaryForced());
+    }
+
+    @Test
+    void readAfterStickyWindowShouldNotForcePrimary() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET","/user");
+        request.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME,String.valueOf(System.currentTimeMillis() - 1)));
+
+        filter.doFilter(request,new MockHttpServletResponse(),chain);
+
+        assertFalse(primaryForced.get());
+    }
+
+    @Test
+    void readWithoutOrWithMalformedCookieShouldNotForcePrimary() throws Exception {
+        filter.doFilter(new MockHttpServletRequest("GET","/user"),new MockHttpServletResponse(),chain);
+        assertFalse(primaryForced.get());
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET","/user");
+        request.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME,"not-a-number"));
+        filter.doFilter(request,new MockHttpServletResponse(),chain);
+        assertFalse(primaryForced.get());
+    }
+}
@@ -0,0 +1,86 @@
+package ru.aston.UserServiceAPI.datasource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.TaskScheduler;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicaLagMonitorUnitTest {
+
+    @Test
+    void laggingAndUnavailableReplicasShouldBeSkipped() throws Exception {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0",replica(0.5));
+        replicas.put("replica-1",replica(30));
+        replicas.put("replica-2",unavailable());
+        ReplicaLagMonitor monitor = monitor(replicas);
+
+        monitor.checkLag();
+
+        assertEquals(List.of("replica-0"),monitor.getHealthyReplicas());
+        assertEquals("replica-0",monitor.nextHealthyReplica());
+        assertEquals("replica-0",monitor.nextHealthyReplica());
+    }
+
+    @Test
+    void healthyReplicasShouldBeUsedRoundRobin() throws Exception {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0",replica(0));
+        replicas.put("replica-1",replica(1));
+        ReplicaLagMonitor monitor = monitor(replicas);
+
+        monitor.checkLag();
+
+        assertEquals("replica-0",monitor.nextHealthyReplica());
+        assertEquals("replica-1",monitor.nextHealthyReplica());
+        assertEquals("replica-0",monitor.nextHealthyReplica());
+    }
+
+    @Test
+    void noReplicaShouldBeReturnedWhenAllLag() throws Exception {
+        ReplicaLagMonitor monitor = monitor(Map.of("replica-0",replica(60)));
+
+        assertNull(monitor.nextHealthyReplica());
+        monitor.checkLag();
+        assertNull(monitor.nextHealthyReplica());
+        assertTrue(monitor
+                .getHealthyReplicas()
+                .isEmpty());
+    }
+
+    private ReplicaLagMonitor monitor(Map<String, DataSource> replicas) {
+        return new ReplicaLagMonitor(replicas,Duration.ofSeconds(5),Duration.ofSeconds(2),mock(TaskScheduler.class));
+    }
+
+    static DataSource replica(double lagSeconds) throws SQLException {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getDouble(1)).thenReturn(lagSeconds);
+        Statement statement = mock(Statement.class);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        Connection connection = mock(Connection.class);
+        when(connection.createStatement()).thenReturn(statement);
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        return dataSource;
+    }
+
+    static DataSource unavailable() throws SQLException {
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenThrow(new SQLException("Connection refused"));
+        return dataSource;
+    }
+}
@@ -0,0 +1,111 @@
+package ru.aston.UserServiceAPI.hateoas;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import ru.aston.UserServiceAPI.controllers.UserControllerImpl;
+import ru.aston.UserServiceAPI.dtos.CursorPageDTO;
+import ru.aston.UserServiceAPI.dtos.UserDTOResponse;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.*;
+
+class UserAssemblerUnitTest {
+
+    UserAssembler assembler = new UserAssembler();
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void linksShouldMatchLinkBuilder() {
+        request("localhost",8080,"");
+
+        for (long id : new long[]{1,42,Long.MAX_VALUE}) {
+            UserDTOResponse dto = dto(id);
+            assertEquals(List.of(linkTo(methodOn(UserControllerImpl.class)
+                    .getUser(id,null,null))
+                    .withSelfRel()
+                    .expand(),linkTo(methodOn(UserControllerImpl.class)
+                    .deleteUser(id))
+                    .withRel("Delete this user")
+                    .withType("DELETE"),linkTo(methodOn(UserControllerImpl.class)
+                    .updateUser(id,null,null))
+                    .withRel("Update this user")
+                    .withType("PUT")),assembler
+                    .toModel(dto)
+                    .getLinks()
+                    .toList());
+        }
+    }
+
+    @Test
+    void collectionShouldKeepSelfLinkWithCreateTemplate() {
+        request("localhost",8080,"");
+
+        CollectionModel<EntityModel<UserDTOResponse>> model = assembler.toCollectionModel(List.of(dto(1),dto(2)));
+        Link self = model
+                .getLink(IanaLinkRelations.SELF)
+                .orElseThrow();
+
+        assertEquals(2,model
+                .getContent()
+                .size());
+        assertEquals("http://localhost:8080/user/all{?page,size,sort}",self.getHref());
+        assertEquals("GET",self.getType());
+        assertEquals(2,self
+                .getAffordances()
+                .size());
+    }
+
+    @Test
+    void cursorLinksShouldUsePageSize() {
+        request("localhost",8080,"");
+
+        CollectionModel<EntityModel<UserDTOResponse>> model = assembler.toCursorCollectionModel(new CursorPageDTO(List.of(dto(5),dto(6)),2,"Ng","NQ"));
+
+        assertEquals("http://localhost:8080/user/all?after=Ng&size=2",model
+                .getRequiredLink(IanaLinkRelations.NEXT)
+                .getHref());
+        assertEquals("http://localhost:8080/user/all?before=NQ&size=2",model
+                .getRequiredLink(IanaLinkRelations.PREV)
+                .getHref());
+    }
+
+    @Test
+    void linksShouldFollowBaseUriOfCurrentRequest() {
+        request("localhost",8080,"");
+        assembler.toModel(dto(7));
+        request("users.example.com",443,"/api");
+
+        assertEquals("https://users.example.com/api/user?id=7",assembler
+                .toModel(dto(7))
+                .getRequiredLink(IanaLinkRelations.SELF)
+                .getHref());
+    }
+
+    private static void request(String host,int port,String contextPath) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET",contextPath + "/user/all");
+        request.setServerName(host);
+        request.setServerPort(port);
+        request.setContextPath(contextPath);
+        if (port == 443) request.setScheme("https");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    private static UserDTOResponse dto(long id) {
+        UserDTOResponse dto = new UserDTOResponse("Somename","someemail" + id + "@gmail.com",30);
+        dto.setId(id);
+        return dto;
+    }
+}
@@ -0,0 +1,73 @@
+package ru.aston.UserServiceAPI.hateoas;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.aston.UserServiceAPI.Utils.NotValidUserException;
+import ru.aston.UserServiceAPI.dtos.UserDTOResponse;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserRepresentationAdviceUnitTest {
+
+    UserRepresentationAdvice advice = new UserRepresentationAdvice();
+    UserDTOResponse user = user(1);
+    EntityModel<UserDTOResponse> model = EntityModel.of(user,Link.of("http://localhost/user?id=1"));
+
+    @Test
+    void halFormsWithoutFieldsShouldBeWrittenAsIs() {
+        assertSame(model,write(model,MediaTypes.HAL_FORMS_JSON,null));
+    }
+
+    @Test
+    void leanFormatsShouldWriteUserWithoutLinks() {
+        assertSame(user,write(model,MediaType.APPLICATION_JSON,null));
+        assertSame(user,write(model,MediaType.APPLICATION_CBOR,null));
+        assertSame(user,write(model,MediaType.parseMediaType(UserRepresentationAdvice.SMILE_VALUE),null));
+    }
+
+    @Test
+    void leanCollectionShouldBeProjectedInFieldOrder() {
+        CollectionModel<EntityModel<UserDTOResponse>> collection = CollectionModel.of(List.of(model,EntityModel.of(user(2))),Link.of("http://localhost/user/all"));
+
+        Object body = write(collection,MediaType.APPLICATION_CBOR,"email, id,email");
+
+        assertEquals(List.of(Map.of("id",1L,"email","someemail1@gmail.com"),Map.of("id",2L,"email","someemail2@gmail.com")),body);
+        assertEquals(List.of("id","email"),List.copyOf(((Map<?, ?>) ((List<?>) body).get(0)).keySet()));
+    }
+
+    @Test
+    void halFormsProjectionShouldKeepLinks() {
+        EntityModel<?> body = (EntityModel<?>) write(model,MediaTypes.HAL_FORMS_JSON,"name");
+
+        assertEquals(Map.of("name","Somename"),body.getContent());
+        assertEquals(model.getLinks(),body.getLinks());
+    }
+
+    @Test
+    void unknownFieldShouldBeRejected() {
+        assertThrows(NotValidUserException.class,() -> write(model,MediaType.APPLICATION_JSON,"id,password"));
+    }
+
+    private Object write(Object body,MediaType mediaType,String fields) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET","/user");
+        if (fields != null) request.addParameter(UserRepresentationAdvice.FIELDS,fields);
+        return advice.beforeBodyWrite(body,null,mediaType,null,new ServletServerHttpRequest(request),new ServletServerHttpResponse(new MockHttpServletResponse()));
+    }
+
+    private static UserDTOResponse user(long id) {
+        UserDTOResponse user = new UserDTOResponse("Somename","someemail" + id + "@gmail.com",30);
+        user.setId(id);
+        return user;
+    }
+}
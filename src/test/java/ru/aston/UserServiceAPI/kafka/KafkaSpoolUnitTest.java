@@ -0,0 +1,273 @@
+package ru.aston.UserServiceAPI.kafka;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+
+class KafkaSpoolUnitTest {
+
+    @TempDir
+    Path directory;
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    List<KafkaSpool> spools = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        spools.forEach(KafkaSpool::close);
+    }
+
+    @Test
+    void recordsShouldBeReadInOrderAcrossSegments() throws Exception {
+        KafkaSpool spool = spool(16);
+        for (int i = 0;i < 100;i++) {
+            assertTrue(spool.append("topic","key" + i,bytes("created")));
+        }
+
+        assertTrue(segmentFiles() > 1);
+        assertEquals(IntStream
+                .range(0,100)
+                .mapToObj(i -> "key" + i)
+                .toList(),drain(spool,7));
+        assertTrue(spool.isEmpty());
+        assertEquals(1,segmentFiles());
+    }
+
+    @Test
+    void spoolShouldRecoverUnreadRecordsAfterRestart() throws Exception {
+        KafkaSpool spool = spool(16);
+        for (int i = 0;i < 10;i++) {
+            spool.append("topic","key" + i,bytes(i % 2 == 0 ? "created" : "deleted"));
+        }
+        spool.commit(spool.peek(4));
+        spool.close();
+
+        KafkaSpool recovered = spool(16);
+
+        assertEquals(6,recovered.getDepth());
+        KafkaSpool.Batch batch = recovered.peek(100);
+        KafkaSpool.Record first = batch
+                .records()
+                .get(0);
+        assertEquals("topic",first.topic());
+        assertEquals("key4",first.key());
+        assertArrayEquals(bytes("created"),first.value());
+        assertEquals(List.of("key4","key5","key6","key7","key8","key9"),drain(recovered,100));
+    }
+
+    @Test
+    void rotationShouldDropOldestSegmentWhenSpoolIsFull() throws Exception {
+        KafkaSpool spool = spool(2);
+        for (int i = 0;i < 100;i++) {
+            spool.append("topic","key" + i,bytes("created"));
+        }
+
+        List<String> keys = drain(spool,100);
+        double dropped = meterRegistry
+                .get("user.kafka.spool.dropped")
+                .counter()
+                .count();
+        assertTrue(dropped > 0);
+        assertEquals(100,keys.size() + (int) dropped);
+        assertEquals("key99",keys.get(keys.size() - 1));
+        assertTrue(segmentFiles() <= 2);
+    }
+
+    @Test
+    void spoolShouldRequireDirectory() {
+        SpoolProperties properties = new SpoolProperties();
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+
+        assertThrows(IllegalStateException.class,() -> new KafkaSpool(properties,beanFactory.getBeanProvider(MeterRegistry.class)));
+    }
+
+    @Test
+    void directoryShouldBeLockedByOneSpool() throws Exception {
+        KafkaSpool spool = spool(16);
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,() -> spool(16));
+        assertTrue(exception
+                .getMessage()
+                .contains("used by another instance"));
+        spool.close();
+        assertNotNull(spool(16));
+    }
+
+    @Test
+    void deletedSegmentsShouldBeUnmapped() throws Exception {
+        Path maps = Path.of("/proc/self/maps");
+        assumeTrue(Files.isReadable(maps),"Mappings of the process are only visible on Linux");
+        Path realDirectory = directory.toRealPath();
+        KafkaSpool spool = spool(16);
+        for (int i = 0;i < 100;i++) {
+            spool.append("topic","key" + i,bytes("created"));
+        }
+        List<Path> segments = segments(realDirectory);
+
+        drain(spool,7);
+
+        String mapped = Files.readString(maps);
+        List<Path> deleted = segments
+                .stream()
+                .filter(segment -> ! Files.exists(segment))
+                .toList();
+        assertFalse(deleted.isEmpty());
+        for (Path segment : deleted) {
+            assertFalse(mapped.contains(segment.toString()),"Deleted segment " + segment + " is still mapped");
+        }
+    }
+
+    @Test
+    void messagesSentWhileBrokerIsDownShouldBeReplayedInOrder() throws Exception {
+        KafkaSpool spool = spool(64);
+        StandInBroker broker = new StandInBroker();
+        ProducerExecutorProperties executorProperties = new ProducerExecutorProperties();
+        executorProperties.setThreads(1);
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("spool",spool);
+        beanFactory.addBean("meterRegistry",meterRegistry);
+        ProducerExecutor executor = new ProducerExecutor(executorProperties,beanFactory.getBeanProvider(MeterRegistry.class));
+        ProducerService producerService = new ProducerService(broker,"notifications",executor,beanFactory.getBeanProvider(OutboxService.class),beanFactory.getBeanProvider(KafkaSpool.class));
+        SpoolProperties properties = new SpoolProperties();
+        properties.setReplayBatchSize(7);
+        SpoolReplayer replayer = new SpoolReplayer(spool,producerService,properties,mock(TaskScheduler.class),beanFactory.getBeanProvider(MeterRegistry.class));
+        try {
+            broker.up = false;
+            for (int i = 0;i < 50;i++) {
+                producerService.send(new UserEventKafkaMessage(event(UserEvent.Type.CREATED,i)));
+            }
+            waitUntil(() -> spool.getDepth() == 50);
+            replayer.replay();
+
+            assertEquals(50,spool.getDepth());
+            broker.up = true;
+            producerService.send(new UserEventKafkaMessage(event(UserEvent.Type.DELETED,0)));
+            waitUntil(() -> spool.getDepth() == 51);
+            replayer.replay();
+
+            assertTrue(spool.isEmpty());
+            List<String> expected = new ArrayList<>();
+            for (int i = 0;i < 50;i++) {
+                expected.add("notifications:" + i + ":CREATED");
+            }
+            expected.add("notifications:0:DELETED");
+            assertEquals(expected,broker.received);
+            //Сохраненные в спул отправки не считаются ни успешными, ни упавшими
+            assertEquals(51,sendCount("spooled"));
+            assertEquals(0,sendCount("success"));
+            assertEquals(0,sendCount("failure"));
+        } finally {
+            executor.close();
+        }
+    }
+
+    private KafkaSpool spool(int maxSegments) throws Exception {
+        SpoolProperties properties = new SpoolProperties();
+        properties.setDirectory(directory);
+        properties.setSegmentSize(DataSize.ofBytes(256));
+        properties.setMaxSegments(maxSegments);
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry",meterRegistry);
+        KafkaSpool spool = new KafkaSpool(properties,beanFactory.getBeanProvider(MeterRegistry.class));
+        spools.add(spool);
+        return spool;
+    }
+
+    private long sendCount(String result) {
+        return meterRegistry
+                .get("user.kafka.send")
+                .tag("result",result)
+                .timer()
+                .count();
+    }
+
+    private List<String> drain(KafkaSpool spool,int batchSize) {
+        List<String> keys = new ArrayList<>();
+        while (true) {
+            KafkaSpool.Batch batch = spool.peek(batchSize);
+            if (batch
+                    .records()
+                    .isEmpty()) return keys;
+            batch
+                    .records()
+                    .forEach(record -> keys.add(record.key()));
+            spool.commit(batch);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static UserEvent event(UserEvent.Type type,long id) {
+        return new UserEvent(type,id,0,"Somename","email" + id + "@gmail.com",30,Instant.now());
+    }
+
+    private long segmentFiles() throws Exception {
+        return segments(directory).size();
+    }
+
+    private static List<Path> segments(Path directory) throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> file
+                            .getFileName()
+                            .toString()
+                            .endsWith(".seg"))
+                    .toList();
+        }
+    }
+
+    private void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (! condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) fail("Condition was not met in 5 seconds");
+            Thread.sleep(5);
+        }
+    }
+
+    //Заглушка брокера: пока up=false, каждая отправка падает, как при недоступном bootstrap-servers
+    static class StandInBroker extends KafkaTemplate<String, byte[]> {
+
+        final List<String> received = new CopyOnWriteArrayList<>();
+        volatile boolean up = true;
+
+        StandInBroker() {
+            super(new DefaultKafkaProducerFactory<>(Map.of()));
+        }
+
+        @Override
+        public CompletableFuture<SendResult<String, byte[]>> send(String topic,String key,byte[] data) {
+            if (! up) return CompletableFuture.failedFuture(new IllegalStateException("Broker is unavailable"));
+            received.add(topic + ":" + key + ":" + UserEventDeserializer
+                    .decode(data)
+                    .type());
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+}
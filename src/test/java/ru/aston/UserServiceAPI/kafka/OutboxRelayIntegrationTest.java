@@ -0,0 +1,228 @@
+package ru.aston.UserServiceAPI.kafka;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.aston.UserServiceAPI.entitys.OutboxEvent;
+import ru.aston.UserServiceAPI.repos.OutboxRepository;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static ru.aston.UserServiceAPI.controllers.UserControllerIntegrationTest.kafkaContainer;
+
+@SpringBootTest
+@Testcontainers
+@DirtiesContext (classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@ActiveProfiles ("test")
+class OutboxRelayIntegrationTest {
+
+    /*
+    Релеи собираются вручную поверх настоящих репозитория и базы, продюсер подменен,
+    чтобы управлять подтверждением пачки. Два релея изображают два узла сервиса.
+    */
+
+    private static final String TABLE_LOCKS = "SELECT count(*) FROM pg_locks WHERE relation = 'user_outbox'::regclass AND mode = 'RowShareLock'";
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer postgreSQLContainer = new PostgreSQLContainer("postgres:18")
+            .withDatabaseName("UserServiceAPI")
+            .withUsername("postgres")
+            .withPassword("postgres")
+            ;
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private OutboxProperties properties;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.kafka.bootstrap-servers",kafkaContainer::getBootstrapServers);
+    }
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository.deleteAllInBatch();
+        properties = new OutboxProperties();
+        properties.setBatchSize(10);
+    }
+
+    @Test
+    void lockBatchShouldSkipRowsLockedByAnotherTransaction() throws Exception {
+        append(4);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        CompletableFuture<List<Long>> first = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status -> {
+            List<Long> ids = ids(outboxRepository.lockBatch(2));
+            locked.countDown();
+            await(release);
+            return ids;
+        }));
+        assertTrue(locked.await(10,TimeUnit.SECONDS));
+        List<Long> second = transactionTemplate.execute(status -> ids(outboxRepository.lockBatch(4)));
+        release.countDown();
+
+        assertEquals(2,first
+                .get(10,TimeUnit.SECONDS)
+                .size());
+        assertEquals(2,second.size());
+        assertTrue(second
+                .stream()
+                .noneMatch(first
+                        .get()::contains));
+    }
+
+    @Test
+    void twoRelaysShouldPublishEveryEventOnceAndDeleteIt() throws Exception {
+        List<Long> appended = append(95);
+        Queue<Long> published = new ConcurrentLinkedQueue<>();
+        Function<List<OutboxEvent>, CompletableFuture<Void>> acknowledge = batch -> {
+            published.addAll(ids(batch));
+            return CompletableFuture.completedFuture(null);
+        };
+        OutboxRelay first = relay(acknowledge);
+        OutboxRelay second = relay(acknowledge);
+
+        CompletableFuture
+                .allOf(CompletableFuture.runAsync(first::relay),CompletableFuture.runAsync(second::relay))
+                .get(30,TimeUnit.SECONDS);
+
+        assertEquals(appended.size(),published.size());
+        assertEquals(appended,published
+                .stream()
+                .sorted()
+                .toList());
+        assertEquals(0,outboxRepository.count());
+    }
+
+    @Test
+    void batchShouldBeClaimedWithoutHoldingLocksWhilePublishing() throws Exception {
+        append(15);
+        CompletableFuture<Void> acknowledgement = new CompletableFuture<>();
+        CountDownLatch publishing = new CountDownLatch(1);
+        Queue<Long> publishedBySecond = new ConcurrentLinkedQueue<>();
+        OutboxRelay first = relay(batch -> {
+            publishing.countDown();
+            return acknowledgement;
+        });
+        OutboxRelay second = relay(batch -> {
+            publishedBySecond.addAll(ids(batch));
+            return CompletableFuture.completedFuture(null);
+        });
+
+        CompletableFuture<Void> firstRelay = CompletableFuture.runAsync(first::relay);
+        assertTrue(publishing.await(10,TimeUnit.SECONDS));
+        //Пока первый релей ждет кафку, транзакция закрыта, а его пачка захвачена и второму не видна
+        assertEquals(0,jdbcTemplate.queryForObject(TABLE_LOCKS,Long.class));
+        second.relay();
+        assertEquals(5,publishedBySecond.size());
+        assertEquals(10,outboxRepository.count());
+
+        acknowledgement.complete(null);
+        firstRelay.get(10,TimeUnit.SECONDS);
+
+        assertEquals(0,outboxRepository.count());
+    }
+
+    @Test
+    void unacknowledgedBatchShouldStayInOutboxAndBeReleased() {
+        List<Long> appended = append(3);
+        OutboxRelay failing = relay(batch -> CompletableFuture.failedFuture(new IllegalStateException("broker is unavailable")));
+
+        failing.relay();
+
+        assertEquals(appended,ids(outboxRepository.findAll()));
+        assertTrue(outboxRepository
+                .findAll()
+                .stream()
+                .allMatch(event -> event.getClaimedUntil() == null));
+
+        Queue<Long> published = new ConcurrentLinkedQueue<>();
+        relay(batch -> {
+            published.addAll(ids(batch));
+            return CompletableFuture.completedFuture(null);
+        }).relay();
+
+        assertEquals(appended,List.copyOf(published));
+        assertEquals(0,outboxRepository.count());
+    }
+
+    @Test
+    void expiredClaimShouldBeTakenByAnotherRelay() {
+        List<Long> appended = append(2);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> outboxRepository.claim(appended,- 1));
+
+        Queue<Long> published = new ConcurrentLinkedQueue<>();
+        relay(batch -> {
+            published.addAll(ids(batch));
+            return CompletableFuture.completedFuture(null);
+        }).relay();
+
+        assertEquals(appended,List.copyOf(published));
+    }
+
+    private OutboxRelay relay(Function<List<OutboxEvent>, CompletableFuture<Void>> producer) {
+        ProducerService producerService = mock(ProducerService.class);
+        when(producerService.sendAll(anyList())).thenAnswer(invocation -> producer.apply(invocation.getArgument(0)));
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        return new OutboxRelay(outboxRepository,producerService,beanFactory.getBeanProvider(UserEventAggregator.class),properties,transactionManager,beanFactory.getBeanProvider(MeterRegistry.class));
+    }
+
+    private List<Long> append(int count) {
+        return ids(outboxRepository.saveAll(IntStream
+                .range(0,count)
+                .mapToObj(i -> new OutboxEvent(String.valueOf(i),new byte[]{(byte) i}))
+                .toList()));
+    }
+
+    private static List<Long> ids(List<OutboxEvent> events) {
+        return events
+                .stream()
+                .map(OutboxEvent::getId)
+                .sorted()
+                .toList();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10,TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread
+                    .currentThread()
+                    .interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
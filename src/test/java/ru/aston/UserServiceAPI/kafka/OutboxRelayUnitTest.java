@@ -0,0 +1,149 @@
+package ru.aston.UserServiceAPI.kafka;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.aston.UserServiceAPI.entitys.OutboxEvent;
+import ru.aston.UserServiceAPI.repos.OutboxRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class OutboxRelayUnitTest {
+
+    OutboxRepository outboxRepository;
+    ProducerService producerService;
+    PlatformTransactionManager transactionManager;
+    MeterRegistry meterRegistry;
+    OutboxProperties properties;
+    OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository = mock(OutboxRepository.class);
+        producerService = mock(ProducerService.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new OutboxProperties();
+        properties.setBatchSize(2);
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry",meterRegistry);
+        relay = new OutboxRelay(outboxRepository,producerService,beanFactory.getBeanProvider(UserEventAggregator.class),properties,transactionManager,beanFactory.getBeanProvider(MeterRegistry.class));
+    }
+
+    @Test
+    void relayShouldPublishAndDeleteEveryBatchUntilOutboxIsDrained() {
+        List<OutboxEvent> first = List.of(event(1,"first@gmail.com"),event(2,"second@gmail.com"));
+        List<OutboxEvent> second = List.of(event(3,"third@gmail.com"));
+        when(outboxRepository.lockBatch(2)).thenReturn(first,second);
+        when(producerService.sendAll(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+
+        relay.relay();
+
+        verify(producerService).sendAll(first);
+        verify(producerService).sendAll(second);
+        verify(outboxRepository).claim(List.of(1L,2L),60.0);
+        verify(outboxRepository).claim(List.of(3L),60.0);
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(1L,2L));
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(3L));
+        //Захват и удаление каждой пачки - две отдельные короткие транзакции
+        verify(transactionManager,times(4)).commit(any());
+        assertEquals(2,meterRegistry
+                .get("user.outbox.batch.size")
+                .summary()
+                .count());
+        assertEquals(3,meterRegistry
+                .get("user.outbox.batch.size")
+                .summary()
+                .totalAmount());
+        assertEquals(2,meterRegistry
+                .get("user.outbox.relay.lag")
+                .timer()
+                .count());
+    }
+
+    @Test
+    void relayShouldKeepAndReleaseEventsWhenKafkaDidNotAcknowledgeBatch() {
+        List<OutboxEvent> batch = new ArrayList<>(List.of(event(1,"first@gmail.com")));
+        when(outboxRepository.lockBatch(2)).thenReturn(batch);
+        when(producerService.sendAll(batch)).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker is unavailable")));
+
+        relay.relay();
+
+        verify(outboxRepository,never()).deleteAllByIdInBatch(any());
+        verify(outboxRepository).release(List.of(1L));
+    }
+
+    @Test
+    void batchShouldBePublishedOutsideLockingTransaction() {
+        List<OutboxEvent> batch = List.of(event(1,"first@gmail.com"));
+        when(outboxRepository.lockBatch(2)).thenReturn(batch);
+        when(producerService.sendAll(batch)).thenReturn(CompletableFuture.completedFuture(null));
+
+        relay.relay();
+
+        var order = inOrder(outboxRepository,transactionManager,producerService);
+        order
+                .verify(outboxRepository)
+                .claim(List.of(1L),60.0);
+        order
+                .verify(transactionManager)
+                .commit(any());
+        order
+                .verify(producerService)
+                .sendAll(batch);
+        order
+                .verify(outboxRepository)
+                .deleteAllByIdInBatch(List.of(1L));
+    }
+
+    @Test
+    void relayShouldRunOnItsOwnThread() throws Exception {
+        properties.setPollInterval(Duration.ofMillis(10));
+        CompletableFuture<String> thread = new CompletableFuture<>();
+        when(outboxRepository.lockBatch(2)).thenAnswer(invocation -> {
+            thread.complete(Thread
+                    .currentThread()
+                    .getName());
+            return List.of();
+        });
+
+        relay.init();
+        try {
+            assertEquals("outbox-relay",thread.get(10,TimeUnit.SECONDS));
+        } finally {
+            relay.close();
+        }
+    }
+
+    @Test
+    void relayShouldNotPublishEmptyBatch() {
+        when(outboxRepository.lockBatch(2)).thenReturn(List.of());
+
+        relay.relay();
+
+        verifyNoInteractions(producerService);
+        verify(outboxRepository,never()).deleteAllByIdInBatch(any());
+    }
+
+    private OutboxEvent event(long id,String email) {
+        OutboxEvent event = new OutboxEvent(String.valueOf(id),UserEventSerializer.encode(new UserEvent(UserEvent.Type.CREATED,id,0,"Somename",email,30,Instant.now())));
+        event.setId(id);
+        event.setCreatedAt(Instant
+                .now()
+                .minusSeconds(1));
+        return event;
+    }
+}
@@ -0,0 +1,149 @@
+package ru.aston.UserServiceAPI.kafka;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProducerExecutorUnitTest {
+
+    /*
+    Пул из одного потока и одно разрешение на неподтвержденную отправку: первая отправка висит
+    на неподтвержденном future, вторая ждет разрешения в потоке пула, следующие заполняют очередь.
+    */
+
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    CompletableFuture<Void> broker = new CompletableFuture<>();
+    List<String> sent = new CopyOnWriteArrayList<>();
+    List<String> spilled = new CopyOnWriteArrayList<>();
+    ProducerExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        broker.complete(null);
+        executor.close();
+    }
+
+    @Test
+    void dropOldestShouldKeepNewestMessagesWhenQueueIsFull() throws Exception {
+        executor = executor(ProducerExecutor.OverflowPolicy.DROP_OLDEST);
+        blockProducer();
+        for (int i = 0;i < 4;i++) {
+            executor.execute(task("queued" + i));
+        }
+        broker.complete(null);
+        awaitSent(4);
+
+        assertEquals(List.of("first","second","queued2","queued3"),sent);
+        assertEquals(2,overflow("dropped"));
+    }
+
+    @Test
+    void spillShouldHandOverflowToTask() throws Exception {
+        executor = executor(ProducerExecutor.OverflowPolicy.SPILL);
+        blockProducer();
+        for (int i = 0;i < 4;i++) {
+            executor.execute(task("queued" + i));
+        }
+
+        assertEquals(List.of("queued2","queued3"),spilled);
+        assertEquals(2,overflow("spilled"));
+        assertEquals(2,executor.getQueued());
+    }
+
+    @Test
+    void blockShouldDropMessageAfterTimeout() throws Exception {
+        executor = executor(ProducerExecutor.OverflowPolicy.BLOCK);
+        blockProducer();
+        executor.execute(task("queued0"));
+        executor.execute(task("queued1"));
+        long start = System.nanoTime();
+        executor.execute(task("queued2"));
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(1,overflow("dropped"));
+    }
+
+    @Test
+    void sendResultShouldBeRecordedAndInFlightReleased() throws Exception {
+        executor = executor(ProducerExecutor.OverflowPolicy.BLOCK);
+        blockProducer();
+
+        assertEquals(1,meterRegistry
+                .get("user.kafka.send.in-flight")
+                .gauge()
+                .value());
+        broker.complete(null);
+        awaitSent(2);
+        waitUntil(() -> meterRegistry
+                .get("user.kafka.send")
+                .tag("result","success")
+                .timer()
+                .count() == 2);
+        assertEquals(0,executor.getInFlight());
+    }
+
+    private ProducerExecutor executor(ProducerExecutor.OverflowPolicy policy) {
+        ProducerExecutorProperties properties = new ProducerExecutorProperties();
+        properties.setThreads(1);
+        properties.setQueueCapacity(2);
+        properties.setMaxInFlight(1);
+        properties.setOverflowPolicy(policy);
+        properties.setBlockTimeout(Duration.ofMillis(50));
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry",meterRegistry);
+        return new ProducerExecutor(properties,beanFactory.getBeanProvider(MeterRegistry.class));
+    }
+
+    //После этого поток пула занят второй отправкой, а очередь пуста
+    private void blockProducer() throws Exception {
+        executor.execute(task("first"));
+        executor.execute(task("second"));
+        waitUntil(() -> sent.size() == 1 && executor.getQueued() == 0);
+    }
+
+    private ProducerExecutor.Task task(String name) {
+        return new ProducerExecutor.Task() {
+            @Override
+            public CompletableFuture<?> send() {
+                sent.add(name);
+                return broker;
+            }
+
+            @Override
+            public boolean spill() {
+                return spilled.add(name);
+            }
+        };
+    }
+
+    private double overflow(String action) {
+        return meterRegistry
+                .get("user.kafka.send.overflow")
+                .tag("action",action)
+                .counter()
+                .count();
+    }
+
+    private void awaitSent(int count) throws InterruptedException {
+        waitUntil(() -> sent.size() == count);
+    }
+
+    private void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (! condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) fail("Condition was not met in 5 seconds");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package ru.aston.UserServiceAPI.kafka;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProducerServiceSwapStressTest {
+
+    /*
+    Несколько потоков отправляют сообщения, пока другой поток раз за разом подменяет шаблон и топик.
+    Каждый шаблон принимает только свой топик, так что сообщение, ушедшее в шаблон с чужим топиком,
+    считается потерянным маршрутом. Брокер отвечает с задержкой, и шаблон проверяет,
+    что его продюсер закрывают только после ответа на все отправки.
+    */
+
+    static final int SENDERS = 8;
+    static final int MESSAGES_PER_SENDER = 20_000;
+
+    ScheduledExecutorService broker = Executors.newScheduledThreadPool(2);
+    Queue<String> misrouted = new ConcurrentLinkedQueue<>();
+    Set<String> received = ConcurrentHashMap.newKeySet();
+    List<GenerationTemplate> templates = new CopyOnWriteArrayList<>();
+    ProducerExecutor executor;
+    ProducerService producerService;
+
+    @BeforeEach
+    void setUp() {
+        ProducerExecutorProperties properties = new ProducerExecutorProperties();
+        properties.setThreads(4);
+        properties.setQueueCapacity(SENDERS * MESSAGES_PER_SENDER);
+        properties.setMaxInFlight(10_000);
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        executor = new ProducerExecutor(properties,beanFactory.getBeanProvider(MeterRegistry.class));
+        GenerationTemplate first = new GenerationTemplate(0);
+        templates.add(first);
+        producerService = new ProducerService(first,first.topic,executor,beanFactory.getBeanProvider(OutboxService.class),beanFactory.getBeanProvider(KafkaSpool.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        producerService.close();
+        executor.close();
+        broker.shutdownNow();
+    }
+
+    @Test
+    void repeatedSwapsShouldNotLoseOrMisrouteMessages() throws Exception {
+        AtomicBoolean sending = new AtomicBoolean(true);
+        Thread swapper = new Thread(() -> {
+            int generation = 1;
+            while (sending.get()) {
+                GenerationTemplate next = new GenerationTemplate(generation++);
+                templates.add(next);
+                producerService.setKafkaTemplateOrTopic(next,next.topic);
+                pause();
+            }
+        });
+        swapper.start();
+        ExecutorService senders = Executors.newFixedThreadPool(SENDERS);
+        List<Future<?>> futures = new CopyOnWriteArrayList<>();
+        for (int s = 0;s < SENDERS;s++) {
+            int sender = s;
+            futures.add(senders.submit(() -> {
+                for (int i = 0;i < MESSAGES_PER_SENDER;i++) {
+                    producerService.send(new InvalidatedKafkaMessage((long) sender * MESSAGES_PER_SENDER + i,0,"node"));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60,TimeUnit.SECONDS);
+        }
+        sending.set(false);
+        swapper.join();
+        senders.shutdown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (received.size() < SENDERS * MESSAGES_PER_SENDER && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        GenerationTemplate last = templates.get(templates.size() - 1);
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (templates
+                .stream()
+                .filter(template -> template != last)
+                .anyMatch(template -> ! template.closed.get()) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(templates.size() > 10,"Swapper should swap templates several times");
+        assertEquals(SENDERS * MESSAGES_PER_SENDER,received.size());
+        assertTrue(misrouted.isEmpty(),() -> "Misrouted messages: " + misrouted.size());
+        for (GenerationTemplate template : templates) {
+            if (template == last) continue;
+            assertTrue(template.closed.get(),"Retired template " + template.topic + " should be closed");
+            assertFalse(template.closedEarly.get(),"Template " + template.topic + " was closed with unacknowledged sends");
+        }
+        assertFalse(last.closed.get());
+    }
+
+    @Test
+    void retiredTemplateShouldBeClosedByLastAcknowledgement() throws Exception {
+        GenerationTemplate first = templates.get(0);
+        first.hold = new CompletableFuture<>();
+        producerService.send(new InvalidatedKafkaMessage(1L,0,"node"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (first.pending.get() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        GenerationTemplate next = new GenerationTemplate(1);
+        producerService.setKafkaTemplateOrTopic(next,next.topic);
+
+        assertEquals(1,first.pending.get());
+        assertFalse(first.closed.get());
+
+        first.hold.complete(null);
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (! first.closed.get() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+
+        assertTrue(first.closed.get());
+        assertFalse(first.closedEarly.get());
+        assertFalse(next.closed.get());
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread
+                    .currentThread()
+                    .interrupt();
+        }
+    }
+
+    final class GenerationTemplate extends KafkaTemplate<String, byte[]> {
+
+        final String topic;
+        final AtomicInteger pending = new AtomicInteger();
+        final AtomicBoolean closed = new AtomicBoolean();
+        final AtomicBoolean closedEarly = new AtomicBoolean();
+        //Если задан, брокер отвечает только после его завершения
+        volatile CompletableFuture<Void> hold;
+
+        GenerationTemplate(int generation) {
+            super(new GenerationProducerFactory());
+            this.topic = "topic-" + generation;
+            ((GenerationProducerFactory) getProducerFactory()).template = this;
+        }
+
+        @Override
+        public CompletableFuture<SendResult<String, byte[]>> send(String topic,String key,byte[] data) {
+            if (closed.get()) misrouted.add(key + " sent to closed " + this.topic);
+            if (! this.topic.equals(topic)) misrouted.add(key + " sent to " + topic + " through " + this.topic);
+            pending.incrementAndGet();
+            CompletableFuture<SendResult<String, byte[]>> future = new CompletableFuture<>();
+            if (hold != null) {
+                hold.thenRun(() -> {
+                    received.add(key);
+                    pending.decrementAndGet();
+                    future.complete(null);
+                });
+                return future;
+            }
+            broker.schedule(() -> {
+                received.add(key);
+                pending.decrementAndGet();
+                future.complete(null);
+            },ThreadLocalRandom
+                    .current()
+                    .nextInt(200),TimeUnit.MICROSECONDS);
+            return future;
+        }
+    }
+
+    static final class GenerationProducerFactory extends DefaultKafkaProducerFactory<String, byte[]> {
+
+        GenerationTemplate template;
+
+        GenerationProducerFactory() {
+            super(Map.of());
+        }
+
+        @Override
+        public void reset() {
+            close();
+        }
+
+        @Override
+        public void destroy() {
+            close();
+        }
+
+        private void close() {
+            if (template.pending.get() > 0) template.closedEarly.set(true);
+            template.closed.set(true);
+        }
+    }
+}
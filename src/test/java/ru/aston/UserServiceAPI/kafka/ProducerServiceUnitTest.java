@@ -0,0 +1,92 @@
+package ru.aston.UserServiceAPI.kafka;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import ru.aston.UserServiceAPI.entitys.OutboxEvent;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ProducerServiceUnitTest {
+
+    KafkaTemplate<String, byte[]> kafkaTemplate;
+    ProducerExecutor executor;
+    ProducerService producerService;
+
+    @BeforeEach
+    @SuppressWarnings ("unchecked")
+    void setUp() {
+        kafkaTemplate = mock(KafkaTemplate.class);
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        executor = new ProducerExecutor(new ProducerExecutorProperties(),beanFactory.getBeanProvider(MeterRegistry.class));
+        producerService = new ProducerService(kafkaTemplate,"notifications",executor,beanFactory.getBeanProvider(OutboxService.class),beanFactory.getBeanProvider(KafkaSpool.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        producerService.close();
+        executor.close();
+    }
+
+    @Test
+    void sendAllShouldStopAtFirstFailedSend() {
+        CompletableFuture<SendResult<String, byte[]>> sent = CompletableFuture.completedFuture(null);
+        //Так KafkaProducer отвечает, когда за max.block.ms не получил метаданные брокера
+        CompletableFuture<SendResult<String, byte[]>> blocked = CompletableFuture.failedFuture(new TimeoutException("Topic notifications not present in metadata"));
+        when(kafkaTemplate.send(anyString(),anyString(),any(byte[].class))).thenReturn(sent,sent,blocked);
+
+        CompletableFuture<Void> result = producerService.sendAll(events(500));
+
+        ExecutionException error = assertThrows(ExecutionException.class,result::get);
+        assertInstanceOf(TimeoutException.class,error.getCause());
+        verify(kafkaTemplate,times(3)).send(anyString(),anyString(),any(byte[].class));
+    }
+
+    @Test
+    void sendAllShouldSendWholeBatchWhenBrokerAccepts() throws Exception {
+        when(kafkaTemplate.send(anyString(),anyString(),any(byte[].class))).thenReturn(CompletableFuture.completedFuture(null));
+
+        producerService
+                .sendAll(events(500))
+                .get();
+
+        verify(kafkaTemplate,times(500)).send(anyString(),anyString(),any(byte[].class));
+    }
+
+    @Test
+    void tuningShouldBuildProducerWithBoundedTimeouts() {
+        ProducerTuningProperties tuning = new ProducerTuningProperties();
+        OutboxProperties outbox = new OutboxProperties();
+
+        //KafkaProducer сам проверяет delivery.timeout.ms >= linger.ms + request.timeout.ms
+        new KafkaProducer<>(tuning.producerConfig("localhost:9092")).close();
+        assertTrue(tuning
+                .getMaxBlock()
+                .plus(tuning.getDeliveryTimeout())
+                .compareTo(outbox.getSendTimeout()) <= 0);
+        assertTrue(outbox
+                .getSendTimeout()
+                .compareTo(outbox.getClaimTimeout()) < 0);
+    }
+
+    private static List<OutboxEvent> events(int count) {
+        return IntStream
+                .range(0,count)
+                .mapToObj(i -> new OutboxEvent(String.valueOf(i),new byte[]{(byte) i}))
+                .toList();
+    }
+}
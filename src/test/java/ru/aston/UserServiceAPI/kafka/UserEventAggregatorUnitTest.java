@@ -0,0 +1,154 @@
+package ru.aston.UserServiceAPI.kafka;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.internals.BuiltInPartitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class UserEventAggregatorUnitTest {
+
+    static final int PARTITIONS = 3;
+
+    MockProducer<String, byte[]> producer;
+    ProducerExecutor executor;
+    ProducerService producerService;
+    EnvelopeProperties properties = new EnvelopeProperties();
+
+    @BeforeEach
+    void setUp() {
+        Node node = new Node(0,"localhost",9092);
+        List<PartitionInfo> partitions = IntStream
+                .range(0,PARTITIONS)
+                .mapToObj(i -> new PartitionInfo("notifications",i,node,new Node[]{node},new Node[]{node}))
+                .toList();
+        Cluster cluster = new Cluster("test",List.of(node),partitions,Set.of(),Set.of());
+        producer = new MockProducer<>(cluster,false,new StringSerializer(),new ByteArraySerializer()) {
+            //Шаблон закрывает продюсер после каждой отправки, если фабрика не DefaultKafkaProducerFactory
+            @Override
+            public void close(Duration timeout) {
+            }
+        };
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        executor = new ProducerExecutor(new ProducerExecutorProperties(),beanFactory.getBeanProvider(MeterRegistry.class));
+        producerService = new ProducerService(new KafkaTemplate<>(() -> producer),"notifications",executor,beanFactory.getBeanProvider(OutboxService.class),beanFactory.getBeanProvider(KafkaSpool.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void eventsShouldBePackedPerPartitionOfTheirKey() {
+        UserEventAggregator aggregator = aggregator();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (long id = 0;id < 30;id++) {
+            futures.add(aggregator.add(String.valueOf(id),event(id)));
+        }
+        aggregator.flush();
+
+        assertEquals(PARTITIONS,producer
+                .history()
+                .size());
+        assertFalse(futures
+                .get(0)
+                .isDone());
+        List<Long> ids = new ArrayList<>();
+        for (ProducerRecord<String, byte[]> record : producer.history()) {
+            assertTrue(UserEventEnvelope.isEnvelope(record.headers()));
+            for (UserEvent event : UserEventEnvelope.decode(record.value())) {
+                assertEquals(partitionOf(event.userId()),record
+                        .partition()
+                        .intValue());
+                ids.add(event.userId());
+            }
+        }
+        assertEquals(LongStream
+                .range(0,30)
+                .boxed()
+                .toList(),ids
+                .stream()
+                .sorted()
+                .toList());
+
+        while (producer.completeNext()) {
+        }
+        assertTrue(futures
+                .stream()
+                .allMatch(future -> future.isDone() && ! future.isCompletedExceptionally()));
+    }
+
+    @Test
+    void envelopeShouldBeSentWhenNextEventDoesNotFit() {
+        byte[] event = event(1);
+        properties.setMaxBytes(DataSize.ofBytes(Integer.BYTES + 3L * (Integer.BYTES + event.length)));
+        UserEventAggregator aggregator = aggregator();
+        for (int i = 0;i < 7;i++) {
+            aggregator.add("1",event);
+        }
+
+        assertEquals(2,producer
+                .history()
+                .size());
+        aggregator.flush();
+        assertEquals(List.of(3,3,1),producer
+                .history()
+                .stream()
+                .map(record -> UserEventEnvelope
+                        .decode(record.value())
+                        .size())
+                .toList());
+    }
+
+    @Test
+    void failedEnvelopeShouldFailEveryEventInIt() {
+        UserEventAggregator aggregator = aggregator();
+        CompletableFuture<Void> first = aggregator.add("1",event(1));
+        CompletableFuture<Void> second = aggregator.add("1",event(1));
+        aggregator.flush();
+
+        producer.errorNext(new IllegalStateException("Broker is unavailable"));
+
+        assertTrue(first.isCompletedExceptionally());
+        assertSame(first,second);
+    }
+
+    private UserEventAggregator aggregator() {
+        return new UserEventAggregator(producerService,properties,mock(TaskScheduler.class),new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+    }
+
+    private static int partitionOf(long id) {
+        return BuiltInPartitioner.partitionForKey(String
+                .valueOf(id)
+                .getBytes(StandardCharsets.UTF_8),PARTITIONS);
+    }
+
+    private static byte[] event(long id) {
+        return UserEventSerializer.encode(new UserEvent(UserEvent.Type.CREATED,id,0,"Somename","email" + id + "@gmail.com",30,Instant.now()));
+    }
+}
@@ -0,0 +1,62 @@
+package ru.aston.UserServiceAPI.kafka;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+import ru.aston.UserServiceAPI.entitys.User;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserEventSerializerUnitTest {
+
+    UserEventSerializer serializer = new UserEventSerializer();
+    UserEventDeserializer deserializer = new UserEventDeserializer();
+    Instant now = Instant
+            .now()
+            .truncatedTo(ChronoUnit.MILLIS);
+
+    @Test
+    void snapshotShouldSurviveRoundTrip() {
+        UserEvent event = new UserEvent(UserEvent.Type.CREATED,42L,3L,"Сергей","someemail@gmail.com",30,now);
+
+        byte[] data = serializer.serialize("notifications",event);
+
+        assertEquals(event,deserializer.deserialize("notifications",data));
+        assertEquals(UserEventSerializer.SCHEMA_VERSION,data[0]);
+    }
+
+    @Test
+    void updateShouldCarryOnlyChangedFields() {
+        User user = new User("Somename","newemail@gmail.com",30);
+        user.setId(7L);
+        user.setVersion(2L);
+
+        UserEvent event = UserEvent.updated(user,"Somename","oldemail@gmail.com",30);
+        UserEvent decoded = deserializer.deserialize("notifications",serializer.serialize("notifications",event));
+
+        assertEquals(UserEvent.Type.UPDATED,decoded.type());
+        assertEquals(3L,decoded.version());
+        assertNull(decoded.name());
+        assertEquals("newemail@gmail.com",decoded.email());
+        assertNull(decoded.age());
+        assertEquals(UserEventSerializer.HEADER + 2 + "newemail@gmail.com".length(),UserEventSerializer.encode(event).length);
+    }
+
+    @Test
+    void unknownSchemaVersionShouldBeRejected() {
+        byte[] data = serializer.serialize("notifications",new UserEvent(UserEvent.Type.DELETED,1L,0L,"Somename","someemail@gmail.com",30,now));
+        data[0] = UserEventSerializer.SCHEMA_VERSION + 1;
+
+        assertThrows(SerializationException.class,() -> deserializer.deserialize("notifications",data));
+    }
+
+    @Test
+    void truncatedMessageShouldBeRejected() {
+        byte[] data = serializer.serialize("notifications",new UserEvent(UserEvent.Type.DELETED,1L,0L,"Somename","someemail@gmail.com",30,now));
+
+        assertThrows(SerializationException.class,() -> deserializer.deserialize("notifications",Arrays.copyOf(data,data.length - 6)));
+    }
+}
@@ -0,0 +1,180 @@
+package ru.aston.UserServiceAPI.services;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.aston.UserServiceAPI.dtos.UserDTOResponse;
+import ru.aston.UserServiceAPI.entitys.User;
+import ru.aston.UserServiceAPI.repos.UserRepository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static ru.aston.UserServiceAPI.controllers.UserControllerIntegrationTest.kafkaContainer;
+
+@SpringBootTest
+@Testcontainers
+@TestInstance (TestInstance.Lifecycle.PER_CLASS)
+@DirtiesContext (classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@ActiveProfiles ("test")
+class PaginationServiceConcurrencyIntegrationTest {
+
+    private static final int USERS = 30;
+    //Постгрес сам выставляет SQLSTATE 40001, как при настоящем конфликте сериализации
+    private static final String FORCE_SERIALIZATION_FAILURE =
+            "DO $$ BEGIN RAISE EXCEPTION 'forced' USING ERRCODE = 'serialization_failure'; END $$";
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer postgreSQLContainer = new PostgreSQLContainer("postgres:18")
+            .withDatabaseName("UserServiceAPI")
+            .withUsername("postgres")
+            .withPassword("postgres")
+            ;
+
+    @Autowired
+    private ReadTransactionExecutor readExecutor;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PaginationService paginationService;
+    @Autowired
+    private DataSource dataSource;
+
+    private List<Long> ids;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.kafka.bootstrap-servers",kafkaContainer::getBootstrapServers);
+    }
+
+    @BeforeAll
+    void beforeAll() {
+        ids = userRepository.saveAll(IntStream
+                .range(0,USERS)
+                .mapToObj(i -> new User("Loadname","load" + i + "@gmail.com",30))
+                .toList())
+                .stream()
+                .map(User::getId)
+                .toList();
+    }
+
+    /*
+    Одна и та же пишущая нагрузка для каждого уровня изоляции, разложенная по шагам, а не по таймингу.
+    Транзакция T2 читает пользователя B и меняет A, T1 меняет B и коммитится раньше T2. Чтение списка берет
+    снимок после коммита T1, T2 коммитится, пока чтение идет, и только потом чтение доходит до A.
+    Для SERIALIZABLE у такой тройки нет сериализуемого порядка (аномалия только читающей транзакции), и постгрес
+    отменяет чтение с 40001: чтение повторяется, то есть каждый такой конфликт стоит лишнего запроса и задержки.
+    READ_COMMITTED и REPEATABLE_READ при той же нагрузке проходят с первой попытки.
+    */
+    @ParameterizedTest
+    @CsvSource (value = {"READ_COMMITTED,1","REPEATABLE_READ,1","SERIALIZABLE,2"})
+    void listReadUnderConcurrentWritesShouldRetryOnlyWhenSerializable(ReadConsistency mode,int expectedAttempts) throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        try (Connection pivot = serializable();
+             Connection other = serializable()) {
+            execute(pivot,"SELECT age FROM users WHERE id = ?",ids.get(1));
+            execute(pivot,"UPDATE users SET age = age + 1 WHERE id = ?",ids.get(0));
+            execute(other,"UPDATE users SET age = age + 1 WHERE id = ?",ids.get(1));
+            other.commit();
+
+            List<UserDTOResponse> page = readExecutor.execute(mode,() -> {
+                if (attempts.incrementAndGet() == 1) {
+                    jdbcTemplate.queryForObject("SELECT 1",Integer.class);
+                    commit(pivot);
+                }
+                return paginationService.getAllUsersWithPaginationAndSort(0,USERS,"asc");
+            });
+
+            assertEquals(USERS,page.size());
+        }
+        assertEquals(expectedAttempts,attempts.get(),mode + " read attempts");
+    }
+
+    @Test
+    void serializationFailureShouldBeRetriedInNewTransaction() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        long count = readExecutor.execute(ReadConsistency.SERIALIZABLE,() -> {
+            if (attempts.incrementAndGet() == 1) jdbcTemplate.execute(FORCE_SERIALIZATION_FAILURE);
+            return userRepository.count();
+        });
+
+        assertEquals(2,attempts.get());
+        assertEquals(USERS,count);
+    }
+
+    @Test
+    void readCommittedReadShouldNotBeRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(ConcurrencyFailureException.class,() -> readExecutor.execute(ReadConsistency.READ_COMMITTED,() -> {
+            attempts.incrementAndGet();
+            jdbcTemplate.execute(FORCE_SERIALIZATION_FAILURE);
+            return null;
+        }));
+        assertEquals(1,attempts.get());
+    }
+
+    @Test
+    void readJoiningOuterTransactionShouldNotBeRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+        TransactionTemplate outer = new TransactionTemplate(transactionManager);
+
+        assertThrows(ConcurrencyFailureException.class,() -> outer.executeWithoutResult(status -> readExecutor.execute(ReadConsistency.SERIALIZABLE,() -> {
+            attempts.incrementAndGet();
+            jdbcTemplate.execute(FORCE_SERIALIZATION_FAILURE);
+            return null;
+        })));
+        assertEquals(1,attempts.get());
+    }
+
+    private Connection serializable() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        connection.setAutoCommit(false);
+        connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        return connection;
+    }
+
+    private static void execute(Connection connection,String sql,long id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1,id);
+            statement.execute();
+        }
+    }
+
+    private static void commit(Connection connection) {
+        try {
+            connection.commit();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package ru.aston.UserServiceAPI.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.aston.UserServiceAPI.dtos.CursorPageDTO;
+import ru.aston.UserServiceAPI.mappers.UserMapperImpl;
+import ru.aston.UserServiceAPI.repos.UserRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaginationServiceUnitTest {
+
+    static final int MAX_SIZE = 100;
+
+    UserRepository userRepository;
+    PaginationService paginationService;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        ReadTransactionExecutor readExecutor = new ReadTransactionExecutor(mock(PlatformTransactionManager.class),new ReadConsistencyProperties());
+        paginationService = new PaginationService(userRepository,new UserMapperImpl(),readExecutor,MAX_SIZE);
+    }
+
+    @Test
+    void pageSizeShouldBeClampedToConfiguredMaximum() {
+        when(userRepository.findAll(any(Pageable.class))).thenReturn(Page.empty());
+
+        paginationService.getAllUsersWithPaginationAndSort(0,Integer.MAX_VALUE,"asc");
+
+        verify(userRepository).findAll(eq(PageRequest.of(0,MAX_SIZE,Sort
+                .by("id")
+                .ascending())));
+    }
+
+    @Test
+    void cursorSizeShouldBeClampedWithoutOverflow() {
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(anyLong(),any(Limit.class))).thenReturn(List.of());
+        when(userRepository.findByIdLessThanOrderByIdDesc(anyLong(),any(Limit.class))).thenReturn(List.of());
+
+        CursorPageDTO after = paginationService.getUsersAfter(0,Integer.MAX_VALUE);
+        CursorPageDTO before = paginationService.getUsersBefore(10,Integer.MAX_VALUE);
+
+        verify(userRepository).findByIdGreaterThanOrderByIdAsc(0L,Limit.of(MAX_SIZE + 1));
+        verify(userRepository).findByIdLessThanOrderByIdDesc(10L,Limit.of(MAX_SIZE + 1));
+        assertEquals(MAX_SIZE,after.getSize());
+        assertEquals(MAX_SIZE,before.getSize());
+    }
+
+    @Test
+    void sizeWithinLimitShouldBeKept() {
+        assertEquals(20,paginationService.clamp(20));
+        assertEquals(MAX_SIZE,paginationService.clamp(MAX_SIZE + 1));
+    }
+}
@@ -0,0 +1,85 @@
+package ru.aston.UserServiceAPI.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ReadTransactionExecutorUnitTest {
+
+    ReadConsistencyProperties properties;
+    ReadTransactionExecutor readExecutor;
+    AtomicInteger attempts;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ReadConsistencyProperties();
+        properties.setMaxAttempts(3);
+        properties.setInitialBackoff(Duration.ofMillis(1));
+        properties.setMaxBackoff(Duration.ofMillis(2));
+        readExecutor = new ReadTransactionExecutor(mock(PlatformTransactionManager.class),properties);
+        attempts = new AtomicInteger();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    void serializationFailureShouldBeRetried() {
+        String result = readExecutor.execute(ReadConsistency.SERIALIZABLE,() -> {
+            if (attempts.incrementAndGet() < 3) throw serializationFailure();
+            return "ok";
+        });
+
+        assertEquals("ok",result);
+        assertEquals(3,attempts.get());
+    }
+
+    @Test
+    void retriesShouldStopAtMaxAttempts() {
+        assertThrows(PessimisticLockingFailureException.class,() -> readExecutor.execute(ReadConsistency.REPEATABLE_READ,() -> {
+            attempts.incrementAndGet();
+            throw serializationFailure();
+        }));
+        assertEquals(3,attempts.get());
+    }
+
+    @Test
+    void readCommittedAndOtherErrorsShouldNotBeRetried() {
+        assertThrows(PessimisticLockingFailureException.class,() -> readExecutor.execute(ReadConsistency.READ_COMMITTED,() -> {
+            attempts.incrementAndGet();
+            throw serializationFailure();
+        }));
+        assertThrows(IllegalStateException.class,() -> readExecutor.execute(ReadConsistency.SERIALIZABLE,() -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("Not a serialization failure");
+        }));
+        assertEquals(2,attempts.get());
+    }
+
+    @Test
+    void readJoiningOuterTransactionShouldNotBeRetried() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        assertThrows(PessimisticLockingFailureException.class,() -> readExecutor.execute(ReadConsistency.SERIALIZABLE,() -> {
+            attempts.incrementAndGet();
+            throw serializationFailure();
+        }));
+        assertEquals(1,attempts.get());
+    }
+
+    private static PessimisticLockingFailureException serializationFailure() {
+        return new PessimisticLockingFailureException("could not serialize access",new SQLException("could not serialize access","40001"));
+    }
+}
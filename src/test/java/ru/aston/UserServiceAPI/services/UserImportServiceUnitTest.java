@@ -0,0 +1,80 @@
+package ru.aston.UserServiceAPI.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import ru.aston.UserServiceAPI.Utils.ImportQueueFullException;
+import ru.aston.UserServiceAPI.cache.EmailBloomFilter;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserImportServiceUnitTest {
+
+    DataSource dataSource = mock(DataSource.class);
+    UserImportService importService;
+
+    @AfterEach
+    void tearDown() {
+        if (importService != null) importService.destroy();
+    }
+
+    @Test
+    void importsOverQueueCapacityShouldBeRejected() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(dataSource.getConnection()).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            throw new SQLException("Database is down");
+        });
+        importService = importService(1,Duration.ofHours(1));
+
+        ImportJob running = importService.start(file(),ExportFormat.NDJSON);
+        assertTrue(started.await(5,TimeUnit.SECONDS));
+        ImportJob queued = importService.start(file(),ExportFormat.NDJSON);
+
+        assertThrows(ImportQueueFullException.class,() -> importService.start(file(),ExportFormat.NDJSON));
+        assertEquals(ImportJob.State.QUEUED,queued.getState());
+        assertTrue(importService
+                .getJob(running.getId())
+                .isPresent());
+        release.countDown();
+    }
+
+    @Test
+    void finishedJobsShouldExpire() throws Exception {
+        when(dataSource.getConnection()).thenThrow(new SQLException("Database is down"));
+        importService = importService(1,Duration.ZERO);
+
+        ImportJob job = importService.start(file(),ExportFormat.NDJSON);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (importService
+                .getJob(job.getId())
+                .isPresent() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(ImportJob.State.FAILED,job.getState());
+        assertTrue(importService
+                .getJob(job.getId())
+                .isEmpty());
+    }
+
+    private UserImportService importService(int maxQueuedJobs,Duration jobTtl) {
+        return new UserImportService(dataSource,new ObjectMapper(),mock(Validator.class),mock(EmailBloomFilter.class),100,1,1,maxQueuedJobs,jobTtl);
+    }
+
+    private static MockMultipartFile file() {
+        return new MockMultipartFile("file","users.ndjson","application/x-ndjson","{\"name\":\"Somename\",\"email\":\"someemail@gmail.com\",\"age\":30}\n".getBytes());
+    }
+}